@@ -0,0 +1,112 @@
+package org.ow2.proactive.tests.performance.jmeter.rm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.protocol.java.sampler.JavaSamplerContext;
+import org.apache.jmeter.samplers.SampleResult;
+import org.ow2.proactive.resourcemanager.rmnode.RMNode;
+import org.ow2.proactive.resourcemanager.selection.statistics.ProbablisticSelectionManager;
+import org.ow2.proactive.scripting.ScriptResult;
+import org.ow2.proactive.scripting.SelectionScript;
+import org.ow2.proactive.tests.performance.jmeter.BaseJMeterClient;
+
+
+/**
+ * Micro benchmark 'Arrange nodes for selection scripts'.
+ * <p/>
+ * Scenario fills the knowledge base of the ProbablisticSelectionManager with the results
+ * of several selection scripts on a large number of nodes, then measures the time required
+ * to arrange all the nodes against all the scripts, as done for each nodes request
+ * with selection scripts. No resource manager is needed: nodes are local proxies,
+ * only the RM configuration (pa.rm.home) has to be available.
+ * 
+ * @author ProActive team
+ *
+ */
+public class SelectionScriptsArrangeClient extends BaseJMeterClient {
+
+    public static final String PARAM_NODES_NUMBER = "nodesNumber";
+
+    public static final String PARAM_SCRIPTS_NUMBER = "scriptsNumber";
+
+    private ProbablisticSelectionManager selectionManager;
+
+    private List<RMNode> nodes;
+
+    private List<SelectionScript> scripts;
+
+    @Override
+    public Arguments getDefaultParameters() {
+        Arguments args = super.getDefaultParameters();
+        args.addArgument(PARAM_NODES_NUMBER, "10000");
+        args.addArgument(PARAM_SCRIPTS_NUMBER, "5");
+        return args;
+    }
+
+    @Override
+    protected void doSetupTest(JavaSamplerContext context) throws Throwable {
+        int nodesNumber = Integer.valueOf(getRequiredParameter(context, PARAM_NODES_NUMBER));
+        int scriptsNumber = Integer.valueOf(getRequiredParameter(context, PARAM_SCRIPTS_NUMBER));
+
+        nodes = new ArrayList<RMNode>(nodesNumber);
+        for (int i = 0; i < nodesNumber; i++) {
+            nodes.add(createNode("benchmark://node" + i));
+        }
+        scripts = new ArrayList<SelectionScript>(scriptsNumber);
+        for (int i = 0; i < scriptsNumber; i++) {
+            scripts.add(new SelectionScript("selected = true; // " + i, "javascript", true));
+        }
+
+        // static and dynamic results on most of the nodes, the remaining nodes stay unknown
+        selectionManager = new ProbablisticSelectionManager(null);
+        Random random = new Random(0);
+        for (SelectionScript script : scripts) {
+            for (RMNode node : nodes) {
+                if (random.nextInt(10) > 0) {
+                    selectionManager.processScriptResult(script, new ScriptResult<Boolean>(random
+                            .nextInt(5) > 0), node);
+                }
+            }
+        }
+        logInfo("Knowledge base filled for " + nodesNumber + " nodes and " + scriptsNumber + " scripts");
+    }
+
+    @Override
+    protected SampleResult doRunTest(JavaSamplerContext context) throws Throwable {
+        SampleResult result = new SampleResult();
+        result.setSuccessful(true);
+        result.sampleStart();
+        List<RMNode> arranged = selectionManager.arrangeNodesForScriptExecution(nodes, scripts);
+        result.sampleEnd();
+
+        assertTrue(arranged.size() <= nodes.size(), "Unexpected arranged nodes number: " + arranged.size(),
+                result);
+        return result;
+    }
+
+    /**
+     * Creates a node only able to be compared and to give its URL.
+     */
+    private static RMNode createNode(final String url) {
+        return (RMNode) Proxy.newProxyInstance(RMNode.class.getClassLoader(), new Class<?>[] { RMNode.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("equals")) {
+                            return proxy == args[0];
+                        } else if (name.equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        } else if (name.equals("getNodeURL") || name.equals("toString")) {
+                            return url;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+}
@@ -0,0 +1,140 @@
+package org.ow2.proactive.tests.performance.jmeter.rm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.protocol.java.sampler.JavaSamplerContext;
+import org.apache.jmeter.samplers.SampleResult;
+import org.objectweb.proactive.core.node.Node;
+import org.objectweb.proactive.core.node.NodeInformation;
+import org.objectweb.proactive.core.runtime.VMInformation;
+import org.ow2.proactive.resourcemanager.frontend.topology.TopologyImpl;
+import org.ow2.proactive.resourcemanager.frontend.topology.clustering.HAC;
+import org.ow2.proactive.tests.performance.jmeter.BaseJMeterClient;
+import org.ow2.proactive.topology.descriptor.BestProximityDescriptor;
+
+
+/**
+ * Micro benchmark 'Topology aware nodes selection'.
+ * <p/>
+ * Scenario builds a topology of hosts grouped by racks (hosts of the same rack are
+ * close to each other) with one node per host, then measures the time required
+ * to select the best proximity set of nodes with the hierarchical agglomerative
+ * clustering, as done for each nodes request with BestProximityDescriptor.
+ * No resource manager is needed: nodes are local proxies.
+ *
+ * @author ProActive team
+ *
+ */
+public class TopologySelectionClient extends BaseJMeterClient {
+
+    public static final String PARAM_NODES_NUMBER = "nodesNumber";
+
+    public static final String PARAM_SELECTED_NODES_NUMBER = "selectedNodesNumber";
+
+    public static final String PARAM_RACK_SIZE = "rackSize";
+
+    private TopologyImpl topology;
+
+    private List<Node> nodes;
+
+    private int selectedNodesNumber;
+
+    @Override
+    public Arguments getDefaultParameters() {
+        Arguments args = super.getDefaultParameters();
+        args.addArgument(PARAM_NODES_NUMBER, "1000");
+        args.addArgument(PARAM_SELECTED_NODES_NUMBER, "50");
+        args.addArgument(PARAM_RACK_SIZE, "40");
+        return args;
+    }
+
+    @Override
+    protected void doSetupTest(JavaSamplerContext context) throws Throwable {
+        int nodesNumber = Integer.valueOf(getRequiredParameter(context, PARAM_NODES_NUMBER));
+        int rackSize = Integer.valueOf(getRequiredParameter(context, PARAM_RACK_SIZE));
+        selectedNodesNumber = Integer.valueOf(getRequiredParameter(context, PARAM_SELECTED_NODES_NUMBER));
+
+        topology = new TopologyImpl();
+        nodes = new ArrayList<Node>(nodesNumber);
+        List<InetAddress> hosts = new ArrayList<InetAddress>(nodesNumber);
+        Random random = new Random(0);
+        for (int i = 0; i < nodesNumber; i++) {
+            InetAddress host = InetAddress.getByAddress("host" + i, new byte[] { 10, (byte) (i >> 16),
+                    (byte) (i >> 8), (byte) i });
+            HashMap<InetAddress, Long> hostTopology = new HashMap<InetAddress, Long>();
+            for (int j = 0; j < hosts.size(); j++) {
+                long distance = (i / rackSize == j / rackSize) ? 10 + random.nextInt(10) : 100 + random
+                        .nextInt(100);
+                hostTopology.put(hosts.get(j), distance);
+            }
+            topology.addHostTopology(host.getHostName(), host, hostTopology);
+            hosts.add(host);
+            nodes.add(createNode("benchmark://host" + i + "/node", host));
+        }
+        logInfo("Topology created for " + nodesNumber + " hosts");
+    }
+
+    @Override
+    protected SampleResult doRunTest(JavaSamplerContext context) throws Throwable {
+        SampleResult result = new SampleResult();
+        result.setSuccessful(true);
+        result.sampleStart();
+        HAC hac = new HAC(topology, null, BestProximityDescriptor.MAX, Long.MAX_VALUE);
+        List<Node> selected = hac.select(selectedNodesNumber, nodes);
+        result.sampleEnd();
+
+        assertTrue(selected.size() == Math.min(selectedNodesNumber, nodes.size()),
+                "Unexpected selected nodes number: " + selected.size(), result);
+        return result;
+    }
+
+    /**
+     * Creates a node only able to give its URL and its host address.
+     */
+    private static Node createNode(final String url, final InetAddress host) {
+        final NodeInformation nodeInformation = (NodeInformation) createProxy(NodeInformation.class, url,
+                host);
+        final VMInformation vmInformation = (VMInformation) createProxy(VMInformation.class, url, host);
+        return (Node) Proxy.newProxyInstance(Node.class.getClassLoader(), new Class<?>[] { Node.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("getNodeInformation")) {
+                            return nodeInformation;
+                        } else if (name.equals("getVMInformation")) {
+                            return vmInformation;
+                        } else if (name.equals("equals")) {
+                            return proxy == args[0];
+                        } else if (name.equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        } else if (name.equals("toString")) {
+                            return url;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+
+    private static Object createProxy(Class<?> type, final String url, final InetAddress host) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("getURL") || name.equals("toString")) {
+                            return url;
+                        } else if (name.equals("getInetAddress")) {
+                            return host;
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+}
@@ -0,0 +1,74 @@
+package org.ow2.proactive.tests.performance.jmeter.scheduler;
+
+import java.io.File;
+
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.protocol.java.sampler.JavaSamplerContext;
+import org.apache.jmeter.samplers.SampleResult;
+import org.ow2.proactive.scheduler.common.job.TaskFlowJob;
+import org.ow2.proactive.scheduler.common.job.factories.Job2XMLTransformer;
+import org.ow2.proactive.scheduler.common.job.factories.JobFactory;
+import org.ow2.proactive.scheduler.common.task.JavaTask;
+import org.ow2.proactive.tests.performance.jmeter.BaseJMeterClient;
+
+
+/**
+ * Micro benchmark 'Job descriptor parsing'.
+ * <p/>
+ * Scenario writes a job descriptor with the given number of java tasks, then
+ * measures the time required to create a job from it, as done for each job
+ * submitted as XML: the descriptor is validated against the job schema and parsed.
+ * Number of jobs parsed per second is given by the sampler throughput, it should
+ * be measured for small descriptors (default) and for huge ones (10000 tasks).
+ * No scheduler is needed.
+ *
+ * @author ProActive team
+ *
+ */
+public class JobParsingClient extends BaseJMeterClient {
+
+    public static final String PARAM_TASKS_NUMBER = "tasksNumber";
+
+    private int tasksNumber;
+
+    private File descriptor;
+
+    @Override
+    public Arguments getDefaultParameters() {
+        Arguments args = super.getDefaultParameters();
+        args.addArgument(PARAM_TASKS_NUMBER, "10");
+        return args;
+    }
+
+    @Override
+    protected void doSetupTest(JavaSamplerContext context) throws Throwable {
+        tasksNumber = Integer.valueOf(getRequiredParameter(context, PARAM_TASKS_NUMBER));
+
+        TaskFlowJob job = new TaskFlowJob();
+        job.setName("JobParsingClientJob");
+        for (int i = 0; i < tasksNumber; i++) {
+            JavaTask task = new JavaTask();
+            task.setName("JobParsingClientTask-" + i);
+            task.setExecutableClassName(SimpleJavaTask.class.getName());
+            job.addTask(task);
+        }
+        descriptor = File.createTempFile("JobParsingClient", ".xml");
+        descriptor.deleteOnExit();
+        new Job2XMLTransformer().job2xmlFile(job, descriptor);
+        logInfo("Job descriptor created with " + tasksNumber + " tasks: " + descriptor.getAbsolutePath());
+    }
+
+    @Override
+    protected SampleResult doRunTest(JavaSamplerContext context) throws Throwable {
+        SampleResult result = new SampleResult();
+        result.setSuccessful(true);
+        result.sampleStart();
+        TaskFlowJob job = (TaskFlowJob) JobFactory.getFactory().createJob(descriptor.getAbsolutePath());
+        result.sampleEnd();
+
+        assertTrue(job.getTasks().size() == tasksNumber, "Unexpected tasks number: " +
+            job.getTasks().size(), result);
+        return result;
+    }
+
+}
@@ -0,0 +1,125 @@
+package org.ow2.proactive.tests.performance.jmeter.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.protocol.java.sampler.JavaSamplerContext;
+import org.apache.jmeter.samplers.SampleResult;
+import org.ow2.proactive.scheduler.common.job.TaskFlowJob;
+import org.ow2.proactive.scheduler.common.task.JavaTask;
+import org.ow2.proactive.scheduler.common.task.TaskId;
+import org.ow2.proactive.scheduler.common.task.TaskStatus;
+import org.ow2.proactive.scheduler.descriptor.EligibleTaskDescriptor;
+import org.ow2.proactive.scheduler.job.InternalJob;
+import org.ow2.proactive.scheduler.job.InternalJobFactory;
+import org.ow2.proactive.scheduler.job.JobIdImpl;
+import org.ow2.proactive.scheduler.task.TaskResultImpl;
+import org.ow2.proactive.scheduler.task.internal.InternalTask;
+import org.ow2.proactive.tests.performance.jmeter.BaseJMeterClient;
+
+
+/**
+ * Micro benchmark 'Task termination'.
+ * <p/>
+ * Scenario builds a job with a large number of independent tasks, as created by
+ * a replicate action, then measures the time required to start and terminate
+ * a fixed number of its tasks, as done by the scheduler core for each task
+ * termination. The sample time must not depend on the job size.
+ * No scheduler is needed: the job is only kept in memory.
+ *
+ * @author ProActive team
+ *
+ */
+public class TaskTerminationClient extends BaseJMeterClient {
+
+    public static final String PARAM_TASKS_NUMBER = "tasksNumber";
+
+    public static final String PARAM_TERMINATED_TASKS_NUMBER = "terminatedTasksNumber";
+
+    private int tasksNumber;
+
+    private int terminatedTasksNumber;
+
+    private InternalJob job;
+
+    private long jobId;
+
+    @Override
+    public Arguments getDefaultParameters() {
+        Arguments args = super.getDefaultParameters();
+        args.addArgument(PARAM_TASKS_NUMBER, "50000");
+        args.addArgument(PARAM_TERMINATED_TASKS_NUMBER, "1000");
+        return args;
+    }
+
+    @Override
+    protected void doSetupTest(JavaSamplerContext context) throws Throwable {
+        tasksNumber = Integer.valueOf(getRequiredParameter(context, PARAM_TASKS_NUMBER));
+        terminatedTasksNumber = Integer.valueOf(getRequiredParameter(context,
+                PARAM_TERMINATED_TASKS_NUMBER));
+        job = createJob();
+    }
+
+    @Override
+    protected SampleResult doRunTest(JavaSamplerContext context) throws Throwable {
+        if (job.getJobDescriptor().getEligibleTasksView().size() < terminatedTasksNumber) {
+            job = createJob();
+        }
+        List<TaskId> started = new ArrayList<TaskId>(terminatedTasksNumber);
+        for (EligibleTaskDescriptor eligible : job.getJobDescriptor().getEligibleTasksView()) {
+            if (started.size() == terminatedTasksNumber) {
+                break;
+            }
+            started.add(eligible.getTaskId());
+        }
+
+        SampleResult result = new SampleResult();
+        result.setSuccessful(true);
+        result.sampleStart();
+        for (TaskId taskId : started) {
+            startTask(taskId);
+            job.terminateTask(false, taskId, null, null, new TaskResultImpl(taskId, "OK", null, 1));
+        }
+        result.sampleEnd();
+
+        assertTrue(job.getIHMTasks().get(started.get(0)).getStatus() == TaskStatus.FINISHED,
+                "Task " + started.get(0) + " is not finished", result);
+        return result;
+    }
+
+    /**
+     * Starts the task as the scheduler core does, without any node.
+     */
+    private void startTask(TaskId taskId) {
+        InternalTask task = job.getIHMTasks().get(taskId);
+        job.setNumberOfPendingTasks(job.getNumberOfPendingTasks() - 1);
+        job.setNumberOfRunningTasks(job.getNumberOfRunningTasks() + 1);
+        job.getJobDescriptor().start(taskId);
+        task.setStatus(TaskStatus.RUNNING);
+        task.setStartTime(System.currentTimeMillis());
+        task.setFinishedTime(-1);
+    }
+
+    private InternalJob createJob() throws Exception {
+        TaskFlowJob jobDef = new TaskFlowJob();
+        jobDef.setName("TaskTerminationClientJob");
+        for (int i = 0; i < tasksNumber; i++) {
+            JavaTask task = new JavaTask();
+            task.setName("TaskTerminationClientTask-" + i);
+            task.setExecutableClassName(SimpleJavaTask.class.getName());
+            jobDef.addTask(task);
+        }
+
+        InternalJob internalJob = InternalJobFactory.createJob(jobDef, null);
+        internalJob.setId(new JobIdImpl(++jobId, jobDef.getName()));
+        internalJob.setOwner("TaskTerminationClient");
+        internalJob.submitAction();
+        internalJob.prepareTasks();
+        internalJob.start();
+        internalJob.setTaskStatusModify(null);
+        logInfo("Job created with " + tasksNumber + " tasks");
+        return internalJob;
+    }
+
+}
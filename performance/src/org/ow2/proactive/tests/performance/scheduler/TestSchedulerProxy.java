@@ -51,6 +51,8 @@ import org.ow2.proactive.scheduler.common.SchedulerConnection;
 import org.ow2.proactive.scheduler.common.SchedulerEvent;
 import org.ow2.proactive.scheduler.common.SchedulerEventListener;
 import org.ow2.proactive.scheduler.common.SchedulerState;
+import org.ow2.proactive.scheduler.common.SchedulerStateDelta;
+import org.ow2.proactive.scheduler.common.SchedulerStatePage;
 import org.ow2.proactive.scheduler.common.SchedulerStatus;
 import org.ow2.proactive.scheduler.common.exception.AlreadyConnectedException;
 import org.ow2.proactive.scheduler.common.exception.ConnectionException;
@@ -62,6 +64,7 @@ import org.ow2.proactive.scheduler.common.exception.SubmissionClosedException;
 import org.ow2.proactive.scheduler.common.exception.UnknownJobException;
 import org.ow2.proactive.scheduler.common.exception.UnknownTaskException;
 import org.ow2.proactive.scheduler.common.job.Job;
+import org.ow2.proactive.scheduler.common.job.JobFilter;
 import org.ow2.proactive.scheduler.common.job.JobId;
 import org.ow2.proactive.scheduler.common.job.JobPriority;
 import org.ow2.proactive.scheduler.common.job.JobResult;
@@ -241,6 +244,12 @@ public class TestSchedulerProxy implements Scheduler {
         return target.getTaskResultFromIncarnation(jobId, taskName, inc);
     }
 
+    @Override
+    public byte[] getTaskResultValuePart(String jobId, String taskName, long offset, int length)
+            throws NotConnectedException, UnknownJobException, UnknownTaskException, PermissionException {
+        return target.getTaskResultValuePart(jobId, taskName, offset, length);
+    }
+
     @Override
     public boolean removeJob(String jobId) throws NotConnectedException, UnknownJobException,
             PermissionException {
@@ -322,6 +331,18 @@ public class TestSchedulerProxy implements Scheduler {
         return target.getState(myJobsOnly);
     }
 
+    @Override
+    public SchedulerStatePage getJobs(JobFilter filter, int offset, int limit) throws NotConnectedException,
+            PermissionException {
+        return target.getJobs(filter, offset, limit);
+    }
+
+    @Override
+    public SchedulerStateDelta getStateDelta(long revision, boolean myJobsOnly) throws NotConnectedException,
+            PermissionException {
+        return target.getStateDelta(revision, myJobsOnly);
+    }
+
     @Override
     public void addEventListener(SchedulerEventListener sel, boolean myEventsOnly, SchedulerEvent... events)
             throws NotConnectedException, PermissionException {
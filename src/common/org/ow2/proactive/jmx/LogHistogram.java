@@ -0,0 +1,180 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.jmx;
+
+/**
+ * Histogram of durations with logarithmic buckets.
+ * <p>
+ * Each power of 2 is split in {@link #SUB_BUCKETS} buckets, so a percentile is known
+ * with a relative error below 1/{@link #SUB_BUCKETS}, whatever the number of recorded values.
+ * The memory used by the histogram is fixed, values of 2^({@link #MAX_EXPONENT} + 1) or more
+ * are counted in an unbounded last bucket.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class LogHistogram {
+
+    private static final int SUB_BUCKETS_BITS = 3;
+
+    /** Number of buckets for each power of 2 */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKETS_BITS;
+
+    /** Exponent of the highest power of 2 having its own buckets */
+    public static final int MAX_EXPONENT = 42;
+
+    /** Index of the unbounded bucket, after the buckets of the highest power of 2 */
+    private static final int OVERFLOW_INDEX = (MAX_EXPONENT - SUB_BUCKETS_BITS + 2) * SUB_BUCKETS;
+
+    private final long[] counts = new long[OVERFLOW_INDEX + 1];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Record a value, negative values are recorded as 0.
+     *
+     * @param value the value to record
+     */
+    public synchronized void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[indexOf(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Return the number of recorded values.
+     *
+     * @return the number of recorded values.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Return the mean of the recorded values, 0 if there is none.
+     *
+     * @return the mean of the recorded values.
+     */
+    public synchronized long getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * Return the highest recorded value, 0 if there is none.
+     *
+     * @return the highest recorded value.
+     */
+    public synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * Return the value below which the given percentage of the recorded values falls,
+     * 0 if there is no value.
+     *
+     * @param percentile the percentage, between 0 and 100
+     * @return the upper bound of the bucket containing the percentile, never bigger than the highest value
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * Math.min(Math.max(percentile, 0), 100) / 100);
+        rank = Math.max(rank, 1);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // the last bucket is unbounded
+                return i == OVERFLOW_INDEX ? max : Math.min(upperBoundOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Add the values recorded by another histogram to this one.
+     *
+     * @param other the histogram whose values are added, it is not modified
+     */
+    public void add(LogHistogram other) {
+        long[] otherCounts;
+        long otherCount;
+        long otherSum;
+        long otherMax;
+        synchronized (other) {
+            otherCounts = other.counts.clone();
+            otherCount = other.count;
+            otherSum = other.sum;
+            otherMax = other.max;
+        }
+        synchronized (this) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += otherCounts[i];
+            }
+            count += otherCount;
+            sum += otherSum;
+            max = Math.max(max, otherMax);
+        }
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return OVERFLOW_INDEX;
+        }
+        int subBucket = (int) (value >> (exponent - SUB_BUCKETS_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKETS_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKETS_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKETS_BITS)) - 1;
+    }
+}
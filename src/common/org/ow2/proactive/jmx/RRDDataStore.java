@@ -39,6 +39,8 @@ package org.ow2.proactive.jmx;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 
 import javax.management.MBeanAttributeInfo;
 import javax.management.StandardMBean;
@@ -47,8 +49,10 @@ import org.apache.log4j.Logger;
 import org.ow2.proactive.utils.FileToBytesConverter;
 import org.rrd4j.ConsolFun;
 import org.rrd4j.DsType;
+import org.rrd4j.core.DsDef;
 import org.rrd4j.core.RrdDb;
 import org.rrd4j.core.RrdDef;
+import org.rrd4j.core.RrdToolkit;
 import org.rrd4j.core.Sample;
 
 
@@ -135,6 +139,7 @@ public class RRDDataStore extends Thread {
             dataBase.close();
         } else {
             logger.info("Using existing RRD database: " + new File(dataBaseFilePath).getAbsolutePath());
+            addMissingDataSources();
         }
 
         setName("RRD4J Data Store " + new File(dataBaseFilePath).getName());
@@ -142,6 +147,32 @@ public class RRDDataStore extends Thread {
         start();
     }
 
+    /**
+     * Adds to an existing data base the data sources of the chronological attributes
+     * added to the mbean after the data base creation.
+     *
+     * @throws IOException when the data base cannot be read or updated
+     */
+    private void addMissingDataSources() throws IOException {
+        List<String> missingDataSources = new LinkedList<String>();
+        RrdDb dataBase = new RrdDb(dataBaseFile, true);
+        try {
+            for (String dataSource : dataSources.keySet()) {
+                if (!dataBase.containsDs(dataSource)) {
+                    missingDataSources.add(dataSource);
+                }
+            }
+        } finally {
+            dataBase.close();
+        }
+
+        for (String dataSource : missingDataSources) {
+            logger.info("Adding the data source " + dataSource + " to the RRD data base");
+            RrdToolkit.addDatasource(dataBaseFile, new DsDef(dataSource, DsType.GAUGE, 600, 0, Double.NaN),
+                    false);
+        }
+    }
+
     /**
      * Periodically dumps the new mbean state to the data base
      */
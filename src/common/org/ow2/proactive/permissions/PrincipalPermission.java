@@ -41,6 +41,7 @@ import java.security.Permission;
 import java.security.PermissionCollection;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -97,6 +98,28 @@ public class PrincipalPermission extends ClientPermission {
         return false;
     }
 
+    /**
+     * Two principal permissions are equal when they hold the same principals,
+     * whatever their order.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()) {
+            return false;
+        }
+        PrincipalPermission pp = (PrincipalPermission) obj;
+        return new HashSet<IdentityPrincipal>(principals)
+                .equals(new HashSet<IdentityPrincipal>(pp.principals));
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashSet<IdentityPrincipal>(principals).hashCode();
+    }
+
     public String toString() {
         return this.getClass().getName() + " of " + principals;
     }
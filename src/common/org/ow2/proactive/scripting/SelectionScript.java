@@ -88,6 +88,9 @@ public class SelectionScript extends Script<Boolean> {
      */
     protected byte[] id_;
 
+    /** MD5 digest of the id, computed once */
+    private transient byte[] digest;
+
     /** ProActive needed constructor */
     public SelectionScript() {
     }
@@ -202,6 +205,7 @@ public class SelectionScript extends Script<Boolean> {
             }
         }
 
+        this.digest = null;
         try {
             this.id_ = MessageDigest.getInstance("SHA-1").digest(stringId.getBytes());
         } catch (NoSuchAlgorithmException e) {
@@ -297,13 +301,16 @@ public class SelectionScript extends Script<Boolean> {
     }
 
     /**
-     * Get MD5 hash value
+     * Get MD5 hash value. It is computed on the first call only.
      * 
      * @return MD5 hash value
      * @throws NoSuchAlgorithmException
      */
     public byte[] digest() throws NoSuchAlgorithmException {
-        return MessageDigest.getInstance("MD5").digest(id_);
+        if (digest == null) {
+            digest = MessageDigest.getInstance("MD5").digest(id_);
+        }
+        return digest.clone();
     }
 
     /** Compare two arrays of bytes
@@ -132,15 +132,16 @@ public final class MBeanInfoViewer {
      * @param mbeanNameAsString the object name of the MBean
      * @param operationName the name of the operation to invoke
      * @param params the array of parameters of the operation
+     * @return the object returned by the operation
      */
-    public void invoke(final String mbeanNameAsString, final String operationName, final Object[] params) {
+    public Object invoke(final String mbeanNameAsString, final String operationName, final Object[] params) {
         this.lazyConnect();
         try {
             // If new name create a new ObjectName
             if (this.mbeanName == null || !this.mbeanName.getCanonicalName().equals(mbeanNameAsString)) {
                 this.mbeanName = new ObjectName(mbeanNameAsString);
             }
-            this.connection.invoke(this.mbeanName, operationName, params, null);
+            return this.connection.invoke(this.mbeanName, operationName, params, null);
         } catch (Exception e) {
             throw new RuntimeException("Unable to invoke " + operationName + " on " + mbeanNameAsString, e);
         }
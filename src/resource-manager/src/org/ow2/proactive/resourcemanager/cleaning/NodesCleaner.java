@@ -36,22 +36,24 @@
  */
 package org.ow2.proactive.resourcemanager.cleaning;
 
-import java.util.Collection;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.Body;
 import org.objectweb.proactive.RunActive;
 import org.objectweb.proactive.Service;
 import org.objectweb.proactive.core.body.request.Request;
-import org.objectweb.proactive.core.util.wrapper.BooleanWrapper;
 import org.objectweb.proactive.extensions.annotation.ActiveObject;
+import org.objectweb.proactive.utils.NamedThreadFactory;
 import org.ow2.proactive.resourcemanager.core.RMCore;
 import org.ow2.proactive.resourcemanager.core.properties.PAResourceManagerProperties;
 import org.ow2.proactive.resourcemanager.rmnode.RMNode;
@@ -60,13 +62,35 @@ import org.ow2.proactive.resourcemanager.rmnode.RMNode;
 /**
  * This class is responsible for the node cleaning.
  * It does it in parallel in a dedicated thread pool.
+ * <p>
+ * Each node is given back to the core as soon as its own cleaning is finished,
+ * so a slow node does not delay the release of the other nodes.
+ * <p>
+ * A cleaning lasting more than the cleaning timeout is cancelled. As the cleaning of a hung
+ * node may ignore the interruption, its thread is replaced in the pool until it returns,
+ * so that the cleanings of the other nodes are not blocked behind it.
  */
 @ActiveObject
 public class NodesCleaner implements RunActive {
     /** class' logger */
     private static final Logger logger = Logger.getLogger(NodesCleaner.class);
 
-    private ExecutorService scriptExecutorThreadPool;
+    /** Cleaning statistics, exposed through JMX */
+    public static final NodesCleaningStatistics statistics = new NodesCleaningStatistics();
+
+    private ThreadPoolExecutor scriptExecutorThreadPool;
+
+    /** Number of threads of the pool when no cleaning is stuck */
+    private int poolSize;
+
+    /** Number of threads still running a timed out cleaning */
+    private int stuckThreads;
+
+    /** Timer used to give up the cleaning of nodes which do not answer */
+    private ScheduledExecutorService timeoutTimer;
+
+    /** Max cleaning time of a node in ms, not limited if not positive */
+    private long cleaningTimeout;
 
     /** RMCore reference to be able to set nodes free after the cleaning procedure */
     private RMCore rmcore;
@@ -77,59 +101,139 @@ public class NodesCleaner implements RunActive {
 
     public NodesCleaner(RMCore rmcore) {
         this.rmcore = rmcore;
-        this.scriptExecutorThreadPool = Executors
-                .newFixedThreadPool(PAResourceManagerProperties.RM_CLEANING_MAX_THREAD_NUMBER.getValueAsInt());
+        this.poolSize = PAResourceManagerProperties.RM_CLEANING_MAX_THREAD_NUMBER.getValueAsInt();
+        this.scriptExecutorThreadPool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("Nodes cleaner threadpool"));
+        this.timeoutTimer = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(
+            "Nodes cleaner timeout timer"));
+        if (PAResourceManagerProperties.RM_CLEANING_TIMEOUT.isSet()) {
+            this.cleaningTimeout = PAResourceManagerProperties.RM_CLEANING_TIMEOUT.getValueAsInt();
+        }
     }
 
     /**
      * Cleans nodes in parallel for the nodes specified.
+     * Every node is set free as soon as it is cleaned. If an error occurs on a node or if its
+     * cleaning lasts more than the cleaning timeout, it is marked as down.
      *
      * @param nodes to be cleaned
-     * @return true if all the nodes were freed, false if error occurs on one of the node (it will be marked as down in this case)
      */
-    public BooleanWrapper cleanAndRelease(List<RMNode> nodes) {
-        List<Callable<Boolean>> cleaners = new LinkedList<Callable<Boolean>>();
+    public void cleanAndRelease(List<RMNode> nodes) {
         for (RMNode node : nodes) {
             logger.debug("Cleaning the node " + node.getNodeURL());
-            cleaners.add(new NodeCleaner(node));
+            NodeCleaning cleaning = new NodeCleaning(node);
+            scriptExecutorThreadPool.execute(cleaning.future);
+        }
+    }
+
+    /**
+     * Returns the number of threads still running a timed out cleaning.
+     *
+     * @return the number of threads still running a timed out cleaning
+     */
+    public synchronized int getStuckThreadsCount() {
+        return stuckThreads;
+    }
+
+    /**
+     * Adds a thread to the pool in place of the thread running a timed out cleaning,
+     * unless this cleaning already returned.
+     */
+    private synchronized void threadStuck(NodeCleaning cleaning) {
+        if (cleaning.returned) {
+            return;
+        }
+        cleaning.stuck = true;
+        stuckThreads++;
+        // the maximum size must be increased first so that it is never lower than the core size
+        scriptExecutorThreadPool.setMaximumPoolSize(poolSize + stuckThreads);
+        scriptExecutorThreadPool.setCorePoolSize(poolSize + stuckThreads);
+    }
+
+    /**
+     * Removes the thread added in place of the thread running a timed out cleaning
+     * once this cleaning returned.
+     */
+    private synchronized void threadReleased(NodeCleaning cleaning) {
+        cleaning.returned = true;
+        if (!cleaning.stuck) {
+            return;
         }
+        stuckThreads--;
+        scriptExecutorThreadPool.setCorePoolSize(poolSize + stuckThreads);
+        scriptExecutorThreadPool.setMaximumPoolSize(poolSize + stuckThreads);
+    }
+
+    /**
+     * Cleans a node and gives it back to the core.
+     * The timeout of the cleaning starts when the cleaning starts, not when
+     * the node is queued.
+     */
+    private class NodeCleaning implements Runnable {
+
+        private final RMNode node;
 
-        try {
-            Collection<Future<Boolean>> cleanNodes = scriptExecutorThreadPool.invokeAll(cleaners);
+        /** Task executed by the pool, cancelled when the cleaning times out */
+        private final FutureTask<Object> future;
 
-            int index = 0;
-            for (Future<Boolean> cleanNode : cleanNodes) {
-                RMNode node = nodes.get(index);
+        /** Set once the node is given back to the core, either cleaned, failed or timed out */
+        private final AtomicBoolean ended = new AtomicBoolean(false);
 
-                if (!cleanNode.isCancelled()) {
-                    Boolean isClean = null;
-                    try {
-                        isClean = cleanNode.get();
-                        if (!isClean.booleanValue()) {
-                            logger.warn("Cannot clean the node " + node.getNodeURL());
+        /** Set when the thread is replaced and when the timed out cleaning returns (cleaner lock) */
+        private boolean stuck;
+        private boolean returned;
+
+        NodeCleaning(RMNode node) {
+            this.node = node;
+            this.future = new FutureTask<Object>(this, null);
+        }
+
+        public void run() {
+            final long start = System.currentTimeMillis();
+            ScheduledFuture<?> timeout = null;
+            if (cleaningTimeout > 0) {
+                timeout = timeoutTimer.schedule(new Runnable() {
+                    public void run() {
+                        if (ended.compareAndSet(false, true)) {
+                            statistics.cleaningTimedOut(System.currentTimeMillis() - start);
+                            logger.warn("Cannot clean the node " + node.getNodeURL() + " in " +
+                                cleaningTimeout + " ms");
+                            // the thread is replaced until the cleaning returns, whether it is
+                            // interrupted or not
+                            threadStuck(NodeCleaning.this);
+                            future.cancel(true);
                             rmcore.setDownNode(node.getNodeURL());
-                        } else {
-                            logger.debug("The node " + node.getNodeURL() + " has been successfully cleaned");
                         }
-                    } catch (ExecutionException e) {
-                        logger.warn("Cannot clean the node " + node.getNodeURL(), e);
-                        rmcore.setDownNode(node.getNodeURL());
                     }
-                } else {
-                    logger.warn("Cannot clean the node " + node.getNodeURL());
-                    rmcore.setDownNode(node.getNodeURL());
+                }, cleaningTimeout, TimeUnit.MILLISECONDS);
+            }
+
+            boolean isClean = false;
+            try {
+                isClean = new NodeCleaner(node).call().booleanValue();
+            } catch (Exception e) {
+                logger.debug("", e);
+            } finally {
+                if (timeout != null) {
+                    timeout.cancel(false);
                 }
-                index++;
             }
 
-            // if we had any error while cleaning a node, this node would have been already marked as down
-            // in this case rmcore.setFreeNodes() will return false
-            return rmcore.setFreeNodes(nodes);
-        } catch (InterruptedException e) {
-            logger.error("", e);
+            if (!ended.compareAndSet(false, true)) {
+                // timed out, the node is already marked as down
+                logger.debug("The timed out cleaning of the node " + node.getNodeURL() + " returned");
+                threadReleased(this);
+                return;
+            }
+            statistics.cleaningEnded(System.currentTimeMillis() - start, isClean);
+            if (isClean) {
+                logger.debug("The node " + node.getNodeURL() + " has been successfully cleaned");
+                rmcore.setFreeNodes(Collections.singletonList(node));
+            } else {
+                logger.warn("Cannot clean the node " + node.getNodeURL());
+                rmcore.setDownNode(node.getNodeURL());
+            }
         }
-
-        return new BooleanWrapper(false);
     }
 
     /**
@@ -0,0 +1,147 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ActiveEon Team
+ *                        http://www.activeeon.com/
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$ACTIVEEON_INITIAL_DEV$$
+ */
+package org.ow2.proactive.resourcemanager.cleaning;
+
+/**
+ * Statistics of the nodes cleaning: how many nodes were cleaned, failed or timed out,
+ * and how long the cleaning of a node lasted.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class NodesCleaningStatistics {
+
+    /** Upper bounds (in milliseconds) of the buckets of the cleaning time distribution, the last bucket is unbounded */
+    public static final long[] TIME_BUCKETS = { 100, 1000, 10000, 60000 };
+
+    private long cleanedCount;
+    private long failedCount;
+    private long timeoutsCount;
+    private long cumulativeTime;
+    private long maxTime;
+    private final long[] distribution = new long[TIME_BUCKETS.length + 1];
+
+    /**
+     * Record the end of the cleaning of a node.
+     *
+     * @param time the duration of the cleaning in milliseconds
+     * @param cleaned true if the node was cleaned, false if the cleaning failed
+     */
+    public synchronized void cleaningEnded(long time, boolean cleaned) {
+        if (cleaned) {
+            cleanedCount++;
+        } else {
+            failedCount++;
+        }
+        record(time);
+    }
+
+    /**
+     * Record that the cleaning of a node did not end within the cleaning timeout.
+     *
+     * @param time the time spent before giving up in milliseconds
+     */
+    public synchronized void cleaningTimedOut(long time) {
+        timeoutsCount++;
+        record(time);
+    }
+
+    private void record(long time) {
+        cumulativeTime += time;
+        maxTime = Math.max(maxTime, time);
+        int bucket = 0;
+        while (bucket < TIME_BUCKETS.length && time >= TIME_BUCKETS[bucket]) {
+            bucket++;
+        }
+        distribution[bucket]++;
+    }
+
+    /**
+     * Return the number of nodes successfully cleaned.
+     *
+     * @return the number of nodes successfully cleaned.
+     */
+    public synchronized long getCleanedCount() {
+        return cleanedCount;
+    }
+
+    /**
+     * Return the number of nodes which cleaning failed.
+     *
+     * @return the number of nodes which cleaning failed.
+     */
+    public synchronized long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Return the number of nodes which cleaning did not end in time.
+     *
+     * @return the number of nodes which cleaning did not end in time.
+     */
+    public synchronized long getTimeoutsCount() {
+        return timeoutsCount;
+    }
+
+    /**
+     * Return the mean cleaning time of a node in milliseconds.
+     *
+     * @return the mean cleaning time of a node in milliseconds.
+     */
+    public synchronized long getMeanTime() {
+        long count = cleanedCount + failedCount + timeoutsCount;
+        return count == 0 ? 0 : cumulativeTime / count;
+    }
+
+    /**
+     * Return the highest cleaning time of a node in milliseconds.
+     *
+     * @return the highest cleaning time of a node in milliseconds.
+     */
+    public synchronized long getMaxTime() {
+        return maxTime;
+    }
+
+    /**
+     * Return the number of cleanings in each bucket of time, see {@link #TIME_BUCKETS}.
+     *
+     * @return the number of cleanings in each bucket of time.
+     */
+    public synchronized long[] getTimeDistribution() {
+        return distribution.clone();
+    }
+}
@@ -112,6 +112,7 @@ import org.ow2.proactive.resourcemanager.nodesource.policy.NodeSourcePolicyFacto
 import org.ow2.proactive.resourcemanager.nodesource.policy.StaticPolicy;
 import org.ow2.proactive.resourcemanager.rmnode.RMDeployingNode;
 import org.ow2.proactive.resourcemanager.rmnode.RMNode;
+import org.ow2.proactive.resourcemanager.rmnode.RMNodeIndex;
 import org.ow2.proactive.resourcemanager.selection.SelectionManager;
 import org.ow2.proactive.resourcemanager.selection.statistics.ProbablisticSelectionManager;
 import org.ow2.proactive.resourcemanager.selection.topology.TopologyManager;
@@ -189,8 +190,8 @@ public class RMCore implements ResourceManager, InitActive, RunActive {
     /** HashMaps of nodes known by the RMCore */
     private HashMap<String, RMNode> allNodes;
 
-    /** list of all free nodes */
-    private ArrayList<RMNode> freeNodes;
+    /** all free nodes, grouped by node source and user permission */
+    private RMNodeIndex freeNodes;
 
     private SelectionManager selectionManager;
 
@@ -256,7 +257,7 @@ public class RMCore implements ResourceManager, InitActive, RunActive {
 
         nodeSources = new HashMap<String, NodeSource>();
         allNodes = new HashMap<String, RMNode>();
-        freeNodes = new ArrayList<RMNode>();
+        freeNodes = new RMNodeIndex();
 
         this.accountsManager = new RMAccountsManager();
         this.jmxHelper = new RMJMXHelper(this.accountsManager);
@@ -579,6 +580,7 @@ public class RMCore implements ResourceManager, InitActive, RunActive {
             freeNodes.remove(rmnode);
         }
         this.allNodes.remove(rmnode.getNodeURL());
+        this.selectionManager.nodeRemoved(rmnode.getNodeURL());
         // create the event
         this.registerAndEmitNodeEvent(new RMNodeEvent(rmnode, RMEventType.NODE_REMOVED, rmnode.getState(),
             initiator.getName()));
@@ -772,7 +774,7 @@ public class RMCore implements ResourceManager, InitActive, RunActive {
 
         // temporary list to avoid concurrent modification
         List<RMNode> nodelList = new LinkedList<RMNode>();
-        nodelList.addAll(freeNodes);
+        nodelList.addAll(freeNodes.getNodes(nodeSourceName));
 
         logger.debug("Free nodes size " + nodelList.size());
         for (RMNode node : nodelList) {
@@ -781,10 +783,8 @@ public class RMCore implements ResourceManager, InitActive, RunActive {
                 break;
             }
 
-            if (node.getNodeSource().getName().equals(nodeSourceName)) {
-                removeNode(node.getNodeURL(), preemptive);
-                numberOfRemovedNodes++;
-            }
+            removeNode(node.getNodeURL(), preemptive);
+            numberOfRemovedNodes++;
         }
 
         nodelList.clear();
@@ -1283,7 +1283,12 @@ public class RMCore implements ResourceManager, InitActive, RunActive {
         }
     }
 
-    public ArrayList<RMNode> getFreeNodes() {
+    /**
+     * Returns the free nodes grouped by node source and user permission.
+     *
+     * @return the free nodes index
+     */
+    public RMNodeIndex getFreeNodes() {
         return freeNodes;
     }
 
@@ -45,6 +45,7 @@ import org.ow2.proactive.jmx.AbstractJMXHelper;
 import org.ow2.proactive.jmx.RRDDataStore;
 import org.ow2.proactive.resourcemanager.core.account.RMAccountsManager;
 import org.ow2.proactive.resourcemanager.core.jmx.mbean.AllAccountsMBeanImpl;
+import org.ow2.proactive.resourcemanager.core.jmx.mbean.EventQueuesMBeanImpl;
 import org.ow2.proactive.resourcemanager.core.jmx.mbean.ManagementMBeanImpl;
 import org.ow2.proactive.resourcemanager.core.jmx.mbean.MyAccountMBeanImpl;
 import org.ow2.proactive.resourcemanager.core.jmx.mbean.RuntimeDataMBean;
@@ -69,6 +70,7 @@ public final class RMJMXHelper extends AbstractJMXHelper {
     public static final String MYACCOUNT_MBEAN_NAME = "ProActiveResourceManager:name=MyAccount";
     public static final String ALLACCOUNTS_MBEAN_NAME = "ProActiveResourceManager:name=AllAccounts";
     public static final String MANAGEMENT_MBEAN_NAME = "ProActiveResourceManager:name=Management";
+    public static final String EVENTQUEUES_MBEAN_NAME = "ProActiveResourceManager:name=EventQueues";
 
     /** The single instance of this class */
     private static RMJMXHelper instance;
@@ -147,6 +149,15 @@ public final class RMJMXHelper extends AbstractJMXHelper {
         } catch (Exception e) {
             LOGGER.error("Unable to register the ManagementMBean", e);
         }
+
+        // Register the EventQueues MBean into the MBean server
+        try {
+            final EventQueuesMBeanImpl eventQueuesMBean = new EventQueuesMBeanImpl(RMMonitoringImpl.eventQueues);
+            final ObjectName name = new ObjectName(EVENTQUEUES_MBEAN_NAME);
+            mbs.registerMBean(eventQueuesMBean, name);
+        } catch (Exception e) {
+            LOGGER.error("Unable to register the EventQueuesMBean", e);
+        }
     }
 
     /**
@@ -0,0 +1,81 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ActiveEon Team
+ *                        http://www.activeeon.com/
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$ACTIVEEON_INITIAL_DEV$$
+ */
+package org.ow2.proactive.resourcemanager.core.jmx.mbean;
+
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.TabularData;
+
+
+/**
+ * MBean interface exposing the events queues of the Resource Manager monitoring clients.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public interface EventQueuesMBean {
+
+    /**
+     * Returns the number of clients listening to the Resource Manager events.
+     * @return the number of listeners
+     */
+    public int getListenersCount();
+
+    /**
+     * Returns the number of events waiting to be delivered to all the clients.
+     * @return the number of pending events
+     */
+    public long getPendingEventsCount();
+
+    /**
+     * Returns the number of node state changes merged into a more recent one for all the clients.
+     * @return the number of coalesced events
+     */
+    public long getCoalescedEventsCount();
+
+    /**
+     * Returns the number of events dropped because a client queue was full, for all the clients.
+     * @return the number of dropped events
+     */
+    public long getDroppedEventsCount();
+
+    /**
+     * Returns for each client the number of pending, coalesced and dropped events.
+     * @return one row per client
+     * @throws OpenDataException if the table cannot be built
+     */
+    public TabularData getEventQueues() throws OpenDataException;
+}
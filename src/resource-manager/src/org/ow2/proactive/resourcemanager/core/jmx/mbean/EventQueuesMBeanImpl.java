@@ -0,0 +1,116 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ActiveEon Team
+ *                        http://www.activeeon.com/
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$ACTIVEEON_INITIAL_DEV$$
+ */
+package org.ow2.proactive.resourcemanager.core.jmx.mbean;
+
+import java.util.Map;
+
+import javax.management.NotCompliantMBeanException;
+import javax.management.StandardMBean;
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import org.objectweb.proactive.core.UniqueID;
+import org.ow2.proactive.resourcemanager.frontend.RMEventQueue;
+
+
+/**
+ * Implementation of the EventQueuesMBean interface.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public final class EventQueuesMBeanImpl extends StandardMBean implements EventQueuesMBean {
+
+    private static final String[] ITEMS = { "listener", "client", "pending", "coalesced", "dropped" };
+
+    private final Map<UniqueID, RMEventQueue> eventQueues;
+
+    public EventQueuesMBeanImpl(final Map<UniqueID, RMEventQueue> eventQueues)
+            throws NotCompliantMBeanException {
+        super(EventQueuesMBean.class);
+        this.eventQueues = eventQueues;
+    }
+
+    public int getListenersCount() {
+        return this.eventQueues.size();
+    }
+
+    public long getPendingEventsCount() {
+        long count = 0;
+        for (RMEventQueue queue : this.eventQueues.values()) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    public long getCoalescedEventsCount() {
+        long count = 0;
+        for (RMEventQueue queue : this.eventQueues.values()) {
+            count += queue.getCoalescedCount();
+        }
+        return count;
+    }
+
+    public long getDroppedEventsCount() {
+        long count = 0;
+        for (RMEventQueue queue : this.eventQueues.values()) {
+            count += queue.getDroppedCount();
+        }
+        return count;
+    }
+
+    public TabularData getEventQueues() throws OpenDataException {
+        CompositeType rowType = new CompositeType("EventQueue", "Events queue of a client", ITEMS, new String[] {
+                "Listener id", "Client name", "Pending events", "Coalesced events", "Dropped events" },
+            new OpenType<?>[] { SimpleType.STRING, SimpleType.STRING, SimpleType.INTEGER, SimpleType.LONG,
+                    SimpleType.LONG });
+        TabularData table = new TabularDataSupport(new TabularType("EventQueues",
+            "Events queues of the clients", rowType, new String[] { "listener" }));
+        for (Map.Entry<UniqueID, RMEventQueue> entry : this.eventQueues.entrySet()) {
+            RMEventQueue queue = entry.getValue();
+            table.put(new CompositeDataSupport(rowType, ITEMS, new Object[] { entry.getKey().shortString(),
+                    queue.getClientName(), queue.size(), queue.getCoalescedCount(), queue.getDroppedCount() }));
+        }
+        return table;
+    }
+}
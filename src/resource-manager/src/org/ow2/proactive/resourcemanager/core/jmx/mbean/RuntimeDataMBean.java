@@ -184,6 +184,48 @@ public interface RuntimeDataMBean {
      */
     public double getAverageInactivity();
 
+    /**
+     * Returns the number of released nodes successfully cleaned.
+     *
+     * @return the number of released nodes successfully cleaned
+     */
+    public long getCleanedNodesCount();
+
+    /**
+     * Returns the number of released nodes which cleaning failed or timed out.
+     *
+     * @return the number of released nodes which cleaning failed or timed out
+     */
+    public long getNodesCleaningFailuresCount();
+
+    /**
+     * Returns the number of released nodes which cleaning did not end within the cleaning timeout.
+     *
+     * @return the number of released nodes which cleaning timed out
+     */
+    public long getNodesCleaningTimeoutsCount();
+
+    /**
+     * Returns the mean cleaning time of a released node in milliseconds.
+     *
+     * @return the mean cleaning time of a released node in milliseconds
+     */
+    public long getMeanNodeCleaningTime();
+
+    /**
+     * Returns the highest cleaning time of a released node in milliseconds.
+     *
+     * @return the highest cleaning time of a released node in milliseconds
+     */
+    public long getMaxNodeCleaningTime();
+
+    /**
+     * Returns the number of node cleanings which lasted less than 100ms, 1s, 10s, 1min and more than 1min.
+     *
+     * @return the number of node cleanings in each duration range
+     */
+    public long[] getNodeCleaningTimeDistribution();
+
     /**
      * Sends the statistics accumulated in the RRD data base
      *
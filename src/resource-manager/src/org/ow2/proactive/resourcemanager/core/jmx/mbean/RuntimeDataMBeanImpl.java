@@ -43,6 +43,7 @@ import javax.management.StandardMBean;
 
 import org.objectweb.proactive.annotation.PublicAPI;
 import org.ow2.proactive.jmx.Chronological;
+import org.ow2.proactive.resourcemanager.cleaning.NodesCleaner;
 import org.ow2.proactive.resourcemanager.core.jmx.RMJMXHelper;
 import org.ow2.proactive.resourcemanager.utils.AtomicRMStatisticsHolder;
 
@@ -214,6 +215,48 @@ public class RuntimeDataMBeanImpl extends StandardMBean implements RuntimeDataMB
         return this.rmStatisticsHolder.getStatistics().getInactivityTimePercentage();
     }
 
+    /**
+     * @see RuntimeDataMBean#getCleanedNodesCount()
+     */
+    public long getCleanedNodesCount() {
+        return NodesCleaner.statistics.getCleanedCount();
+    }
+
+    /**
+     * @see RuntimeDataMBean#getNodesCleaningFailuresCount()
+     */
+    public long getNodesCleaningFailuresCount() {
+        return NodesCleaner.statistics.getFailedCount() + NodesCleaner.statistics.getTimeoutsCount();
+    }
+
+    /**
+     * @see RuntimeDataMBean#getNodesCleaningTimeoutsCount()
+     */
+    public long getNodesCleaningTimeoutsCount() {
+        return NodesCleaner.statistics.getTimeoutsCount();
+    }
+
+    /**
+     * @see RuntimeDataMBean#getMeanNodeCleaningTime()
+     */
+    public long getMeanNodeCleaningTime() {
+        return NodesCleaner.statistics.getMeanTime();
+    }
+
+    /**
+     * @see RuntimeDataMBean#getMaxNodeCleaningTime()
+     */
+    public long getMaxNodeCleaningTime() {
+        return NodesCleaner.statistics.getMaxTime();
+    }
+
+    /**
+     * @see RuntimeDataMBean#getNodeCleaningTimeDistribution()
+     */
+    public long[] getNodeCleaningTimeDistribution() {
+        return NodesCleaner.statistics.getTimeDistribution();
+    }
+
     /**
      * @see org.ow2.proactive.resourcemanager.core.jmx.mbean.RuntimeDataMBean#getStatisticHistory()
      */
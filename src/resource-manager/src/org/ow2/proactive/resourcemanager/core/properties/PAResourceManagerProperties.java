@@ -164,9 +164,18 @@ public enum PAResourceManagerProperties {
     /** Max number of threads in node source for parallel task execution */
     RM_MONITORING_MAX_THREAD_NUMBER("pa.rm.monitoring.maxthreadnumber", PropertyType.INTEGER),
 
+    /** Max number of pending events per monitoring client, unbounded if not positive */
+    RM_MONITORING_QUEUE_SIZE("pa.rm.monitoring.queue.size", PropertyType.INTEGER),
+
+    /** What to do when the events queue of a client is full: 'drop' the oldest event or 'disconnect' the client */
+    RM_MONITORING_QUEUE_OVERFLOW("pa.rm.monitoring.queue.overflow", PropertyType.STRING),
+
     /** Max number of threads in the core for cleaning nodes after computations */
     RM_CLEANING_MAX_THREAD_NUMBER("pa.rm.cleaning.maxthreadnumber", PropertyType.INTEGER),
 
+    /** Max time to clean a node in ms, the node is marked as down if its cleaning lasts longer */
+    RM_CLEANING_TIMEOUT("pa.rm.cleaning.timeout", PropertyType.INTEGER),
+
     /** Path to the Resource Manager credentials for adding local nodes */
     RM_CREDS("pa.rm.credentials", PropertyType.STRING),
 
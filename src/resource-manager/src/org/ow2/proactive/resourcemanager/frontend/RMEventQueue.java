@@ -0,0 +1,219 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ActiveEon Team
+ *                        http://www.activeeon.com/
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$ACTIVEEON_INITIAL_DEV$$
+ */
+package org.ow2.proactive.resourcemanager.frontend;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.ow2.proactive.resourcemanager.common.event.RMEvent;
+import org.ow2.proactive.resourcemanager.common.event.RMEventType;
+import org.ow2.proactive.resourcemanager.common.event.RMNodeEvent;
+
+
+/**
+ * Pending events of one client of {@link RMMonitoringImpl}.
+ * <p>
+ * A node state change event supersedes the pending state change event of the same node:
+ * the old one is removed and the new one is queued at the end, so a slow client only
+ * receives the last known state of each node.
+ * <p>
+ * The queue can be bounded. When it is full, the {@link OverflowPolicy} decides whether
+ * the oldest pending node state change is dropped or the client must be disconnected.
+ * Other events (nodes and node sources added or removed...) are never dropped as the client
+ * could not rebuild the resource manager state without them: when the queue only holds
+ * such events, the client must be disconnected whatever the policy.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class RMEventQueue {
+
+    /**
+     * What to do when an event is queued in a full queue.
+     */
+    public enum OverflowPolicy {
+        /** The oldest pending node state change is dropped */
+        DROP,
+        /** The event is rejected, the client has to be disconnected */
+        DISCONNECT;
+    }
+
+    private final String clientName;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    // node url for node state changes (so that they are coalesced),
+    // a unique object for the other events
+    private final LinkedHashMap<Object, RMEvent> events = new LinkedHashMap<Object, RMEvent>();
+
+    // number of pending node state changes, the only events which can be dropped
+    private int stateChangeCount;
+
+    private long coalescedCount;
+    private long droppedCount;
+
+    /**
+     * Creates a new queue.
+     *
+     * @param clientName name of the client receiving the events
+     * @param capacity maximum number of pending events, unbounded if not positive
+     * @param overflowPolicy what to do when the queue is full
+     */
+    public RMEventQueue(String clientName, int capacity, OverflowPolicy overflowPolicy) {
+        this.clientName = clientName;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Queues an event.
+     *
+     * @param event the event to queue
+     * @return false if the queue is full and the policy is {@link OverflowPolicy#DISCONNECT}
+     * or no pending node state change can be dropped, the client has then to be disconnected
+     */
+    public synchronized boolean offer(RMEvent event) {
+        Object key;
+        if (isStateChange(event)) {
+            key = ((RMNodeEvent) event).getNodeUrl();
+            if (events.remove(key) != null) {
+                coalescedCount++;
+            } else {
+                stateChangeCount++;
+            }
+        } else {
+            key = new Object();
+        }
+
+        if (capacity > 0 && events.size() >= capacity) {
+            if (overflowPolicy == OverflowPolicy.DISCONNECT || !dropOldestStateChange()) {
+                if (key instanceof String) {
+                    stateChangeCount--;
+                }
+                return false;
+            }
+        }
+
+        events.put(key, event);
+        return true;
+    }
+
+    private boolean dropOldestStateChange() {
+        if (stateChangeCount == 0) {
+            return false;
+        }
+        Iterator<RMEvent> iterator = events.values().iterator();
+        while (iterator.hasNext()) {
+            if (isStateChange(iterator.next())) {
+                iterator.remove();
+                stateChangeCount--;
+                droppedCount++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isStateChange(RMEvent event) {
+        return event.getEventType() == RMEventType.NODE_STATE_CHANGED && event instanceof RMNodeEvent;
+    }
+
+    /**
+     * Removes and returns the oldest pending event.
+     *
+     * @return the oldest pending event, null if there is none
+     */
+    public synchronized RMEvent poll() {
+        Iterator<RMEvent> oldest = events.values().iterator();
+        if (!oldest.hasNext()) {
+            return null;
+        }
+        RMEvent event = oldest.next();
+        oldest.remove();
+        if (isStateChange(event)) {
+            stateChangeCount--;
+        }
+        return event;
+    }
+
+    /**
+     * Removes and returns all the pending events, oldest first.
+     *
+     * @return the pending events
+     */
+    public synchronized List<RMEvent> pollAll() {
+        List<RMEvent> result = new ArrayList<RMEvent>(events.values());
+        events.clear();
+        stateChangeCount = 0;
+        return result;
+    }
+
+    /**
+     * Returns the number of pending events.
+     */
+    public synchronized int size() {
+        return events.size();
+    }
+
+    /**
+     * Returns the number of events replaced by a more recent state of the same node.
+     */
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * Returns the number of node state changes dropped because the queue was full.
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public String getClientName() {
+        return clientName;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+}
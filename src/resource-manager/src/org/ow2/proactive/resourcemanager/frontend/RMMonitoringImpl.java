@@ -39,9 +39,10 @@ package org.ow2.proactive.resourcemanager.frontend;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -95,9 +96,16 @@ public class RMMonitoringImpl implements RMMonitoring, RMEventListener, InitActi
     private Map<UniqueID, EventDispatcher> dispatchers;
     private transient ExecutorService eventDispatcherThreadPool;
 
+    // settings of the clients event queues, read once at startup
+    private transient int queueCapacity;
+    private transient RMEventQueue.OverflowPolicy queueOverflowPolicy;
+
     /** Resource Manager's statistics */
     public static final AtomicRMStatisticsHolder rmStatistics = new AtomicRMStatisticsHolder();
 
+    /** Pending events of each listener, exposed through JMX */
+    public static final Map<UniqueID, RMEventQueue> eventQueues = new ConcurrentHashMap<UniqueID, RMEventQueue>();
+
     // ----------------------------------------------------------------------//
     // CONSTRUTORS
 
@@ -118,6 +126,7 @@ public class RMMonitoringImpl implements RMMonitoring, RMEventListener, InitActi
      * @see org.objectweb.proactive.InitActive#initActivity(org.objectweb.proactive.Body)
      */
     public void initActivity(Body body) {
+        readQueueSettings();
         try {
             PAActiveObject.registerByName(PAActiveObject.getStubOnThis(),
                     RMConstants.NAME_ACTIVE_OBJECT_RMMONITORING);
@@ -131,6 +140,34 @@ public class RMMonitoringImpl implements RMMonitoring, RMEventListener, InitActi
         }
     }
 
+    /**
+     * Reads the capacity and the overflow policy of the clients event queues,
+     * invalid values are replaced by the defaults: unbounded queues dropping node state changes.
+     */
+    private void readQueueSettings() {
+        queueCapacity = 0;
+        if (PAResourceManagerProperties.RM_MONITORING_QUEUE_SIZE.isSet()) {
+            try {
+                queueCapacity = PAResourceManagerProperties.RM_MONITORING_QUEUE_SIZE.getValueAsInt();
+            } catch (RuntimeException e) {
+                logger.warn("Invalid value for " +
+                    PAResourceManagerProperties.RM_MONITORING_QUEUE_SIZE.getKey() +
+                    ", the events queues are unbounded", e);
+            }
+        }
+        queueOverflowPolicy = RMEventQueue.OverflowPolicy.DROP;
+        if (PAResourceManagerProperties.RM_MONITORING_QUEUE_OVERFLOW.isSet()) {
+            String value = PAResourceManagerProperties.RM_MONITORING_QUEUE_OVERFLOW.getValueAsString();
+            try {
+                queueOverflowPolicy = RMEventQueue.OverflowPolicy.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                logger.warn("Invalid value '" + value + "' for " +
+                    PAResourceManagerProperties.RM_MONITORING_QUEUE_OVERFLOW.getKey() + ", using " +
+                    queueOverflowPolicy);
+            }
+        }
+    }
+
     /**
      * Method controls the execution of every request.
      * Tries to keep this active object alive in case of any exception.
@@ -154,7 +191,7 @@ public class RMMonitoringImpl implements RMMonitoring, RMEventListener, InitActi
         protected Client client;
 
         protected RMEventListener listener;
-        protected LinkedList<RMEvent> events;
+        protected RMEventQueue events;
         protected List<RMEventType> eventTypes = null;
 
         protected AtomicBoolean inProcess = new AtomicBoolean(false);
@@ -166,7 +203,7 @@ public class RMMonitoringImpl implements RMMonitoring, RMEventListener, InitActi
                 this.eventTypes = Arrays.asList(eventTypes);
             }
 
-            this.events = new LinkedList<RMEvent>();
+            this.events = new RMEventQueue(client.getName(), queueCapacity, queueOverflowPolicy);
         }
 
         public void run() {
@@ -184,9 +221,8 @@ public class RMMonitoringImpl implements RMMonitoring, RMEventListener, InitActi
                     if (logger.isDebugEnabled()) {
                         logger.debug(events.size() + " pending events for the client '" + client + "'");
                     }
-                    if (events.size() > 0) {
-                        event = events.removeFirst();
-                    } else {
+                    event = events.poll();
+                    if (event == null) {
                         inProcess.set(false);
                     }
                 }
@@ -235,16 +271,23 @@ public class RMMonitoringImpl implements RMMonitoring, RMEventListener, InitActi
                 // probably listener was removed or disconnected
                 logger.warn("Cannot send events to " + client, e);
                 synchronized (dispatchers) {
-                    dispatchers.remove(client.getId());
+                    removeDispatcher(client.getId());
                     logger.warn(client + " was removed from listeners");
                 }
             }
         }
 
-        public void queueEvent(RMEvent event) {
+        /**
+         * Queues the event for delivery.
+         *
+         * @return false if the event queue of the client is full and the client must be disconnected
+         */
+        public boolean queueEvent(RMEvent event) {
             synchronized (events) {
                 if (eventTypes == null || eventTypes.contains(event.getEventType())) {
-                    events.add(event);
+                    if (!events.offer(event)) {
+                        return false;
+                    }
 
                     if (inProcess.get()) {
                         if (logger.isDebugEnabled()) {
@@ -259,6 +302,7 @@ public class RMMonitoringImpl implements RMMonitoring, RMEventListener, InitActi
                     }
                 }
             }
+            return true;
         }
     }
 
@@ -276,17 +320,13 @@ public class RMMonitoringImpl implements RMMonitoring, RMEventListener, InitActi
                     client + "'");
             }
 
-            LinkedList<RMEvent> toDeliver = new LinkedList<RMEvent>();
+            List<RMEvent> toDeliver;
             synchronized (events) {
                 if (logger.isDebugEnabled()) {
                     logger.debug(events.size() + " pending events for the client '" + client + "'");
                 }
 
-                if (events.size() > 0) {
-                    toDeliver.clear();
-                    toDeliver.addAll(events);
-                    events.clear();
-                }
+                toDeliver = events.pollAll();
                 inProcess.set(false);
             }
 
@@ -325,7 +365,7 @@ public class RMMonitoringImpl implements RMMonitoring, RMEventListener, InitActi
                 // probably listener was removed or disconnected
                 logger.warn("Cannot send events to " + client, e);
                 synchronized (dispatchers) {
-                    dispatchers.remove(client.getId());
+                    removeDispatcher(client.getId());
                     logger.warn(client + " was removed from listeners");
                 }
                 return false;
@@ -355,11 +395,14 @@ public class RMMonitoringImpl implements RMMonitoring, RMEventListener, InitActi
                 throw new IllegalArgumentException("Unknown client " + id.shortString());
             }
 
+            EventDispatcher dispatcher;
             if (stub instanceof RMGroupEventListener) {
-                this.dispatchers.put(id, new GroupEventDispatcher(client, stub, events));
+                dispatcher = new GroupEventDispatcher(client, stub, events);
             } else {
-                this.dispatchers.put(id, new EventDispatcher(client, stub, events));
+                dispatcher = new EventDispatcher(client, stub, events);
             }
+            this.dispatchers.put(id, dispatcher);
+            eventQueues.put(id, dispatcher.events);
         }
         return rmcore.getRMInitialState();
     }
@@ -372,7 +415,7 @@ public class RMMonitoringImpl implements RMMonitoring, RMEventListener, InitActi
         synchronized (dispatchers) {
             if (dispatchers.containsKey(id)) {
                 logger.debug("Removing the RM listner for " + id.shortString());
-                dispatchers.remove(id);
+                removeDispatcher(id);
             } else {
                 throw new RMException("Listener is unknown");
             }
@@ -391,12 +434,27 @@ public class RMMonitoringImpl implements RMMonitoring, RMEventListener, InitActi
         }
 
         synchronized (dispatchers) {
-            for (EventDispatcher dispatcher : dispatchers.values()) {
-                dispatcher.queueEvent(event);
+            Iterator<EventDispatcher> iterator = dispatchers.values().iterator();
+            while (iterator.hasNext()) {
+                EventDispatcher dispatcher = iterator.next();
+                if (!dispatcher.queueEvent(event)) {
+                    logger.warn(dispatcher.events.size() + " events are pending for " + dispatcher.client +
+                        ", the client is too slow and is removed from listeners");
+                    iterator.remove();
+                    eventQueues.remove(dispatcher.client.getId());
+                }
             }
         }
     }
 
+    /**
+     * Removes the dispatcher of a client. Must be called holding the dispatchers lock.
+     */
+    private void removeDispatcher(UniqueID id) {
+        dispatchers.remove(id);
+        eventQueues.remove(id);
+    }
+
     /**
      * @see org.ow2.proactive.resourcemanager.frontend.RMEventListener#nodeEvent(org.ow2.proactive.resourcemanager.common.event.RMNodeEvent)
      */
@@ -37,9 +37,11 @@
 package org.ow2.proactive.resourcemanager.frontend.topology;
 
 import java.net.InetAddress;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.xml.bind.annotation.XmlAccessType;
@@ -55,18 +57,57 @@ import org.ow2.proactive.topology.descriptor.DistanceFunction;
 /**
  *
  * Class represents hosts topology handled by resource manager.
+ * <p>
+ * Each host gets an index when it is added, and distances are stored in a dense
+ * matrix of primitive longs indexed by these host indexes. Indexes of removed hosts
+ * are reused by the next added hosts.
+ * <p>
+ * Each distance belongs to the topology of the host which provided it, so that adding
+ * a host again only replaces the distances it provided before.
+ * <p>
+ * The matrix grows by half of its capacity when it is full. A clone shares the matrix with
+ * the topology it has been cloned from, the first of them to be modified then copies it.
  *
  */
 @XmlRootElement()
 @XmlAccessorType(XmlAccessType.FIELD)
 public class TopologyImpl implements Topology, Cloneable {
 
+    /** Value of the distance between two hosts when it is unknown */
+    public static final long NO_DISTANCE = Long.MIN_VALUE;
+
+    private static final int INITIAL_CAPACITY = 16;
+
     /**
-     * Host -> Hosts -> Distance
-     * Store here only half of matrix - each host have distances to hosts added before.
-     * Assume that they are symmetrical.
+     * Index of each known host in the distances matrix.
      */
-    private HashMap<InetAddress, HashMap<InetAddress, Long>> distances = new HashMap<InetAddress, HashMap<InetAddress, Long>>();
+    private HashMap<InetAddress, Integer> hostIndexes = new HashMap<InetAddress, Integer>();
+    /**
+     * Host of each index, null for free indexes.
+     */
+    private InetAddress[] indexHosts = new InetAddress[INITIAL_CAPACITY];
+    /**
+     * Number of indexes used so far, including free ones.
+     */
+    private int indexesCount = 0;
+    /**
+     * Indexes of removed hosts which can be reused.
+     */
+    private LinkedList<Integer> freeIndexes = new LinkedList<Integer>();
+    /**
+     * Lower triangular matrix of distances. The distance between hosts of indexes i > j
+     * is stored at i * (i - 1) / 2 + j. Distances are assumed to be symmetrical.
+     */
+    private long[] distances = newDistances(INITIAL_CAPACITY, 0, null);
+    /**
+     * For each distance of the matrix, true if it has been provided by the topology of the host
+     * with the lower index, false if it has been provided by the one with the higher index.
+     */
+    private boolean[] ownedByLowerIndex = new boolean[distances.length];
+    /**
+     * True while the distances matrix is shared with a clone, it has to be copied before being modified.
+     */
+    private transient boolean distancesShared;
     /**
      * This map is needed to store the dependency between host name and address.
      * All listeners of the RM receive only host name in events, so for them it's simpler to
@@ -89,10 +130,14 @@ public class TopologyImpl implements Topology, Cloneable {
     public Long getDistance(InetAddress host, InetAddress host2) {
         if (host.equals(host2)) {
             return new Long(0);
-        } else if (distances.get(host) != null && distances.get(host).get(host2) != null) {
-            return distances.get(host).get(host2);
-        } else if (distances.get(host2) != null && distances.get(host2).get(host) != null) {
-            return distances.get(host2).get(host);
+        }
+        Integer index = hostIndexes.get(host);
+        Integer index2 = hostIndexes.get(host2);
+        if (index != null && index2 != null) {
+            long distance = getDistance(index, index2);
+            if (distance != NO_DISTANCE) {
+                return distance;
+            }
         }
         return null;
     }
@@ -110,6 +155,31 @@ public class TopologyImpl implements Topology, Cloneable {
         return null;
     }
 
+    /**
+     * Returns the index of the host in the distances matrix.
+     *
+     * @param host the address of the host
+     * @return the index of the host, or -1 if the host is unknown
+     */
+    public int getHostIndex(InetAddress host) {
+        Integer index = hostIndexes.get(host);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the distance between 2 hosts identified by their indexes.
+     *
+     * @param index the index of the first host
+     * @param index2 the index of the second host
+     * @return the distance between the hosts, or NO_DISTANCE if it is unknown
+     */
+    public long getDistance(int index, int index2) {
+        if (index == index2) {
+            return 0;
+        }
+        return distances[position(index, index2)];
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -121,7 +191,7 @@ public class TopologyImpl implements Topology, Cloneable {
      * {@inheritDoc}
      */
     public Set<InetAddress> getHosts() {
-        return distances.keySet();
+        return hostIndexes.keySet();
     }
 
     /**
@@ -134,7 +204,30 @@ public class TopologyImpl implements Topology, Cloneable {
      */
     public void addHostTopology(String hostName, InetAddress hostAddress,
             HashMap<InetAddress, Long> hostTopology) {
-        distances.put(hostAddress, hostTopology);
+        Integer index = hostIndexes.get(hostAddress);
+        if (index == null) {
+            index = newIndex();
+            hostIndexes.put(hostAddress, index);
+            indexHosts[index] = hostAddress;
+            ensureDistancesOwned();
+        } else {
+            ensureDistancesOwned();
+            // replacing the previous topology of the host, the distances provided by other hosts are kept
+            for (int i = 0; i < indexesCount; i++) {
+                if (i != index && isOwner(index, i)) {
+                    distances[position(index, i)] = NO_DISTANCE;
+                }
+            }
+        }
+
+        for (Map.Entry<InetAddress, Long> entry : hostTopology.entrySet()) {
+            Integer index2 = hostIndexes.get(entry.getKey());
+            if (index2 != null && index2.intValue() != index.intValue() && entry.getValue() != null) {
+                int position = position(index, index2);
+                distances[position] = entry.getValue();
+                ownedByLowerIndex[position] = index < index2;
+            }
+        }
         hosts.put(hostName, hostAddress);
     }
 
@@ -147,13 +240,14 @@ public class TopologyImpl implements Topology, Cloneable {
      * @param hostAddress host address to be removed
      */
     public void removeHostTopology(String hostName, InetAddress hostAddress) {
-        distances.remove(hostAddress);
+        Integer index = hostIndexes.remove(hostAddress);
         hosts.remove(hostName);
-        // removing links to "host"
-        for (InetAddress h : distances.keySet()) {
-            if (distances.get(h).containsKey(hostAddress)) {
-                distances.get(h).remove(hostAddress);
-            }
+        if (index != null) {
+            // removing links to "host"
+            ensureDistancesOwned();
+            clearDistances(index);
+            indexHosts[index] = null;
+            freeIndexes.add(index);
         }
     }
 
@@ -161,22 +255,44 @@ public class TopologyImpl implements Topology, Cloneable {
      * {@inheritDoc}
      */
     public HashMap<InetAddress, Long> getHostTopology(InetAddress hostAddress) {
-        return distances.get(hostAddress);
+        Integer index = hostIndexes.get(hostAddress);
+        if (index == null) {
+            return null;
+        }
+        HashMap<InetAddress, Long> hostTopology = new HashMap<InetAddress, Long>();
+        for (int i = 0; i < indexesCount; i++) {
+            if (i != index && indexHosts[i] != null && isOwner(index, i)) {
+                long distance = distances[position(index, i)];
+                if (distance != NO_DISTANCE) {
+                    hostTopology.put(indexHosts[i], distance);
+                }
+            }
+        }
+        return hostTopology;
     }
 
     /**
      * {@inheritDoc}
      */
     public boolean knownHost(InetAddress hostAddress) {
-        return distances.containsKey(hostAddress);
+        return hostIndexes.containsKey(hostAddress);
     }
 
     /**
      * Clones the topology object, which is uses for synchronization purposes.
+     * The distances matrix is not copied, it is shared until one of the topologies is modified.
      */
+    @SuppressWarnings("unchecked")
     public Object clone() {
         try {
-            return super.clone();
+            TopologyImpl clone = (TopologyImpl) super.clone();
+            clone.hostIndexes = (HashMap<InetAddress, Integer>) hostIndexes.clone();
+            clone.indexHosts = indexHosts.clone();
+            clone.freeIndexes = new LinkedList<Integer>(freeIndexes);
+            distancesShared = true;
+            clone.distancesShared = true;
+            clone.hosts = (HashMap<String, InetAddress>) hosts.clone();
+            return clone;
         } catch (CloneNotSupportedException e) {
         }
         return null;
@@ -189,4 +305,74 @@ public class TopologyImpl implements Topology, Cloneable {
         HAC hac = new HAC(this, new LinkedList<Node>(), distanceFunction, Long.MAX_VALUE);
         return hac.clusterize(numberOfClusters, hosts.keySet());
     }
+
+    /**
+     * Returns a free index, growing the matrix if needed.
+     */
+    private int newIndex() {
+        if (!freeIndexes.isEmpty()) {
+            return freeIndexes.removeFirst();
+        }
+        if (indexesCount == indexHosts.length) {
+            // the matrix size is quadratic in the capacity, doubling it would quadruple the memory
+            int capacity = indexHosts.length + indexHosts.length / 2;
+            indexHosts = Arrays.copyOf(indexHosts, capacity);
+            distances = newDistances(capacity, indexesCount, distances);
+            ownedByLowerIndex = Arrays.copyOf(ownedByLowerIndex, distances.length);
+            distancesShared = false;
+        }
+        return indexesCount++;
+    }
+
+    /**
+     * Copies the distances matrix if it is shared with a clone, before modifying it.
+     */
+    private void ensureDistancesOwned() {
+        if (distancesShared) {
+            distances = distances.clone();
+            ownedByLowerIndex = ownedByLowerIndex.clone();
+            distancesShared = false;
+        }
+    }
+
+    /**
+     * Forgets all the distances of the host of the given index.
+     */
+    private void clearDistances(int index) {
+        for (int i = 0; i < indexesCount; i++) {
+            if (i != index) {
+                distances[position(index, i)] = NO_DISTANCE;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the distance between two different hosts has been provided by the first one.
+     */
+    private boolean isOwner(int index, int index2) {
+        return ownedByLowerIndex[position(index, index2)] == index < index2;
+    }
+
+    /**
+     * Returns the position of the distance between two different hosts in the matrix.
+     * As the rows of the lower triangular matrix are stored one after another, the position
+     * does not depend on the matrix capacity.
+     */
+    private static int position(int index, int index2) {
+        return index > index2 ? index * (index - 1) / 2 + index2 : index2 * (index2 - 1) / 2 + index;
+    }
+
+    /**
+     * Creates a distances matrix for the given number of hosts, keeping the distances
+     * of the previous matrix for the given number of indexes.
+     */
+    private static long[] newDistances(int capacity, int indexesCount, long[] previous) {
+        long[] matrix = new long[capacity * (capacity - 1) / 2];
+        int kept = indexesCount * (indexesCount - 1) / 2;
+        if (previous != null) {
+            System.arraycopy(previous, 0, matrix, 0, kept);
+        }
+        Arrays.fill(matrix, kept, matrix.length, NO_DISTANCE);
+        return matrix;
+    }
 }
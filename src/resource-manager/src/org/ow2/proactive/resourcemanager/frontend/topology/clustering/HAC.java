@@ -36,10 +36,10 @@
  */
 package org.ow2.proactive.resourcemanager.frontend.topology.clustering;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -48,6 +48,7 @@ import org.apache.log4j.Logger;
 import org.objectweb.proactive.core.node.Node;
 import org.ow2.proactive.resourcemanager.frontend.topology.Topology;
 import org.ow2.proactive.resourcemanager.frontend.topology.TopologyException;
+import org.ow2.proactive.resourcemanager.frontend.topology.TopologyImpl;
 import org.ow2.proactive.topology.descriptor.DistanceFunction;
 
 
@@ -56,6 +57,10 @@ import org.ow2.proactive.topology.descriptor.DistanceFunction;
  * Implementation of "Hierarchical Agglomerative Clustering"
  * For details see
  * http://en.wikipedia.org/wiki/Cluster_analysis#Agglomerative_hierarchical_clustering
+ * <p>
+ * Distances between clusters are kept in a dense matrix, and the nearest neighbour
+ * of each cluster is cached so that finding the closest clusters does not require to
+ * scan the whole matrix after each merge.
  *
  */
 public class HAC {
@@ -105,61 +110,58 @@ public class HAC {
             return new LinkedList<Node>();
         }
 
-        // initializing cluster distances map
+        // initializing cluster distances matrix
         // cluster is a group of nodes, initially each cluster consist of one node
         logger.debug("Initializing clusters map");
-        HashMap<Cluster<Node>, HashMap<Cluster<Node>, Long>> clusterDistances = initClusterDistances(from);
-
-        // no topology information for provided nodes
-        if (from.size() > 0 && clusterDistances.size() == 0) {
-            throw new TopologyException("Topology information is not available");
-        }
+        ClusterDistances<Node> clusterDistances = initClusterDistances(from);
 
         Cluster<Node> target = null;
         if (pivot.size() > 0) {
             // fixed orientation clustering
-            Iterator<Node> it = pivot.iterator();
-            Node pivotNode = it.next();
-            target = new Cluster<Node>(getNodeId(pivotNode), pivotNode);
+            int targetIndex = clusterDistances.indexOf(getNodeId(pivot.get(0)));
             // merging pivot nodes into one cluster and recalculating distances
             logger.debug("Merging pivot nodes into one cluster");
-            while (it.hasNext()) {
+            for (int i = 1; i < pivot.size(); i++) {
                 // merging clusters and recalculating distances between others
-                pivotNode = it.next();
-                Cluster<Node> pivotCluster = new Cluster<Node>(getNodeId(pivotNode), pivotNode);
-                target = recalculateDistances(target, pivotCluster, clusterDistances);
+                int pivotIndex = clusterDistances.indexOf(getNodeId(pivot.get(i)));
+                if (pivotIndex != targetIndex) {
+                    targetIndex = clusterDistances.merge(targetIndex, pivotIndex);
+                }
             }
 
             // clustering centralized to the pivot
             logger.debug("Begin centralized hierarchical agglomerative clustering");
-            while (clusterDistances.size() > 1 && target.size() < (number + pivot.size())) {
-                Cluster<Node> closest = findClosestClustersTo(target, clusterDistances);
+            while (clusterDistances.size() > 1 &&
+                clusterDistances.get(targetIndex).size() < (number + pivot.size())) {
+                int closest = clusterDistances.findClosestTo(targetIndex);
 
-                if (closest == null) {
+                if (closest < 0) {
                     // no clusters found => cannot merge anything => stop where we are
                     break;
                 }
                 // merging clusters and recalculating distances between others
-                target = recalculateDistances(target, closest, clusterDistances);
+                targetIndex = clusterDistances.merge(targetIndex, closest);
             }
 
             // removing pivot nodes from the result
+            target = clusterDistances.get(targetIndex);
             target.remove(pivot);
         } else {
             logger.debug("Begin hierarchical agglomerative clustering");
-            target = (Cluster<Node>) clusterDistances.keySet().iterator().next();
+            target = clusterDistances.get(0);
             Cluster<Node> largest = target;
             // floating clustering
             while (clusterDistances.size() > 1) {
                 // finding two clusters to merge according
-                Cluster<Node>[] clustersToMerge = findClosestClusters(clusterDistances);
+                int[] clustersToMerge = clusterDistances.findClosest();
                 if (clustersToMerge == null) {
                     // there is no clusters close to each other
                     // stop the process
                     break;
                 }
                 // merging clusters and recalculating distances between others
-                target = recalculateDistances(clustersToMerge[0], clustersToMerge[1], clusterDistances);
+                int targetIndex = clusterDistances.merge(clustersToMerge[0], clustersToMerge[1]);
+                target = clusterDistances.get(targetIndex);
                 if (target.size() >= largest.size()) {
                     largest = target;
                 }
@@ -175,8 +177,8 @@ public class HAC {
                     logger.debug("Number of node in the cluster exceeded required node number " +
                         target.size() + " vs " + number);
 
-                    Cluster<Node> anotherCluster = clustersToMerge[0] == target ? clustersToMerge[1]
-                            : clustersToMerge[0];
+                    Cluster<Node> anotherCluster = clusterDistances
+                            .get(clustersToMerge[0] == targetIndex ? clustersToMerge[1] : clustersToMerge[0]);
                     target.removeLast(anotherCluster.size());
                     final Cluster<Node> finalTarget = target;
 
@@ -216,7 +218,7 @@ public class HAC {
     private long getDistance(Node from, Cluster<Node> to) {
         long globalDistance = 0;
         for (Node n : to.getElements()) {
-            long distance = getDistance(from, n);
+            long distance = toDistance(getDistance(from, n));
             globalDistance = distanceFunction.distance(globalDistance, distance);
         }
         return globalDistance;
@@ -226,7 +228,23 @@ public class HAC {
         return topology.getDistance(node, node2);
     }
 
-    private HashMap<Cluster<Node>, HashMap<Cluster<Node>, Long>> initClusterDistances(List<Node> from) {
+    /**
+     * Returns true if the distances between the selected nodes can be read directly from
+     * the topology matrix instead of calling {@link #getDistance(Node, Node)} for each pair.
+     * Subclasses overriding {@link #getDistance(Node, Node)} must return false.
+     */
+    protected boolean useTopologyMatrix() {
+        return topology instanceof TopologyImpl;
+    }
+
+    /**
+     * Unknown distances are considered as "not connected".
+     */
+    private static long toDistance(Long distance) {
+        return distance == null || distance < 0 ? -1 : distance;
+    }
+
+    private ClusterDistances<Node> initClusterDistances(List<Node> from) {
         if (pivot.size() > 0) {
             from = new LinkedList<Node>(from);
             for (Node piv : pivot) {
@@ -235,70 +253,40 @@ public class HAC {
             }
         }
 
-        HashMap<Cluster<Node>, HashMap<Cluster<Node>, Long>> clusterDistances = new HashMap<Cluster<Node>, HashMap<Cluster<Node>, Long>>();
-
+        ClusterDistances<Node> clusterDistances = new ClusterDistances<Node>(from.size());
+        List<Node> nodes = new ArrayList<Node>(from.size());
         for (Node node : from) {
-            Cluster<Node> newCluster = new Cluster<Node>(getNodeId(node), node);
-            HashMap<Cluster<Node>, Long> dist = new HashMap<Cluster<Node>, Long>();
-            for (Cluster<Node> cluster : clusterDistances.keySet()) {
-                dist.put(cluster, getDistance(node, cluster.getElements().get(0)));
+            if (clusterDistances.add(getNodeId(node), node)) {
+                nodes.add(node);
             }
-            clusterDistances.put(newCluster, dist);
         }
-        return clusterDistances;
-    }
-
-    @SuppressWarnings(value = "unchecked")
-    private <T> Cluster<T>[] findClosestClusters(HashMap<Cluster<T>, HashMap<Cluster<T>, Long>> curDistances) {
-
-        Cluster<T>[] res = null;
-        long proximity = threshold;
-
-        for (Cluster<?> a : curDistances.keySet()) {
-            for (Cluster<?> b : curDistances.get(a).keySet()) {
-                if (a.equals(b)) {
-                    continue;
-                }
 
-                Long distance = curDistances.get(a).get(b);
-                if (distance >= 0 && distance <= proximity) {
-                    res = (Cluster<T>[]) new Cluster[] { a, b };
-                    proximity = curDistances.get(a).get(b);
-                }
+        if (useTopologyMatrix()) {
+            // resolving hosts once and reading distances directly from the topology matrix
+            TopologyImpl topologyImpl = (TopologyImpl) topology;
+            int[] hostIndexes = new int[nodes.size()];
+            for (int i = 0; i < hostIndexes.length; i++) {
+                hostIndexes[i] = topologyImpl.getHostIndex(nodes.get(i).getVMInformation().getInetAddress());
             }
-        }
-
-        return res;
-    }
-
-    @SuppressWarnings(value = "unchecked")
-    private <T> Cluster<T> findClosestClustersTo(Cluster<T> cluster,
-            HashMap<Cluster<T>, HashMap<Cluster<T>, Long>> curDistances) {
-
-        Cluster<T>[] res = null;
-        long proximity = threshold;
-
-        for (Cluster<T> a : curDistances.keySet()) {
-            for (Cluster<T> b : curDistances.get(a).keySet()) {
-                if (a.equals(b) || (!a.equals(cluster) && !b.equals(cluster))) {
-                    continue;
+            for (int i = 0; i < hostIndexes.length; i++) {
+                for (int j = 0; j < i; j++) {
+                    long distance;
+                    if (hostIndexes[i] >= 0 && hostIndexes[j] >= 0) {
+                        distance = topologyImpl.getDistance(hostIndexes[i], hostIndexes[j]);
+                    } else {
+                        distance = toDistance(getDistance(nodes.get(i), nodes.get(j)));
+                    }
+                    clusterDistances.setDistance(i, j, distance < 0 ? -1 : distance);
                 }
-
-                Long distance = curDistances.get(a).get(b);
-                if (distance >= 0 && distance <= proximity) {
-                    res = (Cluster<T>[]) new Cluster[] { a, b };
-                    proximity = distance;
+            }
+        } else {
+            for (int i = 0; i < nodes.size(); i++) {
+                for (int j = 0; j < i; j++) {
+                    clusterDistances.setDistance(i, j, toDistance(getDistance(nodes.get(i), nodes.get(j))));
                 }
             }
         }
-
-        // no closest found
-        if (res == null)
-            return null;
-
-        //return the one that is not 'cluster'
-        return (res[0].equals(cluster)) ? res[1] : res[0];
-
+        return clusterDistances;
     }
 
     private String getNodeId(Node node) {
@@ -310,94 +298,233 @@ public class HAC {
         }
     }
 
-    /**
-     * Merges two cluster and recalculates distances to other.
-     * To achieve better performance new cluster is not created.
-     * Instead the bigger cluster is used as a container for nodes
-     * from smaller one.
-     */
-    private <T> Cluster<T> recalculateDistances(Cluster<T> cluster1, Cluster<T> cluster2,
-            HashMap<Cluster<T>, HashMap<Cluster<T>, Long>> curDistances) {
-
-        final Cluster<T> biggerCluster = cluster1.size() > cluster2.size() ? cluster1 : cluster2;
-        final Cluster<T> smallerCluster = cluster1.size() > cluster2.size() ? cluster2 : cluster1;
+    public List<Cluster<String>> clusterize(int numberOfClusters, Set<String> hosts) {
 
-        if (logger.isDebugEnabled()) {
-            logger.debug("Recalculating distances");
-            logger.debug("Clusters to merge:\n" + biggerCluster + "\n" + smallerCluster);
+        if (numberOfClusters <= 0) {
+            throw new IllegalArgumentException("numberOfClusters must be positive");
         }
 
-        for (Cluster<T> cluster : curDistances.keySet()) {
-            if (cluster.equals(smallerCluster) || cluster.equals(biggerCluster)) {
-                continue;
+        logger.debug("Initializing clusters map");
+        ClusterDistances<String> clusterDistances = new ClusterDistances<String>(hosts.size());
+        List<String> hostList = new ArrayList<String>(hosts);
+        for (int i = 0; i < hostList.size(); i++) {
+            String host = hostList.get(i);
+            clusterDistances.add(host, host);
+            for (int j = 0; j < i; j++) {
+                clusterDistances.setDistance(i, j, toDistance(topology.getDistance(host, hostList.get(j))));
             }
+        }
 
-            //logger.debug(curDistances);
-            long d0, d1;
-            if (curDistances.get(cluster) != null && curDistances.get(cluster).containsKey(biggerCluster)) {
-                d0 = curDistances.get(cluster).get(biggerCluster);
-            } else {
-                d0 = curDistances.get(biggerCluster).get(cluster);
-            }
-            if (curDistances.get(cluster) != null && curDistances.get(cluster).containsKey(smallerCluster)) {
-                d1 = curDistances.get(cluster).get(smallerCluster);
-            } else {
-                d1 = curDistances.get(smallerCluster).get(cluster);
+        while (clusterDistances.size() > numberOfClusters) {
+            // finding two clusters to merge according
+            int[] clustersToMerge = clusterDistances.findClosest();
+            if (clustersToMerge == null) {
+                // there is no clusters close to each other
+                // stop the process
+                break;
             }
+            // merging clusters and recalculating distances between others
+            clusterDistances.merge(clustersToMerge[0], clustersToMerge[1]);
+        }
+
+        return clusterDistances.getClusters();
+    }
 
-            long newDistance = distanceFunction.distance(d0, d1);
-            curDistances.get(biggerCluster).put(cluster, newDistance);
+    /**
+     * Distances between the clusters being merged.
+     * <p>
+     * Distances are stored in a lower triangular matrix indexed by the initial position
+     * of the clusters. When two clusters are merged, the bigger one is used as a container
+     * for the elements of the smaller one and keeps its index.
+     * Negative distances mean that clusters are not connected.
+     */
+    private class ClusterDistances<T> {
+
+        private final List<Cluster<T>> clusters;
+        private final HashMap<String, Integer> indexes;
+        private final long[] distances;
+        // false for the clusters merged into another one
+        private final boolean[] active;
+        // clusters which are merged last are considered first when sizes are equal
+        private final long[] stamps;
+        private long stamp;
+        private int size;
+
+        // nearest neighbour cache, built on the first global search
+        private int[] nearest;
+        private long[] nearestDistances;
+
+        ClusterDistances(int capacity) {
+            this.clusters = new ArrayList<Cluster<T>>(capacity);
+            this.indexes = new HashMap<String, Integer>(capacity);
+            this.distances = new long[capacity * (capacity - 1) / 2];
+            this.active = new boolean[capacity];
+            this.stamps = new long[capacity];
+        }
 
-            if (curDistances.get(cluster) != null) {
-                curDistances.get(cluster).remove(smallerCluster);
-                curDistances.get(cluster).remove(biggerCluster);
+        /**
+         * Adds a cluster of one element, returns false if a cluster with the same id is already added.
+         */
+        boolean add(String id, T element) {
+            if (indexes.containsKey(id)) {
+                return false;
             }
+            int index = clusters.size();
+            indexes.put(id, index);
+            clusters.add(new Cluster<T>(id, element));
+            active[index] = true;
+            stamps[index] = stamp++;
+            size++;
+            return true;
         }
 
-        biggerCluster.add(smallerCluster.getElements());
-        // we may actually add nodes to another instance of the cluster
-        // so override the key value in the hash
-        curDistances.put(biggerCluster, curDistances.remove(biggerCluster));
+        int indexOf(String id) {
+            return indexes.get(id);
+        }
 
-        curDistances.remove(smallerCluster);
-        curDistances.get(biggerCluster).remove(smallerCluster);
+        Cluster<T> get(int index) {
+            return clusters.get(index);
+        }
 
-        if (logger.isDebugEnabled()) {
-            logger.debug(biggerCluster + " size = " + biggerCluster.size());
+        /**
+         * Returns the number of clusters not merged into another one.
+         */
+        int size() {
+            return size;
         }
-        return biggerCluster;
-    }
 
-    public List<Cluster<String>> clusterize(int numberOfClusters, Set<String> hosts) {
+        List<Cluster<T>> getClusters() {
+            List<Cluster<T>> result = new LinkedList<Cluster<T>>();
+            for (int i = 0; i < clusters.size(); i++) {
+                if (active[i]) {
+                    result.add(clusters.get(i));
+                }
+            }
+            return result;
+        }
 
-        if (numberOfClusters <= 0) {
-            throw new IllegalArgumentException("numberOfClusters must be positive");
+        void setDistance(int index, int index2, long distance) {
+            distances[position(index, index2)] = distance;
         }
 
-        logger.debug("Initializing clusters map");
-        HashMap<Cluster<String>, HashMap<Cluster<String>, Long>> clusterDistances = new HashMap<Cluster<String>, HashMap<Cluster<String>, Long>>();
+        long getDistance(int index, int index2) {
+            return distances[position(index, index2)];
+        }
 
-        for (String host : hosts) {
-            Cluster<String> newCluster = new Cluster<String>(host, host);
-            HashMap<Cluster<String>, Long> dist = new HashMap<Cluster<String>, Long>();
-            for (Cluster<String> cluster : clusterDistances.keySet()) {
-                dist.put(cluster, topology.getDistance(host, cluster.getElements().get(0)));
+        private int position(int index, int index2) {
+            return index > index2 ? index * (index - 1) / 2 + index2 : index2 * (index2 - 1) / 2 + index;
+        }
+
+        private boolean mergeable(long distance) {
+            return distance >= 0 && distance <= threshold;
+        }
+
+        /**
+         * Returns the index of the closest cluster to the given one, or -1 if none can be merged.
+         */
+        int findClosestTo(int index) {
+            int closest = -1;
+            long proximity = Long.MAX_VALUE;
+            for (int i = 0; i < clusters.size(); i++) {
+                if (i != index && active[i]) {
+                    long distance = getDistance(index, i);
+                    if (mergeable(distance) && (closest < 0 || distance < proximity)) {
+                        closest = i;
+                        proximity = distance;
+                    }
+                }
             }
-            clusterDistances.put(newCluster, dist);
+            return closest;
         }
 
-        while (clusterDistances.size() > numberOfClusters) {
-            // finding two clusters to merge according
-            Cluster<String>[] clustersToMerge = findClosestClusters(clusterDistances);
-            if (clustersToMerge == null) {
-                // there is no clusters close to each other
-                // stop the process
-                break;
+        /**
+         * Returns the indexes of the two closest clusters, or null if none can be merged.
+         */
+        int[] findClosest() {
+            if (nearest == null) {
+                nearest = new int[clusters.size()];
+                nearestDistances = new long[clusters.size()];
+                for (int i = 0; i < clusters.size(); i++) {
+                    if (active[i]) {
+                        updateNearest(i);
+                    }
+                }
             }
-            // merging clusters and recalculating distances between others
-            recalculateDistances(clustersToMerge[0], clustersToMerge[1], clusterDistances);
+
+            int closest = -1;
+            for (int i = 0; i < clusters.size(); i++) {
+                if (active[i] && nearest[i] >= 0 &&
+                    (closest < 0 || nearestDistances[i] < nearestDistances[closest])) {
+                    closest = i;
+                }
+            }
+            if (closest < 0) {
+                return null;
+            }
+            // the most recently merged cluster comes first
+            int other = nearest[closest];
+            return stamps[closest] > stamps[other] ? new int[] { closest, other } : new int[] { other,
+                    closest };
+        }
+
+        private void updateNearest(int index) {
+            nearest[index] = findClosestTo(index);
+            nearestDistances[index] = nearest[index] < 0 ? Long.MAX_VALUE : getDistance(index,
+                    nearest[index]);
         }
 
-        return new LinkedList<Cluster<String>>(clusterDistances.keySet());
+        /**
+         * Merges two cluster and recalculates distances to other.
+         * To achieve better performance new cluster is not created.
+         * Instead the bigger cluster (the second one if sizes are equal) is used as a container
+         * for elements from smaller one.
+         *
+         * @return the index of the merged cluster
+         */
+        int merge(int index1, int index2) {
+            final int bigger = clusters.get(index1).size() > clusters.get(index2).size() ? index1 : index2;
+            final int smaller = bigger == index1 ? index2 : index1;
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("Recalculating distances");
+                logger.debug("Clusters to merge:\n" + clusters.get(bigger) + "\n" + clusters.get(smaller));
+            }
+
+            for (int i = 0; i < clusters.size(); i++) {
+                if (active[i] && i != bigger && i != smaller) {
+                    setDistance(bigger, i, distanceFunction.distance(getDistance(i, bigger), getDistance(i,
+                            smaller)));
+                }
+            }
+
+            clusters.get(bigger).add(clusters.get(smaller).getElements());
+            active[smaller] = false;
+            stamps[bigger] = stamp++;
+            size--;
+
+            if (nearest != null) {
+                updateNearest(bigger);
+                for (int i = 0; i < clusters.size(); i++) {
+                    if (!active[i] || i == bigger) {
+                        continue;
+                    }
+                    if (nearest[i] == bigger || nearest[i] == smaller) {
+                        // the distance to the nearest cluster may have increased
+                        updateNearest(i);
+                    } else {
+                        long distance = getDistance(i, bigger);
+                        if (mergeable(distance) && (nearest[i] < 0 || distance < nearestDistances[i])) {
+                            nearest[i] = bigger;
+                            nearestDistances[i] = distance;
+                        }
+                    }
+                }
+            }
+
+            if (logger.isDebugEnabled()) {
+                logger.debug(clusters.get(bigger) + " size = " + clusters.get(bigger).size());
+            }
+            return bigger;
+        }
     }
 }
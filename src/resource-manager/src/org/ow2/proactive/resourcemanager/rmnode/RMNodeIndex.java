@@ -0,0 +1,180 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ActiveEon Team
+ *                        http://www.activeeon.com/
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$ACTIVEEON_INITIAL_DEV$$
+ */
+package org.ow2.proactive.resourcemanager.rmnode;
+
+import java.io.Serializable;
+import java.security.Permission;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Set of {@link RMNode} grouped by node source and by user permission.
+ * Adding and removing a node costs a couple of hash lookups, so the resource
+ * manager can keep it up to date on every node state change, and the selection
+ * can check the permission once per group instead of once per node.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class RMNodeIndex implements Serializable {
+
+    /** node source name -> user permission -> nodes */
+    private final Map<String, Map<Permission, Set<RMNode>>> nodes = new LinkedHashMap<String, Map<Permission, Set<RMNode>>>();
+
+    private int size;
+
+    /**
+     * Adds a node to the index.
+     *
+     * @param node the node to add
+     * @return true if the node was not already indexed
+     */
+    public boolean add(RMNode node) {
+        Map<Permission, Set<RMNode>> nodeSourceNodes = nodes.get(node.getNodeSourceName());
+        if (nodeSourceNodes == null) {
+            nodeSourceNodes = new LinkedHashMap<Permission, Set<RMNode>>();
+            nodes.put(node.getNodeSourceName(), nodeSourceNodes);
+        }
+        Set<RMNode> bucket = nodeSourceNodes.get(node.getUserPermission());
+        if (bucket == null) {
+            bucket = new LinkedHashSet<RMNode>();
+            nodeSourceNodes.put(node.getUserPermission(), bucket);
+        }
+        if (bucket.add(node)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes a node from the index.
+     *
+     * @param node the node to remove
+     * @return true if the node was indexed
+     */
+    public boolean remove(RMNode node) {
+        Map<Permission, Set<RMNode>> nodeSourceNodes = nodes.get(node.getNodeSourceName());
+        if (nodeSourceNodes == null) {
+            return false;
+        }
+        Set<RMNode> bucket = nodeSourceNodes.get(node.getUserPermission());
+        if (bucket == null || !bucket.remove(node)) {
+            return false;
+        }
+        size--;
+        if (bucket.isEmpty()) {
+            nodeSourceNodes.remove(node.getUserPermission());
+            if (nodeSourceNodes.isEmpty()) {
+                nodes.remove(node.getNodeSourceName());
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(RMNode node) {
+        Map<Permission, Set<RMNode>> nodeSourceNodes = nodes.get(node.getNodeSourceName());
+        if (nodeSourceNodes == null) {
+            return false;
+        }
+        Set<RMNode> bucket = nodeSourceNodes.get(node.getUserPermission());
+        return bucket != null && bucket.contains(node);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns a copy of the nodes belonging to the given node source.
+     *
+     * @param nodeSourceName the name of the node source
+     * @return the nodes of this node source, empty list if there is none
+     */
+    public List<RMNode> getNodes(String nodeSourceName) {
+        List<RMNode> result = new ArrayList<RMNode>();
+        Map<Permission, Set<RMNode>> nodeSourceNodes = nodes.get(nodeSourceName);
+        if (nodeSourceNodes != null) {
+            for (Set<RMNode> bucket : nodeSourceNodes.values()) {
+                result.addAll(bucket);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of all the indexed nodes.
+     *
+     * @return all the nodes
+     */
+    public List<RMNode> getNodes() {
+        List<RMNode> result = new ArrayList<RMNode>(size);
+        for (Map<Permission, Set<RMNode>> nodeSourceNodes : nodes.values()) {
+            for (Set<RMNode> bucket : nodeSourceNodes.values()) {
+                result.addAll(bucket);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the groups of nodes sharing the same node source and the same
+     * user permission. Each returned group is a read only view and is never empty.
+     *
+     * @return the groups of nodes
+     */
+    public List<Collection<RMNode>> getBuckets() {
+        List<Collection<RMNode>> result = new ArrayList<Collection<RMNode>>();
+        for (Map<Permission, Set<RMNode>> nodeSourceNodes : nodes.values()) {
+            for (Set<RMNode> bucket : nodeSourceNodes.values()) {
+                result.add(Collections.unmodifiableCollection(bucket));
+            }
+        }
+        return result;
+    }
+}
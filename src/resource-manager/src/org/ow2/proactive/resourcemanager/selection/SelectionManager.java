@@ -63,6 +63,7 @@ import org.ow2.proactive.resourcemanager.core.RMCore;
 import org.ow2.proactive.resourcemanager.core.properties.PAResourceManagerProperties;
 import org.ow2.proactive.resourcemanager.exception.NotConnectedException;
 import org.ow2.proactive.resourcemanager.rmnode.RMNode;
+import org.ow2.proactive.resourcemanager.rmnode.RMNodeIndex;
 import org.ow2.proactive.resourcemanager.selection.policies.ShufflePolicy;
 import org.ow2.proactive.resourcemanager.selection.topology.TopologyHandler;
 import org.ow2.proactive.scripting.Script;
@@ -176,7 +177,7 @@ public abstract class SelectionManager {
         // can throw Exception if topology is disabled
         TopologyHandler handler = RMCore.topologyManager.getHandler(criteria.getTopology());
 
-        List<RMNode> freeNodes = rmcore.getFreeNodes();
+        RMNodeIndex freeNodes = rmcore.getFreeNodes();
         // filtering out the "free node list"
         // removing exclusion and checking permissions
         List<RMNode> filteredNodes = filterOut(freeNodes, criteria.getBlackList(), client);
@@ -377,31 +378,35 @@ public abstract class SelectionManager {
     }
 
     /**
-     * Removes exclusion nodes and nodes not accessible for the client
+     * Removes exclusion nodes and nodes not accessible for the client.
+     * Nodes of a bucket share the same node source and user permission,
+     * so the permission is checked only once per bucket.
      *
      * @param freeNodes
      * @param exclusion
      * @param client
      * @return
      */
-    private List<RMNode> filterOut(List<RMNode> freeNodes, NodeSet exclusion, Client client) {
+    private List<RMNode> filterOut(RMNodeIndex freeNodes, NodeSet exclusion, Client client) {
 
-        List<RMNode> filteredList = new ArrayList<RMNode>();
+        List<RMNode> filteredList = new ArrayList<RMNode>(freeNodes.size());
 
-        for (RMNode node : freeNodes) {
+        for (Collection<RMNode> bucket : freeNodes.getBuckets()) {
+            RMNode first = bucket.iterator().next();
             // checking the permission
             try {
-                client.checkPermission(node.getUserPermission(), client +
-                    " is not authorized to get the node " + node.getNodeURL() + " from " +
-                    node.getNodeSource().getName());
+                client.checkPermission(first.getUserPermission(), client +
+                    " is not authorized to get the nodes from " + first.getNodeSourceName());
             } catch (SecurityException e) {
-                // client does not have an access to this node
+                // client does not have an access to these nodes
                 logger.debug(e.getMessage());
                 continue;
             }
 
-            if (!contains(exclusion, node)) {
-                filteredList.add(node);
+            for (RMNode node : bucket) {
+                if (!contains(exclusion, node)) {
+                    filteredList.add(node);
+                }
             }
         }
         return filteredList;
@@ -490,6 +495,13 @@ public abstract class SelectionManager {
         }
     }
 
+    /**
+     * Indicates that the node with specified url has been removed from the resource manager,
+     * so that the knowledge kept about it can be released.
+     */
+    public void nodeRemoved(String nodeUrl) {
+    }
+
     /**
      * Handles shut down of the selection manager
      */
@@ -0,0 +1,282 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.resourcemanager.selection.statistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.ow2.proactive.resourcemanager.rmnode.RMNode;
+
+
+/**
+ * Knowledge base of the {@link ProbablisticSelectionManager}: for each script digest
+ * and each node, the probability that the script passes on the node.
+ * <p>
+ * Nodes get a stable integer index the first time a script is executed on them, and
+ * each script digest owns a {@link Row} of primitive arrays indexed by this node index,
+ * so reading probabilities does not allocate anything. The index of a node removed from
+ * the resource manager is cleared in all rows and reused by the next new node.
+ * <p>
+ * The probability of a (script, node) pair has the following properties : <BR>
+ *
+ * 1. Value always stays in bounds between 0 and 1 including ends. <BR>
+ * 2. By increasing it goes to 1 but never reach it. <BR>
+ * 3. By decreasing it is set to 0 for a while, then restored to a value that goes to 0
+ * but never reach it. <BR>
+ * 4. By increasing it N times and then decreasing it N times
+ * it goes to the initial value.<BR>
+ * <p>
+ * The table is not thread safe, callers must synchronize on it.
+ * Scheduled restorations of decreased probabilities do so as well.
+ */
+class ProbabilityTable {
+
+    private static final float ALMOST_ONE = Math.nextAfter(1f, 0);
+
+    /** Probability of a script never executed on a node */
+    static final float DEFAULT_VALUE = calcProbability(0);
+
+    private static Timer timer = new Timer("resourcemanager.selection.statistics.Probability timer", true);
+
+    // node url => node index
+    private final Map<String, Integer> nodeIndexes = new HashMap<String, Integer>();
+
+    // indexes of removed nodes, reused before allocating new ones
+    private final List<Integer> freeIndexes = new ArrayList<Integer>();
+
+    // incremented each time a node index is released so that pending
+    // restorations do not apply to the node reusing the index
+    private int[] generations = new int[0];
+
+    // script digest => probabilities, in insertion order
+    // so that the oldest added script is evicted first
+    private final LinkedHashMap<String, Row> rows = new LinkedHashMap<String, Row>();
+
+    /**
+     * Probabilities of one script for all the nodes, indexed by node index.
+     * Unknown probabilities are NaN.
+     */
+    final class Row {
+
+        private float[] values = new float[0];
+        private int[] steps = new int[0];
+
+        /**
+         * Returns the probability for the given node index, NaN if unknown.
+         */
+        float get(int nodeIndex) {
+            if (nodeIndex < 0 || nodeIndex >= values.length) {
+                return Float.NaN;
+            }
+            return values[nodeIndex];
+        }
+
+        /**
+         * Updates the probability of the node according to the script execution result
+         * and returns the new value.
+         *
+         * @param nodeIndex the node index
+         * @param passed true if the script passed, false if it failed, null if an error occurred
+         * @param dynamic true if the script is dynamic
+         * @param restoreDelay delay before restoring the probability of a failed dynamic script
+         * @return the new probability
+         */
+        float update(final int nodeIndex, Boolean passed, boolean dynamic, long restoreDelay) {
+            ensureCapacity(nodeIndex);
+            float value = values[nodeIndex];
+            int step = steps[nodeIndex];
+            if (Float.isNaN(value)) {
+                value = DEFAULT_VALUE;
+                step = 0;
+            }
+
+            if (passed == null) {
+                // error during script execution
+            } else if (!passed) {
+                if (dynamic) {
+                    if (value > 0 && value < 1) {
+                        // setting the probability to 0 to timeout the script execution on this node
+                        // and scheduling its restoration
+                        final float restored = calcProbability(--step);
+                        final int generation = generations[nodeIndex];
+                        timer.schedule(new TimerTask() {
+                            @Override
+                            public void run() {
+                                synchronized (ProbabilityTable.this) {
+                                    if (generations[nodeIndex] == generation && values[nodeIndex] == 0) {
+                                        values[nodeIndex] = restored;
+                                    }
+                                }
+                            }
+                        }, restoreDelay);
+                    }
+                    value = 0;
+                } else {
+                    value = 0;
+                    step = 0;
+                }
+            } else {
+                if (dynamic) {
+                    value = calcProbability(++step);
+                } else {
+                    value = 1;
+                    step = 0;
+                }
+            }
+
+            values[nodeIndex] = value;
+            steps[nodeIndex] = step;
+            return value;
+        }
+
+        private void ensureCapacity(int nodeIndex) {
+            if (nodeIndex < values.length) {
+                return;
+            }
+            int length = Math.max(nodeIndex + 1, values.length * 2);
+            int oldLength = values.length;
+            values = Arrays.copyOf(values, length);
+            steps = Arrays.copyOf(steps, length);
+            Arrays.fill(values, oldLength, length, Float.NaN);
+        }
+
+        private void clear(int nodeIndex) {
+            if (nodeIndex < values.length) {
+                values[nodeIndex] = Float.NaN;
+                steps[nodeIndex] = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the probabilities of a script, null if the script has never been executed.
+     */
+    Row getRow(String digest) {
+        return rows.get(digest);
+    }
+
+    /**
+     * Adds empty probabilities for a script. When the table already holds
+     * the maximum number of scripts, the oldest added one is removed.
+     *
+     * @param digest the script digest
+     * @param maxRows maximum number of scripts kept
+     * @return the probabilities of the script
+     */
+    Row addRow(String digest, int maxRows) {
+        if (rows.size() >= maxRows) {
+            Iterator<String> oldest = rows.keySet().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        Row row = new Row();
+        rows.put(digest, row);
+        return row;
+    }
+
+    /**
+     * Returns the number of scripts kept in the table.
+     */
+    int size() {
+        return rows.size();
+    }
+
+    /**
+     * Returns the node index, -1 if no script has ever been executed on this node.
+     */
+    int getNodeIndex(RMNode node) {
+        Integer index = nodeIndexes.get(node.getNodeURL());
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the node index, assigning a new one if needed.
+     */
+    int getOrCreateNodeIndex(RMNode node) {
+        Integer index = nodeIndexes.get(node.getNodeURL());
+        if (index == null) {
+            if (freeIndexes.isEmpty()) {
+                index = nodeIndexes.size();
+                if (index >= generations.length) {
+                    generations = Arrays.copyOf(generations, Math.max(index + 1, generations.length * 2));
+                }
+            } else {
+                index = freeIndexes.remove(freeIndexes.size() - 1);
+            }
+            nodeIndexes.put(node.getNodeURL(), index);
+        }
+        return index;
+    }
+
+    /**
+     * Forgets all the probabilities of a node removed from the resource manager
+     * and releases its index.
+     *
+     * @param nodeUrl the url of the removed node
+     */
+    void removeNode(String nodeUrl) {
+        Integer index = nodeIndexes.remove(nodeUrl);
+        if (index == null) {
+            return;
+        }
+        for (Row row : rows.values()) {
+            row.clear(index);
+        }
+        generations[index]++;
+        freeIndexes.add(index);
+    }
+
+    /**
+     * Returns the number of nodes having an index.
+     */
+    int nodeCount() {
+        return nodeIndexes.size();
+    }
+
+    private static float calcProbability(int step) {
+        // a dynamic script must never look as certain as a static one,
+        // even when the float rounding reaches 1
+        return Math.min((float) (Math.atan(step) / Math.PI + 0.5), ALMOST_ONE);
+    }
+}
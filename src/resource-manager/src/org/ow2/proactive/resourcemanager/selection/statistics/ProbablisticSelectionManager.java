@@ -38,10 +38,9 @@ package org.ow2.proactive.resourcemanager.selection.statistics;
 
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.extensions.annotation.ActiveObject;
@@ -75,23 +74,26 @@ public class ProbablisticSelectionManager extends SelectionManager {
 
     // contains an information about already executed scripts
     // script digest => node => probability
-    private HashMap<String, HashMap<RMNode, Probability>> probabilities;
-
+    //
     // in order to avoid OOM when the number of scripts exceeds the limit
     // we could :
     // 1. Reset all the probabilities for all scripts (simple but long to recover performance)
     // 2. Remove the oldest script execution results (too expensive and complicated)
     //	  need to store the time, update it each time, then sort when removing
     //    the system will be too CPU consuming working on the limit
-    // 3. Removed the oldest added script. For this we have this queue. 
-    private LinkedList<String> digestQueue = new LinkedList<String>();
+    // 3. Removed the oldest added script. This is what the table does.
+    private ProbabilityTable probabilities;
+
+    // reused between selections to sort candidates
+    // probability bits in the high half, reversed position in the low half
+    private long[] sortKeys = new long[0];
 
     public ProbablisticSelectionManager() {
     }
 
     public ProbablisticSelectionManager(RMCore rmcore) {
         super(rmcore);
-        this.probabilities = new HashMap<String, HashMap<RMNode, Probability>>();
+        this.probabilities = new ProbabilityTable();
     }
 
     /**
@@ -115,45 +117,63 @@ public class ProbablisticSelectionManager extends SelectionManager {
         }
 
         try {
-            // finding intersection
-            HashMap<RMNode, Probability> intersectionMap = new HashMap<RMNode, Probability>();
-            for (RMNode rmnode : nodes) {
-                boolean intersection = true;
-                double intersectionProbability = 1;
-                for (SelectionScript script : scripts) {
-                    String digest = new String(script.digest());
-                    if (probabilities.containsKey(digest) && probabilities.get(digest).containsKey(rmnode)) {
-                        double probability = probabilities.get(digest).get(rmnode).value();
-                        if (probability == 0) {
+            List<RMNode> nodeList = nodes instanceof RandomAccess ? nodes : new ArrayList<RMNode>(nodes);
+            List<RMNode> res = new ArrayList<RMNode>();
+
+            synchronized (probabilities) {
+                // resolving the scripts once for all the nodes
+                ProbabilityTable.Row[] rows = new ProbabilityTable.Row[scripts.size()];
+                for (int i = 0; i < rows.length; i++) {
+                    rows[i] = probabilities.getRow(digest(scripts.get(i)));
+                }
+
+                if (sortKeys.length < nodeList.size()) {
+                    sortKeys = new long[nodeList.size()];
+                }
+
+                // finding intersection
+                int candidates = 0;
+                for (int position = 0; position < nodeList.size(); position++) {
+                    int nodeIndex = probabilities.getNodeIndex(nodeList.get(position));
+                    boolean intersection = true;
+                    double intersectionProbability = 1;
+                    for (ProbabilityTable.Row row : rows) {
+                        float probability = row == null ? Float.NaN : row.get(nodeIndex);
+                        if (Float.isNaN(probability)) {
+                            intersectionProbability *= ProbabilityTable.DEFAULT_VALUE;
+                        } else if (probability == 0) {
                             intersection = false;
                             break;
                         } else {
                             intersectionProbability *= probability;
                         }
-                    } else {
-                        intersectionProbability *= Probability.defaultValue();
                     }
-                }
 
-                if (intersection) {
-                    intersectionMap.put(rmnode, new Probability(intersectionProbability));
+                    if (intersection) {
+                        // probabilities are never negative so their float bits are ordered as their values,
+                        // the reversed position keeps the initial order of equally probable nodes
+                        sortKeys[candidates++] = ((long) Float.floatToIntBits((float) intersectionProbability) << 32) |
+                            (Integer.MAX_VALUE - position);
+                    }
                 }
-            }
 
-            // sorting results based on calculated probability
-            List<RMNode> res = new ArrayList<RMNode>();
-            res.addAll(intersectionMap.keySet());
-            Collections.sort(res, new NodeProbabilityComparator(intersectionMap));
+                // sorting results based on calculated probability
+                Arrays.sort(sortKeys, 0, candidates);
+                for (int i = candidates - 1; i >= 0; i--) {
+                    res.add(nodeList.get(Integer.MAX_VALUE - (int) sortKeys[i]));
+                }
 
-            if (logger.isDebugEnabled()) {
-                logger.debug("The following nodes are selected for scripts execution (time is " +
-                    (System.currentTimeMillis() - startTime) + " ms) :");
-                if (res.size() > 0) {
-                    for (RMNode rmnode : res) {
-                        logger.debug(rmnode.getNodeURL() + " : probability " + intersectionMap.get(rmnode));
+                if (logger.isDebugEnabled()) {
+                    logger.debug("The following nodes are selected for scripts execution (time is " +
+                        (System.currentTimeMillis() - startTime) + " ms) :");
+                    if (res.size() > 0) {
+                        for (int i = candidates - 1; i >= 0; i--) {
+                            logger.debug(nodeList.get(Integer.MAX_VALUE - (int) sortKeys[i]).getNodeURL() +
+                                " : probability " + Float.intBitsToFloat((int) (sortKeys[i] >>> 32)));
+                        }
+                    } else {
+                        logger.debug("None");
                     }
-                } else {
-                    logger.debug("None");
                 }
             }
             return res;
@@ -172,17 +192,19 @@ public class ProbablisticSelectionManager extends SelectionManager {
      * @return true if script will pass on the node
      */
     @Override
-    public synchronized boolean isPassed(SelectionScript script, RMNode rmnode) {
-        String digest;
+    public boolean isPassed(SelectionScript script, RMNode rmnode) {
         try {
-            digest = new String(script.digest());
-            if (probabilities.containsKey(digest) && probabilities.get(digest).containsKey(rmnode)) {
-                Probability p = probabilities.get(digest).get(rmnode);
-                String scriptType = script.isDynamic() ? "dynamic" : "static";
-                if (logger.isDebugEnabled())
-                    logger.debug(rmnode.getNodeURL() + " : " + script.hashCode() + " known " + scriptType +
-                        " script");
-                return p.value() == 1;
+            String digest = digest(script);
+            synchronized (probabilities) {
+                ProbabilityTable.Row row = probabilities.getRow(digest);
+                float probability = row == null ? Float.NaN : row.get(probabilities.getNodeIndex(rmnode));
+                if (!Float.isNaN(probability)) {
+                    String scriptType = script.isDynamic() ? "dynamic" : "static";
+                    if (logger.isDebugEnabled())
+                        logger.debug(rmnode.getNodeURL() + " : " + script.hashCode() + " known " +
+                            scriptType + " script");
+                    return probability == 1;
+                }
             }
         } catch (NoSuchAlgorithmException e) {
             logger.error(e.getMessage(), e);
@@ -203,67 +225,59 @@ public class ProbablisticSelectionManager extends SelectionManager {
      * @return whether node is selected
      */
     @Override
-    public synchronized boolean processScriptResult(SelectionScript script,
-            ScriptResult<Boolean> scriptResult, RMNode rmnode) {
+    public boolean processScriptResult(SelectionScript script, ScriptResult<Boolean> scriptResult,
+            RMNode rmnode) {
 
-        boolean result = false;
+        Boolean passed = null;
+        if (scriptResult != null && !scriptResult.errorOccured()) {
+            passed = scriptResult.getResult();
+        }
 
         try {
-            String digest = new String(script.digest());
-            Probability probability = new Probability(Probability.defaultValue());
-            if (probabilities.containsKey(digest) && probabilities.get(digest).containsKey(rmnode)) {
-                probability = probabilities.get(digest).get(rmnode);
-                assert (probability.value() >= 0 && probability.value() <= 1);
-            }
-
-            if (scriptResult == null || scriptResult != null && scriptResult.errorOccured()) {
-                // error during script execution
-            } else if (!scriptResult.getResult()) {
-                // script failed
-                if (script.isDynamic()) {
-                    probability.decrease();
-                } else {
-                    probability = Probability.ZERO;
-                }
-            } else {
-                // script passed
-                result = true;
-                if (script.isDynamic()) {
-                    probability.increase();
-                } else {
-                    probability = Probability.ONE;
-                }
-            }
-
-            if (!probabilities.containsKey(digest)) {
-                // checking if the number of selection script does not exceeded the maximum
-                if (probabilities.size() >= PAResourceManagerProperties.RM_SELECT_SCRIPT_CACHE_SIZE
-                        .getValueAsInt()) {
-                    String oldest = digestQueue.poll();
-                    probabilities.remove(oldest);
-                    if (logger.isDebugEnabled()) {
-                        logger.debug("Removing the script: " + script.hashCode() +
-                            " from the data base because the limit is reached");
+            String digest = digest(script);
+            synchronized (probabilities) {
+                ProbabilityTable.Row row = probabilities.getRow(digest);
+                if (row == null) {
+                    // checking if the number of selection script does not exceeded the maximum
+                    int maxScripts = PAResourceManagerProperties.RM_SELECT_SCRIPT_CACHE_SIZE.getValueAsInt();
+                    if (probabilities.size() >= maxScripts && logger.isDebugEnabled()) {
+                        logger.debug("Removing the oldest script from the data base because the limit is reached");
                     }
+                    // adding a new script record
+                    row = probabilities.addRow(digest, maxScripts);
+                    logger.debug("Scripts cache size " + probabilities.size());
                 }
-                // adding a new script record
-                probabilities.put(digest, new HashMap<RMNode, Probability>());
-                logger.debug("Scripts cache size " + probabilities.size());
-                digestQueue.offer(digest);
-            }
-
-            if (logger.isDebugEnabled()) {
-                logger.debug(rmnode.getNodeURL() + " : script " + script.hashCode() + ", probability " +
-                    probability);
-            }
 
-            probabilities.get(digest).put(rmnode, probability);
+                float probability = row.update(probabilities.getOrCreateNodeIndex(rmnode), passed, script
+                        .isDynamic(), PAResourceManagerProperties.RM_SELECT_SCRIPT_NODE_DYNAMICITY
+                        .getValueAsInt());
 
+                if (logger.isDebugEnabled()) {
+                    logger.debug(rmnode.getNodeURL() + " : script " + script.hashCode() + ", probability " +
+                        probability);
+                }
+            }
         } catch (NoSuchAlgorithmException e) {
             logger.error(e.getMessage(), e);
         }
 
-        return result;
+        return passed != null && passed;
+    }
+
+    /**
+     * Removes the probabilities of the node from the knowledge base.
+     *
+     * @param nodeUrl - url of the removed node
+     */
+    @Override
+    public void nodeRemoved(String nodeUrl) {
+        synchronized (probabilities) {
+            probabilities.removeNode(nodeUrl);
+        }
+    }
+
+    private static String digest(SelectionScript script) throws NoSuchAlgorithmException {
+        return new String(script.digest());
     }
 
     /**
@@ -0,0 +1,203 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unittests.cleaning;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.objectweb.proactive.core.util.wrapper.BooleanWrapper;
+import org.ow2.proactive.resourcemanager.cleaning.NodesCleaner;
+import org.ow2.proactive.resourcemanager.core.RMCore;
+import org.ow2.proactive.resourcemanager.core.properties.PAResourceManagerProperties;
+import org.ow2.proactive.resourcemanager.rmnode.RMNode;
+
+
+/**
+ * Test that nodes which cleaning hangs are marked as down without blocking the cleaning
+ * of the other nodes, even when the cleaning ignores interruptions.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestNodesCleaner {
+
+    private static final long TIMEOUT = 500;
+
+    @BeforeClass
+    public static void setUp() {
+        // a single cleaning thread, so that a hung node would block all the others
+        PAResourceManagerProperties.RM_CLEANING_MAX_THREAD_NUMBER.updateProperty("1");
+        PAResourceManagerProperties.RM_CLEANING_TIMEOUT.updateProperty("" + TIMEOUT);
+    }
+
+    @Test
+    public void testHungNodes() throws Exception {
+        FakeCore core = new FakeCore();
+        NodesCleaner cleaner = new NodesCleaner(core);
+        CountDownLatch hang = new CountDownLatch(1);
+
+        List<RMNode> nodes = new ArrayList<RMNode>();
+        nodes.add(createNode("hung1", hang, false));
+        nodes.add(createNode("hung2", hang, false));
+        nodes.add(createNode("clean1", null, false));
+        nodes.add(createNode("clean2", null, false));
+        cleaner.cleanAndRelease(nodes);
+
+        Set<String> down = new HashSet<String>();
+        Set<String> free = new HashSet<String>();
+        for (int i = 0; i < nodes.size(); i++) {
+            String released = core.released.poll(TIMEOUT * 10, TimeUnit.MILLISECONDS);
+            Assert.assertNotNull("Node cleaning blocked by hung nodes", released);
+            (released.startsWith("down:") ? down : free).add(released.substring(5));
+        }
+        Assert.assertEquals(set("hung1", "hung2"), down);
+        Assert.assertEquals(set("clean1", "clean2"), free);
+        Assert.assertEquals(2, cleaner.getStuckThreadsCount());
+
+        // the replacement threads are removed once the hung cleanings return
+        hang.countDown();
+        long deadline = System.currentTimeMillis() + TIMEOUT * 10;
+        while (cleaner.getStuckThreadsCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, cleaner.getStuckThreadsCount());
+        Assert.assertTrue(core.released.isEmpty());
+
+        cleaner.cleanAndRelease(nodes.subList(2, 4));
+        Set<String> released = new HashSet<String>();
+        released.add(core.released.poll(TIMEOUT * 10, TimeUnit.MILLISECONDS));
+        released.add(core.released.poll(TIMEOUT * 10, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(set("free:clean1", "free:clean2"), released);
+    }
+
+    @Test
+    public void testInterruptedNode() throws Exception {
+        FakeCore core = new FakeCore();
+        NodesCleaner cleaner = new NodesCleaner(core);
+        List<RMNode> nodes = new ArrayList<RMNode>();
+        nodes.add(createNode("interruptible", new CountDownLatch(1), true));
+        nodes.add(createNode("clean", null, false));
+        cleaner.cleanAndRelease(nodes);
+
+        Assert.assertEquals("down:interruptible", core.released.poll(TIMEOUT * 10, TimeUnit.MILLISECONDS));
+        // the interruption of the timed out cleaning does not reach the next one
+        Assert.assertEquals("free:clean", core.released.poll(TIMEOUT * 10, TimeUnit.MILLISECONDS));
+        Assert.assertNull(core.released.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(0, cleaner.getStuckThreadsCount());
+    }
+
+    private static Set<String> set(String... values) {
+        Set<String> set = new HashSet<String>();
+        for (String value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    /**
+     * Core recording the released nodes.
+     */
+    private static class FakeCore extends RMCore {
+
+        private final BlockingQueue<String> released = new LinkedBlockingQueue<String>();
+
+        @Override
+        public BooleanWrapper setFreeNodes(List<RMNode> nodes) {
+            for (RMNode node : nodes) {
+                released.add("free:" + node.getNodeURL());
+            }
+            return new BooleanWrapper(true);
+        }
+
+        @Override
+        public void setDownNode(String nodeUrl) {
+            released.add("down:" + nodeUrl);
+        }
+    }
+
+    /**
+     * Create a node which cleaning waits for the given latch if any, ignoring the interruptions
+     * unless interruptible is true. The cleaning of a node interrupted while cleaned fails.
+     */
+    private static RMNode createNode(final String url, final CountDownLatch hang,
+            final boolean interruptible) {
+        return (RMNode) Proxy.newProxyInstance(RMNode.class.getClassLoader(), new Class<?>[] { RMNode.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String methodName = method.getName();
+                        if (methodName.equals("getNodeURL") || methodName.equals("toString")) {
+                            return url;
+                        } else if (methodName.equals("clean")) {
+                            boolean interrupted = false;
+                            while (hang != null) {
+                                try {
+                                    hang.await();
+                                    break;
+                                } catch (InterruptedException e) {
+                                    interrupted = true;
+                                    if (interruptible) {
+                                        break;
+                                    }
+                                }
+                            }
+                            if (interrupted || Thread.currentThread().isInterrupted()) {
+                                throw new IllegalStateException(url + " interrupted while cleaned");
+                            }
+                            return null;
+                        } else if (methodName.equals("equals")) {
+                            return proxy == args[0];
+                        } else if (methodName.equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        throw new UnsupportedOperationException(methodName);
+                    }
+                });
+    }
+
+}
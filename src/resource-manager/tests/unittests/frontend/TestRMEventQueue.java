@@ -0,0 +1,175 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unittests.frontend;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.proactive.resourcemanager.common.NodeState;
+import org.ow2.proactive.resourcemanager.common.event.RMEvent;
+import org.ow2.proactive.resourcemanager.common.event.RMEventType;
+import org.ow2.proactive.resourcemanager.common.event.RMNodeEvent;
+import org.ow2.proactive.resourcemanager.frontend.RMEventQueue;
+import org.ow2.proactive.resourcemanager.rmnode.RMNode;
+
+
+/**
+ * Test the coalescing of node state changes and the overflow policies of RMEventQueue.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestRMEventQueue {
+
+    @Test
+    public void testStateChangesCoalesced() {
+        RMEventQueue queue = new RMEventQueue("client", 0, RMEventQueue.OverflowPolicy.DROP);
+        RMEvent added = nodeEvent("node1", RMEventType.NODE_ADDED);
+        RMEvent busy1 = nodeEvent("node1", RMEventType.NODE_STATE_CHANGED);
+        RMEvent busy2 = nodeEvent("node2", RMEventType.NODE_STATE_CHANGED);
+        RMEvent free1 = nodeEvent("node1", RMEventType.NODE_STATE_CHANGED);
+
+        Assert.assertTrue(queue.offer(added));
+        Assert.assertTrue(queue.offer(busy1));
+        Assert.assertTrue(queue.offer(busy2));
+        Assert.assertTrue(queue.offer(free1));
+        Assert.assertEquals(3, queue.size());
+        Assert.assertEquals(1, queue.getCoalescedCount());
+
+        // the last state of node1 moved to the end of the queue
+        Assert.assertSame(added, queue.poll());
+        Assert.assertSame(busy2, queue.poll());
+        Assert.assertSame(free1, queue.poll());
+        Assert.assertNull(queue.poll());
+
+        // structural events of the same node are all kept
+        Assert.assertTrue(queue.offer(nodeEvent("node1", RMEventType.NODE_REMOVED)));
+        Assert.assertTrue(queue.offer(nodeEvent("node1", RMEventType.NODE_ADDED)));
+        Assert.assertEquals(2, queue.pollAll().size());
+        Assert.assertEquals(0, queue.size());
+        Assert.assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void testDropOnlyStateChanges() {
+        RMEventQueue queue = new RMEventQueue("client", 3, RMEventQueue.OverflowPolicy.DROP);
+        RMEvent added = nodeEvent("node1", RMEventType.NODE_ADDED);
+        RMEvent busy1 = nodeEvent("node1", RMEventType.NODE_STATE_CHANGED);
+        RMEvent busy2 = nodeEvent("node2", RMEventType.NODE_STATE_CHANGED);
+        RMEvent sourceAdded = new RMEvent(RMEventType.NODESOURCE_CREATED);
+
+        Assert.assertTrue(queue.offer(added));
+        Assert.assertTrue(queue.offer(busy1));
+        Assert.assertTrue(queue.offer(busy2));
+        // the oldest state change is dropped, not the older node addition
+        Assert.assertTrue(queue.offer(sourceAdded));
+        Assert.assertEquals(1, queue.getDroppedCount());
+
+        List<RMEvent> events = queue.pollAll();
+        Assert.assertEquals(3, events.size());
+        Assert.assertSame(added, events.get(0));
+        Assert.assertSame(busy2, events.get(1));
+        Assert.assertSame(sourceAdded, events.get(2));
+
+        // coalescing a state change frees its place in a full queue
+        Assert.assertTrue(queue.offer(added));
+        Assert.assertTrue(queue.offer(sourceAdded));
+        Assert.assertTrue(queue.offer(busy1));
+        Assert.assertTrue(queue.offer(nodeEvent("node1", RMEventType.NODE_STATE_CHANGED)));
+        Assert.assertEquals(1, queue.getDroppedCount());
+        Assert.assertEquals(1, queue.getCoalescedCount());
+
+        // once no state change can be dropped the client has to be disconnected
+        Assert.assertTrue(queue.offer(nodeEvent("node2", RMEventType.NODE_STATE_CHANGED)));
+        Assert.assertEquals(2, queue.getDroppedCount());
+        Assert.assertEquals(RMEventType.NODE_ADDED, queue.poll().getEventType());
+        Assert.assertTrue(queue.offer(nodeEvent("node3", RMEventType.NODE_ADDED)));
+        Assert.assertTrue(queue.offer(nodeEvent("node4", RMEventType.NODE_REMOVED)));
+        Assert.assertEquals(3, queue.getDroppedCount());
+        Assert.assertFalse(queue.offer(nodeEvent("node5", RMEventType.NODE_STATE_CHANGED)));
+        Assert.assertFalse(queue.offer(nodeEvent("node6", RMEventType.NODE_REMOVED)));
+        Assert.assertEquals(3, queue.size());
+        Assert.assertEquals(3, queue.getDroppedCount());
+        // the rejected state change is not counted as pending
+        Assert.assertEquals(RMEventType.NODESOURCE_CREATED, queue.poll().getEventType());
+        Assert.assertTrue(queue.offer(nodeEvent("node5", RMEventType.NODE_STATE_CHANGED)));
+        Assert.assertTrue(queue.offer(nodeEvent("node6", RMEventType.NODE_REMOVED)));
+        Assert.assertEquals(4, queue.getDroppedCount());
+    }
+
+    @Test
+    public void testDisconnectPolicy() {
+        RMEventQueue queue = new RMEventQueue("client", 2, RMEventQueue.OverflowPolicy.DISCONNECT);
+        Assert.assertTrue(queue.offer(nodeEvent("node1", RMEventType.NODE_STATE_CHANGED)));
+        Assert.assertTrue(queue.offer(nodeEvent("node2", RMEventType.NODE_STATE_CHANGED)));
+        // coalesced events never overflow
+        Assert.assertTrue(queue.offer(nodeEvent("node1", RMEventType.NODE_STATE_CHANGED)));
+        Assert.assertFalse(queue.offer(nodeEvent("node3", RMEventType.NODE_STATE_CHANGED)));
+        Assert.assertEquals(2, queue.size());
+        Assert.assertEquals(0, queue.getDroppedCount());
+    }
+
+    private static RMNodeEvent nodeEvent(String url, RMEventType type) {
+        return new RMNodeEvent(createNode(url), type, NodeState.FREE, "initiator");
+    }
+
+    /**
+     * Create a node only able to give its url and its state.
+     */
+    private static RMNode createNode(final String url) {
+        return (RMNode) Proxy.newProxyInstance(RMNode.class.getClassLoader(), new Class<?>[] { RMNode.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String methodName = method.getName();
+                        if (methodName.equals("getNodeURL") || methodName.equals("toString")) {
+                            return url;
+                        } else if (methodName.equals("getState")) {
+                            return NodeState.FREE;
+                        } else if (methodName.equals("getStateChangeTime")) {
+                            return 0L;
+                        }
+                        // other informations are not needed to queue the event
+                        return null;
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unittests.rmnode;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.security.Permission;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.proactive.authentication.principals.GroupNamePrincipal;
+import org.ow2.proactive.authentication.principals.IdentityPrincipal;
+import org.ow2.proactive.authentication.principals.UserNamePrincipal;
+import org.ow2.proactive.permissions.PrincipalPermission;
+import org.ow2.proactive.resourcemanager.rmnode.RMNode;
+import org.ow2.proactive.resourcemanager.rmnode.RMNodeIndex;
+
+
+/**
+ * Test the grouping of the free nodes by node source and user permission done by RMNodeIndex.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestRMNodeIndex {
+
+    private static final Permission USER1 = new PrincipalPermission(new UserNamePrincipal("user1"));
+
+    private static final Permission USER2 = new PrincipalPermission(new UserNamePrincipal("user2"));
+
+    @Test
+    public void testAddRemove() {
+        RMNodeIndex index = new RMNodeIndex();
+        RMNode node1 = createNode("node1", "ns1", USER1);
+        RMNode node2 = createNode("node2", "ns1", USER2);
+        RMNode node3 = createNode("node3", "ns2", USER1);
+
+        Assert.assertTrue(index.isEmpty());
+        Assert.assertTrue(index.add(node1));
+        Assert.assertTrue(index.add(node2));
+        Assert.assertTrue(index.add(node3));
+        Assert.assertFalse(index.add(node1));
+        Assert.assertEquals(3, index.size());
+        Assert.assertTrue(index.contains(node2));
+
+        Assert.assertEquals(2, index.getNodes("ns1").size());
+        Assert.assertTrue(index.getNodes("ns1").contains(node2));
+        Assert.assertEquals(1, index.getNodes("ns2").size());
+        Assert.assertTrue(index.getNodes("unknown").isEmpty());
+        Assert.assertEquals(3, index.getNodes().size());
+
+        Assert.assertTrue(index.remove(node2));
+        Assert.assertFalse(index.remove(node2));
+        Assert.assertFalse(index.contains(node2));
+        Assert.assertEquals(2, index.size());
+        Assert.assertEquals(1, index.getNodes("ns1").size());
+
+        Assert.assertTrue(index.remove(node1));
+        Assert.assertTrue(index.remove(node3));
+        Assert.assertTrue(index.isEmpty());
+        Assert.assertTrue(index.getNodes().isEmpty());
+        Assert.assertTrue(index.getBuckets().isEmpty());
+    }
+
+    @Test
+    public void testBucketsByPermission() {
+        RMNodeIndex index = new RMNodeIndex();
+        index.add(createNode("node1", "ns1", USER1));
+        // equal permission created separately: same bucket
+        index.add(createNode("node2", "ns1", new PrincipalPermission(new UserNamePrincipal("user1"))));
+        index.add(createNode("node3", "ns1", USER2));
+        index.add(createNode("node4", "ns2", USER1));
+
+        List<Collection<RMNode>> buckets = index.getBuckets();
+        Assert.assertEquals(3, buckets.size());
+        int total = 0;
+        for (Collection<RMNode> bucket : buckets) {
+            Assert.assertFalse(bucket.isEmpty());
+            RMNode first = bucket.iterator().next();
+            for (RMNode node : bucket) {
+                Assert.assertEquals(first.getNodeSourceName(), node.getNodeSourceName());
+                Assert.assertEquals(first.getUserPermission(), node.getUserPermission());
+            }
+            total += bucket.size();
+        }
+        Assert.assertEquals(4, total);
+
+        try {
+            buckets.get(0).clear();
+            Assert.fail("Buckets must be read only");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPrincipalPermissionEquality() {
+        Set<IdentityPrincipal> principals1 = new HashSet<IdentityPrincipal>();
+        principals1.add(new UserNamePrincipal("user1"));
+        principals1.add(new GroupNamePrincipal("group1"));
+        Set<IdentityPrincipal> principals2 = new HashSet<IdentityPrincipal>();
+        principals2.add(new GroupNamePrincipal("group1"));
+        principals2.add(new UserNamePrincipal("user1"));
+
+        Permission permission1 = new PrincipalPermission("p1", principals1);
+        Permission permission2 = new PrincipalPermission("p2", principals2);
+        Assert.assertEquals(permission1, permission2);
+        Assert.assertEquals(permission1.hashCode(), permission2.hashCode());
+        Assert.assertFalse(USER1.equals(USER2));
+        Assert.assertFalse(USER1.equals(permission1));
+    }
+
+    /**
+     * Create a node only able to give its name, its node source and its permission.
+     */
+    private static RMNode createNode(final String name, final String nodeSourceName,
+            final Permission permission) {
+        return (RMNode) Proxy.newProxyInstance(RMNode.class.getClassLoader(), new Class<?>[] { RMNode.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String methodName = method.getName();
+                        if (methodName.equals("getNodeSourceName")) {
+                            return nodeSourceName;
+                        } else if (methodName.equals("getUserPermission")) {
+                            return permission;
+                        } else if (methodName.equals("getNodeName") || methodName.equals("toString")) {
+                            return name;
+                        } else if (methodName.equals("equals")) {
+                            return proxy == args[0];
+                        } else if (methodName.equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        throw new UnsupportedOperationException(methodName);
+                    }
+                });
+    }
+
+}
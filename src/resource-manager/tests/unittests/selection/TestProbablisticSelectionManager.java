@@ -0,0 +1,124 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unittests.selection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.proactive.resourcemanager.rmnode.RMNode;
+import org.ow2.proactive.resourcemanager.selection.statistics.ProbablisticSelectionManager;
+import org.ow2.proactive.scripting.ScriptResult;
+import org.ow2.proactive.scripting.SelectionScript;
+
+
+/**
+ * Test that the selection manager forgets the script results of the nodes
+ * removed from the resource manager.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestProbablisticSelectionManager {
+
+    @Test
+    public void testRemovedNodeForgotten() throws Exception {
+        ProbablisticSelectionManager manager = new ProbablisticSelectionManager(null);
+        SelectionScript script = new SelectionScript("selected = true;", "javascript", false);
+        RMNode node1 = createNode("node1");
+        RMNode node2 = createNode("node2");
+
+        Assert.assertTrue(manager.processScriptResult(script, new ScriptResult<Boolean>(true), node1));
+        Assert.assertTrue(manager.isPassed(script, node1));
+        Assert.assertFalse(manager.isPassed(script, node2));
+
+        manager.nodeRemoved("node1");
+        Assert.assertFalse("Removed node still known", manager.isPassed(script, node1));
+        // removing an unknown node does nothing
+        manager.nodeRemoved("node3");
+
+        // the new node reuses the index of the removed one without its probability
+        Assert.assertFalse(manager.processScriptResult(script, new ScriptResult<Boolean>(false), node2));
+        Assert.assertFalse(manager.isPassed(script, node2));
+        List<RMNode> nodes = new ArrayList<RMNode>();
+        nodes.add(node1);
+        nodes.add(node2);
+        List<RMNode> arranged = manager.arrangeNodesForScriptExecution(nodes, singletonList(script));
+        Assert.assertEquals(1, arranged.size());
+        Assert.assertSame(node1, arranged.get(0));
+
+        // a node added again with the same url starts from scratch
+        Assert.assertTrue(manager.processScriptResult(script, new ScriptResult<Boolean>(true), node1));
+        Assert.assertTrue(manager.isPassed(script, node1));
+        manager.nodeRemoved("node2");
+        Assert.assertTrue(manager.isPassed(script, node1));
+        arranged = manager.arrangeNodesForScriptExecution(nodes, singletonList(script));
+        Assert.assertEquals(2, arranged.size());
+        Assert.assertSame(node1, arranged.get(0));
+    }
+
+    private static List<SelectionScript> singletonList(SelectionScript script) {
+        List<SelectionScript> scripts = new ArrayList<SelectionScript>();
+        scripts.add(script);
+        return scripts;
+    }
+
+    /**
+     * Create a node only able to give its url, equal to the nodes having the same url.
+     */
+    private static RMNode createNode(final String url) {
+        return (RMNode) Proxy.newProxyInstance(RMNode.class.getClassLoader(), new Class<?>[] { RMNode.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String methodName = method.getName();
+                        if (methodName.equals("getNodeURL") || methodName.equals("toString")) {
+                            return url;
+                        } else if (methodName.equals("equals")) {
+                            return args[0] instanceof RMNode && url.equals(((RMNode) args[0]).getNodeURL());
+                        } else if (methodName.equals("hashCode")) {
+                            return url.hashCode();
+                        }
+                        throw new UnsupportedOperationException(methodName);
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,225 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unittests.topology;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.proactive.core.node.Node;
+import org.objectweb.proactive.core.runtime.VMInformation;
+import org.ow2.proactive.resourcemanager.frontend.topology.TopologyImpl;
+import org.ow2.proactive.resourcemanager.frontend.topology.clustering.HAC;
+import org.ow2.proactive.topology.descriptor.BestProximityDescriptor;
+
+
+/**
+ * Test the distances kept by TopologyImpl when hosts are added again or removed,
+ * the distances of its clones and the clustering of nodes on these hosts.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestTopologyImpl {
+
+    @Test
+    public void testHostAddedAgain() throws Exception {
+        InetAddress host1 = host(1);
+        InetAddress host2 = host(2);
+        InetAddress host3 = host(3);
+        TopologyImpl topology = new TopologyImpl();
+        topology.addHostTopology("host1", host1, distances());
+        topology.addHostTopology("host2", host2, distances(host1, 5));
+        topology.addHostTopology("host3", host3, distances(host1, 7, host2, 3));
+
+        // only the distances provided by host2 are replaced
+        topology.addHostTopology("host2", host2, distances(host1, 6));
+        Assert.assertEquals(Long.valueOf(6), topology.getDistance(host1, host2));
+        Assert.assertEquals(Long.valueOf(3), topology.getDistance(host3, host2));
+        Assert.assertEquals(distances(host1, 6), topology.getHostTopology(host2));
+        Assert.assertEquals(distances(host1, 7, host2, 3), topology.getHostTopology(host3));
+        Assert.assertEquals(distances(), topology.getHostTopology(host1));
+
+        // a distance provided again by another host now belongs to its topology
+        topology.addHostTopology("host1", host1, distances(host3, 1));
+        Assert.assertEquals(Long.valueOf(1), topology.getDistance("host3", "host1"));
+        Assert.assertEquals(Long.valueOf(6), topology.getDistance("host1", "host2"));
+        Assert.assertEquals(distances(host3, 1), topology.getHostTopology(host1));
+        Assert.assertEquals(distances(host2, 3), topology.getHostTopology(host3));
+    }
+
+    @Test
+    public void testHostRemoved() throws Exception {
+        TopologyImpl topology = new TopologyImpl();
+        // more hosts than the initial capacity of the matrix
+        for (int i = 0; i < 40; i++) {
+            HashMap<InetAddress, Long> hostTopology = distances();
+            for (int j = 0; j < i; j++) {
+                hostTopology.put(host(j), (long) (i * 100 + j));
+            }
+            topology.addHostTopology("host" + i, host(i), hostTopology);
+        }
+        Assert.assertEquals(Long.valueOf(3912), topology.getDistance(host(12), host(39)));
+
+        topology.removeHostTopology("host12", host(12));
+        Assert.assertFalse(topology.knownHost(host(12)));
+        Assert.assertNull(topology.getDistance(host(12), host(39)));
+        Assert.assertEquals(38, topology.getHostTopology(host(39)).size());
+
+        // the new host reuses the index of the removed one without its distances
+        topology.addHostTopology("host40", host(40), distances(host(39), 1));
+        Assert.assertEquals(Long.valueOf(1), topology.getDistance(host(39), host(40)));
+        Assert.assertNull(topology.getDistance(host(38), host(40)));
+        Assert.assertEquals(38, topology.getHostTopology(host(39)).size());
+        Assert.assertEquals(distances(host(39), 1), topology.getHostTopology(host(40)));
+    }
+
+    @Test
+    public void testClone() throws Exception {
+        TopologyImpl topology = new TopologyImpl();
+        topology.addHostTopology("host1", host(1), distances());
+        topology.addHostTopology("host2", host(2), distances(host(1), 5));
+        TopologyImpl clone = (TopologyImpl) topology.clone();
+
+        // the clone keeps its distances when the topology is modified, and conversely
+        topology.addHostTopology("host2", host(2), distances(host(1), 6));
+        topology.addHostTopology("host3", host(3), distances(host(1), 7));
+        Assert.assertEquals(Long.valueOf(5), clone.getDistance(host(1), host(2)));
+        Assert.assertFalse(clone.knownHost(host(3)));
+        clone.removeHostTopology("host1", host(1));
+        Assert.assertNull(clone.getDistance(host(1), host(2)));
+        Assert.assertEquals(Long.valueOf(6), topology.getDistance(host(1), host(2)));
+        Assert.assertEquals(Long.valueOf(7), topology.getDistance(host(1), host(3)));
+
+        // growing the matrix of a clone leaves the shared matrix unchanged
+        TopologyImpl grown = (TopologyImpl) topology.clone();
+        for (int i = 4; i < 40; i++) {
+            grown.addHostTopology("host" + i, host(i), distances(host(1), i));
+        }
+        topology.removeHostTopology("host3", host(3));
+        Assert.assertEquals(Long.valueOf(7), grown.getDistance(host(1), host(3)));
+        Assert.assertEquals(Long.valueOf(39), grown.getDistance(host(39), host(1)));
+        Assert.assertNull(topology.getDistance(host(1), host(3)));
+    }
+
+    @Test
+    public void testClustering() throws Exception {
+        TopologyImpl topology = new TopologyImpl();
+        topology.addHostTopology("host1", host(1), distances());
+        topology.addHostTopology("host2", host(2), distances(host(1), 50));
+        topology.addHostTopology("host3", host(3), distances(host(1), 70, host(2), 10));
+        List<Node> nodes = new ArrayList<Node>();
+        for (int i = 1; i <= 3; i++) {
+            nodes.add(createNode("node" + i, host(i)));
+        }
+
+        // distances read from the topology matrix
+        List<Node> selected = new HAC(topology, null, BestProximityDescriptor.AVG, Long.MAX_VALUE).select(
+                2, nodes);
+        Assert.assertEquals(new HashSet<Node>(nodes.subList(1, 3)), new HashSet<Node>(selected));
+
+        // distances given by a subclass
+        HAC hac = new HAC(topology, null, BestProximityDescriptor.AVG, Long.MAX_VALUE) {
+            @Override
+            protected Long getDistance(Node node, Node node2) {
+                return node.toString().equals("node3") || node2.toString().equals("node3") ? 100L : 1L;
+            }
+
+            @Override
+            protected boolean useTopologyMatrix() {
+                return false;
+            }
+        };
+        selected = hac.select(2, nodes);
+        Assert.assertEquals(new HashSet<Node>(nodes.subList(0, 2)), new HashSet<Node>(selected));
+    }
+
+    private static InetAddress host(int i) throws Exception {
+        return InetAddress.getByAddress("host" + i, new byte[] { 10, 0, (byte) (i / 256), (byte) i });
+    }
+
+    private static HashMap<InetAddress, Long> distances(Object... hostsAndDistances) {
+        HashMap<InetAddress, Long> distances = new HashMap<InetAddress, Long>();
+        for (int i = 0; i < hostsAndDistances.length; i += 2) {
+            distances.put((InetAddress) hostsAndDistances[i], ((Integer) hostsAndDistances[i + 1])
+                    .longValue());
+        }
+        return distances;
+    }
+
+    /**
+     * Create a node only able to give its name and its host address.
+     */
+    private static Node createNode(final String name, final InetAddress host) {
+        final VMInformation vmInformation = (VMInformation) Proxy.newProxyInstance(VMInformation.class
+                .getClassLoader(), new Class<?>[] { VMInformation.class }, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getInetAddress")) {
+                    return host;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        });
+        return (Node) Proxy.newProxyInstance(Node.class.getClassLoader(), new Class<?>[] { Node.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String methodName = method.getName();
+                        if (methodName.equals("getVMInformation")) {
+                            return vmInformation;
+                        } else if (methodName.equals("getNodeInformation")) {
+                            // the node is then identified by its name
+                            return null;
+                        } else if (methodName.equals("toString")) {
+                            return name;
+                        } else if (methodName.equals("equals")) {
+                            return proxy == args[0];
+                        } else if (methodName.equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        }
+                        throw new UnsupportedOperationException(methodName);
+                    }
+                });
+    }
+
+}
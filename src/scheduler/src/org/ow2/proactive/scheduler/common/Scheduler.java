@@ -45,6 +45,7 @@ import org.ow2.proactive.scheduler.common.exception.SubmissionClosedException;
 import org.ow2.proactive.scheduler.common.exception.UnknownJobException;
 import org.ow2.proactive.scheduler.common.exception.UnknownTaskException;
 import org.ow2.proactive.scheduler.common.job.Job;
+import org.ow2.proactive.scheduler.common.job.JobFilter;
 import org.ow2.proactive.scheduler.common.job.JobId;
 import org.ow2.proactive.scheduler.common.job.JobPriority;
 import org.ow2.proactive.scheduler.common.job.JobResult;
@@ -172,6 +173,30 @@ public interface Scheduler extends SchedulerCoreMethods {
     public TaskResult getTaskResultFromIncarnation(String jobId, String taskName, int inc)
             throws NotConnectedException, UnknownJobException, UnknownTaskException, PermissionException;
 
+    /**
+     * Get a part of the serialized value of the last result of the given task in the given jobId.<br>
+     * The jobId is given as a string. It's in fact the string returned by the {@link JobId#value()} method.<br>
+     * A user can only get HIS result back.<br>
+     * Unlike {@link #getTaskResult(String, String)}, the whole result is not transferred at once:
+     * a large value can be read by successive parts, see
+     * {@link org.ow2.proactive.scheduler.common.util.TaskResultValueInputStream}.
+     *
+     * @param jobId the job in which the task result is.
+     * @param taskName the name of the task in which the result is.
+     * @param offset the position of the part in the serialized value.
+     * @param length the maximum length of the part, greater than 0. A length greater than
+     * 		{@link SchedulerConstants#TASK_RESULT_VALUE_PART_MAX_LENGTH} is reduced to it.
+     * @return the part of the serialized value, shorter than the (reduced) length at its end,
+     * 		empty after its end.
+     * 		If null is returned, this task is not yet terminated or not available.
+     * @throws NotConnectedException if you are not authenticated.
+     * @throws UnknownJobException if the job does not exist.
+     * @throws UnknownTaskException if this task does not exist in the job.
+     * @throws PermissionException if you can't access to this particular job.
+     */
+    public byte[] getTaskResultValuePart(String jobId, String taskName, long offset, int length)
+            throws NotConnectedException, UnknownJobException, UnknownTaskException, PermissionException;
+
     /**
      * Remove the job from the scheduler. <br>
      * The jobId is given as a string. It's in fact the string returned by the {@link JobId#value()} method.<br>
@@ -382,6 +407,8 @@ public interface Scheduler extends SchedulerCoreMethods {
      * Get the list of job states that describe every jobs in the Scheduler.
      * The SchedulerState contains 3 list of jobs, pending, running, and finished.
      * Every jobs will be returned depending on your right. <br/>
+     * Finished jobs recovered after a restart of the Scheduler are returned without their tasks,
+     * use {@link #getJobState(JobId)} to get their full state. <br/>
      * If a PermissionException is thrown, try using {@link #getState(boolean)} method with argument 'true'.
      *
      * @return the list of every jobs in the Scheduler
@@ -395,6 +422,8 @@ public interface Scheduler extends SchedulerCoreMethods {
      * The SchedulerState contains 3 list of jobs, pending, running, and finished
      * If the given argument is true, only job that you own will be returned, otherwise every jobs
      * will be returned depending on your right.
+     * Finished jobs recovered after a restart of the Scheduler are returned without their tasks,
+     * use {@link #getJobState(JobId)} to get their full state.
      *
      * @param myJobsOnly true to get only my jobs, false to get any.
      * @return the list of every jobs in the Scheduler
@@ -403,6 +432,38 @@ public interface Scheduler extends SchedulerCoreMethods {
      */
     public SchedulerState getState(boolean myJobsOnly) throws NotConnectedException, PermissionException;
 
+    /**
+     * Get a page of the jobs known by the Scheduler, matching the given filter.<br>
+     * Jobs are ordered by job id. Unlike {@link #getState(boolean)}, only the requested page of jobs
+     * is transfered, which makes it usable with a large number of finished jobs.<br>
+     * The returned page contains the revision of the scheduler state that can be given to
+     * {@link #getStateDelta(long, boolean)} to get the later changes.
+     *
+     * @param filter the criteria the returned jobs must match, null to get every jobs.
+     * @param offset the number of matching jobs to skip.
+     * @param limit the maximum number of jobs to return.
+     * @return the requested page of jobs
+     * @throws NotConnectedException if you are not authenticated.
+     * @throws PermissionException if you can't access to this particular method.
+     */
+    public SchedulerStatePage getJobs(JobFilter filter, int offset, int limit) throws NotConnectedException,
+            PermissionException;
+
+    /**
+     * Get the changes of the Scheduler state since the given revision.<br>
+     * The delta contains the current state of every job submitted or updated since this revision,
+     * the ids of the removed jobs, and the revision to give to the next call.
+     * If the given argument is true, only job that you own will be returned.
+     *
+     * @param revision the last revision known by the client, 0 to get every jobs.
+     * @param myJobsOnly true to get only my jobs, false to get any.
+     * @return the changes since the given revision
+     * @throws NotConnectedException if you are not authenticated.
+     * @throws PermissionException if you can't access to this particular method.
+     */
+    public SchedulerStateDelta getStateDelta(long revision, boolean myJobsOnly) throws NotConnectedException,
+            PermissionException;
+
     /**
      * Add a scheduler event Listener. this listener provides method to notice of
      * new coming job, started task, finished task, running job, finished job, etc...<br>
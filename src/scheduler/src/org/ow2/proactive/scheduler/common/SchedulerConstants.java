@@ -84,4 +84,7 @@ public class SchedulerConstants {
 
     /** Separator character for the String located by the {@link #REMOTE_CONNECTION_MARKER} */
     public static final char REMOTE_CONNECTION_SEPARATOR = ';';
+
+    /** Maximum length of a part of a task result value, longer parts requested are shortened to it */
+    public static final int TASK_RESULT_VALUE_PART_MAX_LENGTH = 4 * 1024 * 1024;
 }
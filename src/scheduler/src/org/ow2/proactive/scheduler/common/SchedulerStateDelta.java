@@ -0,0 +1,136 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.common;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.objectweb.proactive.annotation.PublicAPI;
+import org.ow2.proactive.scheduler.common.job.JobId;
+import org.ow2.proactive.scheduler.common.job.JobState;
+
+
+/**
+ * Changes of the scheduler state between two revisions, as returned by
+ * {@link Scheduler#getStateDelta(long, boolean)}.<br>
+ * The scheduler only remembers a limited number of removed jobs. If the requested
+ * revision is too old, the delta is not complete and the client has to reload
+ * the jobs it knows.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+@PublicAPI
+public class SchedulerStateDelta implements Serializable {
+
+    private final long fromRevision;
+
+    private final long revision;
+
+    private final boolean complete;
+
+    private final SchedulerStatus status;
+
+    private final List<JobState> updatedJobs;
+
+    private final List<JobId> removedJobs;
+
+    public SchedulerStateDelta(long fromRevision, long revision, boolean complete, SchedulerStatus status,
+            List<JobState> updatedJobs, List<JobId> removedJobs) {
+        this.fromRevision = fromRevision;
+        this.revision = revision;
+        this.complete = complete;
+        this.status = status;
+        this.updatedJobs = updatedJobs;
+        this.removedJobs = removedJobs;
+    }
+
+    /**
+     * Returns the revision the changes are computed from.
+     *
+     * @return the revision the changes are computed from.
+     */
+    public long getFromRevision() {
+        return fromRevision;
+    }
+
+    /**
+     * Returns the current revision of the scheduler state,
+     * to be given to the next call.
+     *
+     * @return the current revision of the scheduler state.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Returns false if some removed jobs may be missing because the requested revision is too old.
+     *
+     * @return true if the delta contains every change since the requested revision.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Returns the current status of the scheduler.
+     *
+     * @return the current status of the scheduler.
+     */
+    public SchedulerStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the current state of the jobs submitted or updated since the requested revision.
+     *
+     * @return the updated jobs.
+     */
+    public List<JobState> getUpdatedJobs() {
+        return updatedJobs;
+    }
+
+    /**
+     * Returns the ids of the jobs removed since the requested revision.
+     *
+     * @return the removed jobs.
+     */
+    public List<JobId> getRemovedJobs() {
+        return removedJobs;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.common;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.objectweb.proactive.annotation.PublicAPI;
+import org.ow2.proactive.scheduler.common.job.JobState;
+
+
+/**
+ * A page of the jobs known by the scheduler, as returned by
+ * {@link Scheduler#getJobs(org.ow2.proactive.scheduler.common.job.JobFilter, int, int)}.<br>
+ * It also contains the revision of the scheduler state at the time the page was built,
+ * to be given to {@link Scheduler#getStateDelta(long, boolean)} to get the later changes.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+@PublicAPI
+public class SchedulerStatePage implements Serializable {
+
+    private final List<JobState> jobs;
+
+    private final int totalJobs;
+
+    private final long revision;
+
+    private final SchedulerStatus status;
+
+    public SchedulerStatePage(List<JobState> jobs, int totalJobs, long revision, SchedulerStatus status) {
+        this.jobs = jobs;
+        this.totalJobs = totalJobs;
+        this.revision = revision;
+        this.status = status;
+    }
+
+    /**
+     * Returns the jobs of this page, ordered by job id.
+     *
+     * @return the jobs of this page.
+     */
+    public List<JobState> getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Returns the number of jobs matching the filter, on every pages.
+     *
+     * @return the number of jobs matching the filter.
+     */
+    public int getTotalJobs() {
+        return totalJobs;
+    }
+
+    /**
+     * Returns the revision of the scheduler state when this page was built.
+     *
+     * @return the revision of the scheduler state.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Returns the status of the scheduler when this page was built.
+     *
+     * @return the status of the scheduler.
+     */
+    public SchedulerStatus getStatus() {
+        return status;
+    }
+}
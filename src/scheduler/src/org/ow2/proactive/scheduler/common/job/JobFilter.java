@@ -0,0 +1,172 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.common.job;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.objectweb.proactive.annotation.PublicAPI;
+
+
+/**
+ * Criteria used to select the jobs returned by
+ * {@link org.ow2.proactive.scheduler.common.Scheduler#getJobs(JobFilter, int, int)}.<br>
+ * Every criterion is optional, an empty filter matches every jobs the user is allowed to see.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+@PublicAPI
+public class JobFilter implements Serializable {
+
+    private boolean myJobsOnly;
+
+    private Set<JobStatus> statuses;
+
+    private String owner;
+
+    private long submittedFrom = 0;
+
+    private long submittedTo = Long.MAX_VALUE;
+
+    /**
+     * Returns true if only the jobs of the caller are selected.
+     *
+     * @return true if only the jobs of the caller are selected.
+     */
+    public boolean isMyJobsOnly() {
+        return myJobsOnly;
+    }
+
+    /**
+     * Selects only the jobs of the caller.
+     *
+     * @param myJobsOnly true to get only my jobs, false to get any.
+     */
+    public void setMyJobsOnly(boolean myJobsOnly) {
+        this.myJobsOnly = myJobsOnly;
+    }
+
+    /**
+     * Returns the selected job statuses, null if every status is selected.
+     *
+     * @return the selected job statuses.
+     */
+    public Set<JobStatus> getStatuses() {
+        return statuses;
+    }
+
+    /**
+     * Selects only the jobs having one of the given statuses.
+     *
+     * @param statuses the statuses to select, none to select every status.
+     */
+    public void setStatuses(JobStatus... statuses) {
+        if (statuses == null || statuses.length == 0) {
+            this.statuses = null;
+        } else {
+            this.statuses = EnumSet.copyOf(Arrays.asList(statuses));
+        }
+    }
+
+    /**
+     * Returns the selected job owner, null if every owner is selected.
+     *
+     * @return the selected job owner.
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Selects only the jobs of the given owner.
+     *
+     * @param owner the owner to select, null to select every owner.
+     */
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * Selects only the jobs submitted in the given time window.
+     *
+     * @param from lower bound of the submission time (inclusive) in milliseconds.
+     * @param to upper bound of the submission time (exclusive) in milliseconds.
+     */
+    public void setSubmittedTime(long from, long to) {
+        this.submittedFrom = from;
+        this.submittedTo = to;
+    }
+
+    /**
+     * Returns the lower bound of the submission time (inclusive).
+     *
+     * @return the lower bound of the submission time.
+     */
+    public long getSubmittedFrom() {
+        return submittedFrom;
+    }
+
+    /**
+     * Returns the upper bound of the submission time (exclusive).
+     *
+     * @return the upper bound of the submission time.
+     */
+    public long getSubmittedTo() {
+        return submittedTo;
+    }
+
+    /**
+     * Returns true if the given job matches this filter.
+     * The {@link #isMyJobsOnly()} criterion is not checked here as it depends on the caller.
+     *
+     * @param job the job to check.
+     * @return true if the given job matches this filter.
+     */
+    public boolean matches(JobState job) {
+        if (statuses != null && !statuses.contains(job.getStatus())) {
+            return false;
+        }
+        if (owner != null && !owner.equals(job.getOwner())) {
+            return false;
+        }
+        long submittedTime = job.getSubmittedTime();
+        return submittedTime >= submittedFrom && submittedTime < submittedTo;
+    }
+}
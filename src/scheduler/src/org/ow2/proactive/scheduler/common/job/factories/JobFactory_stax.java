@@ -42,10 +42,10 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -119,6 +119,9 @@ public class JobFactory_stax extends JobFactory {
     //private static final Pattern variablesPattern = Pattern.compile(".*\\$\\{[^\\}]+\\}.*", Pattern.DOTALL);
     private static final String variablesPattern = "\\$\\{[^\\}]+\\}";
 
+    /** Compiled schema used to validate job descriptors, shared by all the factories as it is thread safe */
+    private static Schema schema = null;
+
     /** XML input factory */
     private XMLInputFactory xmlif = null;
     /** Instance variables of the XML files. */
@@ -257,16 +260,31 @@ public class JobFactory_stax extends JobFactory {
             if (!f.exists()) {
                 throw new FileNotFoundException("This file has not been found : " + f.getAbsolutePath());
             }
-            //validate content using the proper XML schema
-            validate(f);
             //set relative path
             relativePathRoot = f.getParentFile().getAbsolutePath();
-            //create and get XML STAX reader
-            XMLStreamReader xmlsr = xmlif.createXMLStreamReader(new FileReader(f));
-            //Create the job starting at the first cursor position of the XML Stream reader
-            createJob(xmlsr);
-            //Close the stream
-            xmlsr.close();
+            //create the validator of the content using the proper XML schema
+            ValidatingErrorHandler veh = new ValidatingErrorHandler();
+            Verifier verifier = getSchema().newVerifier();
+            verifier.setErrorHandler(veh);
+            Reader reader = new FileReader(f);
+            try {
+                //create and get XML STAX reader, validating the content while it is read
+                ValidatingXMLStreamReader xmlsr = new ValidatingXMLStreamReader(xmlif
+                        .createXMLStreamReader(reader), verifier);
+                try {
+                    //Create the job starting at the first cursor position of the XML Stream reader
+                    createJob(xmlsr);
+                } catch (JobCreationException jce) {
+                    //an invalid content is reported rather than the error it led to
+                    checkValidity(xmlsr, veh);
+                    throw jce;
+                }
+                //Close the stream
+                xmlsr.close();
+                checkValidity(xmlsr, veh);
+            } finally {
+                reader.close();
+            }
             //make dependences
             makeDependences();
             logger.info("Job successfully created !");
@@ -290,27 +308,40 @@ public class JobFactory_stax extends JobFactory {
     }
 
     /**
-     * Validate the given job descriptor using the internal RELAX_NG Schema.
+     * Return the internal RELAX_NG Schema, compiled on first use.
      *
-     * @param file the file to validate
+     * @return the schema used to validate the job descriptors.
      */
-    private void validate(File file) throws URISyntaxException, VerifierConfigurationException, SAXException,
+    private static synchronized Schema getSchema() throws VerifierConfigurationException, SAXException,
             IOException {
-        // We use sun multi validator (msv)
-        VerifierFactory vfactory = new com.sun.msv.verifier.jarv.TheFactoryImpl();
-        InputStream schemaStream = this.getClass().getResourceAsStream(SCHEMA_LOCATION);
-        Schema schema = vfactory.compileSchema(schemaStream);
-        Verifier verifier = schema.newVerifier();
-        ValidatingErrorHandler veh = new ValidatingErrorHandler();
-        verifier.setErrorHandler(veh);
-        try {
-            verifier.verify(file);
-        } catch (SAXException e) {
-            //nothing to do, check after
+        if (schema == null) {
+            // We use sun multi validator (msv)
+            VerifierFactory vfactory = new com.sun.msv.verifier.jarv.TheFactoryImpl();
+            InputStream schemaStream = JobFactory_stax.class.getResourceAsStream(SCHEMA_LOCATION);
+            try {
+                schema = vfactory.compileSchema(schemaStream);
+            } finally {
+                schemaStream.close();
+            }
         }
+        return schema;
+    }
+
+    /**
+     * Check that the job descriptor read so far is valid according to the internal RELAX_NG Schema.
+     *
+     * @param xmlsr the reader validating the job descriptor
+     * @param veh the error handler of the validation
+     * @throws SAXException if the job descriptor is not valid
+     */
+    private void checkValidity(ValidatingXMLStreamReader xmlsr, ValidatingErrorHandler veh)
+            throws SAXException {
         if (veh.mistakes > 0) {
             throw new SAXException(veh.mistakesStack.toString());
         }
+        if (xmlsr.getError() != null) {
+            throw xmlsr.getError();
+        }
     }
 
     /**
@@ -0,0 +1,187 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.common.job.factories;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import org.iso_relax.verifier.Verifier;
+import org.iso_relax.verifier.VerifierHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
+
+
+/**
+ * XMLStreamReader validating the document while it is read.
+ * <p>
+ * Each event returned by {@link #next()} is also sent to the handler of the given verifier,
+ * so that the job descriptor is parsed and validated in a single pass.
+ * The validation errors are reported to the error handler of the verifier. Other errors, including
+ * the XML syntax errors, are kept and returned by {@link #getError()}, the reading goes on without validation.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+class ValidatingXMLStreamReader extends StreamReaderDelegate {
+
+    private final VerifierHandler handler;
+
+    /** First error preventing the validation, null if none */
+    private SAXException error;
+
+    /**
+     * Create a new instance of ValidatingXMLStreamReader.
+     *
+     * @param reader the reader whose events are validated, positioned at the start of the document
+     * @param verifier the verifier of the document
+     * @throws SAXException if the verifier cannot be started
+     */
+    ValidatingXMLStreamReader(XMLStreamReader reader, Verifier verifier) throws SAXException {
+        super(reader);
+        handler = verifier.getVerifierHandler();
+        handler.setDocumentLocator(new StreamLocator());
+        handler.startDocument();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int next() throws XMLStreamException {
+        int eventType;
+        try {
+            eventType = super.next();
+        } catch (XMLStreamException e) {
+            if (error == null) {
+                error = new SAXParseException(e.getMessage(), new StreamLocator(), e);
+            }
+            throw e;
+        }
+        if (error == null) {
+            try {
+                validate(eventType);
+            } catch (SAXException e) {
+                error = e;
+            }
+        }
+        return eventType;
+    }
+
+    /**
+     * Return the first error that stopped the validation of the document.
+     *
+     * @return the first error that stopped the validation, null if there is none.
+     */
+    SAXException getError() {
+        return error;
+    }
+
+    private void validate(int eventType) throws SAXException {
+        switch (eventType) {
+            case XMLStreamConstants.START_ELEMENT:
+                for (int i = 0; i < getNamespaceCount(); i++) {
+                    handler.startPrefixMapping(nullToEmpty(getNamespacePrefix(i)),
+                            nullToEmpty(getNamespaceURI(i)));
+                }
+                AttributesImpl attributes = new AttributesImpl();
+                for (int i = 0; i < getAttributeCount(); i++) {
+                    attributes.addAttribute(nullToEmpty(getAttributeNamespace(i)), getAttributeLocalName(i),
+                            qualifiedName(getAttributePrefix(i), getAttributeLocalName(i)),
+                            getAttributeType(i), getAttributeValue(i));
+                }
+                handler.startElement(nullToEmpty(getNamespaceURI()), getLocalName(), qualifiedName(getPrefix(),
+                        getLocalName()), attributes);
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                handler.endElement(nullToEmpty(getNamespaceURI()), getLocalName(), qualifiedName(getPrefix(),
+                        getLocalName()));
+                for (int i = 0; i < getNamespaceCount(); i++) {
+                    handler.endPrefixMapping(nullToEmpty(getNamespacePrefix(i)));
+                }
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                handler.characters(getTextCharacters(), getTextStart(), getTextLength());
+                break;
+            case XMLStreamConstants.END_DOCUMENT:
+                handler.endDocument();
+                break;
+            default:
+                // comments, processing instructions and DTD are not validated
+        }
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+
+    private static String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.length() == 0 ? localName : prefix + ":" + localName;
+    }
+
+    /**
+     * Locator giving the current position of the reader, used in the validation messages.
+     */
+    private class StreamLocator implements Locator {
+
+        public String getPublicId() {
+            Location location = getLocation();
+            return location == null ? null : location.getPublicId();
+        }
+
+        public String getSystemId() {
+            Location location = getLocation();
+            return location == null ? null : location.getSystemId();
+        }
+
+        public int getLineNumber() {
+            Location location = getLocation();
+            return location == null ? -1 : location.getLineNumber();
+        }
+
+        public int getColumnNumber() {
+            Location location = getLocation();
+            return location == null ? -1 : location.getColumnNumber();
+        }
+    }
+}
@@ -59,6 +59,45 @@ import org.ow2.proactive.scheduler.common.task.flow.FlowAction;
 @XmlRootElement
 public interface TaskResult extends Serializable {
 
+    /** Metadata giving the number of classes requests sent to the scheduler by the task class loader */
+    public static final String METADATA_REMOTE_CLASS_FETCHES = "remoteClassFetches";
+
+    /** Metadata giving the number of files copied from the data spaces to the scratch space of the task */
+    public static final String METADATA_INPUT_FILES = "inputFiles";
+
+    /** Metadata giving the number of bytes copied from the data spaces to the scratch space of the task */
+    public static final String METADATA_INPUT_BYTES = "inputBytes";
+
+    /** Metadata giving the time in milliseconds spent copying the input files of the task */
+    public static final String METADATA_INPUT_DURATION = "inputDuration";
+
+    /** Metadata giving the number of input files taken from the input files cache of the node */
+    public static final String METADATA_INPUT_CACHE_HITS = "inputCacheHits";
+
+    /** Metadata giving the number of input files not found in the input files cache of the node */
+    public static final String METADATA_INPUT_CACHE_MISSES = "inputCacheMisses";
+
+    /** Metadata giving the number of files copied from the scratch space of the task to the data spaces */
+    public static final String METADATA_OUTPUT_FILES = "outputFiles";
+
+    /** Metadata giving the number of bytes copied from the scratch space of the task to the data spaces */
+    public static final String METADATA_OUTPUT_BYTES = "outputBytes";
+
+    /** Metadata giving the time in milliseconds spent starting or reusing the JVM of a forked task */
+    public static final String METADATA_FORK_DURATION = "forkDuration";
+
+    /** Metadata telling if the JVM of a forked task has been started for a previous task of the same job */
+    public static final String METADATA_FORKED_JVM_REUSED = "forkedJVMReused";
+
+    /** Metadata giving the CPU time in milliseconds used by the processes of the task */
+    public static final String METADATA_CPU_TIME = "cpuTime";
+
+    /** Metadata giving the highest resident memory in kilobytes used by the processes of the task */
+    public static final String METADATA_PEAK_RSS = "peakRss";
+
+    /** Metadata giving the time in milliseconds spent copying the output files of the task */
+    public static final String METADATA_OUTPUT_DURATION = "outputDuration";
+
     /**
      * To know if an exception has occurred on this task.
      *
@@ -127,4 +166,12 @@ public interface TaskResult extends Serializable {
      * null if no property has been propagated
      */
     public Map<String, String> getPropagatedProperties();
+
+    /**
+     * Returns a map containing metadata about the execution of this task
+     * (for instance {@link #METADATA_REMOTE_CLASS_FETCHES}).
+     * @return a map containing metadata about the execution of this task,
+     * null if no metadata has been set
+     */
+    public Map<String, String> getMetadata();
 }
@@ -0,0 +1,102 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.common.task;
+
+import java.util.LinkedList;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+import org.apache.log4j.spi.LoggingEvent;
+import org.objectweb.proactive.annotation.PublicAPI;
+
+
+/**
+ * Log4j based implementation of TaskLogs keeping only the last logs of a task.
+ * <p>
+ * The logging events are the tail of the task logs. When the complete logs have been written
+ * to a file, the name of this file in the job output space is given by {@link #getLogsFile()}.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+@PublicAPI
+@XmlAccessorType(XmlAccessType.FIELD)
+public class TruncatedLog4JTaskLogs extends Log4JTaskLogs {
+
+    /** Name of the file containing the complete logs in the output space, null if none */
+    private String logsFile;
+
+    /** Number of logging events that are not kept */
+    private long nbDroppedEvents;
+
+    /** Hibernate constructor */
+    public TruncatedLog4JTaskLogs() {
+    }
+
+    /**
+     * Create a new TruncatedLog4JTaskLogs log.
+     * @param tail the last logging events.
+     * @param jobId the id of the job of the task.
+     * @param logsFile the name of the file containing the complete logs in the job output space,
+     *          null if the complete logs are not available.
+     * @param nbDroppedEvents the number of logging events preceding the given ones.
+     */
+    public TruncatedLog4JTaskLogs(LinkedList<LoggingEvent> tail, String jobId, String logsFile,
+            long nbDroppedEvents) {
+        super(tail, jobId);
+        this.logsFile = logsFile;
+        this.nbDroppedEvents = nbDroppedEvents;
+    }
+
+    /**
+     * Return the name of the file containing the complete logs in the job output space.
+     * @return the name of the file containing the complete logs, or null if they are not available.
+     */
+    public String getLogsFile() {
+        return logsFile;
+    }
+
+    /**
+     * Return the number of logging events preceding the ones kept by these logs.
+     * @return the number of logging events that are not kept.
+     */
+    public long getNbDroppedEvents() {
+        return nbDroppedEvents;
+    }
+
+}
@@ -56,6 +56,8 @@ import org.ow2.proactive.scheduler.common.SchedulerConnection;
 import org.ow2.proactive.scheduler.common.SchedulerEvent;
 import org.ow2.proactive.scheduler.common.SchedulerEventListener;
 import org.ow2.proactive.scheduler.common.SchedulerState;
+import org.ow2.proactive.scheduler.common.SchedulerStateDelta;
+import org.ow2.proactive.scheduler.common.SchedulerStatePage;
 import org.ow2.proactive.scheduler.common.SchedulerStatus;
 import org.ow2.proactive.scheduler.common.exception.InternalSchedulerException;
 import org.ow2.proactive.scheduler.common.exception.JobAlreadyFinishedException;
@@ -67,6 +69,7 @@ import org.ow2.proactive.scheduler.common.exception.SubmissionClosedException;
 import org.ow2.proactive.scheduler.common.exception.UnknownJobException;
 import org.ow2.proactive.scheduler.common.exception.UnknownTaskException;
 import org.ow2.proactive.scheduler.common.job.Job;
+import org.ow2.proactive.scheduler.common.job.JobFilter;
 import org.ow2.proactive.scheduler.common.job.JobId;
 import org.ow2.proactive.scheduler.common.job.JobPriority;
 import org.ow2.proactive.scheduler.common.job.JobResult;
@@ -309,6 +312,12 @@ public class SchedulerProxyUserInterface implements Scheduler, Serializable {
         return uischeduler.getTaskResultFromIncarnation(jobId, taskName, inc);
     }
 
+    @Override
+    public byte[] getTaskResultValuePart(String jobId, String taskName, long offset, int length)
+            throws NotConnectedException, UnknownJobException, UnknownTaskException, PermissionException {
+        return uischeduler.getTaskResultValuePart(jobId, taskName, offset, length);
+    }
+
     public boolean killTask(JobId jobId, String taskName) throws NotConnectedException, UnknownJobException,
             UnknownTaskException, PermissionException {
         if (uischeduler == null) {
@@ -513,6 +522,16 @@ public class SchedulerProxyUserInterface implements Scheduler, Serializable {
         return uischeduler.getState(myJobsOnly);
     }
 
+    public SchedulerStatePage getJobs(JobFilter filter, int offset, int limit) throws NotConnectedException,
+            PermissionException {
+        return uischeduler.getJobs(filter, offset, limit);
+    }
+
+    public SchedulerStateDelta getStateDelta(long revision, boolean myJobsOnly) throws NotConnectedException,
+            PermissionException {
+        return uischeduler.getStateDelta(revision, myJobsOnly);
+    }
+
     /**
      *
      * Return the informations about the Scheduler MBean as a formatted string.
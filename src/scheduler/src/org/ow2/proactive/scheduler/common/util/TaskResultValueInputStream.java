@@ -0,0 +1,174 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.common.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.ow2.proactive.scheduler.common.Scheduler;
+import org.ow2.proactive.scheduler.common.SchedulerConstants;
+import org.ow2.proactive.scheduler.common.exception.NotConnectedException;
+import org.ow2.proactive.scheduler.common.exception.PermissionException;
+import org.ow2.proactive.scheduler.common.exception.UnknownJobException;
+import org.ow2.proactive.scheduler.common.exception.UnknownTaskException;
+
+
+/**
+ * Stream of the serialized value of a task result, read from the scheduler by parts.
+ * <p>
+ * A large result value is never entirely loaded in the memory of the scheduler nor of the
+ * client: each part is requested with {@link Scheduler#getTaskResultValuePart(String, String, long, int)}
+ * when the previous one has been read.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TaskResultValueInputStream extends InputStream {
+
+    /** Default length of the parts requested to the scheduler */
+    public static final int DEFAULT_PART_LENGTH = 1024 * 1024;
+
+    private final Scheduler scheduler;
+    private final String jobId;
+    private final String taskName;
+    private final int partLength;
+
+    private byte[] part = new byte[0];
+    private int partPosition;
+    private long offset;
+    private boolean ended;
+
+    /**
+     * Create a stream of the value of the last result of the given task.
+     *
+     * @param scheduler the scheduler to read the value from
+     * @param jobId the job in which the task result is
+     * @param taskName the name of the task in which the result is
+     */
+    public TaskResultValueInputStream(Scheduler scheduler, String jobId, String taskName) {
+        this(scheduler, jobId, taskName, DEFAULT_PART_LENGTH);
+    }
+
+    /**
+     * Create a stream of the value of the last result of the given task.
+     *
+     * @param scheduler the scheduler to read the value from
+     * @param jobId the job in which the task result is
+     * @param taskName the name of the task in which the result is
+     * @param partLength the length of the parts requested to the scheduler, reduced to
+     *          {@link SchedulerConstants#TASK_RESULT_VALUE_PART_MAX_LENGTH} if greater
+     */
+    public TaskResultValueInputStream(Scheduler scheduler, String jobId, String taskName, int partLength) {
+        if (partLength <= 0) {
+            throw new IllegalArgumentException("Part length must be greater than 0.");
+        }
+        this.scheduler = scheduler;
+        this.jobId = jobId;
+        this.taskName = taskName;
+        this.partLength = Math.min(partLength, SchedulerConstants.TASK_RESULT_VALUE_PART_MAX_LENGTH);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fillPart()) {
+            return -1;
+        }
+        return part[partPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fillPart()) {
+            return -1;
+        }
+        int read = Math.min(len, part.length - partPosition);
+        System.arraycopy(part, partPosition, b, off, read);
+        partPosition += read;
+        return read;
+    }
+
+    @Override
+    public int available() {
+        return part.length - partPosition;
+    }
+
+    /**
+     * Request the next part if the current one has been read.
+     *
+     * @return false if the end of the value has been reached
+     */
+    private boolean fillPart() throws IOException {
+        if (partPosition < part.length) {
+            return true;
+        }
+        if (ended) {
+            return false;
+        }
+        byte[] nextPart;
+        try {
+            nextPart = scheduler.getTaskResultValuePart(jobId, taskName, offset, partLength);
+        } catch (NotConnectedException e) {
+            throw newIOException(e);
+        } catch (UnknownJobException e) {
+            throw newIOException(e);
+        } catch (UnknownTaskException e) {
+            throw newIOException(e);
+        } catch (PermissionException e) {
+            throw newIOException(e);
+        }
+        if (nextPart == null) {
+            throw new IOException("The result of task " + taskName + " (job: " + jobId +
+                ") is not available");
+        }
+        part = nextPart;
+        partPosition = 0;
+        offset += nextPart.length;
+        ended = nextPart.length < partLength;
+        return nextPart.length > 0;
+    }
+
+    private IOException newIOException(Exception cause) {
+        IOException e = new IOException("Failed to read the result of task " + taskName + " (job: " + jobId +
+            ")");
+        e.initCause(cause);
+        return e;
+    }
+
+}
@@ -40,12 +40,19 @@ import java.util.LinkedList;
 
 import org.apache.log4j.Appender;
 import org.apache.log4j.AsyncAppender;
+import org.apache.log4j.helpers.LogLog;
 import org.apache.log4j.spi.LoggingEvent;
+import org.ow2.proactive.scheduler.common.util.logforwarder.AppenderProvider;
+import org.ow2.proactive.scheduler.common.util.logforwarder.LogForwardingException;
 
 
 /**
  * Class defines a log4j AsyncAppender that is able to store all appended event additionally
  * to bufferize and send them to the added appenders.
+ * <p>
+ * Events are stored in a ring buffer: once the storage is full, the oldest event is dropped
+ * for each new one. An overflow appender can be given to receive every event, including the
+ * dropped ones, as soon as the storage is full.
  * @author The ProActive Team
  * @since ProActive Scheduling 0.9
  */
@@ -56,8 +63,17 @@ public class AsyncAppenderWithStorage extends AsyncAppender {
      */
     public static final int DEFAULT_STORAGE_SIZE = Integer.MAX_VALUE;
 
-    // logEvents buffer
-    private final transient LinkedList<LoggingEvent> storage;
+    // initial capacity of the buffer, it grows up to the storage size
+    private static final int INITIAL_STORAGE_CAPACITY = 16;
+
+    // logEvents ring buffer
+    private transient LoggingEvent[] storage;
+
+    // index of the oldest stored event
+    private int firstStored = 0;
+
+    // number of stored events
+    private int nbStored = 0;
 
     // buffer size
     private final int storageSize;
@@ -66,6 +82,12 @@ public class AsyncAppenderWithStorage extends AsyncAppender {
     // buffer is reduced by the head
     private long nbFiredEvents = 0;
 
+    // provider of the overflow appender, null once the appender is created
+    private AppenderProvider overflowAppenderProvider;
+
+    // appender receiving every event once the storage is full
+    private Appender overflowAppender;
+
     /**
      * Create a AsyncAppenderWithStorage with default parameters.<br />
      * See DEFAULT_BUFFER_SIZE for details.
@@ -103,7 +125,7 @@ public class AsyncAppenderWithStorage extends AsyncAppender {
         super();
         this.name = name;
         this.storageSize = storageSize;
-        this.storage = new LinkedList<LoggingEvent>();
+        this.storage = new LoggingEvent[Math.max(0, Math.min(storageSize, INITIAL_STORAGE_CAPACITY))];
     }
 
     /* (non-Javadoc)
@@ -111,7 +133,13 @@ public class AsyncAppenderWithStorage extends AsyncAppender {
      */
     @Override
     public synchronized void append(LoggingEvent event) {
+        if (this.overflowAppenderProvider != null && this.nbStored >= this.storageSize) {
+            this.createOverflowAppender();
+        }
         super.append(event);
+        if (this.overflowAppender != null) {
+            this.overflowAppender.doAppend(event);
+        }
         this.fillInStorage(event);
     }
 
@@ -131,8 +159,41 @@ public class AsyncAppenderWithStorage extends AsyncAppender {
      * Append stored events to the given appender.
      */
     public synchronized void appendStoredEvents(Appender appender) {
-        for (LoggingEvent e : this.storage) {
-            appender.doAppend(e);
+        for (int i = 0; i < this.nbStored; i++) {
+            appender.doAppend(this.storage[(this.firstStored + i) % this.storage.length]);
+        }
+    }
+
+    /**
+     * Set the provider of the appender that receives every event as soon as the storage is full.
+     * The appender is created when the first event that does not fit in the storage is appended,
+     * it receives the stored events then every new event. It is closed with this appender.
+     * @param provider the provider of the overflow appender.
+     */
+    public synchronized void setOverflowAppenderProvider(AppenderProvider provider) {
+        this.overflowAppenderProvider = provider;
+    }
+
+    /**
+     * Return the number of events that have been removed from the storage because it was full.
+     * @return the number of events dropped from the storage.
+     */
+    public synchronized long getNbDroppedEvents() {
+        return this.nbFiredEvents - this.nbStored;
+    }
+
+    /**
+     * Create the overflow appender and fill it with the stored events.
+     */
+    private void createOverflowAppender() {
+        AppenderProvider provider = this.overflowAppenderProvider;
+        // the creation is tried once
+        this.overflowAppenderProvider = null;
+        try {
+            this.overflowAppender = provider.getAppender();
+            appendStoredEvents(this.overflowAppender);
+        } catch (LogForwardingException e) {
+            LogLog.warn("Cannot create the overflow appender, older events will be lost", e);
         }
     }
 
@@ -143,10 +204,24 @@ public class AsyncAppenderWithStorage extends AsyncAppender {
      */
     private void fillInStorage(LoggingEvent event) {
         if (this.storageSize > 0) {
-            if (this.nbFiredEvents > this.storageSize) {
-                this.storage.removeFirst();
+            if (this.nbStored == this.storage.length && this.nbStored < this.storageSize) {
+                // the buffer is full but smaller than the storage, grow it
+                LoggingEvent[] grown = new LoggingEvent[(int) Math.min(this.storageSize,
+                        2L * this.storage.length)];
+                for (int i = 0; i < this.nbStored; i++) {
+                    grown[i] = this.storage[(this.firstStored + i) % this.storage.length];
+                }
+                this.storage = grown;
+                this.firstStored = 0;
+            }
+            if (this.nbStored < this.storage.length) {
+                this.storage[(this.firstStored + this.nbStored) % this.storage.length] = event;
+                this.nbStored++;
+            } else {
+                // replace the oldest event
+                this.storage[this.firstStored] = event;
+                this.firstStored = (this.firstStored + 1) % this.storage.length;
             }
-            this.storage.addLast(event);
         }
         this.nbFiredEvents++;
     }
@@ -155,9 +230,12 @@ public class AsyncAppenderWithStorage extends AsyncAppender {
      * Return a clone of the current logging event storage.
      * @return a cloned linked list containing all logged events.
      */
-    @SuppressWarnings("unchecked")
     public synchronized LinkedList<LoggingEvent> getStorage() {
-        return (LinkedList<LoggingEvent>) this.storage.clone();
+        LinkedList<LoggingEvent> events = new LinkedList<LoggingEvent>();
+        for (int i = 0; i < this.nbStored; i++) {
+            events.add(this.storage[(this.firstStored + i) % this.storage.length]);
+        }
+        return events;
     }
 
     /**
@@ -166,6 +244,9 @@ public class AsyncAppenderWithStorage extends AsyncAppender {
     @Override
     public synchronized void close() {
         super.close();
+        if (this.overflowAppender != null) {
+            this.overflowAppender.close();
+        }
         this.closed = true;
     }
 
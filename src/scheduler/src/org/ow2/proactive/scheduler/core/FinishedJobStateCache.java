@@ -0,0 +1,145 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.core;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.ow2.proactive.scheduler.common.job.JobId;
+import org.ow2.proactive.scheduler.common.job.JobState;
+import org.ow2.proactive.scheduler.core.db.SchedulerDBManager;
+import org.ow2.proactive.scheduler.core.properties.PASchedulerProperties;
+import org.ow2.proactive.scheduler.job.ClientJobState;
+import org.ow2.proactive.scheduler.job.InternalJob;
+
+
+/**
+ * Gives the full state of the finished jobs recovered as summaries at scheduler startup.
+ * <p>
+ * A summary only holds the job information (status, owner, times, number of tasks...).
+ * The full state of such a job is loaded from the database the first time it is requested
+ * and the most recently accessed ones are kept in memory, up to a maximum number of jobs.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+class FinishedJobStateCache {
+
+    private static final Logger logger = Logger.getLogger(FinishedJobStateCache.class);
+
+    /** Default maximum number of full job states kept in memory */
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+
+    private final SchedulerDBManager dbManager;
+
+    private final int maxSize;
+
+    /** Jobs known only as summaries */
+    private final Set<JobId> summaries = new HashSet<JobId>();
+
+    /** Full states of the summaries, in access order */
+    private final Map<JobId, JobState> states;
+
+    FinishedJobStateCache(SchedulerDBManager dbManager) {
+        this(dbManager, PASchedulerProperties.SCHEDULER_FINISHED_JOBS_CACHE_SIZE.isSet() ? PASchedulerProperties.SCHEDULER_FINISHED_JOBS_CACHE_SIZE
+                .getValueAsInt() : DEFAULT_CACHE_SIZE);
+    }
+
+    FinishedJobStateCache(SchedulerDBManager dbManager, int maxSize) {
+        this.dbManager = dbManager;
+        this.maxSize = maxSize;
+        this.states = new LinkedHashMap<JobId, JobState>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<JobId, JobState> eldest) {
+                return size() > FinishedJobStateCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Registers a finished job recovered without its tasks.
+     *
+     * @param summary the recovered job.
+     */
+    synchronized void addSummary(JobState summary) {
+        summaries.add(summary.getId());
+    }
+
+    /**
+     * Returns the full state of the given job. If the job is not a summary it is returned as is,
+     * otherwise its full state is taken from the cache or loaded from the database.
+     *
+     * @param job the job as stored in the scheduler state.
+     * @return the full state of the job.
+     */
+    synchronized JobState getJobState(JobState job) {
+        if (!summaries.contains(job.getId())) {
+            return job;
+        }
+        JobState state = states.get(job.getId());
+        if (state == null) {
+            List<InternalJob> loaded = dbManager.loadJobs(false, job.getId());
+            if (loaded.isEmpty()) {
+                logger.warn("Cannot load the state of job " + job.getId() + " from the database");
+                return job;
+            }
+            state = new ClientJobState(loaded.get(0));
+            if (maxSize > 0) {
+                states.put(job.getId(), state);
+            }
+        }
+        // the summary holds the last job information
+        state.update(job.getJobInfo());
+        return state;
+    }
+
+    /**
+     * Forgets the given job, called when it is removed from the scheduler.
+     *
+     * @param id the removed job.
+     */
+    synchronized void remove(JobId id) {
+        if (summaries.remove(id)) {
+            states.remove(id);
+        }
+    }
+
+}
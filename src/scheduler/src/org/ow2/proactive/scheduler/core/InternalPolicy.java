@@ -37,9 +37,9 @@
 package org.ow2.proactive.scheduler.core;
 
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Set;
-import java.util.Vector;
 
 import org.ow2.proactive.resourcemanager.common.RMState;
 import org.ow2.proactive.scheduler.common.task.TaskId;
@@ -77,12 +77,14 @@ class InternalPolicy {
      * Filter tasks by splitting them into group of configurable number of tasks.
      * This method just controls what is provided by scheduling policy
      *
-     * @param orderedTasks the list of ordered task provide by the scheduling policy
+     * The given iterator is consumed lazily and only until the number of tasks per loop is reached.
+     *
+     * @param orderedTasks the iterator on ordered task provide by the scheduling policy
      * @return a filtered and splited list of task to be scheduled
      */
-    public LinkedList<EligibleTaskDescriptor> filter(Vector<EligibleTaskDescriptor> orderedTasks) {
+    public LinkedList<EligibleTaskDescriptor> filter(Iterator<EligibleTaskDescriptor> orderedTasks) {
         //safety branch
-        if (orderedTasks == null || orderedTasks.size() == 0) {
+        if (orderedTasks == null || !orderedTasks.hasNext()) {
             return null;
         }
 
@@ -99,7 +101,8 @@ class InternalPolicy {
         //fill list of task to be returned by the policy
         //max number of returned tasks will be the number of tasks per loop
         int i = 0;
-        for (EligibleTaskDescriptor etd : orderedTasks) {
+        while (orderedTasks.hasNext()) {
+            EligibleTaskDescriptor etd = orderedTasks.next();
             if (!ids.contains(etd.getTaskId())) {
                 toReturn.add(etd);
                 ids.add(etd.getTaskId());
@@ -42,17 +42,26 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Appender;
 import org.apache.log4j.AsyncAppender;
@@ -110,10 +119,12 @@ import org.ow2.proactive.scheduler.core.db.JobClasspathContent;
 import org.ow2.proactive.scheduler.core.db.SchedulerDBManager;
 import org.ow2.proactive.scheduler.core.db.SchedulerStateRecoverHelper;
 import org.ow2.proactive.scheduler.core.jmx.SchedulerJMXHelper;
+import org.ow2.proactive.scheduler.core.jmx.mbean.RuntimeDataMBeanImpl;
 import org.ow2.proactive.scheduler.core.properties.PASchedulerProperties;
 import org.ow2.proactive.scheduler.core.rmproxies.RMProxiesManager;
 import org.ow2.proactive.scheduler.core.rmproxies.RMProxyCreationException;
 import org.ow2.proactive.scheduler.core.rmproxies.UserRMProxy;
+import org.ow2.proactive.scheduler.descriptor.EligibleTaskIndex;
 import org.ow2.proactive.scheduler.exception.ProgressPingerException;
 import org.ow2.proactive.scheduler.exception.RunningProcessException;
 import org.ow2.proactive.scheduler.exception.StartProcessException;
@@ -176,6 +187,30 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
     private static final int SCHEDULER_TASK_PROGRESS_NBTHREAD = PASchedulerProperties.SCHEDULER_TASK_PROGRESS_NBTHREAD
             .getValueAsInt();
 
+    /**
+     * Maximum interval in second between two pings of a task which progress does not change
+     */
+    private static final long SCHEDULER_NODE_PING_MAX_FREQUENCY = PASchedulerProperties.SCHEDULER_NODE_PING_MAX_FREQUENCY
+            .isSet() ? PASchedulerProperties.SCHEDULER_NODE_PING_MAX_FREQUENCY.getValueAsInt() * 1000
+            : SCHEDULER_NODE_PING_FREQUENCY;
+
+    /**
+     * Time in second to wait for the progress of a task before pinging the other tasks again
+     */
+    private static final long SCHEDULER_NODE_PING_TIMEOUT = PASchedulerProperties.SCHEDULER_NODE_PING_TIMEOUT
+            .isSet() ? PASchedulerProperties.SCHEDULER_NODE_PING_TIMEOUT.getValueAsInt() * 1000
+            : SCHEDULER_NODE_PING_FREQUENCY;
+
+    /**
+     * Number of consecutive pings of a task which do not return in time after which its node is failed
+     */
+    private static final int SCHEDULER_NODE_PING_MAX_TIMEOUTS = PASchedulerProperties.SCHEDULER_NODE_PING_MAX_TIMEOUTS
+            .isSet() ? PASchedulerProperties.SCHEDULER_NODE_PING_MAX_TIMEOUTS.getValueAsInt() : 3;
+
+    /** Length of the windows of the scheduling loop profiler histograms */
+    private static final long SCHEDULER_PROFILER_WINDOW = PASchedulerProperties.SCHEDULER_PROFILER_WINDOW
+            .isSet() ? PASchedulerProperties.SCHEDULER_PROFILER_WINDOW.getValueAsInt() * 1000 : 60000;
+
     /** Delay to wait for between getting a job result and removing the job concerned */
     private static final long SCHEDULER_REMOVED_JOB_DELAY = PASchedulerProperties.SCHEDULER_REMOVED_JOB_DELAY
             .getValueAsInt() * 1000;
@@ -207,6 +242,12 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
     /** list of running jobs among the managed jobs */
     Vector<InternalJob> runningJobs;
 
+    /** Incrementally maintained index of running and pending jobs used by the policy */
+    EligibleTaskIndex eligibleTaskIndex;
+
+    /** Time spent in each phase of the scheduling loop */
+    SchedulingLoopProfiler schedulingProfiler;
+
     /** Scheduler current status */
     SchedulerStatus status;
 
@@ -216,6 +257,8 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
     private Thread pinger;
     /** Thread Pool used to get task progress status */
     private ExecutorService threadPool;
+    /** Ping intervals of the running tasks and ping latency statistics */
+    private TaskPingTracker pingTracker;
 
     /** Timer used for remove result method (transient because Timer is not serializable) */
     private Timer removeJobTimer;
@@ -254,14 +297,14 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
     }
 
     /**
-     * Create a new taskClassServer for the job jid
+     * Create a new taskClassServer for the job jid.
+     * The classpath content is loaded from the database only if no other job
+     * uses the same classpath.
      * @param jid the job id
-     * @param userClasspathJarFile the contents of the classpath as a serialized jar file
-     * @param deflateJar if true, the jar file is deflated in the tmpJarFilesDir
+     * @param crc the CRC of the classpath content
      * @throws ClassServerException if something goes wrong during task class server creation
      */
-    protected void addTaskClassServer(JobId jid, byte[] userClasspathJarFile, boolean deflateJar)
-            throws ClassServerException {
+    protected void addTaskClassServer(JobId jid, long crc) throws ClassServerException {
         if (getTaskClassServer(jid) != null) {
             throw new ClassServerException("job " + jid + " classServer already exists");
         }
@@ -275,7 +318,14 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
             RemoteRemoteObject rro = remoteExposer.createRemoteObject(uri);
             // must activate through local ref to avoid copy of the classpath content !
             jlogger.info(jid, "activating local reference");
-            localReference.activate(userClasspathJarFile, deflateJar);
+            if (!localReference.activate(crc)) {
+                JobClasspathContent cp = dbManager.loadJobClasspathContent(crc);
+                if (cp == null) {
+                    remoteExposer.unregisterAll();
+                    throw new ClassServerException("No classpath content is available for job " + jid);
+                }
+                localReference.activate(crc, cp.getClasspathContent(), cp.isContainsJarFiles());
+            }
             // store references
             classServers.put(jid, (TaskClassServer) new RemoteObjectAdapter(rro).getObjectProxy());
             remoteClassServers.put(jid, remoteExposer);// stored to be unregistered later
@@ -416,6 +466,7 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
             this.jobs = new HashMap<JobId, InternalJob>();
             this.pendingJobs = new Vector<InternalJob>();
             this.runningJobs = new Vector<InternalJob>();
+            this.eligibleTaskIndex = new EligibleTaskIndex();
             this.removeJobTimer = new Timer("RemoveJobTimer");
             this.restartTaskTimer = new Timer("RestartTaskTimer");
             this.status = SchedulerStatus.STOPPED;
@@ -478,6 +529,12 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
         logger.debug("Creating nodes pinging thread");
         threadPool = Executors.newFixedThreadPool(SCHEDULER_TASK_PROGRESS_NBTHREAD, new NamedThreadFactory(
             "Scheduling_GetTaskProgress"));
+        pingTracker = new TaskPingTracker(SCHEDULER_NODE_PING_FREQUENCY, SCHEDULER_NODE_PING_MAX_FREQUENCY,
+            SCHEDULER_NODE_PING_MAX_TIMEOUTS);
+        RuntimeDataMBeanImpl runtimeMBean = SchedulerJMXHelper.getInstance().getSchedulerRuntimeMBean();
+        if (runtimeMBean != null) {
+            runtimeMBean.setTaskPingTracker(pingTracker);
+        }
         final SchedulerCore schedulerStub = (SchedulerCore) PAActiveObject.getStubOnThis();
         pinger = new Thread() {
             @Override
@@ -589,7 +646,12 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
 
             createPingThread();
 
-            //create scheduling method
+            //create scheduling method and its profiler
+            schedulingProfiler = new SchedulingLoopProfiler(SCHEDULER_PROFILER_WINDOW);
+            RuntimeDataMBeanImpl runtimeMBean = SchedulerJMXHelper.getInstance().getSchedulerRuntimeMBean();
+            if (runtimeMBean != null) {
+                runtimeMBean.setSchedulingLoopProfiler(schedulingProfiler);
+            }
             schedulingMethod = new SchedulingMethodImpl(this);
 
             //default scheduler status will be started
@@ -608,8 +670,12 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
                             logger.trace("[PROF] Timout is = " +
                                 (numberOfTaskStarted != 0 ? 1 : SCHEDULER_TIME_OUT));
                         }
+                        schedulingProfiler.cycleStarted();
                         //serve all incoming methods
+                        long startServe = System.nanoTime();
                         service.serveAll(incomingRequestsFilter);
+                        schedulingProfiler.phaseEnded(SchedulingLoopProfiler.Phase.SERVE_REQUESTS,
+                                startServe);
 
                         //schedule
                         long startSch = System.currentTimeMillis();
@@ -628,11 +694,18 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
                             maxTermServices = MAX_TERM_SERVICE;
                         }
                         int termServicesCounter = 0;
+                        long startTermNanos = System.nanoTime();
                         while (service.hasRequestToServe(terminateFilter) &&
                             (termServicesCounter < maxTermServices)) {
                             service.serveOldest(terminateFilter);
                             termServicesCounter++;
                         }
+                        if (termServicesCounter > 0) {
+                            schedulingProfiler.phaseEnded(SchedulingLoopProfiler.Phase.TERMINATE,
+                                    startTermNanos);
+                            schedulingProfiler.cycleActive(0);
+                        }
+                        schedulingProfiler.cycleEnded();
                         if (logger.isTraceEnabled()) {
                             logger.trace("[PROF] Terminate served = " + termServicesCounter + " in " +
                                 (System.currentTimeMillis() - startTerm));
@@ -747,58 +820,170 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
 
     /**
      * Ping every nodes on which a task is currently running and repair the task if need.
+     * Tasks are pinged in parallel, each one at the interval given by the ping tracker,
+     * and this method returns when all the pings returned or the ping timeout is reached.
+     * The pings which did not return in time are not interrupted, they keep waiting for the node,
+     * but the task is restarted as on a node failure once it reached the maximum number
+     * of consecutive timeouts of the ping tracker.
      */
     private void pingDeployedNodes(final SchedulerCore schedulerStub) {
         logger.info("Search for down nodes !");
 
+        long now = System.currentTimeMillis();
+        Set<TaskId> runningTasks = new HashSet<TaskId>();
+        List<TaskPing> pings = new ArrayList<TaskPing>();
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        List<TaskPing> pinged = new ArrayList<TaskPing>();
         for (int i = 0; i < runningJobs.size(); i++) {
             final InternalJob job = runningJobs.get(i);
-            //use thread pool to ping every tasks of a job
-            threadPool.submit(new Runnable() {
-                public void run() {
-                    for (InternalTask td : job.getITasks()) {
-                        if (td != null && (td.getStatus() == TaskStatus.RUNNING)) {
-                            try {
-                                int progress = td.getExecuterInformations().getLauncher().getProgress();//(2)
-                                //get previous inside td
-                                if (progress != td.getProgress()) {
-                                    td.setProgress(progress);//(1)
-                                    //if progress != previously set progress (0 by default) -> update
-                                    frontend.taskStateUpdated(job.getOwner(), new NotificationData<TaskInfo>(
-                                        SchedulerEvent.TASK_PROGRESS, td.getTaskInfo()));
-                                }
-                            } catch (NullPointerException e) {
-                                //should not happened, but avoid restart if execInfo or launcher is null
-                                //nothing to do
-                                if (tlogger.isDebugEnabled()) {
-                                    tlogger.debug(td.getId(), "getProgress failed", e);
-                                }
-                            } catch (IllegalArgumentException e) {
-                                //thrown by (1)
-                                //avoid setting bad value, no event if bad
-                                if (tlogger.isDebugEnabled()) {
-                                    tlogger.debug(td.getId(), "getProgress failed", e);
-                                }
-                            } catch (ProgressPingerException e) {
-                                //thrown by (2) in one of this two cases :
-                                // * when user has overridden getProgress method and the method throws an exception
-                                // * if forked JVM process is dead
-                                //nothing to do in any case
-                                if (tlogger.isDebugEnabled()) {
-                                    tlogger.debug(td.getId(), "getProgress failed", e);
-                                }
-                            } catch (Throwable t) {
-                                tlogger.info(td.getId(), "node failed", t);
-
-                                if (restartTaskOnNodeFailure(job, td, schedulerStub)) {
-                                    break;
-                                }
-                            }
-                        }
-
+            // shared by the pings of the job, set when the job has been ended by a node failure
+            final AtomicBoolean jobEnded = new AtomicBoolean(false);
+            // tasks may be added by the core thread meanwhile, iterate a copy
+            for (final InternalTask td : job.getITasks()) {
+                if (td != null && (td.getStatus() == TaskStatus.RUNNING)) {
+                    runningTasks.add(td.getId());
+                    TaskPing ping = new TaskPing(job, td, jobEnded, schedulerStub);
+                    if (pingTracker.startPing(td.getId(), now)) {
+                        //use thread pool to ping every task
+                        futures.add(threadPool.submit(ping));
+                        pings.add(ping);
                     }
+                    pinged.add(ping);
                 }
-            });
+            }
+        }
+        pingTracker.retainAll(runningTasks);
+
+        // wait for the pings, a hung node only delays the progress of its own task
+        long deadline = now + SCHEDULER_NODE_PING_TIMEOUT;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                TaskId taskId = pings.get(i).task.getId();
+                // a ping waiting for the node is not interrupted, only a not started one is cancelled
+                boolean started = pings.get(i).cancel();
+                futures.get(i).cancel(false);
+                pingTracker.pingTimedOut(taskId, started);
+                tlogger.info(taskId, "progress ping did not return within " + SCHEDULER_NODE_PING_TIMEOUT +
+                    (started ? "ms" : "ms, it is cancelled"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                logger.debug("Progress ping failed", e);
+            }
+        }
+
+        // the tasks which pings did not return several times in a row are on hung nodes
+        for (TaskPing ping : pinged) {
+            if (pingTracker.isUnresponsive(ping.task.getId())) {
+                tlogger.info(ping.task.getId(), "node did not answer " + SCHEDULER_NODE_PING_MAX_TIMEOUTS +
+                    " consecutive progress pings, it is considered as failed");
+                // the late ping must not block the pings of the next execution
+                pingTracker.forget(ping.task.getId());
+                restartOnNodeFailure(ping.job, ping.task, ping.jobEnded, ping.schedulerStub);
+            }
+        }
+    }
+
+    /**
+     * Progress ping of a running task submitted to the pinger thread pool.
+     * A ping cancelled before being started is never run, a running one goes on until the node answers.
+     */
+    private class TaskPing implements Runnable {
+
+        private final InternalJob job;
+        private final InternalTask task;
+        private final AtomicBoolean jobEnded;
+        private final SchedulerCore schedulerStub;
+
+        // set when the ping is run or cancelled, whichever comes first
+        private final AtomicBoolean started = new AtomicBoolean(false);
+
+        TaskPing(InternalJob job, InternalTask task, AtomicBoolean jobEnded, SchedulerCore schedulerStub) {
+            this.job = job;
+            this.task = task;
+            this.jobEnded = jobEnded;
+            this.schedulerStub = schedulerStub;
+        }
+
+        public void run() {
+            if (started.compareAndSet(false, true)) {
+                pingTask(job, task, jobEnded, schedulerStub);
+            }
+        }
+
+        /**
+         * Cancel this ping.
+         *
+         * @return true if the ping was already started, false if it will never run.
+         */
+        boolean cancel() {
+            return !started.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * Get the progress of a running task and restart the task if its node failed.
+     */
+    private void pingTask(InternalJob job, InternalTask td, AtomicBoolean jobEnded,
+            SchedulerCore schedulerStub) {
+        if (jobEnded.get()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        boolean progressChanged = false;
+        try {
+            int progress = td.getExecuterInformations().getLauncher().getProgress();//(2)
+            //get previous inside td
+            if (progress != td.getProgress()) {
+                td.setProgress(progress);//(1)
+                progressChanged = true;
+                //if progress != previously set progress (0 by default) -> update
+                frontend.taskStateUpdated(job.getOwner(), new NotificationData<TaskInfo>(
+                    SchedulerEvent.TASK_PROGRESS, td.getTaskInfo()));
+            }
+        } catch (NullPointerException e) {
+            //should not happened, but avoid restart if execInfo or launcher is null
+            //nothing to do
+            if (tlogger.isDebugEnabled()) {
+                tlogger.debug(td.getId(), "getProgress failed", e);
+            }
+        } catch (IllegalArgumentException e) {
+            //thrown by (1)
+            //avoid setting bad value, no event if bad
+            if (tlogger.isDebugEnabled()) {
+                tlogger.debug(td.getId(), "getProgress failed", e);
+            }
+        } catch (ProgressPingerException e) {
+            //thrown by (2) in one of this two cases :
+            // * when user has overridden getProgress method and the method throws an exception
+            // * if forked JVM process is dead
+            //nothing to do in any case
+            if (tlogger.isDebugEnabled()) {
+                tlogger.debug(td.getId(), "getProgress failed", e);
+            }
+        } catch (Throwable t) {
+            tlogger.info(td.getId(), "node failed", t);
+            restartOnNodeFailure(job, td, jobEnded, schedulerStub);
+            // the node failed, ping the next execution of the task at the normal rate
+            progressChanged = true;
+        } finally {
+            pingTracker.endPing(td.getId(), System.currentTimeMillis() - start, progressChanged);
+        }
+    }
+
+    /**
+     * Restart a task which node failed, unless its job has been ended by a node failure meanwhile.
+     */
+    private void restartOnNodeFailure(InternalJob job, InternalTask td, AtomicBoolean jobEnded,
+            SchedulerCore schedulerStub) {
+        // failures of the tasks of a job are handled one at a time
+        synchronized (jobEnded) {
+            if (!jobEnded.get() && restartTaskOnNodeFailure(job, td, schedulerStub)) {
+                jobEnded.set(true);
+            }
         }
     }
 
@@ -891,6 +1076,7 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
         //If register OK : add job to core
         jobs.put(job.getId(), job);
         pendingJobs.add(job);
+        eligibleTaskIndex.add(job.getJobDescriptor(), false);
 
         // create a running task table for this job
         this.currentlyRunningTasks.put(job.getId(), new Hashtable<TaskId, TaskLauncher>());
@@ -913,6 +1099,11 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
     protected void endJob(JobId jobId, TaskId taskId, TaskResultImpl result, String errorMsg,
             JobStatus jobStatus) {
         InternalJob job = jobs.get(jobId);
+        if (job == null) {
+            // a late progress ping of another task may have ended the job already
+            jlogger.info(jobId, "ending request for already ended job");
+            return;
+        }
         InternalTask task = job.getIHMTasks().get(taskId);
         endJob(job, task, result, errorMsg, jobStatus);
     }
@@ -929,6 +1120,7 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
     void endJob(InternalJob job, InternalTask task, TaskResultImpl taskResult, String errorMsg,
             JobStatus jobStatus) {
         jobs.remove(job.getId());
+        eligibleTaskIndex.remove(job.getId());
 
         // job can be already ended (SCHEDULING-700)
         JobStatus currentStatus = job.getStatus();
@@ -945,7 +1137,7 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
             jlogger.info(job.getId(), "ending request");
         }
 
-        for (InternalTask td : job.getITasks()) {
+        for (InternalTask td : job.getITasksView()) {
             if (td.getStatus() == TaskStatus.RUNNING) {
                 //remove previous read progress
                 td.setProgress(0);
@@ -1229,6 +1421,7 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
                 //terminating job
                 job.terminate();
                 runningJobs.remove(job);
+                eligibleTaskIndex.remove(jobId);
                 jlogger.info(jobId, "terminated");
                 terminateJobHandling(job.getId());
             }
@@ -1454,13 +1647,7 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
         try {
             String[] classpath = job.getEnvironment().getJobClasspath();
             if (classpath != null && classpath.length > 0) {
-                JobClasspathContent cp = dbManager.loadJobClasspathContent(job.getEnvironment()
-                        .getJobClasspathCRC());
-                if (cp == null) {
-                    throw new ClassServerException("No classpath content is available for job " +
-                        job.getJobInfo().getJobId());
-                }
-                this.addTaskClassServer(job.getId(), cp.getClasspathContent(), cp.isContainsJarFiles());
+                this.addTaskClassServer(job.getId(), job.getEnvironment().getJobClasspathCRC());
             }
         } catch (ClassServerException e) {
             throw new IllegalStateException("Cannot create TaskClassServer for job " +
@@ -1547,6 +1734,13 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
         if (job != null) {
             job.setRemovedTime(System.currentTimeMillis());
 
+            // tasks of the finished jobs recovered as summaries are not loaded
+            Collection<TaskId> tasksIds = job.getHMTasks().keySet();
+            if (tasksIds.isEmpty() && job.getTotalNumberOfTasks() > 0 &&
+                PASchedulerProperties.SCHEDULER_JOB_LOGS_LOCATION.isSet()) {
+                tasksIds = dbManager.loadTasksIds(jobId);
+            }
+
             if (job.getStatus() == JobStatus.RUNNING) {
                 killJob(jobId);
             }
@@ -1555,6 +1749,7 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
             jobs.remove(jobId);
             runningJobs.remove(job);
             pendingJobs.remove(job);
+            eligibleTaskIndex.remove(jobId);
 
             // close log buffer
             AsyncAppender jobLog = this.jobsToBeLogged.remove(jobId);
@@ -1571,7 +1766,7 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
             if (PASchedulerProperties.SCHEDULER_JOB_LOGS_LOCATION.isSet()) {
                 String logsLocation = PASchedulerProperties
                         .getAbsolutePath(PASchedulerProperties.SCHEDULER_JOB_LOGS_LOCATION.getValueAsString());
-                for (TaskId t : job.getHMTasks().keySet()) {
+                for (TaskId t : tasksIds) {
                     File f = new File(logsLocation + t);
                     if (f.exists()) {
                         logger.info("Removing file " + f.getAbsolutePath());
@@ -1705,7 +1900,7 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
         //destroying running active object launcher
         logger.info("Killing all running task processes...");
         for (InternalJob j : runningJobs) {
-            for (InternalTask td : j.getITasks()) {
+            for (InternalTask td : j.getITasksView()) {
                 if (td.getStatus() == TaskStatus.RUNNING) {
                     try {
                         NodeSet nodes = td.getExecuterInformations().getNodes();
@@ -1737,6 +1932,7 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
         jobs.clear();
         pendingJobs.clear();
         runningJobs.clear();
+        eligibleTaskIndex.clear();
         jobsToBeLogged.clear();
         currentlyRunningTasks.clear();
         logger.info("Terminating logging service...");
@@ -1874,6 +2070,16 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
             throw new UnknownJobException(jobId);
         }
 
+        if (job.getHMTasks().isEmpty() && job.getTotalNumberOfTasks() > 0) {
+            // finished job recovered as a summary, none of its tasks is running
+            for (TaskId taskId : dbManager.loadTasksIds(jobId)) {
+                if (taskId.getReadableName().equals(taskName)) {
+                    return false;
+                }
+            }
+            throw new UnknownTaskException("'" + taskName + "' does not exist in this job.");
+        }
+
         InternalTask task = job.getTask(taskName);
 
         if (task.getStatus() == TaskStatus.RUNNING) {
@@ -1891,6 +2097,7 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
         jlogger.info(jobId, "request to change the priority to " + priority);
         InternalJob job = jobs.get(jobId);
         job.setPriority(priority);
+        eligibleTaskIndex.priorityChanged(jobId);
 
         dbManager.changeJobPriority(jobId, priority);
 
@@ -2075,18 +2282,21 @@ public class SchedulerCore implements SchedulerCoreMethods, TaskTerminateNotific
      */
     private void recover() {
         SchedulerStateRecoverHelper.RecoveredSchedulerState recoveredState = new SchedulerStateRecoverHelper(
-            dbManager).recover();
+            dbManager).recover(false);
 
         this.jobs = new HashMap<JobId, InternalJob>();
 
         this.pendingJobs = recoveredState.getPendingJobs();
         this.runningJobs = recoveredState.getRunningJobs();
 
+        this.eligibleTaskIndex.clear();
         for (InternalJob job : pendingJobs) {
             jobs.put(job.getId(), job);
+            eligibleTaskIndex.add(job.getJobDescriptor(), false);
         }
         for (InternalJob job : runningJobs) {
             jobs.put(job.getId(), job);
+            eligibleTaskIndex.add(job.getJobDescriptor(), true);
         }
 
         for (InternalJob job : jobs.values()) {
@@ -40,13 +40,18 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.lang.reflect.Method;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
 import org.objectweb.proactive.Body;
@@ -60,6 +65,7 @@ import org.objectweb.proactive.core.body.request.Request;
 import org.objectweb.proactive.core.mop.MOP;
 import org.objectweb.proactive.extensions.annotation.ActiveObject;
 import org.ow2.proactive.authentication.crypto.Credentials;
+import org.ow2.proactive.db.DatabaseManagerException;
 import org.ow2.proactive.permissions.MethodCallPermission;
 import org.ow2.proactive.policy.ClientsPolicy;
 import org.ow2.proactive.scheduler.authentication.SchedulerAuthentication;
@@ -70,6 +76,8 @@ import org.ow2.proactive.scheduler.common.SchedulerConstants;
 import org.ow2.proactive.scheduler.common.SchedulerEvent;
 import org.ow2.proactive.scheduler.common.SchedulerEventListener;
 import org.ow2.proactive.scheduler.common.SchedulerState;
+import org.ow2.proactive.scheduler.common.SchedulerStateDelta;
+import org.ow2.proactive.scheduler.common.SchedulerStatePage;
 import org.ow2.proactive.scheduler.common.SchedulerStatus;
 import org.ow2.proactive.scheduler.common.exception.AlreadyConnectedException;
 import org.ow2.proactive.scheduler.common.exception.JobAlreadyFinishedException;
@@ -81,6 +89,7 @@ import org.ow2.proactive.scheduler.common.exception.SubmissionClosedException;
 import org.ow2.proactive.scheduler.common.exception.UnknownJobException;
 import org.ow2.proactive.scheduler.common.exception.UnknownTaskException;
 import org.ow2.proactive.scheduler.common.job.Job;
+import org.ow2.proactive.scheduler.common.job.JobFilter;
 import org.ow2.proactive.scheduler.common.job.JobId;
 import org.ow2.proactive.scheduler.common.job.JobInfo;
 import org.ow2.proactive.scheduler.common.job.JobPriority;
@@ -183,8 +192,36 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
     private SchedulerStateImpl sState;
     private Map<JobId, JobState> jobsMap;
 
+    /** Revision of the scheduler state, incremented on each change */
+    private long stateRevision;
+    /** Revision of the last change of each job */
+    private Map<JobId, Long> jobRevisions;
+    /** Jobs by revision of their last change */
+    private TreeMap<Long, JobId> changedJobs;
+    /** Last removed jobs by revision of their removal */
+    private TreeMap<Long, RemovedJob> removedJobs;
+    /** Deltas from a revision older than this one may miss removed jobs */
+    private long oldestDeltaRevision;
+
+    /** Number of removed jobs remembered to compute state deltas */
+    private static final int REMOVED_JOBS_HISTORY_SIZE = 10000;
+
+    /** A job removed from the state, remembered to compute deltas */
+    private static final class RemovedJob {
+        private final JobId id;
+        private final String owner;
+
+        private RemovedJob(JobId id, String owner) {
+            this.id = id;
+            this.owner = owner;
+        }
+    }
+
     private SchedulerDBManager dbManager;
 
+    /** Full states of the finished jobs recovered as summaries */
+    private FinishedJobStateCache finishedJobStateCache;
+
     /* ########################################################################################### */
     /*                                                                                             */
     /* ################################## SCHEDULER CONSTRUCTION ################################# */
@@ -212,8 +249,12 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
         this.dirtyList = new HashSet<UniqueID>();
         this.currentJobToSubmit = new InternalJobWrapper();
         this.accountsManager = new SchedulerAccountsManager(dbManager);
-        this.jmxHelper = new SchedulerJMXHelper(this.accountsManager);
+        this.jmxHelper = new SchedulerJMXHelper(this.accountsManager, this.dbManager);
         this.jobsMap = new HashMap<JobId, JobState>();
+        this.jobRevisions = new HashMap<JobId, Long>();
+        this.changedJobs = new TreeMap<Long, JobId>();
+        this.removedJobs = new TreeMap<Long, RemovedJob>();
+        this.finishedJobStateCache = new FinishedJobStateCache(dbManager);
 
         logger.info("Creating scheduler Front-end...");
         this.rmURL = rmURL;
@@ -279,6 +320,8 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
      * Called by the scheduler core to recover the front-end.
      * This method may have to rebuild the different list of userIdentification
      * and job/user association.
+     * Finished jobs may be recovered as summaries without their tasks, their full
+     * state is then loaded from the database when it is requested.
      * 
      * @param jobList the jobList that may appear in this front-end.
      */
@@ -298,6 +341,9 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
         }
         for (JobState js : sState.getFinishedJobs()) {
             prepare(jobStates, js, true);
+            if (js.getTasks().isEmpty() && js.getTotalNumberOfTasks() > 0) {
+                finishedJobStateCache.addSummary(js);
+            }
         }
 
         // rebuild JMX object
@@ -319,6 +365,7 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
         IdentifiedJob ij = new IdentifiedJob(js.getId(), uIdent);
         jobs.put(js.getId(), ij);
         jobsMap.put(js.getId(), js);
+        jobChanged(js.getId());
         ij.setFinished(finished);
     }
 
@@ -531,6 +578,31 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @ImmediateService
+    public byte[] getTaskResultValuePart(String jobId, String taskName, long offset, int length)
+            throws NotConnectedException, UnknownJobException, UnknownTaskException, PermissionException {
+        JobId id = JobIdImpl.makeJobId(jobId);
+
+        //checking permissions
+        checkJobOwner("getTaskResultValuePart", id,
+                "You do not have permission to get the task result of this job !");
+
+        if (offset < 0 || length <= 0) {
+            throw new IllegalArgumentException("Offset must be 0 or greater and length greater than 0.");
+        }
+        length = Math.min(length, SchedulerConstants.TASK_RESULT_VALUE_PART_MAX_LENGTH);
+
+        //reading the part directly from the database or the result store, the core is not involved
+        try {
+            return dbManager.readTaskResultValue(id, taskName, offset, length);
+        } catch (DatabaseManagerException e) {
+            throw new UnknownTaskException("Unknown task " + taskName + ", job: " + jobId);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -671,6 +743,95 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public SchedulerStatePage getJobs(JobFilter filter, int offset, int limit) throws NotConnectedException,
+            PermissionException {
+        //checking permissions
+        UserIdentificationImpl ui = checkPermission("getState", "You do not have permission to get the state !");
+        boolean myJobsOnly = filter != null && filter.isMyJobsOnly();
+        checkOwnStatePermission(myJobsOnly, ui);
+
+        List<JobState> matching = new ArrayList<JobState>();
+        for (JobState js : jobsMap.values()) {
+            if ((!myJobsOnly || ui.getUsername().equals(js.getOwner())) &&
+                (filter == null || filter.matches(js))) {
+                matching.add(js);
+            }
+        }
+        Collections.sort(matching, new Comparator<JobState>() {
+            public int compare(JobState js1, JobState js2) {
+                return js1.getId().compareTo(js2.getId());
+            }
+        });
+
+        int from = Math.min(Math.max(offset, 0), matching.size());
+        int to = Math.min(from + Math.max(limit, 0), matching.size());
+        List<JobState> page = new ArrayList<JobState>(to - from);
+        for (JobState js : matching.subList(from, to)) {
+            page.add(finishedJobStateCache.getJobState(js));
+        }
+        return new SchedulerStatePage(page, matching.size(), stateRevision, sState.getStatus());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public SchedulerStateDelta getStateDelta(long revision, boolean myJobsOnly) throws NotConnectedException,
+            PermissionException {
+        //checking permissions
+        UserIdentificationImpl ui = checkPermission("getState", "You do not have permission to get the state !");
+        checkOwnStatePermission(myJobsOnly, ui);
+
+        List<JobState> updated = new ArrayList<JobState>();
+        for (JobId id : changedJobs.tailMap(revision, false).values()) {
+            JobState js = jobsMap.get(id);
+            if (!myJobsOnly || ui.getUsername().equals(js.getOwner())) {
+                updated.add(js);
+            }
+        }
+        List<JobId> removed = new ArrayList<JobId>();
+        for (RemovedJob job : removedJobs.tailMap(revision, false).values()) {
+            if (!myJobsOnly || ui.getUsername().equals(job.owner)) {
+                removed.add(job.id);
+            }
+        }
+        return new SchedulerStateDelta(revision, stateRevision, revision >= oldestDeltaRevision, sState
+                .getStatus(), updated, removed);
+    }
+
+    /**
+     * Records a new revision of the given job.
+     *
+     * @param id the job that changed
+     */
+    private void jobChanged(JobId id) {
+        stateRevision++;
+        Long previous = jobRevisions.put(id, stateRevision);
+        if (previous != null) {
+            changedJobs.remove(previous);
+        }
+        changedJobs.put(stateRevision, id);
+    }
+
+    /**
+     * Records the removal of the given job.
+     *
+     * @param js the removed job
+     */
+    private void jobRemoved(JobState js) {
+        stateRevision++;
+        Long previous = jobRevisions.remove(js.getId());
+        if (previous != null) {
+            changedJobs.remove(previous);
+        }
+        removedJobs.put(stateRevision, new RemovedJob(js.getId(), js.getOwner()));
+        if (removedJobs.size() > REMOVED_JOBS_HISTORY_SIZE) {
+            oldestDeltaRevision = removedJobs.pollFirstEntry().getKey();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -993,7 +1154,7 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
     public JobState getJobState(JobId jobId) throws NotConnectedException, UnknownJobException,
             PermissionException {
         checkJobOwner("getJobState", jobId, "You do not have permission to get the state of this job !");
-        return jobsMap.get(jobId);
+        return finishedJobStateCache.getJobState(jobsMap.get(jobId));
     }
 
     /**
@@ -1365,6 +1526,7 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
                     eventType);
                 return;
         }
+        stateRevision++;
         // send the event for all case, except default
         dispatchSchedulerStateUpdated(eventType);
         this.jmxHelper.getSchedulerRuntimeMBean().schedulerStateUpdatedEvent(eventType);
@@ -1376,6 +1538,7 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
     public void jobSubmitted(JobState job) {
         JobState storedJobState = new ClientJobState(job);
         jobsMap.put(job.getId(), storedJobState);
+        jobChanged(job.getId());
         sState.getPendingJobs().add(storedJobState);
         dispatchJobSubmitted(job);
         this.jmxHelper.getSchedulerRuntimeMBean().jobSubmittedEvent(job);
@@ -1387,6 +1550,7 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
     public void jobStateUpdated(String owner, NotificationData<JobInfo> notification) {
         JobState js = jobsMap.get(notification.getData().getJobId());
         js.update(notification.getData());
+        jobChanged(js.getId());
         switch (notification.getEventType()) {
             case JOB_PENDING_TO_RUNNING:
                 sState.getPendingJobs().remove(js);
@@ -1422,6 +1586,8 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
                 //removing jobs from the global list : this job is no more managed
                 sState.getFinishedJobs().remove(js);
                 jobsMap.remove(js.getId());
+                finishedJobStateCache.remove(js.getId());
+                jobRemoved(js);
                 jobs.remove(notification.getData().getJobId());
                 dispatchJobStateUpdated(owner, notification);
                 this.jmxHelper.getSchedulerRuntimeMBean().jobStateUpdatedEvent(notification);
@@ -1437,6 +1603,7 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
      */
     public void taskStateUpdated(String owner, NotificationData<TaskInfo> notification) {
         jobsMap.get(notification.getData().getJobId()).update(notification.getData());
+        jobChanged(notification.getData().getJobId());
         switch (notification.getEventType()) {
             case TASK_PENDING_TO_RUNNING:
             case TASK_RUNNING_TO_FINISHED:
@@ -1508,7 +1675,7 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
                 result.append("================= Job " + jobId + " logs =================\n");
                 result.append(new Scanner(jobLogsFile).useDelimiter("\\Z").next());
 
-                for (TaskState t : jobsMap.get(id).getTasks()) {
+                for (TaskState t : finishedJobStateCache.getJobState(jobsMap.get(id)).getTasks()) {
                     result.append("\n================ Task " + t.getId() + " logs =================\n");
                     result.append(getTaskServerLogs(t.getId()));
                 }
@@ -1531,7 +1698,7 @@ public class SchedulerFrontend implements InitActive, SchedulerStateUpdate, Sche
         JobId id = JobIdImpl.makeJobId(jobId);
         checkJobOwner("getTaskServerLogs", id, "You do not have permission to get the task logs of this job");
 
-        for (TaskState t : jobsMap.get(id).getTasks()) {
+        for (TaskState t : finishedJobStateCache.getJobState(jobsMap.get(id)).getTasks()) {
             if (t.getName().equals(taskName)) {
                 return getTaskServerLogs(t.getId());
             }
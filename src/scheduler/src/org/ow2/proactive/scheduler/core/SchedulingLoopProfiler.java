@@ -0,0 +1,250 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.core;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.ow2.proactive.jmx.LogHistogram;
+
+
+/**
+ * Measures the time spent in each phase of the scheduling loop of the scheduler core.
+ * <p>
+ * The time of each phase is summed over a scheduling cycle (one iteration of the main loop)
+ * and recorded once per cycle in a histogram, so the histograms tell which phase limits the
+ * number of tasks started per cycle. Cycles in which no task was eligible and no termination was
+ * served are not recorded, they would hide the busy ones.
+ * <p>
+ * Histograms are rolling: they are renewed at each window, and the reported values cover
+ * the current and the previous windows. Times are recorded in microseconds.
+ * <p>
+ * Phases are measured by the scheduler core thread only, statistics can be read from any thread.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class SchedulingLoopProfiler {
+
+    /** Phases of a scheduling cycle */
+    public enum Phase {
+        /** Serving the requests of the clients */
+        SERVE_REQUESTS,
+        /** Ordering the eligible tasks with the policy */
+        POLICY,
+        /** Getting the state of the resource manager */
+        RM_STATE,
+        /** Getting the nodes from the resource manager */
+        GET_NODES,
+        /** Loading and initializing the executable containers of the tasks */
+        LOAD_AND_INIT,
+        /** Creating the task launchers and starting the tasks */
+        CREATE_EXECUTION,
+        /** Serving the terminations of the tasks */
+        TERMINATE,
+        /** The whole cycle */
+        CYCLE
+    }
+
+    /** Length of a window in milliseconds */
+    private final long window;
+
+    /** Time spent in each phase during the current cycle, in nanoseconds */
+    private final long[] cycleTimes = new long[Phase.values().length];
+    private final boolean[] cycleMeasured = new boolean[Phase.values().length];
+    private long cycleStart;
+    private boolean cycleActive;
+    private int cycleStartedTasks;
+
+    /** Histograms of the current and previous windows */
+    private Map<Phase, LogHistogram> current;
+    private Map<Phase, LogHistogram> previous;
+    private long windowStart;
+
+    /** Statistics since the creation of the profiler */
+    private long cyclesCount;
+    private long startedTasksCount;
+    private final long[] totalTimes = new long[Phase.values().length];
+
+    /**
+     * Create a new profiler.
+     *
+     * @param window the length of a window of the rolling histograms in milliseconds
+     */
+    public SchedulingLoopProfiler(long window) {
+        this.window = window;
+        this.current = createHistograms();
+        this.previous = createHistograms();
+        this.windowStart = System.currentTimeMillis();
+    }
+
+    private static Map<Phase, LogHistogram> createHistograms() {
+        Map<Phase, LogHistogram> histograms = new EnumMap<Phase, LogHistogram>(Phase.class);
+        for (Phase phase : Phase.values()) {
+            histograms.put(phase, new LogHistogram());
+        }
+        return histograms;
+    }
+
+    /**
+     * Start a new scheduling cycle.
+     */
+    public void cycleStarted() {
+        for (int i = 0; i < cycleTimes.length; i++) {
+            cycleTimes[i] = 0;
+            cycleMeasured[i] = false;
+        }
+        cycleActive = false;
+        cycleStartedTasks = 0;
+        cycleStart = System.nanoTime();
+    }
+
+    /**
+     * Add the time spent in a phase to the current cycle.
+     *
+     * @param phase the phase which ended
+     * @param start the value of {@link System#nanoTime()} when the phase started
+     */
+    public void phaseEnded(Phase phase, long start) {
+        cycleTimes[phase.ordinal()] += System.nanoTime() - start;
+        cycleMeasured[phase.ordinal()] = true;
+    }
+
+    /**
+     * Mark the current cycle as active: some tasks were eligible or some terminations were served.
+     *
+     * @param startedTasks the number of tasks started during the cycle
+     */
+    public void cycleActive(int startedTasks) {
+        cycleActive = true;
+        cycleStartedTasks += startedTasks;
+    }
+
+    /**
+     * End the current cycle and record the time of its phases if it was active.
+     */
+    public void cycleEnded() {
+        if (!cycleActive) {
+            return;
+        }
+        phaseEnded(Phase.CYCLE, cycleStart);
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now - windowStart >= window) {
+                // the previous window is discarded if no cycle was recorded during the last one
+                previous = (now - windowStart >= 2 * window) ? createHistograms() : current;
+                current = createHistograms();
+                windowStart = now;
+            }
+            for (Phase phase : Phase.values()) {
+                int i = phase.ordinal();
+                if (cycleMeasured[i]) {
+                    current.get(phase).record(cycleTimes[i] / 1000);
+                    totalTimes[i] += cycleTimes[i];
+                }
+            }
+            cyclesCount++;
+            startedTasksCount += cycleStartedTasks;
+        }
+    }
+
+    /**
+     * Return the number of recorded cycles since the creation of the profiler.
+     *
+     * @return the number of recorded cycles.
+     */
+    public synchronized long getCyclesCount() {
+        return cyclesCount;
+    }
+
+    /**
+     * Return the number of tasks started by the recorded cycles since the creation of the profiler.
+     *
+     * @return the number of started tasks.
+     */
+    public synchronized long getStartedTasksCount() {
+        return startedTasksCount;
+    }
+
+    /**
+     * Return the histogram of the time of the given phase per cycle, for the current and previous windows.
+     *
+     * @param phase the phase
+     * @return a copy of the histogram of the time of the phase, in microseconds.
+     */
+    public synchronized LogHistogram getHistogram(Phase phase) {
+        LogHistogram histogram = new LogHistogram();
+        histogram.add(previous.get(phase));
+        histogram.add(current.get(phase));
+        return histogram;
+    }
+
+    /**
+     * Return the total time spent in the given phase since the creation of the profiler.
+     *
+     * @param phase the phase
+     * @return the total time of the phase in microseconds.
+     */
+    public synchronized long getTotalTime(Phase phase) {
+        return totalTimes[phase.ordinal()] / 1000;
+    }
+
+    /**
+     * Return the statistics of each phase as a printable table.
+     *
+     * @return the statistics of each phase.
+     */
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        long total = getTotalTime(Phase.CYCLE);
+        out.append("Scheduling loop profile: ").append(getCyclesCount()).append(" cycles, ").append(
+                getStartedTasksCount()).append(" started tasks\n");
+        out.append("Times per cycle in microseconds over the last ").append(window / 1000).append(
+                " to ").append(2 * window / 1000).append(" seconds, share of the total time\n");
+        out.append(String.format("  %1$-18s%2$10s%3$10s%4$10s%5$10s%6$10s%7$8s\n", "Phase", "Cycles",
+                "Mean", "P50", "P95", "P99", "Share"));
+        for (Phase phase : Phase.values()) {
+            LogHistogram histogram = getHistogram(phase);
+            long share = (total == 0) ? 0 : getTotalTime(phase) * 100 / total;
+            out.append(String.format("  %1$-18s%2$10d%3$10d%4$10d%5$10d%6$10d%7$7d%%\n", phase, histogram
+                    .getCount(), histogram.getMean(), histogram.getPercentile(50), histogram
+                    .getPercentile(95), histogram.getPercentile(99), share));
+        }
+        return out.toString();
+    }
+
+}
@@ -69,7 +69,6 @@ import org.ow2.proactive.scheduler.core.rmproxies.RMProxyCreationException;
 import org.ow2.proactive.scheduler.core.rmproxies.UserRMProxy;
 import org.ow2.proactive.scheduler.descriptor.EligibleTaskDescriptor;
 import org.ow2.proactive.scheduler.descriptor.EligibleTaskDescriptorImpl;
-import org.ow2.proactive.scheduler.descriptor.JobDescriptor;
 import org.ow2.proactive.scheduler.descriptor.TaskDescriptor;
 import org.ow2.proactive.scheduler.job.InternalJob;
 import org.ow2.proactive.scheduler.task.ExecutableContainer;
@@ -154,13 +153,16 @@ final class SchedulingMethodImpl implements SchedulingMethod {
         //Number of time to retry an active object creation before leaving scheduling loop
         activeObjectCreationRetryTimeNumber = ACTIVEOBJECT_CREATION_RETRY_TIME_NUMBER;
 
-        //get job Descriptor list with eligible jobs (running and pending)
-        ArrayList<JobDescriptor> jobDescriptorList = createJobDescriptorList();
+        //eligible jobs are running jobs, and pending jobs if scheduler is not paused
+        core.eligibleTaskIndex.setPendingJobsIncluded(core.status != SchedulerStatus.PAUSED);
 
-        //ask the policy all the tasks to be schedule according to the jobs list.
+        //ask the policy all the tasks to be schedule according to the eligible task index.
         //and filter them using internal policy
+        SchedulingLoopProfiler profiler = core.schedulingProfiler;
+        long phaseStart = System.nanoTime();
         LinkedList<EligibleTaskDescriptor> taskRetrivedFromPolicy = internalPolicy.filter(core.policy
-                .getOrderedTasks(jobDescriptorList));
+                .getOrderedTasksIterator(core.eligibleTaskIndex));
+        profiler.phaseEnded(SchedulingLoopProfiler.Phase.POLICY, phaseStart);
 
         //if there is no task to scheduled, return
         if (taskRetrivedFromPolicy == null || taskRetrivedFromPolicy.size() == 0) {
@@ -171,7 +173,9 @@ final class SchedulingMethodImpl implements SchedulingMethod {
 
         while (!taskRetrivedFromPolicy.isEmpty()) {
             //get rmState and update it in scheduling policy
+            phaseStart = System.nanoTime();
             RMState rmState = core.rmProxiesManager.getSchedulerRMProxy().getState();
+            profiler.phaseEnded(SchedulingLoopProfiler.Phase.RM_STATE, phaseStart);
             core.policy.setRMState(rmState);
             internalPolicy.RMState = rmState;
             int freeResourcesNb = rmState.getFreeNodesNumber();
@@ -194,24 +198,45 @@ final class SchedulingMethodImpl implements SchedulingMethod {
                 break;
             }
 
+            phaseStart = System.nanoTime();
             NodeSet nodeSet = getRMNodes(neededResourcesNumber, tasksToSchedule);
+            profiler.phaseEnded(SchedulingLoopProfiler.Phase.GET_NODES, phaseStart);
 
             //start selected tasks
             Node node = null;
             InternalJob currentJob = null;
             try {
+                Map<TaskId, ExecutableContainer> containers = null;
+                if (nodeSet != null && !nodeSet.isEmpty()) {
+                    // load the executable containers of every selected task at once
+                    phaseStart = System.nanoTime();
+                    try {
+                        containers = loadExecutableContainers(tasksToSchedule);
+                    } catch (Exception e) {
+                        // each task will be loaded on its own
+                        logger.warn("Unable to load the executable containers of the tasks to start", e);
+                    }
+                    profiler.phaseEnded(SchedulingLoopProfiler.Phase.LOAD_AND_INIT, phaseStart);
+                }
                 while (nodeSet != null && !nodeSet.isEmpty()) {
                     EligibleTaskDescriptor taskDescriptor = tasksToSchedule.removeFirst();
                     currentJob = core.jobs.get(taskDescriptor.getJobId());
                     InternalTask internalTask = currentJob.getIHMTasks().get(taskDescriptor.getTaskId());
 
                     // load and Initialize the executable container
-                    loadAndInit(currentJob, internalTask);
+                    phaseStart = System.nanoTime();
+                    loadAndInit(currentJob, internalTask, containers);
+                    profiler.phaseEnded(SchedulingLoopProfiler.Phase.LOAD_AND_INIT, phaseStart);
 
                     //create launcher and try to start the task
                     node = nodeSet.get(0);
                     numberOfTaskStarted++;
-                    createExecution(nodeSet, node, currentJob, internalTask, taskDescriptor);
+                    phaseStart = System.nanoTime();
+                    try {
+                        createExecution(nodeSet, node, currentJob, internalTask, taskDescriptor);
+                    } finally {
+                        profiler.phaseEnded(SchedulingLoopProfiler.Phase.CREATE_EXECUTION, phaseStart);
+                    }
 
                     //if every task that should be launched have been removed
                     if (tasksToSchedule.isEmpty()) {
@@ -235,6 +260,7 @@ final class SchedulingMethodImpl implements SchedulingMethod {
                     logger.info("Unable to get back the nodeSet to the RM", e2);
                 }
                 if (--activeObjectCreationRetryTimeNumber == 0) {
+                    profiler.cycleActive(numberOfTaskStarted);
                     return numberOfTaskStarted;
                 }
             } catch (Exception e1) {
@@ -249,33 +275,10 @@ final class SchedulingMethodImpl implements SchedulingMethod {
                 }
             }
         }
+        profiler.cycleActive(numberOfTaskStarted);
         return numberOfTaskStarted;
     }
 
-    /**
-     * Create the eligible job descriptor list.
-     * This list contains every eligible jobs containing eligible tasks.
-     *
-     * @return eligible job descriptor list
-     */
-    protected ArrayList<JobDescriptor> createJobDescriptorList() {
-        ArrayList<JobDescriptor> list = new ArrayList<JobDescriptor>();
-
-        //add running jobs
-        for (InternalJob j : core.runningJobs) {
-            list.add(j.getJobDescriptor());
-        }
-
-        //if scheduler is not paused, add pending jobs
-        if (core.status != SchedulerStatus.PAUSED) {
-            for (InternalJob j : core.pendingJobs) {
-                list.add(j.getJobDescriptor());
-            }
-        }
-
-        return list;
-    }
-
     /**
      * Extract the n first compatible tasks from the first argument list,
      * and return them according that the extraction is stopped when the maxResource number is reached.<br>
@@ -452,6 +455,7 @@ final class SchedulingMethodImpl implements SchedulingMethod {
                 ij.start();
                 core.pendingJobs.remove(ij);
                 core.runningJobs.add(ij);
+                core.eligibleTaskIndex.jobStarted(ij.getId());
                 //update tasks events list and send it to front-end
                 core.updateTaskInfosList(ij, SchedulerEvent.JOB_PENDING_TO_RUNNING);
                 jlogger.info(ij.getId(), "started");
@@ -461,15 +465,37 @@ final class SchedulingMethodImpl implements SchedulingMethod {
         }
     }
 
+    /**
+     * Load the executable containers of the tasks to be started in a few database queries.
+     *
+     * @param tasksToSchedule the tasks to be started
+     * @return the executable container of each task
+     */
+    protected Map<TaskId, ExecutableContainer> loadExecutableContainers(
+            List<EligibleTaskDescriptor> tasksToSchedule) {
+        List<InternalTask> tasks = new ArrayList<InternalTask>(tasksToSchedule.size());
+        for (EligibleTaskDescriptor taskDescriptor : tasksToSchedule) {
+            tasks.add(core.jobs.get(taskDescriptor.getJobId()).getIHMTasks().get(
+                    taskDescriptor.getTaskId()));
+        }
+        return core.getDBManager().loadExecutableContainers(tasks);
+    }
+
     /**
      * Load and initialize the task to be started
      *
      * @param job the job owning the task to be initialized
      * @param task the task to be initialized
+     * @param containers the already loaded executable containers, the container of the task
+     *          is removed from it. If it is not there, it is loaded from the database.
      */
-    protected void loadAndInit(InternalJob job, InternalTask task) {
+    protected void loadAndInit(InternalJob job, InternalTask task,
+            Map<TaskId, ExecutableContainer> containers) {
         tlogger.debug(task.getId(), "initializing the executable container");
-        ExecutableContainer container = core.getDBManager().loadExecutableContainer(task);
+        ExecutableContainer container = containers == null ? null : containers.remove(task.getId());
+        if (container == null) {
+            container = core.getDBManager().loadExecutableContainer(task);
+        }
         task.setExecutableContainer(container);
 
         ExecutableContainerInitializer eci = new ExecutableContainerInitializer();
@@ -584,6 +610,7 @@ final class SchedulingMethodImpl implements SchedulingMethod {
             job.start();
             core.pendingJobs.remove(job);
             core.runningJobs.add(job);
+            core.eligibleTaskIndex.jobStarted(job.getId());
             //update tasks events list and send it to front-end
             core.updateTaskInfosList(job, SchedulerEvent.JOB_PENDING_TO_RUNNING);
             jlogger.info(job.getId(), "started");
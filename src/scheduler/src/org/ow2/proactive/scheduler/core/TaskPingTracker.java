@@ -0,0 +1,292 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.core;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.ow2.proactive.scheduler.common.task.TaskId;
+
+
+/**
+ * Keeps the state of the progress pings of the running tasks and the statistics of their latency.
+ * <p>
+ * Each running task is pinged at its own interval: the interval starts at the node ping frequency and
+ * is doubled each time the progress of the task did not change, up to a maximum interval.
+ * A task is never pinged again while its previous ping has not returned, unless this ping
+ * has been cancelled before being started.
+ * <p>
+ * A ping which does not return in time is a timeout, and so is each following round of pings at which
+ * this ping has still not returned. A task which reached the maximum number of consecutive timeouts
+ * is unresponsive, its node is considered as failed. The count is reset when a ping of the task returns.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TaskPingTracker {
+
+    /** Upper bounds (in milliseconds) of the buckets of the ping latency distribution, the last bucket is unbounded */
+    public static final long[] LATENCY_BUCKETS = { 10, 100, 1000, 10000 };
+
+    /** Interval of a task which progress changes */
+    private final long baseInterval;
+
+    /** Interval of a task which progress does not change anymore */
+    private final long maxInterval;
+
+    /** Number of consecutive timeouts after which a task is unresponsive */
+    private final int maxTimeouts;
+
+    /** Ping state of each running task */
+    private final Map<TaskId, PingState> states;
+
+    /** Latency statistics */
+    private long pingsCount;
+    private long timeoutsCount;
+    private long cumulativeLatency;
+    private long maxLatency;
+    private final long[] distribution;
+
+    /**
+     * Create a new tracker.
+     *
+     * @param baseInterval the ping interval of a task which progress changes, in milliseconds
+     * @param maxInterval the maximum ping interval of a task which progress does not change, in milliseconds
+     * @param maxTimeouts the number of consecutive timeouts after which a task is unresponsive
+     */
+    public TaskPingTracker(long baseInterval, long maxInterval, int maxTimeouts) {
+        this.baseInterval = baseInterval;
+        this.maxInterval = Math.max(baseInterval, maxInterval);
+        this.maxTimeouts = Math.max(1, maxTimeouts);
+        this.states = new ConcurrentHashMap<TaskId, PingState>();
+        this.distribution = new long[LATENCY_BUCKETS.length + 1];
+    }
+
+    /**
+     * Check if the given task has to be pinged now, and mark its ping as started if so.
+     * If a timed out ping of the task is still running, it counts as one more timeout.
+     *
+     * @param taskId the running task
+     * @param now the current time in milliseconds
+     * @return true if the task has to be pinged, false otherwise.
+     */
+    public boolean startPing(TaskId taskId, long now) {
+        PingState state = states.get(taskId);
+        if (state == null) {
+            state = new PingState(baseInterval);
+            states.put(taskId, state);
+        }
+        synchronized (state) {
+            if (state.inProgress) {
+                if (state.timedOut && now >= state.nextPing) {
+                    state.timeouts++;
+                    state.nextPing = now + baseInterval;
+                    synchronized (this) {
+                        timeoutsCount++;
+                    }
+                }
+                return false;
+            }
+            if (now < state.nextPing) {
+                return false;
+            }
+            state.inProgress = true;
+            return true;
+        }
+    }
+
+    /**
+     * Terminate the ping of a task.
+     *
+     * @param taskId the pinged task
+     * @param latency the duration of the ping in milliseconds
+     * @param progressChanged true if the task progress changed since its previous ping
+     */
+    public void endPing(TaskId taskId, long latency, boolean progressChanged) {
+        PingState state = states.get(taskId);
+        if (state != null) {
+            synchronized (state) {
+                state.inProgress = false;
+                state.timedOut = false;
+                state.timeouts = 0;
+                state.interval = progressChanged ? baseInterval : Math.min(state.interval * 2, maxInterval);
+                // pings are started every base interval, the next one is the first due after the interval
+                state.nextPing = System.currentTimeMillis() + state.interval - baseInterval;
+            }
+        }
+        synchronized (this) {
+            pingsCount++;
+            cumulativeLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKETS.length && latency >= LATENCY_BUCKETS[bucket]) {
+                bucket++;
+            }
+            distribution[bucket]++;
+        }
+    }
+
+    /**
+     * Record that the ping of a task did not return in time.
+     * If the ping was started, it keeps running and the task will not be pinged until this ping returns,
+     * otherwise the ping has been cancelled and the task can be pinged again right now.
+     *
+     * @param taskId the pinged task
+     * @param started true if the ping was started, false if it has been cancelled before
+     */
+    public void pingTimedOut(TaskId taskId, boolean started) {
+        PingState state = states.get(taskId);
+        if (state != null) {
+            synchronized (state) {
+                if (started) {
+                    // a ping which could not be started says nothing about the node
+                    state.timeouts++;
+                    state.timedOut = true;
+                    // each next round counts as a timeout while the ping does not return
+                    state.nextPing = System.currentTimeMillis();
+                } else {
+                    state.inProgress = false;
+                }
+            }
+        }
+        synchronized (this) {
+            timeoutsCount++;
+        }
+    }
+
+    /**
+     * Check if the given task reached the maximum number of consecutive timeouts.
+     *
+     * @param taskId the running task
+     * @return true if the node of the task has to be considered as failed, false otherwise.
+     */
+    public boolean isUnresponsive(TaskId taskId) {
+        PingState state = states.get(taskId);
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            return state.timeouts >= maxTimeouts;
+        }
+    }
+
+    /**
+     * Forget the ping state of a task, its next execution is pinged as a new task.
+     *
+     * @param taskId the task to forget
+     */
+    public void forget(TaskId taskId) {
+        states.remove(taskId);
+    }
+
+    /**
+     * Forget the tasks which are not running anymore.
+     *
+     * @param runningTasks the tasks currently running
+     */
+    public void retainAll(Set<TaskId> runningTasks) {
+        for (Iterator<TaskId> it = states.keySet().iterator(); it.hasNext();) {
+            if (!runningTasks.contains(it.next())) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Return the number of pings which returned.
+     *
+     * @return the number of pings which returned.
+     */
+    public synchronized long getPingsCount() {
+        return pingsCount;
+    }
+
+    /**
+     * Return the number of pings which did not return in time.
+     *
+     * @return the number of pings which did not return in time.
+     */
+    public synchronized long getTimeoutsCount() {
+        return timeoutsCount;
+    }
+
+    /**
+     * Return the mean latency of the pings in milliseconds.
+     *
+     * @return the mean latency of the pings in milliseconds.
+     */
+    public synchronized long getMeanLatency() {
+        return pingsCount == 0 ? 0 : cumulativeLatency / pingsCount;
+    }
+
+    /**
+     * Return the highest latency of the pings in milliseconds.
+     *
+     * @return the highest latency of the pings in milliseconds.
+     */
+    public synchronized long getMaxLatency() {
+        return maxLatency;
+    }
+
+    /**
+     * Return the number of pings in each bucket of latency, see {@link #LATENCY_BUCKETS}.
+     *
+     * @return the number of pings in each bucket of latency.
+     */
+    public synchronized long[] getLatencyDistribution() {
+        return distribution.clone();
+    }
+
+    private static class PingState {
+        // current interval between two pings
+        private long interval;
+        // earliest time of the next ping
+        private long nextPing;
+        // true while a ping is running
+        private boolean inProgress;
+        // true while the running ping is a timed out one
+        private boolean timedOut;
+        // number of consecutive timeouts
+        private int timeouts;
+
+        PingState(long interval) {
+            this.interval = interval;
+        }
+    }
+}
@@ -46,6 +46,7 @@ import org.ow2.proactive.authentication.crypto.CredData;
 import org.ow2.proactive.authentication.crypto.Credentials;
 import org.ow2.proactive.scheduler.common.task.TaskResult;
 import org.ow2.proactive.scheduler.job.InternalJob;
+import org.ow2.proactive.scheduler.task.ExecutableContainer;
 import org.ow2.proactive.scheduler.task.internal.InternalTask;
 import org.ow2.proactive.scheduler.task.launcher.TaskLauncher;
 import org.ow2.proactive.threading.CallableWithTimeoutAction;
@@ -103,8 +104,11 @@ public class TimedDoTaskAction implements CallableWithTimeoutAction<Void> {
     public Void call() throws Exception {
         try {
             fillContainerWithEncryption();
+            ExecutableContainer container = task.getExecutableContainer();
             // try launch the task
-            launcher.doTask(coreStub, task.getExecutableContainer(), parameters);
+            launcher.doTask(coreStub, container, parameters);
+            // the launcher has its own copy of the container
+            task.releaseExecutableContainer(container);
         } catch (Throwable e) {
             logger.warn("Failed to start task: " + e.getMessage(), e);
             restartTask();
@@ -0,0 +1,73 @@
+package org.ow2.proactive.scheduler.core.db;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+
+/**
+ * Accounting totals of a user, updated each time a task or a job of this user finishes
+ * so that reading an account does not require to scan the tasks and jobs tables.
+ */
+@Entity
+@Table(name = "USER_ACCOUNT")
+public class AccountData {
+
+    private String username;
+
+    private int taskCount;
+
+    private long taskDuration;
+
+    private int jobCount;
+
+    private long jobDuration;
+
+    @Id
+    @Column(name = "USERNAME")
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    @Column(name = "TASK_COUNT")
+    public int getTaskCount() {
+        return taskCount;
+    }
+
+    public void setTaskCount(int taskCount) {
+        this.taskCount = taskCount;
+    }
+
+    @Column(name = "TASK_DURATION")
+    public long getTaskDuration() {
+        return taskDuration;
+    }
+
+    public void setTaskDuration(long taskDuration) {
+        this.taskDuration = taskDuration;
+    }
+
+    @Column(name = "JOB_COUNT")
+    public int getJobCount() {
+        return jobCount;
+    }
+
+    public void setJobCount(int jobCount) {
+        this.jobCount = jobCount;
+    }
+
+    @Column(name = "JOB_DURATION")
+    public long getJobDuration() {
+        return jobDuration;
+    }
+
+    public void setJobDuration(long jobDuration) {
+        this.jobDuration = jobDuration;
+    }
+
+}
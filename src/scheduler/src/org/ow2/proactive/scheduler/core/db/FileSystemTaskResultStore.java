@@ -0,0 +1,148 @@
+package org.ow2.proactive.scheduler.core.db;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Task result store keeping each content in a compressed file of a local directory.
+ * <p>
+ * Contents are addressed by their SHA-1 digest: identical contents are written once.
+ * A content is first written in a temporary file which is then renamed, so a file named
+ * after a key is always complete.
+ */
+public class FileSystemTaskResultStore implements TaskResultStore {
+
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    /** Length of the gzip trailer field holding the size of the uncompressed content */
+    private static final int GZIP_SIZE_LENGTH = 4;
+
+    private final File directory;
+
+    /**
+     * Create a store writing its files in the given directory, which is created if needed.
+     *
+     * @param directory the directory of the files
+     * @throws IOException if the directory cannot be created
+     */
+    public FileSystemTaskResultStore(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create the result store directory " + directory);
+        }
+        this.directory = directory;
+    }
+
+    public String store(byte[] content) throws IOException {
+        String key = digest(content);
+        File file = fileOf(key);
+        if (file.exists()) {
+            return key;
+        }
+
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create directory " + dir);
+        }
+        File tmpFile = File.createTempFile(key, TMP_SUFFIX, dir);
+        try {
+            OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            try {
+                out.write(content);
+            } finally {
+                out.close();
+            }
+            // another thread may have stored the same content in the meantime
+            if (!tmpFile.renameTo(file) && !file.exists()) {
+                throw new IOException("Failed to rename " + tmpFile + " to " + file);
+            }
+        } finally {
+            if (tmpFile.exists()) {
+                tmpFile.delete();
+            }
+        }
+        return key;
+    }
+
+    public InputStream open(String key) throws IOException {
+        File file = fileOf(key);
+        if (!file.exists()) {
+            throw new FileNotFoundException("No stored content for key " + key + " (" + file + ")");
+        }
+        return new GZIPInputStream(new BufferedInputStream(new FileInputStream(file)));
+    }
+
+    /**
+     * The size is read from the trailer of the gzip file, exact as contents are byte arrays
+     * smaller than 4GB.
+     */
+    public long size(String key) throws IOException {
+        File file = fileOf(key);
+        if (!file.exists()) {
+            throw new FileNotFoundException("No stored content for key " + key + " (" + file + ")");
+        }
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            if (in.length() < GZIP_SIZE_LENGTH) {
+                throw new IOException("Invalid stored content for key " + key + " (" + file + ")");
+            }
+            in.seek(in.length() - GZIP_SIZE_LENGTH);
+            long size = 0;
+            for (int i = 0; i < GZIP_SIZE_LENGTH; i++) {
+                // little endian
+                size |= ((long) in.read()) << (8 * i);
+            }
+            return size;
+        } finally {
+            in.close();
+        }
+    }
+
+    public void remove(String key) throws IOException {
+        File file = fileOf(key);
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Failed to delete " + file);
+        }
+    }
+
+    /**
+     * Contents are spread in sub directories named after the first two characters of their key.
+     */
+    private File fileOf(String key) {
+        if (key.length() < 3 || key.indexOf(File.separatorChar) >= 0 || key.indexOf('/') >= 0) {
+            throw new IllegalArgumentException("Invalid key: " + key);
+        }
+        return new File(new File(directory, key.substring(0, 2)), key.substring(2));
+    }
+
+    private static String digest(byte[] content) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(DIGEST_ALGORITHM + " is not available: " + e.getMessage());
+        }
+        byte[] hash = digest.digest(content);
+        StringBuilder key = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16));
+            key.append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+}
@@ -0,0 +1,158 @@
+package org.ow2.proactive.scheduler.core.db;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ow2.proactive.scheduler.common.job.JobInfo;
+import org.ow2.proactive.scheduler.common.job.JobStatus;
+import org.ow2.proactive.scheduler.common.task.TaskInfo;
+import org.ow2.proactive.scheduler.common.task.TaskStatus;
+import org.ow2.proactive.scheduler.job.InternalJob;
+import org.ow2.proactive.scheduler.task.TaskResultImpl;
+import org.ow2.proactive.scheduler.task.internal.InternalTask;
+
+
+/**
+ * A job or task state transition to be written in the database.
+ * <p>
+ * Entries are snapshots: they only hold the values to persist, taken when the transition
+ * happens, so that they can be written later by the {@link SchedulerDBJournal} or replayed
+ * from the journal files after a restart. Each entry carries the whole mutable state of the
+ * job row, so only the last entry of a job has to update it when entries are written in batch.
+ */
+abstract class JournalEntry implements Serializable {
+
+    /** Entries are read back from the journal files written by a previous run */
+    private static final long serialVersionUID = 1L;
+
+    final long jobId;
+    final String owner;
+    final JobStatus jobStatus;
+    final long jobStartTime;
+    final long jobFinishedTime;
+    final int numberOfPendingTasks;
+    final int numberOfRunningTasks;
+    final int numberOfFinishedTasks;
+
+    JournalEntry(InternalJob job) {
+        JobInfo jobInfo = job.getJobInfo();
+        this.jobId = Long.valueOf(job.getId().value());
+        this.owner = job.getOwner();
+        this.jobStatus = jobInfo.getStatus();
+        this.jobStartTime = jobInfo.getStartTime();
+        this.jobFinishedTime = jobInfo.getFinishedTime();
+        this.numberOfPendingTasks = jobInfo.getNumberOfPendingTasks();
+        this.numberOfRunningTasks = jobInfo.getNumberOfRunningTasks();
+        this.numberOfFinishedTasks = jobInfo.getNumberOfFinishedTasks();
+    }
+
+    static long taskId(InternalTask task) {
+        return Long.valueOf(task.getId().value());
+    }
+
+    /**
+     * A task has been started on a node.
+     */
+    static final class TaskStarted extends JournalEntry {
+
+        private static final long serialVersionUID = 1L;
+
+        final boolean taskStatusToPending;
+        final long taskId;
+        final TaskStatus taskStatus;
+        final long startTime;
+        final long finishedTime;
+        final String executionHostName;
+
+        TaskStarted(InternalJob job, InternalTask task, boolean taskStatusToPending) {
+            super(job);
+            TaskInfo taskInfo = task.getTaskInfo();
+            this.taskStatusToPending = taskStatusToPending;
+            this.taskId = taskId(task);
+            this.taskStatus = taskInfo.getStatus();
+            this.startTime = taskInfo.getStartTime();
+            this.finishedTime = taskInfo.getFinishedTime();
+            this.executionHostName = taskInfo.getExecutionHostName();
+        }
+
+    }
+
+    /**
+     * A task is waiting to be restarted.
+     */
+    static final class TaskRestarted extends JournalEntry {
+
+        private static final long serialVersionUID = 1L;
+
+        final long taskId;
+        final TaskStatus taskStatus;
+        final int numberOfExecutionLeft;
+        final int numberOfExecutionOnFailureLeft;
+        final TaskResultImpl result;
+
+        TaskRestarted(InternalJob job, InternalTask task, TaskResultImpl result) {
+            super(job);
+            TaskInfo taskInfo = task.getTaskInfo();
+            this.taskId = taskId(task);
+            this.taskStatus = taskInfo.getStatus();
+            this.numberOfExecutionLeft = taskInfo.getNumberOfExecutionLeft();
+            this.numberOfExecutionOnFailureLeft = taskInfo.getNumberOfExecutionOnFailureLeft();
+            this.result = result;
+        }
+
+    }
+
+    /**
+     * A task has finished, possibly changing the state of other tasks of the job.
+     */
+    static final class TaskFinished extends JournalEntry {
+
+        private static final long serialVersionUID = 1L;
+
+        final List<TaskRow> tasks;
+        final long finishedTaskId;
+        final TaskResultImpl result;
+
+        TaskFinished(InternalJob job, List<InternalTask> modifiedTasks, InternalTask finishedTask,
+                TaskResultImpl result) {
+            super(job);
+            this.tasks = new ArrayList<TaskRow>(modifiedTasks.size());
+            for (InternalTask task : modifiedTasks) {
+                tasks.add(new TaskRow(jobId, owner, task));
+            }
+            this.finishedTaskId = (finishedTask == null) ? -1 : taskId(finishedTask);
+            this.result = result;
+        }
+
+    }
+
+    /**
+     * The finished state of one task row.
+     */
+    static final class TaskRow implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final long jobId;
+        final String owner;
+        final long taskId;
+        final TaskStatus status;
+        final long startTime;
+        final long finishedTime;
+        final long executionDuration;
+
+        TaskRow(long jobId, String owner, InternalTask task) {
+            TaskInfo taskInfo = task.getTaskInfo();
+            this.jobId = jobId;
+            this.owner = owner;
+            this.taskId = taskId(task);
+            this.status = taskInfo.getStatus();
+            this.startTime = taskInfo.getStartTime();
+            this.finishedTime = taskInfo.getFinishedTime();
+            this.executionDuration = taskInfo.getExecutionDuration();
+        }
+
+    }
+
+}
@@ -0,0 +1,560 @@
+package org.ow2.proactive.scheduler.core.db;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.ow2.proactive.db.DatabaseManagerException;
+
+
+/**
+ * Write-behind journal of the scheduler state transitions.
+ * <p>
+ * Entries are appended to a local segment file and acknowledged as soon as they are handed
+ * to the operating system. A background thread periodically rolls the segment, forces it to
+ * disk (one fsync for the whole group of entries), writes the group in the database in a single
+ * transaction and then deletes the segment. Segments left on disk by a crash are written in the
+ * database by {@link #replay()} before anything else.
+ * <p>
+ * Replaying is idempotent for the job and task rows. The task results of the last group written
+ * before a crash may be saved twice if the crash happened between the commit and the deletion
+ * of the segment.
+ * <p>
+ * A group that cannot be written is never given up: it is retried with an exponential backoff,
+ * up to a maximum delay, until the database accepts it. Meanwhile new entries are still appended,
+ * up to a maximum number of entries not written in the database: beyond it, appending blocks and
+ * fails after the write timeout. Threads never wait for the journal longer than the write timeout.
+ * Segments set aside by previous versions (renamed with the {@link #PARKED_SUFFIX} suffix) are
+ * replayed with the others.
+ */
+class SchedulerDBJournal implements Runnable {
+
+    private static final Logger logger = Logger.getLogger(SchedulerDBJournal.class);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /** Suffix of the segments set aside by previous versions when they could not be written */
+    static final String PARKED_SUFFIX = ".failed";
+
+    /** Default maximum time in milliseconds a thread waits for the journal to be written */
+    static final long DEFAULT_WRITE_TIMEOUT = 60000;
+
+    /** Default maximum delay in milliseconds between two attempts to write a group of entries */
+    static final long DEFAULT_MAX_RETRY_DELAY = 60000;
+
+    /** Default maximum number of entries appended but not written in the database */
+    static final int DEFAULT_MAX_PENDING_ENTRIES = 100000;
+
+    /** Delay in milliseconds before the first retry of a failed write, doubled for each new attempt */
+    private static final long RETRY_DELAY = 1000;
+
+    private final SchedulerDBManager dbManager;
+
+    private final File directory;
+
+    private final long flushPeriod;
+
+    private final int batchSize;
+
+    private final long writeTimeout;
+
+    private final long maxRetryDelay;
+
+    private final int maxPendingEntries;
+
+    private final Thread flusher;
+
+    /** Segments found when opening the journal, written by {@link #replay()} */
+    private final List<File> recoveredSegments;
+
+    private final Object replayLock = new Object();
+
+    private boolean replayed;
+
+    /** Protects the fields below, shared by the appending threads and the flusher */
+    private final Object lock = new Object();
+
+    private List<JournalEntry> queue = new ArrayList<JournalEntry>();
+
+    private int segmentIndex;
+
+    private File segmentFile;
+
+    private FileOutputStream segmentStream;
+
+    private DataOutputStream segmentOutput;
+
+    private long appendedCount;
+
+    private long writtenCount;
+
+    private boolean flushRequested;
+
+    private boolean closing;
+
+    private boolean closed;
+
+    /**
+     * Open the journal stored in the given directory and start the flusher thread.
+     *
+     * @param dbManager the manager used to write the entries in the database
+     * @param directory the directory of the segment files
+     * @param flushPeriod the maximum time in milliseconds an entry stays in the journal only
+     * @param batchSize the number of pending entries triggering a flush before the period ends
+     * @param writeTimeout the maximum time in milliseconds a thread waits for the entries to be written
+     * @param maxRetryDelay the maximum delay in milliseconds between two attempts to write a group of entries
+     * @param maxPendingEntries the number of entries not written in the database beyond which
+     *          appending blocks
+     * @param discardExisting true if the segments of a previous run have to be deleted instead of replayed
+     * @throws IOException if the journal directory cannot be used
+     */
+    SchedulerDBJournal(SchedulerDBManager dbManager, File directory, long flushPeriod, int batchSize,
+            long writeTimeout, long maxRetryDelay, int maxPendingEntries, boolean discardExisting)
+            throws IOException {
+        this.dbManager = dbManager;
+        this.directory = directory;
+        this.flushPeriod = flushPeriod;
+        this.batchSize = batchSize;
+        this.writeTimeout = writeTimeout;
+        this.maxRetryDelay = Math.max(1, maxRetryDelay);
+        this.maxPendingEntries = Math.max(1, maxPendingEntries);
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create the journal directory " + directory.getAbsolutePath());
+        }
+
+        this.recoveredSegments = listSegments();
+        if (discardExisting) {
+            for (File segment : recoveredSegments) {
+                logger.info("Discarding journal segment " + segment);
+                deleteSegment(segment);
+            }
+            recoveredSegments.clear();
+        } else if (!recoveredSegments.isEmpty()) {
+            File last = recoveredSegments.get(recoveredSegments.size() - 1);
+            segmentIndex = segmentIndex(last) + 1;
+        }
+        openSegment();
+
+        logger.info("Scheduler DB journal opened in " + directory.getAbsolutePath() + ", " +
+            recoveredSegments.size() + " segment(s) to replay");
+
+        this.flusher = new Thread(this, "Scheduler DB journal");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Append an entry to the journal. The entry is written in the database later by the flusher thread.
+     * If too many entries are not written in the database yet, wait for them to be written first.
+     *
+     * @param entry the entry to append
+     * @throws DatabaseManagerException if the entries appended before are not written in time
+     */
+    void append(JournalEntry entry) {
+        byte[] bytes;
+        try {
+            bytes = serialize(entry);
+        } catch (IOException e) {
+            throw new DatabaseManagerException("Cannot serialize journal entry", e);
+        }
+        synchronized (lock) {
+            waitPendingEntriesBelowMax();
+            if (closing) {
+                throw new DatabaseManagerException("Scheduler DB journal is closed");
+            }
+            try {
+                segmentOutput.writeInt(bytes.length);
+                segmentOutput.write(bytes);
+                segmentOutput.flush();
+                queue.add(entry);
+                appendedCount++;
+                if (queue.size() >= batchSize) {
+                    lock.notifyAll();
+                }
+                return;
+            } catch (IOException e) {
+                logger.error("Failed to append to journal segment " + segmentFile +
+                    ", the entry is written synchronously", e);
+            }
+        }
+        // keep the order of the transitions: everything appended before has to be written first
+        waitWritten();
+        dbManager.writeJournalEntries(Collections.singletonList(entry));
+    }
+
+    /**
+     * Block until every entry appended before this call has been written in the database.
+     * Used before the operations reading or writing the state kept in the journal.
+     *
+     * @throws DatabaseManagerException if the entries are not written before the write timeout,
+     *          or if they have been given up
+     */
+    void waitWritten() {
+        if (Thread.currentThread() == flusher) {
+            return;
+        }
+        synchronized (lock) {
+            long target = appendedCount;
+            long written = writtenCount;
+            if (written >= target) {
+                return;
+            }
+            flushRequested = true;
+            lock.notifyAll();
+            long deadline = System.currentTimeMillis() + writeTimeout;
+            while (writtenCount < target && !closed) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new DatabaseManagerException("Scheduler DB journal entries not written after " +
+                        writeTimeout + "ms");
+                }
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Backpressure: block while the maximum number of entries not written in the database is reached.
+     * Called with the lock held.
+     */
+    private void waitPendingEntriesBelowMax() {
+        if (appendedCount - writtenCount < maxPendingEntries) {
+            return;
+        }
+        flushRequested = true;
+        lock.notifyAll();
+        long deadline = System.currentTimeMillis() + writeTimeout;
+        while (appendedCount - writtenCount >= maxPendingEntries && !closing) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new DatabaseManagerException("Scheduler DB journal has " +
+                    (appendedCount - writtenCount) + " entries not written in the database after " +
+                    writeTimeout + "ms, the entry is rejected");
+            }
+            try {
+                lock.wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DatabaseManagerException("Interrupted while waiting for the scheduler DB journal");
+            }
+        }
+    }
+
+    /**
+     * Write in the database the entries of the segments left by a previous run.
+     * Done once, either before the scheduler state is recovered or by the flusher thread.
+     */
+    void replay() {
+        synchronized (replayLock) {
+            if (replayed) {
+                return;
+            }
+            for (File segment : new ArrayList<File>(recoveredSegments)) {
+                List<JournalEntry> entries = readSegment(segment);
+                logger.info("Replaying " + entries.size() + " journal entries from " + segment);
+                for (int i = 0; i < entries.size(); i += batchSize) {
+                    dbManager.writeJournalEntries(entries.subList(i, Math.min(entries.size(), i + batchSize)));
+                }
+                deleteSegment(segment);
+                recoveredSegments.remove(segment);
+            }
+            replayed = true;
+        }
+    }
+
+    /**
+     * Write the pending entries and stop the flusher thread. Entries that cannot be
+     * written stay in the journal and will be replayed on next start.
+     */
+    void close() {
+        synchronized (lock) {
+            closing = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the number of entries appended but not yet written in the database
+     */
+    long getPendingEntriesCount() {
+        synchronized (lock) {
+            return appendedCount - writtenCount;
+        }
+    }
+
+    public void run() {
+        int attempts = 0;
+        while (!replayJournal()) {
+            if (waitBeforeRetry(++attempts)) {
+                // the segments will be replayed on next start
+                synchronized (lock) {
+                    closed = true;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+
+        // entries and segments waiting to be committed, kept in case of failure
+        List<JournalEntry> group = new ArrayList<JournalEntry>();
+        List<File> groupSegments = new ArrayList<File>();
+        long groupCount = 0;
+        attempts = 0;
+
+        while (true) {
+            boolean stop;
+            FileOutputStream toSync = null;
+            synchronized (lock) {
+                // a failed group is retried as soon as the backoff delay has elapsed
+                if (group.isEmpty() && !flushRequested && !closing && queue.size() < batchSize) {
+                    try {
+                        lock.wait(flushPeriod);
+                    } catch (InterruptedException e) {
+                        closing = true;
+                    }
+                }
+                flushRequested = false;
+                stop = closing;
+                if (!queue.isEmpty()) {
+                    group.addAll(queue);
+                    queue = new ArrayList<JournalEntry>();
+                    groupSegments.add(segmentFile);
+                    groupCount = appendedCount;
+                    toSync = segmentStream;
+                    if (!stop) {
+                        rollSegment();
+                    }
+                }
+            }
+
+            if (toSync != null) {
+                sync(toSync);
+            }
+
+            if (!group.isEmpty()) {
+                try {
+                    dbManager.writeJournalEntries(group);
+                    for (File segment : groupSegments) {
+                        deleteSegment(segment);
+                    }
+                    group.clear();
+                    groupSegments.clear();
+                    attempts = 0;
+                    synchronized (lock) {
+                        writtenCount = groupCount;
+                        lock.notifyAll();
+                    }
+                } catch (Throwable t) {
+                    attempts++;
+                    if (stop) {
+                        logger.error("Failed to write " + group.size() + " journal entries in the database " +
+                            "while closing, their segments are kept in " + directory.getAbsolutePath() +
+                            " and will be replayed on next start", t);
+                    } else {
+                        logger.error("Failed to write " + group.size() + " journal entries in the database " +
+                            "(attempt " + attempts + "), will retry in " + retryDelay(attempts) + "ms", t);
+                        waitBeforeRetry(attempts);
+                    }
+                }
+            }
+
+            if (stop) {
+                synchronized (lock) {
+                    if (toSync == null) {
+                        // nothing was appended to the current segment
+                        sync(segmentStream);
+                        deleteSegment(segmentFile);
+                    }
+                    closed = true;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    private boolean replayJournal() {
+        try {
+            replay();
+            return true;
+        } catch (Throwable t) {
+            logger.error("Failed to replay the scheduler DB journal, will retry", t);
+            return false;
+        }
+    }
+
+    /**
+     * @return the delay before the given attempt to write a group again, doubled for each attempt
+     */
+    private long retryDelay(int attempts) {
+        int doublings = Math.min(attempts - 1, 20);
+        return Math.min(maxRetryDelay, RETRY_DELAY << doublings);
+    }
+
+    /**
+     * Wait before writing a failed group or replaying again, unless the journal is closing.
+     *
+     * @return true if the journal is closing
+     */
+    private boolean waitBeforeRetry(int attempts) {
+        long end = System.currentTimeMillis() + retryDelay(attempts);
+        synchronized (lock) {
+            long remaining;
+            while (!closing && (remaining = end - System.currentTimeMillis()) > 0) {
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    closing = true;
+                }
+            }
+            return closing;
+        }
+    }
+
+    private void rollSegment() {
+        segmentIndex++;
+        try {
+            openSegment();
+        } catch (IOException e) {
+            // appending to the closed segment will fail and the entries will be written synchronously
+            logger.error("Failed to open journal segment " + segmentFile, e);
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentFile = new File(directory, SEGMENT_PREFIX + segmentIndex + SEGMENT_SUFFIX);
+        segmentStream = new FileOutputStream(segmentFile, true);
+        segmentOutput = new DataOutputStream(new BufferedOutputStream(segmentStream));
+    }
+
+    private static void sync(FileOutputStream stream) {
+        try {
+            stream.getFD().sync();
+        } catch (IOException e) {
+            logger.warn("Failed to force the journal segment to disk", e);
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close journal segment", e);
+            }
+        }
+    }
+
+    private static void deleteSegment(File segment) {
+        if (segment.exists() && !segment.delete()) {
+            logger.warn("Failed to delete journal segment " + segment);
+        }
+    }
+
+    private List<File> listSegments() {
+        List<File> segments = new ArrayList<File>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                // segments set aside by previous versions are replayed too
+                if (name.startsWith(SEGMENT_PREFIX) &&
+                    (name.endsWith(SEGMENT_SUFFIX) || (name.endsWith(PARKED_SUFFIX) && name
+                            .contains(SEGMENT_SUFFIX)))) {
+                    segments.add(file);
+                }
+            }
+        }
+        Collections.sort(segments, new Comparator<File>() {
+            public int compare(File f1, File f2) {
+                return segmentIndex(f1) - segmentIndex(f2);
+            }
+        });
+        return segments;
+    }
+
+    private static int segmentIndex(File segment) {
+        String name = segment.getName();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.indexOf(SEGMENT_SUFFIX)));
+    }
+
+    /**
+     * Read the entries of a segment. A truncated last entry, written when the scheduler
+     * stopped, is ignored: it was never acknowledged.
+     */
+    private static List<JournalEntry> readSegment(File segment) {
+        List<JournalEntry> entries = new ArrayList<JournalEntry>();
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)));
+            while (true) {
+                byte[] bytes;
+                try {
+                    int length = input.readInt();
+                    if (length <= 0) {
+                        logger.warn("Invalid entry length in journal segment " + segment);
+                        break;
+                    }
+                    bytes = new byte[length];
+                    input.readFully(bytes);
+                } catch (EOFException e) {
+                    break;
+                }
+                entries.add(deserialize(bytes));
+            }
+        } catch (Exception e) {
+            throw new DatabaseManagerException("Failed to read journal segment " + segment, e);
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close journal segment " + segment, e);
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static byte[] serialize(JournalEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(entry);
+        output.close();
+        return bytes.toByteArray();
+    }
+
+    private static JournalEntry deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+            return (JournalEntry) input.readObject();
+        } finally {
+            input.close();
+        }
+    }
+
+}
@@ -1,14 +1,23 @@
 package org.ow2.proactive.scheduler.core.db;
 
 import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.log4j.Logger;
 import org.hibernate.Query;
@@ -17,12 +26,14 @@ import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.jdbc.Work;
 import org.hibernate.transform.DistinctRootEntityResultTransformer;
 import org.junit.Test;
 import org.ow2.proactive.db.DatabaseManager.FilteredExceptionCallback;
 import org.ow2.proactive.db.DatabaseManagerException;
 import org.ow2.proactive.db.DatabaseManagerExceptionHandler;
 import org.ow2.proactive.db.DatabaseManagerExceptionHandler.DBMEHandler;
+import org.ow2.proactive.scheduler.common.SchedulerConstants;
 import org.ow2.proactive.scheduler.common.job.JobEnvironment;
 import org.ow2.proactive.scheduler.common.job.JobId;
 import org.ow2.proactive.scheduler.common.job.JobInfo;
@@ -88,8 +99,48 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
 
     private final DatabaseManagerExceptionHandler exceptionHandler;
 
+    /** Number of task rows sent to the database in one JDBC batch */
+    private static final int TASK_UPDATE_BATCH_SIZE = 50;
+
+    private static final String ACCOUNT_UPDATE = "update USER_ACCOUNT set TASK_COUNT = TASK_COUNT + ?, "
+        + "TASK_DURATION = TASK_DURATION + ?, JOB_COUNT = JOB_COUNT + ?, JOB_DURATION = JOB_DURATION + ? "
+        + "where USERNAME = ?";
+
+    private static final String ACCOUNT_INSERT = "insert into USER_ACCOUNT "
+        + "(TASK_COUNT, TASK_DURATION, JOB_COUNT, JOB_DURATION, USERNAME) values (?, ?, ?, ?, ?)";
+
+    private static final String TASK_FINISHED_UPDATE = "update TASK_DATA set STATUS = ?, FINISH_TIME = ?, "
+        + "EXEC_DURATION = ? where TASK_ID_JOB = ? and TASK_ID_TASK = ? and FINISH_TIME < 0";
+
+    /** Write-behind journal of the state transitions, null if the transitions are written synchronously */
+    private SchedulerDBJournal journal;
+
+    /** Store of the large task result values, exceptions and logs, null if they are kept in the database */
+    private TaskResultStore resultStore;
+
+    /** Reader of the result store contents by chunks */
+    private TaskResultStoreReader resultStoreReader;
+
+    /** Size in bytes above which a result value, exception or logs is written in the result store */
+    private int resultStoreThreshold;
+
+    /**
+     * Held for reading by the transactions, which may store a content and reference it, and for writing
+     * while checking that a content is not referenced anymore and removing it
+     */
+    private final ReentrantReadWriteLock resultStoreLock = new ReentrantReadWriteLock();
+
+    /** Statistics about the number of statements issued by the transactions */
+    private long transactionsCount;
+    private long transactionsStatementsCount;
+    private int lastTransactionStatementsCount;
+    private int maxTransactionStatementsCount;
+
     private static abstract class SessionWork<T> {
 
+        /** Counts the statements issued while executing this work */
+        final StatementCountInterceptor statementCounter = new StatementCountInterceptor();
+
         abstract T executeWork(Session session);
 
     }
@@ -105,7 +156,49 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
 
             logger.info("Initializing Scheduler DB using Hibernate config " + configFile.getAbsolutePath());
 
-            return new SchedulerDBManager(new Configuration().configure(configFile), drop);
+            SchedulerDBManager dbManager = new SchedulerDBManager(new Configuration().configure(configFile),
+                drop);
+
+            if (PASchedulerProperties.SCHEDULER_DB_JOURNAL_ENABLED.getValueAsBoolean()) {
+                File journalDir = new File(PASchedulerProperties
+                        .getAbsolutePath(PASchedulerProperties.SCHEDULER_DB_JOURNAL_DIR.getValueAsString()));
+                int flushPeriod = PASchedulerProperties.SCHEDULER_DB_JOURNAL_FLUSH_PERIOD.getValueAsInt();
+                int batchSize = PASchedulerProperties.SCHEDULER_DB_JOURNAL_BATCH_SIZE.getValueAsInt();
+                long writeTimeout = SchedulerDBJournal.DEFAULT_WRITE_TIMEOUT;
+                if (PASchedulerProperties.SCHEDULER_DB_JOURNAL_WRITE_TIMEOUT.isSet()) {
+                    writeTimeout = PASchedulerProperties.SCHEDULER_DB_JOURNAL_WRITE_TIMEOUT.getValueAsInt();
+                }
+                long maxRetryDelay = SchedulerDBJournal.DEFAULT_MAX_RETRY_DELAY;
+                if (PASchedulerProperties.SCHEDULER_DB_JOURNAL_RETRY_MAX_DELAY.isSet()) {
+                    maxRetryDelay = PASchedulerProperties.SCHEDULER_DB_JOURNAL_RETRY_MAX_DELAY
+                            .getValueAsInt();
+                }
+                int maxPending = SchedulerDBJournal.DEFAULT_MAX_PENDING_ENTRIES;
+                if (PASchedulerProperties.SCHEDULER_DB_JOURNAL_MAX_PENDING.isSet()) {
+                    maxPending = PASchedulerProperties.SCHEDULER_DB_JOURNAL_MAX_PENDING.getValueAsInt();
+                }
+                dbManager.enableJournal(journalDir, flushPeriod, batchSize, writeTimeout, maxRetryDelay,
+                        maxPending, drop);
+            }
+
+            if (PASchedulerProperties.SCHEDULER_DB_RESULT_STORE_DIR.isSet()) {
+                String storePath = PASchedulerProperties.SCHEDULER_DB_RESULT_STORE_DIR.getValueAsString();
+                File storeDir = new File(PASchedulerProperties.getAbsolutePath(storePath));
+                int threshold = PASchedulerProperties.SCHEDULER_DB_RESULT_STORE_THRESHOLD.getValueAsInt();
+                try {
+                    dbManager.setResultStore(new FileSystemTaskResultStore(storeDir), threshold);
+                } catch (IOException e) {
+                    throw new DatabaseManagerException("Failed to open the task result store", e);
+                }
+            }
+
+            if (!drop && !dbManager.hasAccounts()) {
+                // database created by a version without incremental accounts
+                logger.info("Building users accounts from the jobs history");
+                dbManager.rebuildAccounts();
+            }
+
+            return dbManager;
         }
     }
 
@@ -131,6 +224,7 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
             configuration.addAnnotatedClass(ScriptData.class);
             configuration.addAnnotatedClass(EnvironmentModifierData.class);
             configuration.addAnnotatedClass(SelectorData.class);
+            configuration.addAnnotatedClass(AccountData.class);
             if (drop) {
                 configuration.setProperty("hibernate.hbm2ddl.auto", "create");
             }
@@ -167,7 +261,91 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
         return sessionFactory;
     }
 
+    /**
+     * Switch to the write-behind mode: task starts, restarts and completions are appended to a
+     * local journal and written in the database in batches by a background thread.
+     *
+     * @param directory the directory of the journal files
+     * @param flushPeriod the maximum time in milliseconds before an entry is written in the database
+     * @param batchSize the number of pending entries triggering a write before the period ends
+     * @param discardExisting true if the entries left by a previous run have to be dropped (database dropped)
+     */
+    public void enableJournal(File directory, long flushPeriod, int batchSize, boolean discardExisting) {
+        enableJournal(directory, flushPeriod, batchSize, SchedulerDBJournal.DEFAULT_WRITE_TIMEOUT,
+                SchedulerDBJournal.DEFAULT_MAX_RETRY_DELAY, SchedulerDBJournal.DEFAULT_MAX_PENDING_ENTRIES,
+                discardExisting);
+    }
+
+    /**
+     * Switch to the write-behind mode.
+     *
+     * @param directory the directory of the journal files
+     * @param flushPeriod the maximum time in milliseconds before an entry is written in the database
+     * @param batchSize the number of pending entries triggering a write before the period ends
+     * @param writeTimeout the maximum time in milliseconds an operation waits for the journal to be written
+     * @param maxRetryDelay the maximum delay in milliseconds between two attempts to write a group of entries
+     * @param maxPendingEntries the number of entries not written in the database beyond which operations
+     *          appending to the journal block
+     * @param discardExisting true if the entries left by a previous run have to be dropped (database dropped)
+     */
+    public void enableJournal(File directory, long flushPeriod, int batchSize, long writeTimeout,
+            long maxRetryDelay, int maxPendingEntries, boolean discardExisting) {
+        try {
+            journal = new SchedulerDBJournal(this, directory, flushPeriod, batchSize, writeTimeout,
+                maxRetryDelay, maxPendingEntries, discardExisting);
+        } catch (Exception e) {
+            throw new DatabaseManagerException("Failed to open the scheduler DB journal", e);
+        }
+    }
+
+    /**
+     * Write the task result values, exceptions and logs bigger than the given threshold in the given
+     * store instead of the database. The contents already written in a store can only be read if
+     * a store is set.
+     *
+     * @param store the store of the large contents
+     * @param threshold the size in bytes above which a content is written in the store
+     */
+    public void setResultStore(TaskResultStore store, int threshold) {
+        this.resultStore = store;
+        this.resultStoreReader = new TaskResultStoreReader(store);
+        this.resultStoreThreshold = threshold;
+    }
+
+    /**
+     * Write in the database the journal entries left by a previous run, if any.
+     * Has to be done before the scheduler state is loaded from the database.
+     */
+    public void replayJournal() {
+        if (journal != null) {
+            journal.replay();
+        }
+    }
+
+    /**
+     * @return the number of state transitions acknowledged but not yet written in the database
+     */
+    public long getJournalPendingEntriesCount() {
+        return (journal == null) ? 0 : journal.getPendingEntriesCount();
+    }
+
+    /**
+     * Operations reading or writing the state of jobs and tasks outside of the journal
+     * have to see every transition appended before them.
+     */
+    private void waitJournalWritten() {
+        if (journal != null) {
+            journal.waitWritten();
+        }
+    }
+
     public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+        if (resultStoreReader != null) {
+            resultStoreReader.close();
+        }
         try {
             if (sessionFactory != null) {
                 debugLogger.info("Closing session factory");
@@ -179,48 +357,190 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
     }
 
     public SchedulerAccount readAccount(final String username) {
+        waitJournalWritten();
+
         return runWithoutTransaction(new SessionWork<SchedulerAccount>() {
 
             @Override
             SchedulerAccount executeWork(Session session) {
-                Query tasksQuery = session.createQuery(
-                        "select count(*), sum(task.finishedTime) - sum(task.startTime) from TaskData task "
-                            + "where task.finishedTime > 0 and task.jobData.owner = :username").setParameter(
-                        "username", username);
-
-                int taskCount;
-                long taskDuration;
-
-                Object[] taskResult = (Object[]) tasksQuery.uniqueResult();
-                taskCount = ((Number) taskResult[0]).intValue();
-                if (taskResult[1] != null) {
-                    taskDuration = ((Number) taskResult[1]).longValue();
+                AccountData account = (AccountData) session.get(AccountData.class, username);
+                if (account == null) {
+                    return new SchedulerAccount(username, 0, 0, 0, 0);
                 } else {
-                    taskDuration = 0;
+                    return new SchedulerAccount(username, account.getTaskCount(), account
+                            .getTaskDuration(), account.getJobCount(), account.getJobDuration());
                 }
+            }
 
-                int jobCount;
-                long jobDuration;
+        });
+    }
 
-                Query jobQuery = session.createQuery(
-                        "select count(*), sum(finishedTime) - sum(startTime) from JobData"
-                            + " where owner = :username and finishedTime > 0").setParameter("username",
-                        username);
+    boolean hasAccounts() {
+        return runWithoutTransaction(new SessionWork<Boolean>() {
+            @Override
+            Boolean executeWork(Session session) {
+                Number count = (Number) session.createQuery("select count(*) from AccountData")
+                        .uniqueResult();
+                return count.longValue() > 0;
+            }
+        });
+    }
 
-                Object[] jobResult = (Object[]) jobQuery.uniqueResult();
-                jobCount = ((Number) jobResult[0]).intValue();
-                if (jobResult[1] != null) {
-                    jobDuration = ((Number) jobResult[1]).longValue();
-                } else {
-                    jobDuration = 0;
+    /**
+     * Computes again the accounts of every user from the tasks and jobs stored in the database.
+     * Accounts are then updated incrementally when tasks and jobs finish, this is only needed
+     * once for a database created by a previous version of the scheduler.
+     */
+    public void rebuildAccounts() {
+        waitJournalWritten();
+
+        runWithTransaction(new SessionWork<Void>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            Void executeWork(Session session) {
+                session.createQuery("delete from AccountData").executeUpdate();
+
+                Map<String, AccountData> accounts = new HashMap<String, AccountData>();
+
+                List<Object[]> tasks = session.createQuery(
+                        "select task.jobData.owner, count(*), sum(task.finishedTime) - sum(task.startTime) "
+                            + "from TaskData task where task.finishedTime > 0 group by task.jobData.owner")
+                        .list();
+                for (Object[] row : tasks) {
+                    AccountData account = getAccount(accounts, (String) row[0]);
+                    account.setTaskCount(((Number) row[1]).intValue());
+                    account.setTaskDuration(row[2] == null ? 0 : ((Number) row[2]).longValue());
+                }
+
+                List<Object[]> jobs = session.createQuery(
+                        "select owner, count(*), sum(finishedTime) - sum(startTime) from JobData "
+                            + "where finishedTime > 0 group by owner").list();
+                for (Object[] row : jobs) {
+                    AccountData account = getAccount(accounts, (String) row[0]);
+                    account.setJobCount(((Number) row[1]).intValue());
+                    account.setJobDuration(row[2] == null ? 0 : ((Number) row[2]).longValue());
+                }
+
+                for (AccountData account : accounts.values()) {
+                    session.save(account);
                 }
 
-                return new SchedulerAccount(username, taskCount, taskDuration, jobCount, jobDuration);
+                return null;
             }
 
         });
     }
 
+    private static AccountData getAccount(Map<String, AccountData> accounts, String username) {
+        AccountData account = accounts.get(username);
+        if (account == null) {
+            account = new AccountData();
+            account.setUsername(username);
+            accounts.put(username, account);
+        }
+        return account;
+    }
+
+    /**
+     * Accounts changes made by the tasks and jobs finished in a transaction,
+     * added to the users accounts at the end of this transaction.
+     */
+    private static final class AccountUpdates {
+
+        private final Map<String, AccountData> updates = new HashMap<String, AccountData>();
+
+        void taskFinished(String username, long duration) {
+            AccountData account = getAccount(updates, username);
+            account.setTaskCount(account.getTaskCount() + 1);
+            account.setTaskDuration(account.getTaskDuration() + duration);
+        }
+
+        void jobFinished(String username, long duration) {
+            AccountData account = getAccount(updates, username);
+            account.setJobCount(account.getJobCount() + 1);
+            account.setJobDuration(account.getJobDuration() + duration);
+        }
+
+        void write(Session session, final StatementCountInterceptor statementCounter) {
+            if (updates.isEmpty()) {
+                return;
+            }
+            session.doWork(new Work() {
+                @Override
+                public void execute(Connection connection) throws SQLException {
+                    statementCounter.statementsExecuted(writeAccounts(connection, updates.values()));
+                }
+            });
+            updates.clear();
+        }
+
+    }
+
+    /**
+     * Adds the given changes to the users accounts, creating the accounts which do not exist.
+     * If an account is created at the same time by another transaction, the insert fails
+     * on the primary key: it is rolled back to a savepoint and the account is updated instead.
+     *
+     * @return the number of statements executed
+     */
+    private static int writeAccounts(Connection connection, Collection<AccountData> accounts)
+            throws SQLException {
+        int statements = 0;
+        PreparedStatement update = connection.prepareStatement(ACCOUNT_UPDATE);
+        try {
+            for (AccountData account : accounts) {
+                setAccountParameters(update, account);
+                statements++;
+                if (update.executeUpdate() > 0) {
+                    continue;
+                }
+                // first finished task or job of this user
+                Savepoint savepoint = connection.setSavepoint();
+                PreparedStatement insert = connection.prepareStatement(ACCOUNT_INSERT);
+                try {
+                    setAccountParameters(insert, account);
+                    statements++;
+                    insert.executeUpdate();
+                } catch (SQLException e) {
+                    // SQL state class 23 is an integrity constraint violation
+                    if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                        throw e;
+                    }
+                    connection.rollback(savepoint);
+                    statements++;
+                    if (update.executeUpdate() == 0) {
+                        throw e;
+                    }
+                } finally {
+                    insert.close();
+                }
+            }
+        } finally {
+            update.close();
+        }
+        return statements;
+    }
+
+    private static void setAccountParameters(PreparedStatement statement, AccountData account)
+            throws SQLException {
+        statement.setInt(1, account.getTaskCount());
+        statement.setLong(2, account.getTaskDuration());
+        statement.setInt(3, account.getJobCount());
+        statement.setLong(4, account.getJobDuration());
+        statement.setString(5, account.getUsername());
+    }
+
+    /**
+     * Sets the finished time of the given job if it was not already set.
+     *
+     * @return true if the job was not finished in the database
+     */
+    private static boolean setJobFinishedTime(Session session, long jobId, long finishedTime) {
+        return session.createQuery(
+                "update JobData set finishedTime = :finishedTime where id = :jobId and finishedTime <= 0")
+                .setParameter("finishedTime", finishedTime).setParameter("jobId", jobId).executeUpdate() > 0;
+    }
+
     private void removeJobScripts(Session session, long jobId) {
         session
                 .createQuery(
@@ -254,12 +574,21 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
     }
 
     public void removeJob(final JobId jobId, final long removedTime, final boolean removeData) {
+        waitJournalWritten();
+
+        // keys of the contents written in the result store for the job
+        final Set<String> storedKeys = new HashSet<String>();
+
         runWithTransaction(new SessionWork<Void>() {
             @Override
             Void executeWork(Session session) {
                 long id = jobId(jobId);
 
                 if (removeData) {
+                    if (resultStore != null) {
+                        storedKeys.addAll(loadResultStoreKeys(session, id));
+                    }
+
                     session.createSQLQuery("delete from TASK_DATA_DEPENDENCIES where JOB_ID = :jobId")
                             .setParameter("jobId", id).executeUpdate();
                     session.createSQLQuery("delete from TASK_DATA_JOINED_BRANCHES where JOB_ID = :jobId")
@@ -279,6 +608,57 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
             }
 
         });
+
+        if (!storedKeys.isEmpty()) {
+            removeUnreferencedContents(storedKeys);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> loadResultStoreKeys(Session session, long jobId) {
+        Set<String> keys = new HashSet<String>();
+        List<Object[]> rows = session.createQuery(
+                "select serializedValueKey, serializedExceptionKey, logsKey from TaskResultData "
+                    + "where taskRuntimeData.id.jobId = :jobId").setParameter("jobId", jobId).list();
+        for (Object[] row : rows) {
+            for (Object key : row) {
+                if (key != null) {
+                    keys.add((String) key);
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Remove from the result store the given contents if no task result references them anymore,
+     * identical contents being stored once. The references are counted and the content removed
+     * while no transaction runs, so an identical content cannot be stored and referenced meanwhile.
+     */
+    private void removeUnreferencedContents(final Set<String> keys) {
+        runWithoutTransaction(new SessionWork<Void>() {
+            @Override
+            Void executeWork(Session session) {
+                Query query = session.createQuery("select count(*) from TaskResultData where "
+                    + "serializedValueKey = :key or serializedExceptionKey = :key or logsKey = :key");
+                for (String key : keys) {
+                    // locked for each key only, transactions go on between the keys
+                    resultStoreLock.writeLock().lock();
+                    try {
+                        long references = (Long) query.setParameter("key", key).uniqueResult();
+                        if (references == 0) {
+                            resultStore.remove(key);
+                        }
+                    } catch (IOException e) {
+                        logger.warn("Failed to remove content " + key + " from the result store", e);
+                    } finally {
+                        resultStoreLock.writeLock().unlock();
+                    }
+                }
+                return null;
+            }
+
+        });
     }
 
     public List<InternalJob> loadNotFinishedJobs(boolean fullState) {
@@ -289,7 +669,47 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
         return loadJobs(fullState, finishedJobStatuses);
     }
 
+    /**
+     * Loads the finished jobs without their tasks: the returned jobs only hold
+     * the job information (status, owner, times, number of tasks...).
+     *
+     * @return the finished jobs not removed from the scheduler, without their tasks.
+     */
+    public List<InternalJob> loadFinishedJobsSummaries() {
+        waitJournalWritten();
+
+        return runWithoutTransaction(new SessionWork<List<InternalJob>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            List<InternalJob> executeWork(Session session) {
+                List<Long> ids = session.createQuery(
+                        "select id from JobData where status in (:status) and removedTime = -1")
+                        .setParameterList("status", finishedJobStatuses).list();
+
+                Query jobQuery = session.createQuery("from JobData as job where job.id in (:ids)");
+
+                List<InternalJob> result = new ArrayList<InternalJob>(ids.size());
+
+                final int BATCH_SIZE = 100;
+
+                for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+                    jobQuery.setParameterList("ids", ids.subList(from, Math.min(from + BATCH_SIZE, ids
+                            .size())));
+                    for (JobData jobData : (List<JobData>) jobQuery.list()) {
+                        result.add(jobData.toInternalJob());
+                    }
+                    session.clear();
+                }
+
+                return result;
+            }
+
+        });
+    }
+
     private List<InternalJob> loadJobs(final boolean fullState, final Collection<JobStatus> status) {
+        waitJournalWritten();
+
         return runWithoutTransaction(new SessionWork<List<InternalJob>>() {
             @Override
             @SuppressWarnings("unchecked")
@@ -305,6 +725,8 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
     }
 
     public InternalJob loadJobWithoutTasks(final JobId id) {
+        waitJournalWritten();
+
         return runWithoutTransaction(new SessionWork<InternalJob>() {
             @Override
             InternalJob executeWork(Session session) {
@@ -319,7 +741,37 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
         });
     }
 
+    /**
+     * Loads the ids of the tasks of a job, without loading the tasks.
+     *
+     * @param jobId the job.
+     * @return the ids of the tasks of the job, empty if the job is unknown.
+     */
+    public List<TaskId> loadTasksIds(final JobId jobId) {
+        waitJournalWritten();
+
+        return runWithoutTransaction(new SessionWork<List<TaskId>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            List<TaskId> executeWork(Session session) {
+                List<Object[]> rows = session.createQuery(
+                        "select id, taskName from TaskData where jobData = :job").setParameter("job",
+                        session.load(JobData.class, jobId(jobId))).list();
+
+                List<TaskId> result = new ArrayList<TaskId>(rows.size());
+                for (Object[] row : rows) {
+                    result.add(TaskIdImpl.createTaskId(jobId, (String) row[1], ((DBTaskId) row[0])
+                            .getTaskId(), false));
+                }
+                return result;
+            }
+
+        });
+    }
+
     public List<InternalJob> loadJobs(final boolean fullState, final JobId... jobIds) {
+        waitJournalWritten();
+
         return runWithoutTransaction(new SessionWork<List<InternalJob>>() {
             @Override
             List<InternalJob> executeWork(Session session) {
@@ -481,95 +933,18 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
 
     public void jobTaskStarted(final InternalJob job, final InternalTask task,
             final boolean taskStatusToPending) {
-        runWithTransaction(new SessionWork<Void>() {
-            @Override
-            Void executeWork(Session session) {
-                long jobId = jobId(job);
-
-                String jobUpdate = "update JobData set status = :status, "
-                    + "startTime = :startTime, numberOfPendingTasks = :numberOfPendingTasks, "
-                    + "numberOfRunningTasks = :numberOfRunningTasks where id = :jobId";
-
-                JobInfo jobInfo = job.getJobInfo();
-
-                session.createQuery(jobUpdate).setParameter("status", jobInfo.getStatus()).setParameter(
-                        "startTime", jobInfo.getStartTime()).setParameter("numberOfPendingTasks",
-                        jobInfo.getNumberOfPendingTasks()).setParameter("numberOfRunningTasks",
-                        jobInfo.getNumberOfRunningTasks()).setParameter("jobId", jobId).executeUpdate();
-
-                if (taskStatusToPending) {
-                    JobData job = (JobData) session.load(JobData.class, jobId);
-                    String taskStatusUpdate = "update TaskData task set task.taskStatus = :taskStatus "
-                        + "where task.jobData = :job";
-                    session.createQuery(taskStatusUpdate).setParameter("taskStatus", TaskStatus.PENDING)
-                            .setParameter("job", job).executeUpdate();
-                }
-
-                TaskData.DBTaskId taskId = taskId(task);
-
-                String taskUpdate = "update TaskData task set task.taskStatus = :taskStatus, "
-                    + "task.startTime = :startTime, task.finishedTime = :finishedTime, "
-                    + "task.executionHostName = :executionHostName where task.id = :taskId";
-
-                TaskInfo taskInfo = task.getTaskInfo();
-
-                session.createQuery(taskUpdate).setParameter("taskStatus", taskInfo.getStatus())
-                        .setParameter("startTime", taskInfo.getStartTime()).setParameter("finishedTime",
-                                taskInfo.getFinishedTime()).setParameter("executionHostName",
-                                taskInfo.getExecutionHostName()).setParameter("taskId", taskId)
-                        .executeUpdate();
-
-                return null;
-            }
-
-        });
+        record(new JournalEntry.TaskStarted(job, task, taskStatusToPending));
     }
 
     @Test
     public void taskRestarted(final InternalJob job, final InternalTask task, final TaskResultImpl result) {
-        runWithTransaction(new SessionWork<Void>() {
-            @Override
-            Void executeWork(Session session) {
-                long jobId = jobId(job);
-
-                String jobUpdate = "update JobData set status = :status, "
-                    + "numberOfPendingTasks = :numberOfPendingTasks, "
-                    + "numberOfRunningTasks = :numberOfRunningTasks where id = :jobId";
-
-                JobInfo jobInfo = job.getJobInfo();
-
-                session.createQuery(jobUpdate).setParameter("status", jobInfo.getStatus()).setParameter(
-                        "numberOfPendingTasks", jobInfo.getNumberOfPendingTasks()).setParameter(
-                        "numberOfRunningTasks", jobInfo.getNumberOfRunningTasks()).setParameter("jobId",
-                        jobId).executeUpdate();
-
-                TaskData.DBTaskId taskId = taskId(task);
-
-                String taskUpdate = "update TaskData set taskStatus = :taskStatus, "
-                    + "numberOfExecutionLeft = :numberOfExecutionLeft,"
-                    + "numberOfExecutionOnFailureLeft = :numberOfExecutionOnFailureLeft"
-                    + " where id = :taskId";
-
-                TaskInfo taskInfo = task.getTaskInfo();
-
-                session.createQuery(taskUpdate).setParameter("taskStatus", taskInfo.getStatus())
-                        .setParameter("numberOfExecutionLeft", taskInfo.getNumberOfExecutionLeft())
-                        .setParameter("numberOfExecutionOnFailureLeft",
-                                taskInfo.getNumberOfExecutionOnFailureLeft()).setParameter("taskId", taskId)
-                        .executeUpdate();
-
-                if (result != null) {
-                    saveTaskResult(taskId, result, session);
-                }
-
-                return null;
-            }
-
-        });
+        record(new JournalEntry.TaskRestarted(job, task, result));
     }
 
     public void updateAfterWorkflowTaskFinished(final InternalJob job, final InternalTask finishedTask,
             final TaskResultImpl result) {
+        waitJournalWritten();
+
         runWithTransaction(new SessionWork<Void>() {
             @Override
             Void executeWork(Session session) {
@@ -583,6 +958,12 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
 
                 JobInfo jobInfo = job.getJobInfo();
 
+                AccountUpdates accounts = new AccountUpdates();
+                if (jobInfo.getFinishedTime() > 0 &&
+                    setJobFinishedTime(session, jobId, jobInfo.getFinishedTime())) {
+                    accounts.jobFinished(job.getOwner(), jobInfo.getFinishedTime() - jobInfo.getStartTime());
+                }
+
                 session.createQuery(jobUpdate).setParameter("status", jobInfo.getStatus()).setParameter(
                         "finishedTime", jobInfo.getFinishedTime()).setParameter("numberOfPendingTasks",
                         jobInfo.getNumberOfPendingTasks()).setParameter("numberOfFinishedTasks",
@@ -597,12 +978,17 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
                 List<InternalTask> tasks = new ArrayList<InternalTask>();
                 List<InternalTask> newTasks = new ArrayList<InternalTask>();
 
-                for (InternalTask task : job.getITasks()) {
+                for (InternalTask task : job.getITasksView()) {
                     TaskData taskData = (TaskData) session.get(TaskData.class, taskId(task));
                     if (taskData == null) {
                         newTasks.add(task);
                     } else {
+                        boolean finished = taskData.getFinishedTime() > 0;
                         taskData.updateMutableAttributes(task);
+                        if (!finished && taskData.getFinishedTime() > 0) {
+                            accounts.taskFinished(job.getOwner(), taskData.getFinishedTime() -
+                                taskData.getStartTime());
+                        }
                         session.update(taskData);
                         taskRuntimeDataList.add(taskData);
                         tasks.add(task);
@@ -619,6 +1005,10 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
                         task.setExecutableContainer(container);
                     }
                     TaskData taskData = saveNewTask(session, jobRuntimeData, task);
+                    if (taskData.getFinishedTime() > 0) {
+                        accounts.taskFinished(job.getOwner(), taskData.getFinishedTime() -
+                            taskData.getStartTime());
+                    }
                     taskRuntimeDataList.add(taskData);
                     tasks.add(task);
                 }
@@ -628,6 +1018,8 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
                 TaskData.DBTaskId taskId = taskId(finishedTask.getId());
                 saveTaskResult(taskId, result, session);
 
+                accounts.write(session, statementCounter);
+
                 if (finishedJobStatuses.contains(job.getStatus())) {
                     removeJobRuntimeData(session, jobId);
                 }
@@ -636,6 +1028,9 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
             }
 
         }, false);
+
+        // every task of the job has been written
+        job.clearDirtyTasks(job.getITasksView());
     }
 
     public void updateAfterJobKilled(final InternalJob job) {
@@ -643,13 +1038,15 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
     }
 
     public void updateJobAndTasksState(final InternalJob job) {
+        waitJournalWritten();
+
         runWithTransaction(new SessionWork<Void>() {
             @Override
             Void executeWork(Session session) {
                 String taskUpdate = "update TaskData task set task.taskStatus = :taskStatus where task.id = :taskId";
 
                 Query taskUpdateQuery = session.createQuery(taskUpdate);
-                for (TaskState task : job.getTasks()) {
+                for (TaskState task : job.getITasksView()) {
                     TaskInfo taskInfo = task.getTaskInfo();
                     taskUpdateQuery.setParameter("taskStatus", taskInfo.getStatus()).setParameter("taskId",
                             taskId(task.getId())).executeUpdate();
@@ -670,48 +1067,97 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
 
     public void updateAfterTaskFinished(final InternalJob job, final InternalTask finishedTask,
             final TaskResultImpl result) {
-        runWithTransaction(new SessionWork<Void>() {
-            @Override
-            Void executeWork(Session session) {
-                String taskUpdate = "update TaskData task set task.taskStatus = :taskStatus, "
-                    + "task.finishedTime = :finishedTime, " + "task.executionDuration = :executionDuration "
-                    + "where task.id = :taskId and task.finishedTime < 0";
+        // only the tasks whose state changed since the last update are written, unless the whole job
+        // has to be persisted (job killed)
+        List<InternalTask> modifiedTasks;
+        if (finishedTask == null) {
+            modifiedTasks = job.getITasks();
+        } else {
+            modifiedTasks = job.getDirtyTasks();
+            if (!modifiedTasks.contains(finishedTask)) {
+                modifiedTasks.add(finishedTask);
+            }
+        }
 
-                Query taskUpdateQuery = session.createQuery(taskUpdate);
+        record(new JournalEntry.TaskFinished(job, modifiedTasks, finishedTask, result));
 
-                for (TaskState task : job.getTasks()) {
-                    TaskData.DBTaskId taskId = taskId(task.getId());
+        job.clearDirtyTasks(modifiedTasks);
+    }
 
-                    TaskInfo taskInfo = task.getTaskInfo();
+    /**
+     * Persist a state transition: appended to the journal if the write-behind mode is enabled,
+     * written immediately otherwise.
+     */
+    private void record(JournalEntry entry) {
+        if (journal != null) {
+            journal.append(entry);
+        } else {
+            writeJournalEntries(Collections.singletonList(entry));
+        }
+    }
 
-                    taskUpdateQuery.setParameter("taskStatus", taskInfo.getStatus()).setParameter(
-                            "finishedTime", taskInfo.getFinishedTime()).setParameter("executionDuration",
-                            taskInfo.getExecutionDuration()).setParameter("taskId", taskId).executeUpdate();
+    /**
+     * Write state transitions in the database, in one transaction.
+     * Consecutive task completions are sent in a single JDBC batch and the job rows are
+     * only updated once, with the state of the last transition of each job.
+     *
+     * @param entries the transitions, in the order they happened
+     */
+    void writeJournalEntries(final List<JournalEntry> entries) {
+        runWithTransaction(new SessionWork<Void>() {
+            @Override
+            Void executeWork(Session session) {
+                Map<Long, JournalEntry> lastJobEntries = new LinkedHashMap<Long, JournalEntry>();
+                List<JournalEntry.TaskRow> finishedRows = new ArrayList<JournalEntry.TaskRow>();
+                AccountUpdates accounts = new AccountUpdates();
+
+                for (JournalEntry entry : entries) {
+                    lastJobEntries.remove(entry.jobId);
+                    lastJobEntries.put(entry.jobId, entry);
+
+                    if (entry instanceof JournalEntry.TaskFinished) {
+                        JournalEntry.TaskFinished finished = (JournalEntry.TaskFinished) entry;
+                        finishedRows.addAll(finished.tasks);
+                        if (finished.result != null) {
+                            saveTaskResult(taskId(finished.jobId, finished.finishedTaskId), finished.result,
+                                    session);
+                        }
+                    } else {
+                        // task rows have to be written in the order of the transitions
+                        writeFinishedTasks(session, finishedRows, statementCounter, accounts);
+                        if (entry instanceof JournalEntry.TaskStarted) {
+                            writeTaskStarted(session, (JournalEntry.TaskStarted) entry);
+                        } else {
+                            writeTaskRestarted(session, (JournalEntry.TaskRestarted) entry);
+                        }
+                    }
                 }
+                writeFinishedTasks(session, finishedRows, statementCounter, accounts);
 
-                long jobId = jobId(job);
-
-                String jobUpdate = "update JobData set status = :status, "
+                String jobUpdate = "update JobData set status = :status, startTime = :startTime, "
                     + "finishedTime = :finishedTime, numberOfPendingTasks = :numberOfPendingTasks, "
                     + "numberOfFinishedTasks = :numberOfFinishedTasks, "
                     + "numberOfRunningTasks = :numberOfRunningTasks where id = :jobId";
 
-                JobInfo jobInfo = job.getJobInfo();
-
-                session.createQuery(jobUpdate).setParameter("status", jobInfo.getStatus()).setParameter(
-                        "finishedTime", jobInfo.getFinishedTime()).setParameter("numberOfPendingTasks",
-                        jobInfo.getNumberOfPendingTasks()).setParameter("numberOfFinishedTasks",
-                        jobInfo.getNumberOfFinishedTasks()).setParameter("numberOfRunningTasks",
-                        jobInfo.getNumberOfRunningTasks()).setParameter("jobId", jobId).executeUpdate();
-
-                if (result != null) {
-                    TaskData.DBTaskId taskId = taskId(finishedTask.getId());
-                    saveTaskResult(taskId, result, session);
+                Query jobUpdateQuery = session.createQuery(jobUpdate);
+                for (JournalEntry entry : lastJobEntries.values()) {
+                    if (entry.jobFinishedTime > 0 &&
+                        setJobFinishedTime(session, entry.jobId, entry.jobFinishedTime)) {
+                        accounts.jobFinished(entry.owner, entry.jobFinishedTime - entry.jobStartTime);
+                    }
+                    jobUpdateQuery.setParameter("status", entry.jobStatus).setParameter("startTime",
+                            entry.jobStartTime).setParameter("finishedTime", entry.jobFinishedTime)
+                            .setParameter("numberOfPendingTasks", entry.numberOfPendingTasks).setParameter(
+                                    "numberOfFinishedTasks", entry.numberOfFinishedTasks).setParameter(
+                                    "numberOfRunningTasks", entry.numberOfRunningTasks).setParameter("jobId",
+                                    entry.jobId).executeUpdate();
+
+                    if (finishedJobStatuses.contains(entry.jobStatus)) {
+                        removeJobRuntimeData(session, entry.jobId);
+                    }
                 }
 
-                if (finishedJobStatuses.contains(job.getStatus())) {
-                    removeJobRuntimeData(session, jobId);
-                }
+                accounts.write(session, statementCounter);
 
                 return null;
             }
@@ -719,15 +1165,117 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
         });
     }
 
+    private void writeTaskStarted(Session session, JournalEntry.TaskStarted entry) {
+        if (entry.taskStatusToPending) {
+            JobData job = (JobData) session.load(JobData.class, entry.jobId);
+            String taskStatusUpdate = "update TaskData task set task.taskStatus = :taskStatus "
+                + "where task.jobData = :job";
+            session.createQuery(taskStatusUpdate).setParameter("taskStatus", TaskStatus.PENDING)
+                    .setParameter("job", job).executeUpdate();
+        }
+
+        String taskUpdate = "update TaskData task set task.taskStatus = :taskStatus, "
+            + "task.startTime = :startTime, task.finishedTime = :finishedTime, "
+            + "task.executionHostName = :executionHostName where task.id = :taskId";
+
+        session.createQuery(taskUpdate).setParameter("taskStatus", entry.taskStatus).setParameter(
+                "startTime", entry.startTime).setParameter("finishedTime", entry.finishedTime).setParameter(
+                "executionHostName", entry.executionHostName).setParameter("taskId",
+                taskId(entry.jobId, entry.taskId)).executeUpdate();
+    }
+
+    private void writeTaskRestarted(Session session, JournalEntry.TaskRestarted entry) {
+        TaskData.DBTaskId taskId = taskId(entry.jobId, entry.taskId);
+
+        String taskUpdate = "update TaskData set taskStatus = :taskStatus, "
+            + "numberOfExecutionLeft = :numberOfExecutionLeft,"
+            + "numberOfExecutionOnFailureLeft = :numberOfExecutionOnFailureLeft" + " where id = :taskId";
+
+        session.createQuery(taskUpdate).setParameter("taskStatus", entry.taskStatus).setParameter(
+                "numberOfExecutionLeft", entry.numberOfExecutionLeft).setParameter(
+                "numberOfExecutionOnFailureLeft", entry.numberOfExecutionOnFailureLeft).setParameter(
+                "taskId", taskId).executeUpdate();
+
+        if (entry.result != null) {
+            saveTaskResult(taskId, entry.result, session);
+        }
+    }
+
+    private static void writeFinishedTasks(Session session, final List<JournalEntry.TaskRow> rows,
+            final StatementCountInterceptor statementCounter, final AccountUpdates accounts) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        session.doWork(new Work() {
+            @Override
+            public void execute(Connection connection) throws SQLException {
+                statementCounter.statementsExecuted(updateFinishedTasks(connection, rows, accounts));
+            }
+        });
+        rows.clear();
+    }
+
     private TaskResultData saveTaskResult(TaskData.DBTaskId taskId, TaskResultImpl result, Session session) {
         TaskData taskRuntimeData = (TaskData) session.load(TaskData.class, taskId);
 
-        TaskResultData resultData = TaskResultData.createTaskResultData(taskRuntimeData, result);
+        TaskResultData resultData = TaskResultData.createTaskResultData(taskRuntimeData, result,
+                resultStore, resultStoreThreshold);
         session.save(resultData);
 
         return resultData;
     }
 
+    /**
+     * Write the status, finished time and execution duration of the given tasks using JDBC batches.
+     * As before, rows of tasks already finished in the database are left untouched, the tasks
+     * whose row is actually updated with a finished time are added to the accounts.
+     *
+     * @return the number of batches sent to the database
+     */
+    private static int updateFinishedTasks(Connection connection, List<JournalEntry.TaskRow> rows,
+            AccountUpdates accounts) throws SQLException {
+        int batches = 0;
+        PreparedStatement statement = connection.prepareStatement(TASK_FINISHED_UPDATE);
+        try {
+            int pending = 0;
+            int batchStart = 0;
+            for (JournalEntry.TaskRow row : rows) {
+                // the status is mapped using the default ordinal enum type
+                statement.setInt(1, row.status.ordinal());
+                statement.setLong(2, row.finishedTime);
+                statement.setLong(3, row.executionDuration);
+                statement.setLong(4, row.jobId);
+                statement.setLong(5, row.taskId);
+                statement.addBatch();
+                if (++pending == TASK_UPDATE_BATCH_SIZE) {
+                    accountFinishedTasks(statement.executeBatch(), rows, batchStart, accounts);
+                    batches++;
+                    batchStart += pending;
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                accountFinishedTasks(statement.executeBatch(), rows, batchStart, accounts);
+                batches++;
+            }
+        } finally {
+            statement.close();
+        }
+        return batches;
+    }
+
+    private static void accountFinishedTasks(int[] updateCounts, List<JournalEntry.TaskRow> rows,
+            int batchStart, AccountUpdates accounts) {
+        for (int i = 0; i < updateCounts.length; i++) {
+            JournalEntry.TaskRow row = rows.get(batchStart + i);
+            // drivers may not tell the number of updated rows, the update is then assumed done
+            boolean updated = updateCounts[i] > 0 || updateCounts[i] == Statement.SUCCESS_NO_INFO;
+            if (updated && row.finishedTime > 0) {
+                accounts.taskFinished(row.owner, row.finishedTime - row.startTime);
+            }
+        }
+    }
+
     public void jobSetToBeRemoved(final JobId jobId) {
         runWithTransaction(new SessionWork<Void>() {
             @Override
@@ -749,6 +1297,8 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
             throw new IllegalArgumentException("TaskIds list is empty");
         }
 
+        waitJournalWritten();
+
         return runWithoutTransaction(new SessionWork<Map<TaskId, TaskResult>>() {
 
             @Override
@@ -809,6 +1359,8 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
     }
 
     public JobResult loadJobResult(final JobId jobId) {
+        waitJournalWritten();
+
         return runWithoutTransaction(new SessionWork<JobResult>() {
 
             @Override
@@ -860,8 +1412,8 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
             boolean nextTask = !dbTaskId.equals(currentTaskId);
             if (nextTask) {
                 TaskId taskId = TaskIdImpl.createTaskId(jobId, taskName, dbTaskId.getTaskId(), false);
-                jobResult.addTaskResult(taskName, resultData.toTaskResult(taskId, jobClasspath),
-                        preciousResult);
+                jobResult.addTaskResult(taskName, resultData.toTaskResult(taskId, jobClasspath,
+                        resultStore), preciousResult);
                 currentTaskId = dbTaskId;
             }
 
@@ -878,6 +1430,8 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
     }
 
     public TaskResult loadTaskResult(final JobId jobId, final String taskName, final int index) {
+        waitJournalWritten();
+
         return runWithoutTransaction(new SessionWork<TaskResult>() {
 
             @Override
@@ -905,6 +1459,8 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
     }
 
     public TaskResult loadTaskResult(final TaskId taskId, final int index) {
+        waitJournalWritten();
+
         return runWithoutTransaction(new SessionWork<TaskResult>() {
             @Override
             TaskResult executeWork(Session session) {
@@ -934,10 +1490,78 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
                     "select job.classpath from JobData job where job.id =:jobId").setParameter("jobId",
                     jobId(taskId.getJobId())).uniqueResult();
 
-            return results.get(0).toTaskResult(taskId, classpath);
+            return results.get(0).toTaskResult(taskId, classpath, resultStore);
         }
     }
 
+    /**
+     * Read a part of the serialized value of the last result of the given task. When the value is
+     * in the result store, only the requested part is read and sent back.
+     *
+     * @param jobId the job of the task
+     * @param taskName the name of the task
+     * @param offset the position of the part in the serialized value
+     * @param length the maximum length of the part, reduced to
+     *          {@link SchedulerConstants#TASK_RESULT_VALUE_PART_MAX_LENGTH} if greater
+     * @return the part of the serialized value, shorter than length at the end of the value,
+     *          null if the task has no result yet
+     */
+    public byte[] readTaskResultValue(final JobId jobId, final String taskName, final long offset,
+            final int length) {
+        waitJournalWritten();
+
+        Object[] value = runWithoutTransaction(new SessionWork<Object[]>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            Object[] executeWork(Session session) {
+                long taskCount = (Long) session.createQuery(
+                        "select count(*) from TaskData where taskName = :taskName and id.jobId = :jobId")
+                        .setParameter("taskName", taskName).setParameter("jobId", jobId(jobId))
+                        .uniqueResult();
+                if (taskCount == 0) {
+                    throw new DatabaseManagerException("Failed to read result for task '" + taskName +
+                        ", job: " + jobId);
+                }
+
+                Query query = session.createQuery(
+                        "select result.serializedValueKey, result.serializedValue from TaskResultData result "
+                            + "where result.taskRuntimeData.id.jobId = :jobId and "
+                            + "result.taskRuntimeData.taskName = :taskName order by result.resultTime desc")
+                        .setParameter("jobId", jobId(jobId)).setParameter("taskName", taskName);
+                query.setMaxResults(1);
+                List<Object[]> results = (List<Object[]>) query.list();
+                return results.isEmpty() ? null : results.get(0);
+            }
+
+        });
+
+        if (value == null) {
+            return null;
+        }
+        String key = (String) value[0];
+        if (key != null) {
+            if (resultStoreReader == null) {
+                throw new DatabaseManagerException("No result store to read the result of task " +
+                    taskName);
+            }
+            try {
+                return resultStoreReader.read(key, offset, length);
+            } catch (IOException e) {
+                throw new DatabaseManagerException("Failed to read the result of task " + taskName +
+                    " (job: " + jobId + ") from the result store", e);
+            }
+        }
+        byte[] serializedValue = (byte[]) value[1];
+        if (serializedValue == null || offset >= serializedValue.length) {
+            return new byte[0];
+        }
+        int maxLength = Math.min(length, SchedulerConstants.TASK_RESULT_VALUE_PART_MAX_LENGTH);
+        int partLength = (int) Math.min(maxLength, serializedValue.length - offset);
+        byte[] part = new byte[partLength];
+        System.arraycopy(serializedValue, (int) offset, part, 0, partLength);
+        return part;
+    }
+
     @SuppressWarnings("unchecked")
     private void saveClasspathContentIfNeeded(Session session, JobEnvironment jobEnv) {
         if (jobEnv != null && jobEnv.getJobClasspath() != null) {
@@ -971,9 +1595,10 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
 
                 job.setId(new JobIdImpl(jobRuntimeData.getId(), job.getName()));
 
-                List<InternalTask> tasksWithNewIds = new ArrayList<InternalTask>();
-                for (int i = 0; i < job.getITasks().size(); i++) {
-                    InternalTask task = job.getITasks().get(i);
+                List<InternalTask> submittedTasks = job.getITasks();
+                List<InternalTask> tasksWithNewIds = new ArrayList<InternalTask>(submittedTasks.size());
+                for (int i = 0; i < submittedTasks.size(); i++) {
+                    InternalTask task = submittedTasks.get(i);
                     task.setId(TaskIdImpl.createTaskId(job.getId(), task.getTaskInfo().getTaskId()
                             .getReadableName(), i, true));
                     tasksWithNewIds.add(task);
@@ -1109,6 +1734,16 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
         }
     }
 
+    private static ExecutableContainer createExecutableContainer(Object taskData) throws Exception {
+        if (taskData instanceof JavaTaskData) {
+            return ((JavaTaskData) taskData).createExecutableContainer();
+        } else if (taskData instanceof ForkedJavaTaskData) {
+            return ((ForkedJavaTaskData) taskData).createExecutableContainer();
+        } else {
+            return ((NativeTaskData) taskData).createExecutableContainer();
+        }
+    }
+
     public ExecutableContainer loadExecutableContainer(final InternalTask task) {
         return runWithoutTransaction(new SessionWork<ExecutableContainer>() {
             @Override
@@ -1119,18 +1754,109 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
         });
     }
 
+    /**
+     * Load the executable containers of the given tasks in a few queries: one per type of task and
+     * per batch of 100 tasks. Replicated tasks whose original task is known share its definition,
+     * which is loaded once, but each task gets its own container.
+     *
+     * @param tasks the tasks whose executable container has to be loaded
+     * @return the executable container of each task
+     */
+    public Map<TaskId, ExecutableContainer> loadExecutableContainers(final Collection<InternalTask> tasks) {
+        return runWithoutTransaction(new SessionWork<Map<TaskId, ExecutableContainer>>() {
+            @Override
+            Map<TaskId, ExecutableContainer> executeWork(Session session) {
+                // tasks sharing the same definition, by type of task and by defining task
+                Map<Class<?>, Map<TaskData.DBTaskId, List<InternalTask>>> definitions;
+                definitions = new HashMap<Class<?>, Map<TaskData.DBTaskId, List<InternalTask>>>();
+                for (InternalTask task : tasks) {
+                    InternalTask definition = task;
+                    while (definition.getReplicatedFrom() != null) {
+                        definition = definition.getReplicatedFrom();
+                    }
+                    Map<TaskData.DBTaskId, List<InternalTask>> byDefinition = definitions.get(task
+                            .getClass());
+                    if (byDefinition == null) {
+                        byDefinition = new HashMap<TaskData.DBTaskId, List<InternalTask>>();
+                        definitions.put(task.getClass(), byDefinition);
+                    }
+                    List<InternalTask> sharing = byDefinition.get(taskId(definition));
+                    if (sharing == null) {
+                        sharing = new ArrayList<InternalTask>(1);
+                        byDefinition.put(taskId(definition), sharing);
+                    }
+                    sharing.add(task);
+                }
+
+                Map<TaskId, ExecutableContainer> containers = new HashMap<TaskId, ExecutableContainer>(tasks
+                        .size());
+                try {
+                    for (Map.Entry<Class<?>, Map<TaskData.DBTaskId, List<InternalTask>>> entry : definitions
+                            .entrySet()) {
+                        String entityName;
+                        if (entry.getKey().equals(InternalJavaTask.class)) {
+                            entityName = "JavaTaskData";
+                        } else if (entry.getKey().equals(InternalForkedJavaTask.class)) {
+                            entityName = "ForkedJavaTaskData";
+                        } else if (entry.getKey().equals(InternalNativeTask.class)) {
+                            entityName = "NativeTaskData";
+                        } else {
+                            throw new IllegalArgumentException("Unexpected task class: " + entry.getKey());
+                        }
+                        Query query = session.createQuery("from " + entityName +
+                            " td where td.taskData.id in (:taskIds)");
+                        Map<TaskData.DBTaskId, List<InternalTask>> byDefinition = entry.getValue();
+                        List<TaskData.DBTaskId> ids = new ArrayList<TaskData.DBTaskId>(byDefinition.keySet());
+                        final int BATCH_SIZE = 100;
+                        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+                            query.setParameterList("taskIds", ids.subList(from, Math.min(from + BATCH_SIZE,
+                                    ids.size())));
+                            for (Object taskData : query.list()) {
+                                TaskData.DBTaskId id;
+                                if (taskData instanceof NativeTaskData) {
+                                    id = ((NativeTaskData) taskData).getTaskData().getId();
+                                } else {
+                                    id = ((CommonJavaTaskData) taskData).getTaskData().getId();
+                                }
+                                for (InternalTask task : byDefinition.get(id)) {
+                                    containers.put(task.getId(), createExecutableContainer(taskData));
+                                }
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new DatabaseManagerException(e);
+                }
+
+                for (InternalTask task : tasks) {
+                    if (!containers.containsKey(task.getId())) {
+                        throw new DatabaseManagerException("Failed to load data for task " + task.getId());
+                    }
+                }
+                return containers;
+            }
+
+        });
+    }
+
     private <T> T runWithTransaction(SessionWork<T> sessionWork) {
         return runWithTransaction(sessionWork, true);
     }
 
     private <T> T runWithTransaction(SessionWork<T> sessionWork, boolean readonly) {
-        Session session = sessionFactory.openSession();
+        // the contents stored by the transaction must not be removed until it is committed
+        Lock resultStoreReadLock = (resultStore != null) ? resultStoreLock.readLock() : null;
+        if (resultStoreReadLock != null) {
+            resultStoreReadLock.lock();
+        }
+        Session session = sessionFactory.withOptions().interceptor(sessionWork.statementCounter).openSession();
         Transaction tx = null;
         try {
             session.setDefaultReadOnly(readonly);
             tx = session.beginTransaction();
             T result = sessionWork.executeWork(session);
             tx.commit();
+            transactionCommitted(sessionWork.statementCounter.getCount());
             return result;
         } catch (Throwable e) {
             if (tx != null) {
@@ -1149,7 +1875,53 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
             } catch (Throwable e) {
                 debugLogger.warn("Failed to close session", e);
             }
+            if (resultStoreReadLock != null) {
+                resultStoreReadLock.unlock();
+            }
+        }
+    }
+
+    private synchronized void transactionCommitted(int statements) {
+        transactionsCount++;
+        transactionsStatementsCount += statements;
+        lastTransactionStatementsCount = statements;
+        if (statements > maxTransactionStatementsCount) {
+            maxTransactionStatementsCount = statements;
+        }
+        if (debugLogger.isDebugEnabled()) {
+            debugLogger.debug("Transaction committed, " + statements + " statements");
+        }
+    }
+
+    /**
+     * @return the number of transactions committed since the scheduler started
+     */
+    public synchronized long getTransactionsCount() {
+        return transactionsCount;
+    }
+
+    /**
+     * @return the number of statements issued by the last committed transaction
+     */
+    public synchronized int getLastTransactionStatementsCount() {
+        return lastTransactionStatementsCount;
+    }
+
+    /**
+     * @return the highest number of statements issued by one committed transaction
+     */
+    public synchronized int getMaxTransactionStatementsCount() {
+        return maxTransactionStatementsCount;
+    }
+
+    /**
+     * @return the mean number of statements issued per committed transaction
+     */
+    public synchronized double getMeanTransactionStatementsCount() {
+        if (transactionsCount == 0) {
+            return 0;
         }
+        return (double) transactionsStatementsCount / transactionsCount;
     }
 
     private <T> T runWithoutTransaction(SessionWork<T> sessionWork) {
@@ -1182,6 +1954,13 @@ public class SchedulerDBManager implements FilteredExceptionCallback {
         return id;
     }
 
+    private static TaskData.DBTaskId taskId(long jobId, long taskId) {
+        TaskData.DBTaskId id = new TaskData.DBTaskId();
+        id.setJobId(jobId);
+        id.setTaskId(taskId);
+        return id;
+    }
+
     private static long jobId(InternalJob job) {
         return jobId(job.getId());
     }
@@ -70,7 +70,27 @@ public class SchedulerStateRecoverHelper {
         this.dbManager = dbManager;
     }
 
+    /**
+     * Recovers the scheduler state, finished jobs being loaded with their tasks.
+     *
+     * @return the recovered state.
+     */
     public RecoveredSchedulerState recover() {
+        return recover(true);
+    }
+
+    /**
+     * Recovers the scheduler state. Pending and running jobs are always fully loaded,
+     * finished jobs are loaded with their tasks only if requested, otherwise they
+     * are summaries holding only the job information.
+     *
+     * @param loadFinishedJobsTasks true to load the tasks of the finished jobs.
+     * @return the recovered state.
+     */
+    public RecoveredSchedulerState recover(boolean loadFinishedJobsTasks) {
+        // transitions acknowledged before a crash but not yet written in the database
+        dbManager.replayJournal();
+
         List<InternalJob> notFinishedJobs = dbManager.loadNotFinishedJobs(true);
 
         Vector<InternalJob> pendingJobs = new Vector<InternalJob>();
@@ -137,7 +157,8 @@ public class SchedulerStateRecoverHelper {
             }
         }
 
-        Vector<InternalJob> finishedJobs = new Vector<InternalJob>(dbManager.loadFinishedJobs(false));
+        Vector<InternalJob> finishedJobs = new Vector<InternalJob>(loadFinishedJobsTasks ? dbManager
+                .loadFinishedJobs(false) : dbManager.loadFinishedJobsSummaries());
 
         return new RecoveredSchedulerState(pendingJobs, runningJobs, finishedJobs);
     }
@@ -0,0 +1,29 @@
+package org.ow2.proactive.scheduler.core.db;
+
+import org.hibernate.EmptyInterceptor;
+
+
+/**
+ * Counts the SQL statements prepared by Hibernate for one session. Statements executed
+ * directly on the JDBC connection are not seen by Hibernate and have to be reported
+ * with {@link #statementsExecuted(int)}.
+ */
+public class StatementCountInterceptor extends EmptyInterceptor {
+
+    private int count;
+
+    @Override
+    public String onPrepareStatement(String sql) {
+        count++;
+        return sql;
+    }
+
+    public void statementsExecuted(int statements) {
+        count += statements;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+}
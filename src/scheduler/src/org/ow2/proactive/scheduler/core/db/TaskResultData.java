@@ -1,5 +1,8 @@
 package org.ow2.proactive.scheduler.core.db;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 
 import javax.persistence.Column;
@@ -14,15 +17,18 @@ import javax.persistence.Lob;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.Index;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 import org.hibernate.annotations.Parameter;
 import org.hibernate.annotations.Type;
 import org.hibernate.type.SerializableToBlobType;
+import org.ow2.proactive.db.DatabaseManagerException;
 import org.ow2.proactive.scheduler.common.task.TaskId;
 import org.ow2.proactive.scheduler.common.task.TaskLogs;
 import org.ow2.proactive.scheduler.common.task.flow.FlowAction;
 import org.ow2.proactive.scheduler.task.TaskResultImpl;
+import org.ow2.proactive.utils.ObjectByteConverter;
 
 
 @Entity
@@ -43,16 +49,42 @@ public class TaskResultData {
 
     private Map<String, String> propagatedProperties;
 
+    private Map<String, String> metadata;
+
     private FlowActionData flowAction;
 
     private TaskLogs logs;
 
-    TaskResultImpl toTaskResult(TaskId taskId, String[] jobClasspath) {
+    private String serializedValueKey;
+
+    private String serializedExceptionKey;
+
+    private String logsKey;
+
+    TaskResultImpl toTaskResult(TaskId taskId, String[] jobClasspath, TaskResultStore store) {
+        byte[] serializedValue = getSerializedValue();
+        byte[] serializedException = getSerializedException();
+        TaskLogs logs = getLogs();
+        try {
+            if (getSerializedValueKey() != null) {
+                serializedValue = load(store, getSerializedValueKey());
+            }
+            if (getSerializedExceptionKey() != null) {
+                serializedException = load(store, getSerializedExceptionKey());
+            }
+            if (getLogsKey() != null) {
+                logs = (TaskLogs) ObjectByteConverter.byteArrayToObject(load(store, getLogsKey()));
+            }
+        } catch (Exception e) {
+            throw new DatabaseManagerException("Failed to load the result of task " + taskId +
+                " from the result store", e);
+        }
 
-        TaskResultImpl result = new TaskResultImpl(taskId, getSerializedValue(), getSerializedException(),
-            getLogs(), getPropagatedProperties());
+        TaskResultImpl result = new TaskResultImpl(taskId, serializedValue, serializedException, logs,
+            getPropagatedProperties());
 
         result.setPreviewerClassName(getPreviewerClassName());
+        result.setMetadata(getMetadata());
         result.setJobClasspath(jobClasspath);
         FlowActionData actionData = getFlowAction();
         if (actionData != null) {
@@ -67,16 +99,45 @@ public class TaskResultData {
         return result;
     }
 
-    static TaskResultData createTaskResultData(TaskData taskRuntimeData, TaskResultImpl result) {
+    /**
+     * Create the data of the given result. If a result store is given, the value, exception and logs
+     * bigger than the threshold are written in the store and only their key is kept.
+     */
+    static TaskResultData createTaskResultData(TaskData taskRuntimeData, TaskResultImpl result,
+            TaskResultStore store, int storeThreshold) {
         TaskResultData resultData = new TaskResultData();
         resultData.setTaskRuntimeData(taskRuntimeData);
         resultData.setLogs(result.getOutput());
         resultData.setPreviewerClassName(result.getPreviewerClassName());
         resultData.setPropagatedProperties(result.getPropagatedProperties());
+        resultData.setMetadata(result.getMetadata());
         resultData.setSerializedException(result.getSerializedException());
         resultData.setSerializedValue(result.getSerializedValue());
         resultData.setResultTime(System.currentTimeMillis());
 
+        if (store != null) {
+            try {
+                if (isAbove(resultData.getSerializedValue(), storeThreshold)) {
+                    resultData.setSerializedValueKey(store.store(resultData.getSerializedValue()));
+                    resultData.setSerializedValue(null);
+                }
+                if (isAbove(resultData.getSerializedException(), storeThreshold)) {
+                    resultData.setSerializedExceptionKey(store.store(resultData.getSerializedException()));
+                    resultData.setSerializedException(null);
+                }
+                if (resultData.getLogs() != null) {
+                    byte[] serializedLogs = ObjectByteConverter.objectToByteArray(resultData.getLogs());
+                    if (isAbove(serializedLogs, storeThreshold)) {
+                        resultData.setLogsKey(store.store(serializedLogs));
+                        resultData.setLogs(null);
+                    }
+                }
+            } catch (IOException e) {
+                throw new DatabaseManagerException("Failed to write the result of task " +
+                    result.getTaskId() + " in the result store", e);
+            }
+        }
+
         FlowAction flowAction = result.getAction();
         if (flowAction != null) {
             FlowActionData actionData = new FlowActionData();
@@ -91,6 +152,28 @@ public class TaskResultData {
         return resultData;
     }
 
+    private static boolean isAbove(byte[] content, int threshold) {
+        return content != null && content.length > threshold;
+    }
+
+    private static byte[] load(TaskResultStore store, String key) throws IOException {
+        if (store == null) {
+            throw new IOException("No result store is configured to load content " + key);
+        }
+        InputStream in = store.open(key);
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return content.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
     @Id
     @GeneratedValue
     public long getId() {
@@ -161,6 +244,36 @@ public class TaskResultData {
         this.serializedException = serializedException;
     }
 
+    @Column(name = "RESULT_VALUE_KEY", length = 100)
+    @Index(name = "result_value_key_index")
+    public String getSerializedValueKey() {
+        return serializedValueKey;
+    }
+
+    public void setSerializedValueKey(String serializedValueKey) {
+        this.serializedValueKey = serializedValueKey;
+    }
+
+    @Column(name = "RESULT_EXCEPTION_KEY", length = 100)
+    @Index(name = "result_exception_key_index")
+    public String getSerializedExceptionKey() {
+        return serializedExceptionKey;
+    }
+
+    public void setSerializedExceptionKey(String serializedExceptionKey) {
+        this.serializedExceptionKey = serializedExceptionKey;
+    }
+
+    @Column(name = "LOGS_KEY", length = 100)
+    @Index(name = "result_logs_key_index")
+    public String getLogsKey() {
+        return logsKey;
+    }
+
+    public void setLogsKey(String logsKey) {
+        this.logsKey = logsKey;
+    }
+
     @Column(name = "PREVIEWER_CLASS", length = 1000)
     public String getPreviewerClassName() {
         return previewerClassName;
@@ -180,4 +293,14 @@ public class TaskResultData {
         this.propagatedProperties = propagatedProperties;
     }
 
+    @Column(name = "METADATA", updatable = false)
+    @Type(type = "org.hibernate.type.SerializableToBlobType", parameters = @Parameter(name = SerializableToBlobType.CLASS_NAME, value = "java.lang.Object"))
+    public Map<String, String> getMetadata() {
+        return metadata;
+    }
+
+    public void setMetadata(Map<String, String> metadata) {
+        this.metadata = metadata;
+    }
+
 }
@@ -0,0 +1,52 @@
+package org.ow2.proactive.scheduler.core.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Store of the task result values, exceptions and logs too large to be kept in the database.
+ * <p>
+ * The database only keeps the key returned by {@link #store(byte[])}. A content can be referenced
+ * by several task results, it must only be removed once it is no longer referenced: the caller
+ * makes sure that a content is not stored again while it is being removed.
+ * Implementations must be thread safe.
+ */
+public interface TaskResultStore {
+
+    /**
+     * Store the given content if it is not already stored.
+     *
+     * @param content the content to store
+     * @return the key of the content
+     * @throws IOException if the content cannot be stored
+     */
+    String store(byte[] content) throws IOException;
+
+    /**
+     * Open the content stored with the given key.
+     *
+     * @param key the key of the content
+     * @return a stream on the content, to be closed by the caller
+     * @throws IOException if the content cannot be read
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Return the size of the content stored with the given key, as returned by {@link #open(String)}.
+     *
+     * @param key the key of the content
+     * @return the size of the content in bytes
+     * @throws IOException if the content cannot be read
+     */
+    long size(String key) throws IOException;
+
+    /**
+     * Remove the content stored with the given key, nothing is done if there is none.
+     *
+     * @param key the key of the content
+     * @throws IOException if the content cannot be removed
+     */
+    void remove(String key) throws IOException;
+
+}
@@ -0,0 +1,173 @@
+package org.ow2.proactive.scheduler.core.db;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.ow2.proactive.scheduler.common.SchedulerConstants;
+
+
+/**
+ * Reads the contents of a task result store by chunks.
+ * <p>
+ * The stream of a content read sequentially is kept open at the end of the last chunk, so that
+ * the content is not decompressed again from its start for each chunk. Streams are kept by key
+ * and position: a reader continuing a content gets back its own stream, even if the same content
+ * is read by others at the same time. At most {@link #MAX_OPEN_STREAMS} streams are kept open,
+ * the least recently read are closed first, and a stream which has not been read for
+ * {@link #IDLE_TIMEOUT} milliseconds is closed at the next read.
+ */
+class TaskResultStoreReader {
+
+    /** Maximum number of streams kept open */
+    static final int MAX_OPEN_STREAMS = 16;
+
+    /** Time in millis after which an unread stream is closed */
+    static final long IDLE_TIMEOUT = 60 * 1000;
+
+    private final TaskResultStore store;
+
+    /** Open streams by key and position, the least recently read first */
+    private final Map<String, PositionedStream> streams = new LinkedHashMap<String, PositionedStream>();
+
+    TaskResultStoreReader(TaskResultStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Read a chunk of the content stored with the given key.
+     *
+     * @param key the key of the content
+     * @param offset the position of the chunk in the content
+     * @param length the maximum length of the chunk, reduced to
+     *          {@link SchedulerConstants#TASK_RESULT_VALUE_PART_MAX_LENGTH} if greater
+     * @return the chunk, shorter than length at the end of the content
+     * @throws IOException if the content cannot be read
+     */
+    byte[] read(String key, long offset, int length) throws IOException {
+        long size = store.size(key);
+        long chunkLength = Math.min(Math.min(length, SchedulerConstants.TASK_RESULT_VALUE_PART_MAX_LENGTH),
+                size - offset);
+        if (chunkLength <= 0) {
+            return new byte[0];
+        }
+
+        // the stream is read outside of the lock, other contents can be read meanwhile
+        PositionedStream stream = take(key, offset);
+        if (stream == null) {
+            stream = new PositionedStream(store.open(key));
+        }
+        try {
+            stream.skipTo(offset);
+            byte[] chunk = stream.read((int) chunkLength);
+            if (stream.position < size) {
+                release(key, stream);
+            } else {
+                stream.close();
+            }
+            return chunk;
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Close the streams kept open.
+     */
+    synchronized void close() {
+        for (PositionedStream stream : streams.values()) {
+            stream.close();
+        }
+        streams.clear();
+    }
+
+    private synchronized PositionedStream take(String key, long offset) {
+        long idleLimit = System.currentTimeMillis() - IDLE_TIMEOUT;
+        for (Iterator<PositionedStream> it = streams.values().iterator(); it.hasNext();) {
+            PositionedStream stream = it.next();
+            if (stream.lastRead >= idleLimit) {
+                break;
+            }
+            stream.close();
+            it.remove();
+        }
+        return streams.remove(streamKey(key, offset));
+    }
+
+    private synchronized void release(String key, PositionedStream stream) {
+        stream.lastRead = System.currentTimeMillis();
+        // another reader may have reached the same position of the same content
+        PositionedStream previous = streams.remove(streamKey(key, stream.position));
+        if (previous != null) {
+            previous.close();
+        }
+        streams.put(streamKey(key, stream.position), stream);
+        if (streams.size() > MAX_OPEN_STREAMS) {
+            Iterator<PositionedStream> eldest = streams.values().iterator();
+            eldest.next().close();
+            eldest.remove();
+        }
+    }
+
+    private static String streamKey(String key, long position) {
+        return key + '@' + position;
+    }
+
+    private static class PositionedStream {
+
+        private final InputStream in;
+
+        private long position;
+
+        private long lastRead;
+
+        PositionedStream(InputStream in) {
+            this.in = in;
+        }
+
+        void skipTo(long offset) throws IOException {
+            while (position < offset) {
+                long skipped = in.skip(offset - position);
+                if (skipped <= 0) {
+                    // skip may stop before the end, only read can tell
+                    if (in.read() == -1) {
+                        return;
+                    }
+                    skipped = 1;
+                }
+                position += skipped;
+            }
+        }
+
+        byte[] read(int length) throws IOException {
+            byte[] chunk = new byte[length];
+            int total = 0;
+            while (total < length) {
+                int read = in.read(chunk, total, length - total);
+                if (read == -1) {
+                    break;
+                }
+                total += read;
+            }
+            position += total;
+            if (total < length) {
+                byte[] end = new byte[total];
+                System.arraycopy(chunk, 0, end, 0, total);
+                return end;
+            }
+            return chunk;
+        }
+
+        void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // nothing more to read
+            }
+        }
+    }
+
+}
@@ -46,6 +46,7 @@ import org.apache.log4j.Logger;
 import org.ow2.proactive.jmx.AbstractJMXHelper;
 import org.ow2.proactive.jmx.RRDDataStore;
 import org.ow2.proactive.scheduler.core.account.SchedulerAccountsManager;
+import org.ow2.proactive.scheduler.core.db.SchedulerDBManager;
 import org.ow2.proactive.scheduler.core.jmx.mbean.AllAccountsMBeanImpl;
 import org.ow2.proactive.scheduler.core.jmx.mbean.ManagementMBeanImpl;
 import org.ow2.proactive.scheduler.core.jmx.mbean.MyAccountMBeanImpl;
@@ -74,16 +75,22 @@ public class SchedulerJMXHelper extends AbstractJMXHelper {
     /** The accounts manager used by the MBeans */
     private final SchedulerAccountsManager accountsManager;
 
+    /** The database manager providing the transactions statistics */
+    private final SchedulerDBManager dbManager;
+
     /** The Scheduler Runtime MBean */
     private RuntimeDataMBeanImpl schedulerRuntimeMBean;
 
     /**
      * Creates a new instance of this class.
      * @param accountsManager the accounts manager
+     * @param dbManager the database manager
      */
-    public SchedulerJMXHelper(final SchedulerAccountsManager accountsManager) {
+    public SchedulerJMXHelper(final SchedulerAccountsManager accountsManager,
+            final SchedulerDBManager dbManager) {
         super(LOGGER);
         this.accountsManager = accountsManager;
+        this.dbManager = dbManager;
         SchedulerJMXHelper.instance = this;
     }
 
@@ -107,7 +114,7 @@ public class SchedulerJMXHelper extends AbstractJMXHelper {
     public void registerMBeans(final MBeanServer mbs) {
         // Register the Scheduler runtime MBean into the MBean server
         try {
-            this.schedulerRuntimeMBean = new RuntimeDataMBeanImpl();
+            this.schedulerRuntimeMBean = new RuntimeDataMBeanImpl(this.dbManager);
             final ObjectName name = new ObjectName(RUNTIMEDATA_MBEAN_NAME);
             mbs.registerMBean(this.schedulerRuntimeMBean, name);
 
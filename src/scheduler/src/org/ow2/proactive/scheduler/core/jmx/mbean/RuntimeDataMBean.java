@@ -133,6 +133,51 @@ public interface RuntimeDataMBean {
      */
     public int getJobSubmittingPeriod();
 
+    /**
+     * @return the median job pending time in milliseconds, for all the jobs
+     */
+    public long getJobPendingTimeP50();
+
+    /**
+     * @return the 95th percentile of the job pending time in milliseconds, for all the jobs
+     */
+    public long getJobPendingTimeP95();
+
+    /**
+     * @return the 99th percentile of the job pending time in milliseconds, for all the jobs
+     */
+    public long getJobPendingTimeP99();
+
+    /**
+     * @return the median task pending time in milliseconds, for all the jobs
+     */
+    public long getTaskPendingTimeP50();
+
+    /**
+     * @return the 95th percentile of the task pending time in milliseconds, for all the jobs
+     */
+    public long getTaskPendingTimeP95();
+
+    /**
+     * @return the 99th percentile of the task pending time in milliseconds, for all the jobs
+     */
+    public long getTaskPendingTimeP99();
+
+    /**
+     * @return the median task running time in milliseconds, for all the jobs
+     */
+    public long getTaskRunningTimeP50();
+
+    /**
+     * @return the 95th percentile of the task running time in milliseconds, for all the jobs
+     */
+    public long getTaskRunningTimeP95();
+
+    /**
+     * @return the 99th percentile of the task running time in milliseconds, for all the jobs
+     */
+    public long getTaskRunningTimeP99();
+
     /**
      * Returns the Key Performance Indicator related to the average of pending
      * time for a job.
@@ -198,6 +243,28 @@ public interface RuntimeDataMBean {
      */
     public long getMeanTaskRunningTime(String jobId);
 
+    /**
+     * This method gives the 50th, 95th and 99th percentiles of the task pending
+     * time for a given Job
+     *
+     * @param jobId
+     *            the id of the Job to check
+     * @return the percentiles of the task pending time for the given job, in
+     *         milliseconds.
+     */
+    public long[] getTaskPendingTimePercentiles(String jobId);
+
+    /**
+     * This method gives the 50th, 95th and 99th percentiles of the task running
+     * time for a given Job
+     *
+     * @param jobId
+     *            the id of the Job to check
+     * @return the percentiles of the task running time for the given job, in
+     *         milliseconds.
+     */
+    public long[] getTaskRunningTimePercentiles(String jobId);
+
     /**
      * This method gives the total number of nodes used by a given Job
      *
@@ -248,6 +315,87 @@ public interface RuntimeDataMBean {
      */
     public String getFormattedMeanTaskRunningTime(String jobId);
 
+    /**
+     * Returns the number of statements issued by the last database transaction.
+     *
+     * @return the number of statements issued by the last database transaction.
+     */
+    public int getLastTransactionStatementsCount();
+
+    /**
+     * Returns the highest number of statements issued by one database transaction.
+     *
+     * @return the highest number of statements issued by one database transaction.
+     */
+    public int getMaxTransactionStatementsCount();
+
+    /**
+     * Returns the mean number of statements issued per database transaction.
+     *
+     * @return the mean number of statements issued per database transaction.
+     */
+    public double getMeanTransactionStatementsCount();
+
+    /**
+     * Returns the number of task progress pings which returned.
+     *
+     * @return the number of task progress pings which returned.
+     */
+    public long getTaskPingsCount();
+
+    /**
+     * Returns the number of task progress pings which did not return within the ping timeout.
+     *
+     * @return the number of task progress pings which did not return within the ping timeout.
+     */
+    public long getTaskPingTimeoutsCount();
+
+    /**
+     * Returns the mean duration of a task progress ping in milliseconds.
+     *
+     * @return the mean duration of a task progress ping in milliseconds.
+     */
+    public int getMeanTaskPingTime();
+
+    /**
+     * Returns the highest duration of a task progress ping in milliseconds.
+     *
+     * @return the highest duration of a task progress ping in milliseconds.
+     */
+    public long getMaxTaskPingTime();
+
+    /**
+     * Returns the number of task progress pings which lasted less than 10ms, 100ms, 1s, 10s and more than 10s.
+     *
+     * @return the number of task progress pings in each duration range.
+     */
+    public long[] getTaskPingTimeDistribution();
+
+    /**
+     * Returns the number of scheduling loop cycles in which tasks were eligible or terminated.
+     *
+     * @return the number of recorded scheduling loop cycles.
+     */
+    public long getSchedulingCyclesCount();
+
+    /**
+     * This method gives the 50th, 95th and 99th percentiles of the time spent per cycle
+     * in a phase of the scheduling loop, over the last one or two profiler windows.
+     *
+     * @param phase
+     *            the name of the phase: SERVE_REQUESTS, POLICY, RM_STATE, GET_NODES,
+     *            LOAD_AND_INIT, CREATE_EXECUTION, TERMINATE or CYCLE
+     * @return the percentiles of the time spent in the phase, in microseconds.
+     */
+    public long[] getSchedulingPhaseTimePercentiles(String phase);
+
+    /**
+     * Returns the time spent in each phase of the scheduling loop as a printable table.
+     *
+     * @return the scheduling loop profile.
+     */
+    public String dumpSchedulingProfile();
+
     /**
      * Sends the statistics accumulated in the RRD data base
      *
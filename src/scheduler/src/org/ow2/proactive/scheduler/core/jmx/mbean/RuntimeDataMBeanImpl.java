@@ -37,10 +37,8 @@
 package org.ow2.proactive.scheduler.core.jmx.mbean;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -48,6 +46,7 @@ import javax.management.NotCompliantMBeanException;
 import javax.management.StandardMBean;
 
 import org.ow2.proactive.jmx.Chronological;
+import org.ow2.proactive.jmx.LogHistogram;
 import org.ow2.proactive.scheduler.common.NotificationData;
 import org.ow2.proactive.scheduler.common.SchedulerEvent;
 import org.ow2.proactive.scheduler.common.SchedulerUsers;
@@ -55,6 +54,9 @@ import org.ow2.proactive.scheduler.common.job.JobInfo;
 import org.ow2.proactive.scheduler.common.job.JobState;
 import org.ow2.proactive.scheduler.common.job.UserIdentification;
 import org.ow2.proactive.scheduler.common.task.TaskInfo;
+import org.ow2.proactive.scheduler.core.SchedulingLoopProfiler;
+import org.ow2.proactive.scheduler.core.TaskPingTracker;
+import org.ow2.proactive.scheduler.core.db.SchedulerDBManager;
 import org.ow2.proactive.scheduler.core.jmx.SchedulerJMXHelper;
 import org.ow2.proactive.utils.Tools;
 
@@ -113,23 +115,51 @@ public final class RuntimeDataMBeanImpl extends StandardMBean implements Runtime
     private final Map<String, Long> jobPendingTimeMap;
     private final Map<String, Long> jobRunningTimeMap;
 
-    /** The task timings list and the mean timings for the tasks of a given job */
-    private final Map<String, List<Long>> taskPendingTimeMap;
-    private final Map<String, List<Long>> taskRunningTimeMap;
+    /** The task timings histograms of the running jobs and the mean timings for the tasks of a given job */
+    private final Map<String, LogHistogram> taskPendingTimeMap;
+    private final Map<String, LogHistogram> taskRunningTimeMap;
     private final Map<String, Long> meanTaskPendingTimeMap;
     private final Map<String, Long> meanTaskRunningTimeMap;
+    /** The 50th, 95th and 99th percentiles of the task timings of the finished jobs */
+    private final Map<String, long[]> taskPendingTimePercentilesMap;
+    private final Map<String, long[]> taskRunningTimePercentilesMap;
+
+    /** The job pending time, task pending time and task running time histograms of all the jobs */
+    private final LogHistogram jobPendingTimeHistogram;
+    private final LogHistogram taskPendingTimeHistogram;
+    private final LogHistogram taskRunningTimeHistogram;
 
     /** Map of the number of nodes used by the jobs */
     private final Map<String, Integer> nodesUsedByJobMap;
     /** List of execution host for each task of each job */
     private final Map<String, Set<String>> executionHostNames;
 
+    /** The database manager providing the transactions statistics, can be null */
+    private final SchedulerDBManager dbManager;
+
+    /** The tracker providing the task progress pings statistics, null until the pings start */
+    private volatile TaskPingTracker pingTracker;
+
+    /** The profiler of the scheduling loop, null until the scheduling loop starts */
+    private volatile SchedulingLoopProfiler schedulingProfiler;
+
     /**
      * Empty constructor required by JMX
      */
     public RuntimeDataMBeanImpl() throws NotCompliantMBeanException {
+        this(null);
+    }
+
+    /**
+     * Creates the MBean reporting the transactions statistics of the given database manager
+     *
+     * @param dbManager the database manager of the scheduler
+     */
+    public RuntimeDataMBeanImpl(final SchedulerDBManager dbManager) throws NotCompliantMBeanException {
         super(RuntimeDataMBean.class);
 
+        this.dbManager = dbManager;
+
         // This MBean is instantiated by scheduler core 
         this.schedulerStartedTime = System.currentTimeMillis();
 
@@ -144,12 +174,19 @@ public final class RuntimeDataMBeanImpl extends StandardMBean implements Runtime
         // Initialize count maps
         this.jobPendingTimeMap = new HashMap<String, Long>();
         this.jobRunningTimeMap = new HashMap<String, Long>();
-        this.taskPendingTimeMap = new HashMap<String, List<Long>>();
-        this.taskRunningTimeMap = new HashMap<String, List<Long>>();
+        this.taskPendingTimeMap = new HashMap<String, LogHistogram>();
+        this.taskRunningTimeMap = new HashMap<String, LogHistogram>();
         this.meanTaskPendingTimeMap = new HashMap<String, Long>();
         this.nodesUsedByJobMap = new HashMap<String, Integer>();
         this.meanTaskRunningTimeMap = new HashMap<String, Long>();
         this.executionHostNames = new HashMap<String, Set<String>>();
+        this.taskPendingTimePercentilesMap = new HashMap<String, long[]>();
+        this.taskRunningTimePercentilesMap = new HashMap<String, long[]>();
+
+        // Initialize the histograms
+        this.jobPendingTimeHistogram = new LogHistogram();
+        this.taskPendingTimeHistogram = new LogHistogram();
+        this.taskRunningTimeHistogram = new LogHistogram();
     }
 
     /**
@@ -290,6 +327,8 @@ public final class RuntimeDataMBeanImpl extends StandardMBean implements Runtime
         this.finishedJobsCount++;
         // No more pending tasks
         this.numberOfPendingTasks.put(jobId, 0);
+        this.taskPendingTimeMap.remove(jobId);
+        this.taskRunningTimeMap.remove(jobId);
         // 
         // Add the meanTaskPendingTime for this job to the meanTaskPendingTimeMap in position [jobId]
         // long mean = this.computeMean(this.taskPendingTimeMap, jobId);
@@ -310,6 +349,8 @@ public final class RuntimeDataMBeanImpl extends StandardMBean implements Runtime
         this.numberOfPendingTasks.remove(jobId);
         this.numberOfRunningTasks.remove(jobId);
         this.numberOfFinishedTasks.remove(jobId);
+        this.taskPendingTimePercentilesMap.remove(jobId);
+        this.taskRunningTimePercentilesMap.remove(jobId);
     }
 
     /**
@@ -326,12 +367,13 @@ public final class RuntimeDataMBeanImpl extends StandardMBean implements Runtime
         this.numberOfFinishedTasks.put(jobId, info.getNumberOfFinishedTasks());
         // Call the private method to compute the mean execution time
         computeMeanJobExecutionTime(info);
-        // Add the meanTaskPendingTime for this job to the meanTaskPendingTimeMap in position [jobId]
-        long mean = this.computeMean(this.taskPendingTimeMap, jobId);
-        this.meanTaskPendingTimeMap.put(jobId, mean);
-        // Add the meanTaskRunningTime for this job to the meanTaskRunningTimeMap in position [jobId]
-        mean = this.computeMean(this.taskRunningTimeMap, jobId);
-        this.meanTaskRunningTimeMap.put(jobId, mean);
+        // Keep the mean and the percentiles of the task timings of this job, the histograms are no more needed
+        LogHistogram histogram = this.taskPendingTimeMap.remove(jobId);
+        this.meanTaskPendingTimeMap.put(jobId, (histogram == null) ? 0 : histogram.getMean());
+        this.taskPendingTimePercentilesMap.put(jobId, getPercentiles(histogram));
+        histogram = this.taskRunningTimeMap.remove(jobId);
+        this.meanTaskRunningTimeMap.put(jobId, (histogram == null) ? 0 : histogram.getMean());
+        this.taskRunningTimePercentilesMap.put(jobId, getPercentiles(histogram));
         // Put the number of nodes used by the Job and put it in the nodesUsedByJobMap in position [jobId]
         final Set<String> hostnames = this.executionHostNames.get(jobId);
         if (hostnames == null) {
@@ -387,11 +429,9 @@ public final class RuntimeDataMBeanImpl extends StandardMBean implements Runtime
         this.numberOfRunningTasks.put(jobId, this.numberOfRunningTasks.get(jobId) + 1);
         // Calculate the Pending time for this Task (taskStartTime - jobSubmittedTime)
         long taskPendingTime = (info.getStartTime() - info.getJobInfo().getSubmittedTime());
-        // Add the taskPendingTime for this task to the taskPendingTimeMap in position [jobTaskId]
-        if (this.taskPendingTimeMap.get(jobId) == null) {
-            this.taskPendingTimeMap.put(jobId, new ArrayList<Long>());
-        }
-        this.taskPendingTimeMap.get(jobId).add(taskPendingTime);
+        // Record the taskPendingTime for this task in the histogram of the job and in the global one
+        recordTime(this.taskPendingTimeMap, jobId, taskPendingTime);
+        this.taskPendingTimeHistogram.record(taskPendingTime);
     }
 
     /**
@@ -405,11 +445,9 @@ public final class RuntimeDataMBeanImpl extends StandardMBean implements Runtime
         this.numberOfFinishedTasks.put(jobId, this.numberOfFinishedTasks.get(jobId) + 1);
         // Calculate the Pending time for this Task (taskFinishedTime - taskStartTime)
         long taskRunningTime = (info.getFinishedTime() - info.getStartTime());
-        // Add the taskRunningTime for this task to the taskRunningTimeMap in position [jobTaskId]
-        if (this.taskRunningTimeMap.get(jobId) == null) {
-            this.taskRunningTimeMap.put(jobId, new ArrayList<Long>());
-        }
-        this.taskRunningTimeMap.get(jobId).add(taskRunningTime);
+        // Record the taskRunningTime for this task in the histogram of the job and in the global one
+        recordTime(this.taskRunningTimeMap, jobId, taskRunningTime);
+        this.taskRunningTimeHistogram.record(taskRunningTime);
         // Put the host name in the Map<jobTaskId,hostNames> of nodes used by the job
         if (this.executionHostNames.get(jobId) == null) {
             this.executionHostNames.put(jobId, new HashSet<String>());
@@ -525,6 +563,7 @@ public final class RuntimeDataMBeanImpl extends StandardMBean implements Runtime
         this.meanJobPendingTime = (this.cumulativePendingTime / this.counterJobPendingTime);
         // Add the jobPendingTime for this job to the jobPendingTimeMap in position [jobId]
         this.jobPendingTimeMap.put(jobId, jobPendingTime);
+        this.jobPendingTimeHistogram.record(jobPendingTime);
     }
 
     /**
@@ -571,28 +610,33 @@ public final class RuntimeDataMBeanImpl extends StandardMBean implements Runtime
     }
 
     /**
-     * Method to compute the mean of the values on a given map make of all the job and task keys
-     * with key in the form <jobId taskId>
+     * Records a task timing in the histogram of the given job
      *
-     * @param map
-     * @return a long representation of the mean
+     * @param map the histograms of the running jobs
+     * @param jobId the id of the job of the task
+     * @param time the timing of the task
      */
-    private long computeMean(final Map<String, List<Long>> map, final String jobId) {
-        final int size = map.size();
-        if (size == 0) {
-            return 0;
+    private void recordTime(final Map<String, LogHistogram> map, final String jobId, final long time) {
+        LogHistogram histogram = map.get(jobId);
+        if (histogram == null) {
+            histogram = new LogHistogram();
+            map.put(jobId, histogram);
         }
-        // Initialize the mean for the given job
-        long mean = 0;
-        List<Long> jobVals = map.get(jobId);
-        if (jobVals == null) {
-            return 0;
-        }
-        //if everything OK
-        for (final Long value : jobVals) {
-            mean += value;
+        histogram.record(time);
+    }
+
+    /**
+     * Returns the 50th, 95th and 99th percentiles of a histogram
+     *
+     * @param histogram the histogram, can be null
+     * @return the percentiles, 0 if the histogram is null
+     */
+    private long[] getPercentiles(final LogHistogram histogram) {
+        if (histogram == null) {
+            return new long[3];
         }
-        return mean / size;
+        return new long[] { histogram.getPercentile(50), histogram.getPercentile(95),
+                histogram.getPercentile(99) };
     }
 
     // ATTRIBUTES TO CONTROL
@@ -623,6 +667,192 @@ public final class RuntimeDataMBeanImpl extends StandardMBean implements Runtime
         return (int) this.jobSubmittingPeriod;
     }
 
+    /**
+     * @return the median job pending time
+     */
+    @Chronological
+    public long getJobPendingTimeP50() {
+        return this.jobPendingTimeHistogram.getPercentile(50);
+    }
+
+    /**
+     * @return the 95th percentile of the job pending time
+     */
+    @Chronological
+    public long getJobPendingTimeP95() {
+        return this.jobPendingTimeHistogram.getPercentile(95);
+    }
+
+    /**
+     * @return the 99th percentile of the job pending time
+     */
+    @Chronological
+    public long getJobPendingTimeP99() {
+        return this.jobPendingTimeHistogram.getPercentile(99);
+    }
+
+    /**
+     * @return the median task pending time
+     */
+    @Chronological
+    public long getTaskPendingTimeP50() {
+        return this.taskPendingTimeHistogram.getPercentile(50);
+    }
+
+    /**
+     * @return the 95th percentile of the task pending time
+     */
+    @Chronological
+    public long getTaskPendingTimeP95() {
+        return this.taskPendingTimeHistogram.getPercentile(95);
+    }
+
+    /**
+     * @return the 99th percentile of the task pending time
+     */
+    @Chronological
+    public long getTaskPendingTimeP99() {
+        return this.taskPendingTimeHistogram.getPercentile(99);
+    }
+
+    /**
+     * @return the median task running time
+     */
+    @Chronological
+    public long getTaskRunningTimeP50() {
+        return this.taskRunningTimeHistogram.getPercentile(50);
+    }
+
+    /**
+     * @return the 95th percentile of the task running time
+     */
+    @Chronological
+    public long getTaskRunningTimeP95() {
+        return this.taskRunningTimeHistogram.getPercentile(95);
+    }
+
+    /**
+     * @return the 99th percentile of the task running time
+     */
+    @Chronological
+    public long getTaskRunningTimeP99() {
+        return this.taskRunningTimeHistogram.getPercentile(99);
+    }
+
+    /**
+     * @return the number of statements issued by the last database transaction
+     */
+    public int getLastTransactionStatementsCount() {
+        return (this.dbManager == null) ? 0 : this.dbManager.getLastTransactionStatementsCount();
+    }
+
+    /**
+     * @return the highest number of statements issued by one database transaction
+     */
+    public int getMaxTransactionStatementsCount() {
+        return (this.dbManager == null) ? 0 : this.dbManager.getMaxTransactionStatementsCount();
+    }
+
+    /**
+     * @return the mean number of statements issued per database transaction
+     */
+    public double getMeanTransactionStatementsCount() {
+        return (this.dbManager == null) ? 0 : this.dbManager.getMeanTransactionStatementsCount();
+    }
+
+    /**
+     * Sets the tracker providing the task progress pings statistics
+     *
+     * @param pingTracker the ping tracker of the scheduler core
+     */
+    public void setTaskPingTracker(final TaskPingTracker pingTracker) {
+        this.pingTracker = pingTracker;
+    }
+
+    /**
+     * @return the number of task progress pings which returned
+     */
+    public long getTaskPingsCount() {
+        TaskPingTracker tracker = this.pingTracker;
+        return (tracker == null) ? 0 : tracker.getPingsCount();
+    }
+
+    /**
+     * @return the number of task progress pings which did not return within the ping timeout
+     */
+    public long getTaskPingTimeoutsCount() {
+        TaskPingTracker tracker = this.pingTracker;
+        return (tracker == null) ? 0 : tracker.getTimeoutsCount();
+    }
+
+    /**
+     * @return the mean duration of a task progress ping in milliseconds
+     */
+    public int getMeanTaskPingTime() {
+        TaskPingTracker tracker = this.pingTracker;
+        return (tracker == null) ? 0 : (int) tracker.getMeanLatency();
+    }
+
+    /**
+     * @return the highest duration of a task progress ping in milliseconds
+     */
+    public long getMaxTaskPingTime() {
+        TaskPingTracker tracker = this.pingTracker;
+        return (tracker == null) ? 0 : tracker.getMaxLatency();
+    }
+
+    /**
+     * @return the number of task progress pings in each duration range
+     */
+    public long[] getTaskPingTimeDistribution() {
+        TaskPingTracker tracker = this.pingTracker;
+        return (tracker == null) ? new long[TaskPingTracker.LATENCY_BUCKETS.length + 1] : tracker
+                .getLatencyDistribution();
+    }
+
+    /**
+     * Sets the profiler providing the scheduling loop statistics
+     *
+     * @param schedulingProfiler the profiler of the scheduling loop
+     */
+    public void setSchedulingLoopProfiler(final SchedulingLoopProfiler schedulingProfiler) {
+        this.schedulingProfiler = schedulingProfiler;
+    }
+
+    /**
+     * @return the number of scheduling loop cycles in which tasks were eligible or terminated
+     */
+    public long getSchedulingCyclesCount() {
+        SchedulingLoopProfiler profiler = this.schedulingProfiler;
+        return (profiler == null) ? 0 : profiler.getCyclesCount();
+    }
+
+    /**
+     * This method gives the 50th, 95th and 99th percentiles of the time spent per cycle in a phase
+     * of the scheduling loop
+     *
+     * @param phase, the name of the phase
+     * @return the percentiles of the time spent in the phase, in microseconds
+     */
+    public long[] getSchedulingPhaseTimePercentiles(final String phase) {
+        SchedulingLoopProfiler.Phase p;
+        try {
+            p = SchedulingLoopProfiler.Phase.valueOf(phase);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown scheduling loop phase: " + phase);
+        }
+        SchedulingLoopProfiler profiler = this.schedulingProfiler;
+        return getPercentiles((profiler == null) ? null : profiler.getHistogram(p));
+    }
+
+    /**
+     * @return the time spent in each phase of the scheduling loop as a printable table
+     */
+    public String dumpSchedulingProfile() {
+        SchedulingLoopProfiler profiler = this.schedulingProfiler;
+        return (profiler == null) ? "The scheduling loop is not started" : profiler.dump();
+    }
+
     // UTILITY METHODS
 
     /**
@@ -707,6 +937,39 @@ public final class RuntimeDataMBeanImpl extends StandardMBean implements Runtime
         return res;
     }
 
+    /**
+     * This method gives the 50th, 95th and 99th percentiles of the task pending time for a given Job
+     *
+     * @param jobId, the id of the Job to check
+     * @return the percentiles of the task pending time for the given job
+     */
+    public long[] getTaskPendingTimePercentiles(final String jobId) {
+        return getTaskTimePercentiles(this.taskPendingTimeMap, this.taskPendingTimePercentilesMap, jobId);
+    }
+
+    /**
+     * This method gives the 50th, 95th and 99th percentiles of the task running time for a given Job
+     *
+     * @param jobId, the id of the Job to check
+     * @return the percentiles of the task running time for the given job
+     */
+    public long[] getTaskRunningTimePercentiles(final String jobId) {
+        return getTaskTimePercentiles(this.taskRunningTimeMap, this.taskRunningTimePercentilesMap, jobId);
+    }
+
+    private long[] getTaskTimePercentiles(final Map<String, LogHistogram> histograms,
+            final Map<String, long[]> percentiles, final String jobId) {
+        final long[] res = percentiles.get(jobId);
+        if (res != null) {
+            return res;
+        }
+        // the job is still running
+        if (!this.numberOfPendingTasks.containsKey(jobId)) {
+            throw new RuntimeException("Unknown jobId: " + jobId);
+        }
+        return getPercentiles(histograms.get(jobId));
+    }
+
     /**
      * This method gives the total number of nodes used by a given Job
      *
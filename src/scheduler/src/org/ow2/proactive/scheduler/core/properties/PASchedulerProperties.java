@@ -94,9 +94,21 @@ public enum PASchedulerProperties {
     /** Scheduler node ping frequency in s. */
     SCHEDULER_NODE_PING_FREQUENCY("pa.scheduler.core.nodepingfrequency", PropertyType.INTEGER),
 
+    /** Maximum interval in second between two pings of a task which progress does not change */
+    SCHEDULER_NODE_PING_MAX_FREQUENCY("pa.scheduler.core.nodepingmaxfrequency", PropertyType.INTEGER),
+
+    /** Time in second to wait for the progress of a task before pinging the other tasks again */
+    SCHEDULER_NODE_PING_TIMEOUT("pa.scheduler.core.nodepingtimeout", PropertyType.INTEGER),
+
+    /** Number of consecutive pings of a task which do not return in time after which its node is failed */
+    SCHEDULER_NODE_PING_MAX_TIMEOUTS("pa.scheduler.core.nodepingmaxtimeouts", PropertyType.INTEGER),
+
     /** Number of threads used to getTaskProgress every node ping frequency */
     SCHEDULER_TASK_PROGRESS_NBTHREAD("pa.scheduler.core.getprogressnbthreads", PropertyType.INTEGER),
 
+    /** Length in second of the windows of the scheduling loop profiler histograms */
+    SCHEDULER_PROFILER_WINDOW("pa.scheduler.core.profilerwindow", PropertyType.INTEGER),
+
     /** Name of the JMX MBean for the scheduler */
     SCHEDULER_JMX_CONNECTOR_NAME("pa.scheduler.core.jmx.connectorname", PropertyType.STRING),
 
@@ -168,6 +180,9 @@ public enum PASchedulerProperties {
     /** Cache classes definition in task class servers  */
     SCHEDULER_CLASSSERVER_USECACHE("pa.scheduler.classserver.usecache", PropertyType.BOOLEAN),
 
+    /** Maximum size in bytes of the classes definition cached for all task class servers  */
+    SCHEDULER_CLASSSERVER_CACHESIZE("pa.scheduler.classserver.cachesize", PropertyType.INTEGER),
+
     /** Temporary directory for jobclasspathes  */
     SCHEDULER_CLASSSERVER_TMPDIR("pa.scheduler.classserver.tmpdir", PropertyType.STRING),
 
@@ -184,6 +199,9 @@ public enum PASchedulerProperties {
     /** Delay to wait between a job is terminated and removing the it from Scheduler (0 = infinite) */
     SCHEDULER_AUTOMATIC_REMOVED_JOB_DELAY("pa.scheduler.core.automaticremovejobdelay", PropertyType.INTEGER),
 
+    /** Maximum number of finished jobs recovered from the database whose full state is kept in memory */
+    SCHEDULER_FINISHED_JOBS_CACHE_SIZE("pa.scheduler.core.finishedjobscachesize", PropertyType.INTEGER),
+
     /** Remove job in dataBase when removing it from scheduler. */
     JOB_REMOVE_FROM_DB("pa.scheduler.job.removeFromDataBase", PropertyType.BOOLEAN),
 
@@ -281,6 +299,39 @@ public enum PASchedulerProperties {
      */
     SCHEDULER_DB_HIBERNATE_DROPDB("pa.scheduler.db.hibernate.dropdb", PropertyType.BOOLEAN),
 
+    /**
+     * Write-behind mode: task starts, restarts and completions are appended to a local journal
+     * and written in the database in batches by a background thread.
+     */
+    SCHEDULER_DB_JOURNAL_ENABLED("pa.scheduler.db.journal.enabled", PropertyType.BOOLEAN),
+
+    /** Directory of the write-behind journal files (relative to home directory) */
+    SCHEDULER_DB_JOURNAL_DIR("pa.scheduler.db.journal.dir", PropertyType.STRING),
+
+    /** Maximum time in millis before a journal entry is written in the database */
+    SCHEDULER_DB_JOURNAL_FLUSH_PERIOD("pa.scheduler.db.journal.flush.period", PropertyType.INTEGER),
+
+    /** Number of pending journal entries triggering a write in the database before the flush period ends */
+    SCHEDULER_DB_JOURNAL_BATCH_SIZE("pa.scheduler.db.journal.batch.size", PropertyType.INTEGER),
+
+    /** Maximum time in millis an operation waits for the journal entries to be written in the database */
+    SCHEDULER_DB_JOURNAL_WRITE_TIMEOUT("pa.scheduler.db.journal.write.timeout", PropertyType.INTEGER),
+
+    /** Maximum delay in millis between two attempts to write journal entries, retried until written */
+    SCHEDULER_DB_JOURNAL_RETRY_MAX_DELAY("pa.scheduler.db.journal.retry.max.delay", PropertyType.INTEGER),
+
+    /** Maximum number of journal entries not written in the database, beyond it the scheduler waits */
+    SCHEDULER_DB_JOURNAL_MAX_PENDING("pa.scheduler.db.journal.max.pending", PropertyType.INTEGER),
+
+    /**
+     * Directory of the store of the large task results and logs (relative to home directory).
+     * If not set, task results and logs are kept in the database.
+     */
+    SCHEDULER_DB_RESULT_STORE_DIR("pa.scheduler.db.resultstore.dir", PropertyType.STRING),
+
+    /** Size in bytes above which a task result value, exception or logs is written in the result store */
+    SCHEDULER_DB_RESULT_STORE_THRESHOLD("pa.scheduler.db.resultstore.threshold", PropertyType.INTEGER),
+
     /* ***************************************************************** */
     /* ********************** MATLAB/SCILAB PROPERTIES ***************** */
     /* ***************************************************************** */
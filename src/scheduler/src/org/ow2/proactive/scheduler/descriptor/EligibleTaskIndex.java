@@ -0,0 +1,260 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ActiveEon Team
+ *                        http://www.activeeon.com/
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$ACTIVEEON_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.descriptor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+import org.objectweb.proactive.annotation.PublicAPI;
+import org.ow2.proactive.scheduler.common.job.JobId;
+import org.ow2.proactive.scheduler.common.job.JobPriority;
+
+
+/**
+ * EligibleTaskIndex is a persistent view of every job that can provide eligible tasks to the policy.
+ * <p>
+ * Jobs are kept ordered by priority (highest first), then running jobs before pending jobs,
+ * then by submission order (job id). This is the same order as the one obtained by sorting
+ * the list of running jobs followed by pending jobs according to {@link JobDescriptor#compareTo(JobDescriptor)}.
+ * <p>
+ * The index is maintained incrementally by the scheduler core (job submission, start, priority change,
+ * end and removal). The eligible tasks of each job are read through a live view of its {@link JobDescriptorImpl},
+ * so task start, termination, pause or resume do not require the index to be rebuilt.
+ * <p>
+ * This class is not thread safe and must only be used from the scheduler core thread.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+@PublicAPI
+public class EligibleTaskIndex implements Iterable<EligibleTaskDescriptor> {
+
+    /** Indexed entries by job id */
+    private final Map<JobId, Entry> entries = new HashMap<JobId, Entry>();
+
+    /** Ordered entries */
+    private final TreeSet<Entry> ordered = new TreeSet<Entry>();
+
+    /** If false, pending jobs are not visible (ie. scheduler is paused) */
+    private boolean pendingJobsIncluded = true;
+
+    /**
+     * Add a job to the index.
+     * If the job is already indexed, its position is updated.
+     *
+     * @param descriptor the descriptor of the job to add.
+     * @param running true if the job is running, false if it is pending.
+     */
+    public void add(JobDescriptorImpl descriptor, boolean running) {
+        remove(descriptor.getJobId());
+        Entry entry = new Entry(descriptor, running);
+        entries.put(entry.jobId, entry);
+        ordered.add(entry);
+    }
+
+    /**
+     * Remove a job from the index.
+     *
+     * @param jobId the id of the job to remove.
+     * @return true if the job was indexed, false if not.
+     */
+    public boolean remove(JobId jobId) {
+        Entry entry = entries.remove(jobId);
+        if (entry == null) {
+            return false;
+        }
+        ordered.remove(entry);
+        return true;
+    }
+
+    /**
+     * Notify the index that the given job has moved from pending to running.
+     *
+     * @param jobId the id of the job that has just been started.
+     */
+    public void jobStarted(JobId jobId) {
+        Entry entry = entries.get(jobId);
+        if (entry != null && !entry.running) {
+            add(entry.descriptor, true);
+        }
+    }
+
+    /**
+     * Notify the index that the priority of the given job has changed.
+     *
+     * @param jobId the id of the job which priority has changed.
+     */
+    public void priorityChanged(JobId jobId) {
+        Entry entry = entries.get(jobId);
+        if (entry != null && entry.priority != entry.descriptor.getInternal().getPriority()) {
+            add(entry.descriptor, entry.running);
+        }
+    }
+
+    /**
+     * Remove every jobs from this index.
+     */
+    public void clear() {
+        entries.clear();
+        ordered.clear();
+    }
+
+    /**
+     * Set whether the pending jobs are visible through this index.
+     * Pending jobs are hidden when the scheduler is paused.
+     *
+     * @param pendingJobsIncluded true to make pending jobs visible, false to hide them.
+     */
+    public void setPendingJobsIncluded(boolean pendingJobsIncluded) {
+        this.pendingJobsIncluded = pendingJobsIncluded;
+    }
+
+    /**
+     * Return true if the pending jobs are visible through this index, false otherwise.
+     *
+     * @return true if the pending jobs are visible through this index, false otherwise.
+     */
+    public boolean isPendingJobsIncluded() {
+        return pendingJobsIncluded;
+    }
+
+    /**
+     * Return the number of indexed jobs, including hidden pending jobs.
+     *
+     * @return the number of indexed jobs.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Return the visible job descriptors, in scheduling order.
+     * The returned list is a new list that can be freely modified by the caller.
+     *
+     * @return the visible job descriptors, in scheduling order.
+     */
+    public List<JobDescriptor> getJobDescriptors() {
+        List<JobDescriptor> list = new ArrayList<JobDescriptor>(entries.size());
+        for (Entry entry : ordered) {
+            if (entry.running || pendingJobsIncluded) {
+                list.add(entry.descriptor);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Return a lazy iterator on every eligible tasks of the visible jobs, in scheduling order.
+     * Nothing is copied : the iterator must be consumed before any modification of the jobs
+     * or of this index. The iterator does not support removal.
+     *
+     * @return a lazy iterator on every eligible tasks of the visible jobs.
+     */
+    public Iterator<EligibleTaskDescriptor> iterator() {
+        return new EligibleTaskIterator();
+    }
+
+    /**
+     * Iterates over the eligible tasks of each visible job, job after job.
+     */
+    private class EligibleTaskIterator implements Iterator<EligibleTaskDescriptor> {
+
+        private final Iterator<Entry> jobs = ordered.iterator();
+        private Iterator<EligibleTaskDescriptor> tasks = Collections.<EligibleTaskDescriptor> emptyList()
+                .iterator();
+
+        public boolean hasNext() {
+            while (!tasks.hasNext()) {
+                if (!jobs.hasNext()) {
+                    return false;
+                }
+                Entry entry = jobs.next();
+                if (entry.running || pendingJobsIncluded) {
+                    tasks = entry.descriptor.getEligibleTasksView().iterator();
+                }
+            }
+            return true;
+        }
+
+        public EligibleTaskDescriptor next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return tasks.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Indexed job. Sort keys are captured at insertion time so that a change
+     * on the job does not corrupt the ordered set.
+     */
+    private static final class Entry implements Comparable<Entry> {
+        private final JobDescriptorImpl descriptor;
+        private final JobId jobId;
+        private final JobPriority priority;
+        private final boolean running;
+
+        Entry(JobDescriptorImpl descriptor, boolean running) {
+            this.descriptor = descriptor;
+            this.jobId = descriptor.getJobId();
+            this.priority = descriptor.getInternal().getPriority();
+            this.running = running;
+        }
+
+        public int compareTo(Entry other) {
+            int cmp = other.priority.compareTo(priority);
+            if (cmp != 0) {
+                return cmp;
+            }
+            if (running != other.running) {
+                return running ? -1 : 1;
+            }
+            return jobId.compareTo(other.jobId);
+        }
+    }
+
+}
@@ -38,8 +38,10 @@ package org.ow2.proactive.scheduler.descriptor;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +49,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import javax.xml.bind.annotation.XmlTransient;
 
@@ -80,9 +83,9 @@ public class JobDescriptorImpl implements JobDescriptor {
     /** List that knows which task has children and which have not */
     private Set<TaskId> hasChildren = new HashSet<TaskId>();
 
-    /** Job tasks to be able to be schedule */
+    /** Job tasks to be able to be schedule, ordered by task id */
     @XmlTransient
-    private Map<TaskId, EligibleTaskDescriptor> eligibleTasks = new ConcurrentHashMap<TaskId, EligibleTaskDescriptor>();
+    private Map<TaskId, EligibleTaskDescriptor> eligibleTasks = new ConcurrentSkipListMap<TaskId, EligibleTaskDescriptor>();
 
     /** Those are not directly eligible, and will be triggered by an IF control flow action */
     @XmlTransient
@@ -110,7 +113,7 @@ public class JobDescriptorImpl implements JobDescriptor {
             makeTree(job);
         } else {
             //every tasks are eligible
-            for (InternalTask td : job.getITasks()) {
+            for (InternalTask td : job.getITasksView()) {
                 if (td.getStatus() == TaskStatus.SUBMITTED) {
                     eligibleTasks.put(td.getId(), new EligibleTaskDescriptorImpl(td));
                 }
@@ -126,12 +129,13 @@ public class JobDescriptorImpl implements JobDescriptor {
     private void makeTree(InternalJob job) {
         Map<InternalTask, TaskDescriptor> mem = new HashMap<InternalTask, TaskDescriptor>();
 
+        Collection<InternalTask> tasks = job.getITasksView();
         //create task descriptor list
-        for (InternalTask td : job.getITasks()) {
+        for (InternalTask td : tasks) {
             //if this task is a first task, put it in eligible tasks list
             EligibleTaskDescriptor lt = new EligibleTaskDescriptorImpl(td);
 
-            if (isEntryPoint(td, job.getITasks())) {
+            if (isEntryPoint(td, tasks)) {
                 eligibleTasks.put(td.getId(), lt);
             }
 
@@ -143,7 +147,7 @@ public class JobDescriptorImpl implements JobDescriptor {
         }
 
         //now for each taskDescriptor, set the parents and children list
-        for (InternalTask td : job.getITasks()) {
+        for (InternalTask td : tasks) {
             if (td.getDependences() != null) {
                 TaskDescriptor taskDescriptor = mem.get(td);
 
@@ -167,7 +171,7 @@ public class JobDescriptorImpl implements JobDescriptor {
      * @param otherTasks the other tasks contained in the job containing task t
      * @return true if t is an entry point among all tasks in otherTasks, or false
      */
-    private boolean isEntryPoint(InternalTask t, List<InternalTask> otherTasks) {
+    private boolean isEntryPoint(InternalTask t, Collection<InternalTask> otherTasks) {
         List<TaskState> deps = t.getDependences();
         boolean entryPoint = false;
 
@@ -577,6 +581,36 @@ public class JobDescriptorImpl implements JobDescriptor {
         }
     }
 
+    /**
+     * Update the list of eligible tasks according to the current status of the eligible
+     * and paused tasks only. Unlike {@link #update(Map)}, the status of every task of the job
+     * is not needed: this method is called after each task termination, when new eligible tasks
+     * of a paused job must be paused too.
+     */
+    public void updatePausedTasks() {
+        Map<TaskId, InternalTask> tasks = getInternal().getIHMTasks();
+        Map<TaskId, TaskDescriptor> resumed = new HashMap<TaskId, TaskDescriptor>();
+        for (Iterator<Entry<TaskId, TaskDescriptor>> it = pausedTasks.entrySet().iterator(); it.hasNext();) {
+            Entry<TaskId, TaskDescriptor> paused = it.next();
+            InternalTask task = tasks.get(paused.getKey());
+            if (task != null &&
+                (task.getStatus() == TaskStatus.PENDING || task.getStatus() == TaskStatus.SUBMITTED)) {
+                resumed.put(paused.getKey(), paused.getValue());
+                it.remove();
+            }
+        }
+        // eligible tasks map is concurrent, it can be modified while iterated
+        for (TaskId id : eligibleTasks.keySet()) {
+            InternalTask task = tasks.get(id);
+            if (task != null && task.getStatus() == TaskStatus.PAUSED) {
+                pausedTasks.put(id, eligibleTasks.remove(id));
+            }
+        }
+        for (Entry<TaskId, TaskDescriptor> tid : resumed.entrySet()) {
+            eligibleTasks.put(tid.getKey(), (EligibleTaskDescriptor) tid.getValue());
+        }
+    }
+
     /**
      * Get a task descriptor that is in the running task.
      *
@@ -597,6 +631,17 @@ public class JobDescriptorImpl implements JobDescriptor {
         return new Vector<EligibleTaskDescriptor>(eligibleTasks.values());
     }
 
+    /**
+     * To get a read-only live view of the eligible tasks, ordered by task id.
+     * Unlike {@link #getEligibleTasks()}, nothing is copied.
+     *
+     * @return a read-only live view of the eligible tasks.
+     */
+    @XmlTransient
+    public Collection<EligibleTaskDescriptor> getEligibleTasksView() {
+        return Collections.unmodifiableCollection(eligibleTasks.values());
+    }
+
     /**
      * {@inheritDoc}
      */
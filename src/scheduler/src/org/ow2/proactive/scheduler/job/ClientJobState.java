@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.ow2.proactive.scheduler.common.Scheduler;
 import org.ow2.proactive.scheduler.common.job.JobEnvironment;
@@ -112,27 +113,30 @@ public final class ClientJobState extends JobState {
         // update job info
         this.jobInfo = (JobInfoImpl) info;
         // update task status if needed
+        // only the modified tasks are given, walk them rather than the whole job
         if (this.jobInfo.getTaskStatusModify() != null) {
-            for (TaskId id : tasks.keySet()) {
-                TaskInfoImpl taskInfo = (TaskInfoImpl) tasks.get(id).getTaskInfo();
-                taskInfo.setStatus(this.jobInfo.getTaskStatusModify().get(id));
+            for (Entry<TaskId, TaskStatus> modified : this.jobInfo.getTaskStatusModify().entrySet()) {
+                TaskState task = tasks.get(modified.getKey());
+                if (task != null) {
+                    ((TaskInfoImpl) task.getTaskInfo()).setStatus(modified.getValue());
+                }
             }
         }
         // update task finished time if needed
         if (this.jobInfo.getTaskFinishedTimeModify() != null) {
-            for (TaskId id : tasks.keySet()) {
-                if (this.jobInfo.getTaskFinishedTimeModify().containsKey(id)) {
-                    TaskInfoImpl taskInfo = (TaskInfoImpl) tasks.get(id).getTaskInfo();
-                    taskInfo.setFinishedTime(this.jobInfo.getTaskFinishedTimeModify().get(id));
+            for (Entry<TaskId, Long> modified : this.jobInfo.getTaskFinishedTimeModify().entrySet()) {
+                TaskState task = tasks.get(modified.getKey());
+                if (task != null && modified.getValue() != null) {
+                    ((TaskInfoImpl) task.getTaskInfo()).setFinishedTime(modified.getValue());
                 }
             }
         }
         // update skipped tasks
         if (this.jobInfo.getTasksSkipped() != null) {
-            for (TaskId id : tasks.keySet()) {
-                if (this.jobInfo.getTasksSkipped().contains(id)) {
-                    TaskInfoImpl taskInfo = (TaskInfoImpl) tasks.get(id).getTaskInfo();
-                    taskInfo.setStatus(TaskStatus.SKIPPED);
+            for (TaskId id : this.jobInfo.getTasksSkipped()) {
+                TaskState task = tasks.get(id);
+                if (task != null) {
+                    ((TaskInfoImpl) task.getTaskInfo()).setStatus(TaskStatus.SKIPPED);
                 }
             }
         }
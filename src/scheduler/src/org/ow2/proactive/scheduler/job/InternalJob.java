@@ -127,6 +127,11 @@ public abstract class InternalJob extends JobState {
     @TransientInSerialization
     private Credentials credentials = null;
 
+    /** Tasks whose state changed since it was last persisted, created once needed */
+    @XmlTransient
+    @TransientInSerialization
+    private Map<TaskId, InternalTask> dirtyTasks;
+
     /** Hibernate default constructor */
     public InternalJob() {
     }
@@ -188,25 +193,30 @@ public abstract class InternalJob extends JobState {
         //update job info
         this.jobInfo = (JobInfoImpl) info;
         //update task status if needed
+        //only the modified tasks are given, walk them rather than the whole job
         if (this.jobInfo.getTaskStatusModify() != null) {
-            for (TaskId id : tasks.keySet()) {
-                tasks.get(id).setStatus(this.jobInfo.getTaskStatusModify().get(id));
+            for (Entry<TaskId, TaskStatus> modified : this.jobInfo.getTaskStatusModify().entrySet()) {
+                InternalTask it = tasks.get(modified.getKey());
+                if (it != null) {
+                    it.setStatus(modified.getValue());
+                }
             }
         }
         //update task finished time if needed
         if (this.jobInfo.getTaskFinishedTimeModify() != null) {
-            for (TaskId id : tasks.keySet()) {
-                if (this.jobInfo.getTaskFinishedTimeModify().containsKey(id)) {
-                    //a null send to a long setter throws a NullPointerException so, here is the fix
-                    tasks.get(id).setFinishedTime(this.jobInfo.getTaskFinishedTimeModify().get(id));
+            for (Entry<TaskId, Long> modified : this.jobInfo.getTaskFinishedTimeModify().entrySet()) {
+                InternalTask it = tasks.get(modified.getKey());
+                //a null send to a long setter throws a NullPointerException so, here is the fix
+                if (it != null && modified.getValue() != null) {
+                    it.setFinishedTime(modified.getValue());
                 }
             }
         }
         // update skipped tasks
         if (this.jobInfo.getTasksSkipped() != null) {
-            for (TaskId id : tasks.keySet()) {
-                if (this.jobInfo.getTasksSkipped().contains(id)) {
-                    InternalTask it = tasks.get(id);
+            for (TaskId id : this.jobInfo.getTasksSkipped()) {
+                InternalTask it = tasks.get(id);
+                if (it != null) {
                     it.setStatus(TaskStatus.SKIPPED);
                 }
             }
@@ -388,7 +398,7 @@ public abstract class InternalJob extends JobState {
      * @return true if the task has been correctly added to the job, false if
      *         not.
      */
-    public boolean addTask(InternalTask task) {
+    public synchronized boolean addTask(InternalTask task) {
         task.setJobId(getId());
 
         int taskId = tasks.size();
@@ -463,6 +473,7 @@ public abstract class InternalJob extends JobState {
         } else {
             task.setStatus(TaskStatus.PENDING);
         }
+        markTaskDirty(task);
     }
 
     /**
@@ -484,6 +495,7 @@ public abstract class InternalJob extends JobState {
         descriptor.setFinishedTime(System.currentTimeMillis());
         descriptor.setStatus(errorOccurred ? TaskStatus.FAULTY : TaskStatus.FINISHED);
         descriptor.setExecutionDuration(result.getTaskDuration());
+        markTaskDirty(descriptor);
 
         setNumberOfRunningTasks(getNumberOfRunningTasks() - 1);
         setNumberOfFinishedTasks(getNumberOfFinishedTasks() + 1);
@@ -732,6 +744,7 @@ public abstract class InternalJob extends JobState {
                         it.setFinishedTime(descriptor.getFinishedTime() + 1);
                         it.setStatus(TaskStatus.SKIPPED);
                         it.setExecutionDuration(0);
+                        markTaskDirty(it);
                         setNumberOfPendingTasks(getNumberOfPendingTasks() - 1);
                         setNumberOfFinishedTasks(getNumberOfFinishedTasks() + 1);
                         tev.add(it.getId());
@@ -958,16 +971,12 @@ public abstract class InternalJob extends JobState {
             getJobDescriptor().terminate(taskId);
         }
 
-        //creating list of status for the jobDescriptor
-        HashMap<TaskId, TaskStatus> hts = new HashMap<TaskId, TaskStatus>();
-
-        for (InternalTask td : tasks.values()) {
-            hts.put(td.getId(), td.getStatus());
+        //updating job descriptor for eligible task: tasks that became eligible while the job
+        //is paused must be paused too, nothing to do if no task has been paused
+        if (getStatus() == JobStatus.PAUSED || !getJobDescriptor().getPausedTasks().isEmpty()) {
+            getJobDescriptor().updatePausedTasks();
         }
 
-        //updating job descriptor for eligible task
-        getJobDescriptor().update(hts);
-
         return descriptor;
     }
 
@@ -1048,6 +1057,7 @@ public abstract class InternalJob extends JobState {
                 setNumberOfFinishedTasks(getNumberOfFinishedTasks() + 1);
             }
             descriptor.setStatus((jobStatus == JobStatus.FAILED) ? TaskStatus.FAILED : TaskStatus.FAULTY);
+            markTaskDirty(descriptor);
             //terminate this job descriptor
             getJobDescriptor().failed();
         }
@@ -1057,7 +1067,7 @@ public abstract class InternalJob extends JobState {
         setNumberOfRunningTasks(0);
         setStatus(jobStatus);
 
-        //creating list of status
+        //creating list of modified status
         HashMap<TaskId, TaskStatus> hts = new HashMap<TaskId, TaskStatus>();
         HashMap<TaskId, Long> htl = new HashMap<TaskId, Long>();
 
@@ -1066,12 +1076,17 @@ public abstract class InternalJob extends JobState {
                 if (td.getStatus() == TaskStatus.RUNNING) {
                     td.setStatus(TaskStatus.ABORTED);
                     td.setFinishedTime(System.currentTimeMillis());
+                    markTaskDirty(td);
                 } else if (td.getStatus() == TaskStatus.WAITING_ON_ERROR ||
                     td.getStatus() == TaskStatus.WAITING_ON_FAILURE) {
                     td.setStatus(TaskStatus.NOT_RESTARTED);
+                    markTaskDirty(td);
                 } else if (td.getStatus() != TaskStatus.FINISHED && td.getStatus() != TaskStatus.FAILED &&
                     td.getStatus() != TaskStatus.FAULTY && td.getStatus() != TaskStatus.SKIPPED) {
                     td.setStatus(TaskStatus.NOT_STARTED);
+                    markTaskDirty(td);
+                } else {
+                    continue;
                 }
             }
 
@@ -1138,7 +1153,7 @@ public abstract class InternalJob extends JobState {
 
         HashMap<TaskId, TaskStatus> taskStatus = new HashMap<TaskId, TaskStatus>();
 
-        for (InternalTask td : getITasks()) {
+        for (InternalTask td : tasks.values()) {
             td.setStatus(TaskStatus.PENDING);
             taskStatus.put(td.getId(), TaskStatus.PENDING);
         }
@@ -1177,11 +1192,11 @@ public abstract class InternalJob extends JobState {
 
         for (InternalTask td : tasks.values()) {
             if ((td.getStatus() != TaskStatus.FINISHED) && (td.getStatus() != TaskStatus.RUNNING) &&
-                (td.getStatus() != TaskStatus.SKIPPED) && (td.getStatus() != TaskStatus.FAULTY)) {
+                (td.getStatus() != TaskStatus.SKIPPED) && (td.getStatus() != TaskStatus.FAULTY) &&
+                (td.getStatus() != TaskStatus.PAUSED)) {
                 td.setStatus(TaskStatus.PAUSED);
+                hts.put(td.getId(), TaskStatus.PAUSED);
             }
-
-            hts.put(td.getId(), td.getStatus());
         }
 
         getJobDescriptor().update(hts);
@@ -1214,16 +1229,19 @@ public abstract class InternalJob extends JobState {
 
         for (InternalTask td : tasks.values()) {
             if (jobInfo.getStatus() == JobStatus.PENDING) {
-                td.setStatus(TaskStatus.SUBMITTED);
+                if (td.getStatus() != TaskStatus.SUBMITTED) {
+                    td.setStatus(TaskStatus.SUBMITTED);
+                    hts.put(td.getId(), TaskStatus.SUBMITTED);
+                }
             } else if ((jobInfo.getStatus() == JobStatus.RUNNING) ||
                 (jobInfo.getStatus() == JobStatus.STALLED)) {
                 if ((td.getStatus() != TaskStatus.FINISHED) && (td.getStatus() != TaskStatus.RUNNING) &&
-                    (td.getStatus() != TaskStatus.SKIPPED) && (td.getStatus() != TaskStatus.FAULTY)) {
+                    (td.getStatus() != TaskStatus.SKIPPED) && (td.getStatus() != TaskStatus.FAULTY) &&
+                    (td.getStatus() != TaskStatus.PENDING)) {
                     td.setStatus(TaskStatus.PENDING);
+                    hts.put(td.getId(), TaskStatus.PENDING);
                 }
             }
-
-            hts.put(td.getId(), td.getStatus());
         }
 
         getJobDescriptor().update(hts);
@@ -1269,13 +1287,25 @@ public abstract class InternalJob extends JobState {
 
     /**
      * To get the tasks as an array list.
+     * Tasks are added under the lock of the job, so this copy can be taken by another thread
+     * than the one adding tasks.
      *
      * @return the tasks
      */
-    public ArrayList<InternalTask> getITasks() {
+    public synchronized ArrayList<InternalTask> getITasks() {
         return new ArrayList<InternalTask>(tasks.values());
     }
 
+    /**
+     * To get a read-only live view of the tasks.
+     * Unlike {@link #getITasks()}, nothing is copied.
+     *
+     * @return a read-only live view of the tasks.
+     */
+    public Collection<InternalTask> getITasksView() {
+        return Collections.unmodifiableCollection(tasks.values());
+    }
+
     /**
      * To get the tasks as a hash map.
      *
@@ -1428,6 +1458,44 @@ public abstract class InternalJob extends JobState {
         this.jobDescriptor = jobD;
     }
 
+    /**
+     * Remember that the state of the given task has changed and has to be persisted.
+     * Tasks may be restarted from a timer thread, so the access to the dirty set is synchronized.
+     *
+     * @param task the task whose state has changed.
+     */
+    public synchronized void markTaskDirty(InternalTask task) {
+        if (dirtyTasks == null) {
+            dirtyTasks = new HashMap<TaskId, InternalTask>();
+        }
+        dirtyTasks.put(task.getId(), task);
+    }
+
+    /**
+     * Get a snapshot of the tasks whose state changed since they were last persisted.
+     *
+     * @return the list of the modified tasks, may be empty but never null.
+     */
+    public synchronized List<InternalTask> getDirtyTasks() {
+        if (dirtyTasks == null) {
+            return new ArrayList<InternalTask>(0);
+        }
+        return new ArrayList<InternalTask>(dirtyTasks.values());
+    }
+
+    /**
+     * Forget the given tasks once their state has been persisted.
+     *
+     * @param persisted the tasks that have been persisted.
+     */
+    public synchronized void clearDirtyTasks(Collection<InternalTask> persisted) {
+        if (dirtyTasks != null) {
+            for (InternalTask task : persisted) {
+                dirtyTasks.remove(task.getId());
+            }
+        }
+    }
+
     /**
      * @param status the status to set
      */
@@ -106,11 +106,14 @@ public class JobInfoImpl implements JobInfo {
     /** to know if the job has to be removed after the fixed admin delay or not */
     private boolean toBeRemoved = false;
 
-    /** If this status is not null, it means the tasks have to change their status */
+    /**
+     * If this status is not null, it means the tasks it contains have to change their status.
+     * Tasks that are not contained are unchanged.
+     */
     //not Hibernate informations
     private Map<TaskId, TaskStatus> taskStatusModify = null;
 
-    /** If this finished time is not null, it means the tasks have to change their finished time */
+    /** If this finished time is not null, it means the contained tasks have to change their finished time */
     //not Hibernate informations
     private Map<TaskId, Long> taskFinishedTimeModify = null;
 
@@ -37,10 +37,12 @@
 package org.ow2.proactive.scheduler.policy;
 
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Vector;
 
 import org.ow2.proactive.scheduler.descriptor.EligibleTaskDescriptor;
+import org.ow2.proactive.scheduler.descriptor.EligibleTaskIndex;
 import org.ow2.proactive.scheduler.descriptor.JobDescriptor;
 
 
@@ -49,12 +51,17 @@ import org.ow2.proactive.scheduler.descriptor.JobDescriptor;
  * <ul>
  * 	<li>Implementation of the policy using FIFO priority ordering.</li>
  * </ul>
+ * A subclass overriding {@link #getOrderedTasks(List)} keeps being called by the scheduler core:
+ * the index is only iterated directly when this method is not overridden.
  *
  * @author The ProActive Team
  * @since ProActive Scheduling 2.1
  */
 public class DefaultPolicy extends Policy {
 
+    /** True if a subclass overrides {@link #getOrderedTasks(List)} */
+    private final boolean orderedTasksOverridden = overridesOrderedTasks(getClass());
+
     /**
      * {@inheritDoc}
      * Override reload to avoid reading config file
@@ -85,4 +92,28 @@ public class DefaultPolicy extends Policy {
         return toReturn;
     }
 
+    /**
+     * The index already provides the FIFO priority ordering,
+     * so this method returns its lazy iterator without copying any task,
+     * unless a subclass overrides {@link #getOrderedTasks(List)}.
+     *
+     * @see org.ow2.proactive.scheduler.policy.Policy#getOrderedTasksIterator(org.ow2.proactive.scheduler.descriptor.EligibleTaskIndex)
+     */
+    @Override
+    public Iterator<EligibleTaskDescriptor> getOrderedTasksIterator(EligibleTaskIndex index) {
+        if (orderedTasksOverridden) {
+            return super.getOrderedTasksIterator(index);
+        }
+        return index.iterator();
+    }
+
+    private static boolean overridesOrderedTasks(Class<?> policyClass) {
+        try {
+            Class<?> declaringClass = policyClass.getMethod("getOrderedTasks", List.class).getDeclaringClass();
+            return declaringClass != DefaultPolicy.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
 }
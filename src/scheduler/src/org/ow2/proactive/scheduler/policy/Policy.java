@@ -40,6 +40,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
 import java.util.Vector;
@@ -52,6 +53,7 @@ import org.ow2.proactive.scheduler.common.SchedulerCoreMethods;
 import org.ow2.proactive.scheduler.core.SchedulerCore;
 import org.ow2.proactive.scheduler.core.properties.PASchedulerProperties;
 import org.ow2.proactive.scheduler.descriptor.EligibleTaskDescriptor;
+import org.ow2.proactive.scheduler.descriptor.EligibleTaskIndex;
 import org.ow2.proactive.scheduler.descriptor.JobDescriptor;
 
 
@@ -104,6 +106,29 @@ public abstract class Policy implements Serializable {
      */
     public abstract Vector<EligibleTaskDescriptor> getOrderedTasks(List<JobDescriptor> jobs);
 
+    /**
+     * Return an iterator on the tasks that have to be scheduled, in the desired scheduling order.
+     * This method is the one called by the scheduler core on each scheduling loop.
+     * <br/><br/>
+     * The given index is maintained incrementally by the core and already orders the eligible tasks
+     * by job priority then submission order. The core consumes only the first tasks of the returned iterator,
+     * so a policy that can express its ordering on top of the index should override this method and return
+     * a lazy iterator instead of a materialized list.
+     * <br/><br/>
+     * The default implementation calls {@link #getOrderedTasks(List)} with the visible jobs of the index,
+     * so that existing policies keep working unchanged.
+     *
+     * @param index the index of the pending or running jobs and their eligible tasks.
+     * @return an iterator on every tasks that are ready to be schedule.
+     */
+    public Iterator<EligibleTaskDescriptor> getOrderedTasksIterator(EligibleTaskIndex index) {
+        Vector<EligibleTaskDescriptor> tasks = getOrderedTasks(index.getJobDescriptors());
+        if (tasks == null) {
+            return null;
+        }
+        return tasks.iterator();
+    }
+
     /**
      * Set the core
      *
@@ -0,0 +1,474 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.task;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.log4j.Logger;
+import org.objectweb.proactive.core.node.Node;
+import org.ow2.proactive.scheduler.task.launcher.TaskLauncher;
+import org.ow2.proactive.scheduler.util.process.ProcessGroupTracker;
+
+
+/**
+ * Node side pool of the JVMs started for the forked java tasks.
+ * <p>
+ * Once a forked task is terminated, its JVM is kept alive and can run the next forked tasks of the
+ * same job having the same fork environment (java home, JVM arguments, classpath, working directory
+ * and system environment), which saves the start of a new JVM and its registration.
+ * A JVM is not reused after a task has been killed or its process has exited. It is destroyed after
+ * having run {@link #MAX_TASKS_PROPERTY} tasks or when it has been idle for
+ * {@link #IDLE_TIMEOUT_PROPERTY} seconds.
+ * <p>
+ * The pool is disabled unless the {@link #POOL_SIZE_PROPERTY} property of the node JVM gives the
+ * maximum number of idle JVMs kept by the node.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class ForkedJVMPool {
+
+    public static final Logger logger = Logger.getLogger(ForkedJVMPool.class);
+
+    /** Name of the property giving the maximum number of idle JVMs, the pool is disabled if it is not set */
+    public static final String POOL_SIZE_PROPERTY = "pas.launcher.forkpool.size";
+
+    /** Name of the property giving the number of tasks after which a JVM is destroyed */
+    public static final String MAX_TASKS_PROPERTY = "pas.launcher.forkpool.maxtasks";
+
+    /** Name of the property giving the time in seconds after which an idle JVM is destroyed */
+    public static final String IDLE_TIMEOUT_PROPERTY = "pas.launcher.forkpool.idletimeout";
+
+    /** Default number of tasks after which a JVM is destroyed */
+    public static final int DEFAULT_MAX_TASKS = 20;
+
+    /** Default time in seconds after which an idle JVM is destroyed */
+    public static final int DEFAULT_IDLE_TIMEOUT = 60;
+
+    private static ForkedJVMPool instance;
+
+    private static boolean initialized;
+
+    private final int size;
+
+    private final int maxTasks;
+
+    private final long idleTimeout;
+
+    /** Idle JVMs, the most recently released last */
+    private final LinkedList<PooledJVM> idle = new LinkedList<PooledJVM>();
+
+    private final Timer evictionTimer;
+
+    /**
+     * @return the pool of this node, null if the pool is disabled.
+     */
+    public static synchronized ForkedJVMPool getInstance() {
+        if (!initialized) {
+            initialized = true;
+            int size = getIntProperty(POOL_SIZE_PROPERTY, 0);
+            if (size > 0) {
+                int maxTasks = getIntProperty(MAX_TASKS_PROPERTY, DEFAULT_MAX_TASKS);
+                int idleTimeout = getIntProperty(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT);
+                instance = new ForkedJVMPool(size, maxTasks, idleTimeout * 1000L);
+                Runtime.getRuntime().addShutdownHook(new Thread() {
+                    @Override
+                    public void run() {
+                        instance.close();
+                    }
+                });
+                logger.info("Forked JVMs pool enabled: " + size + " idle JVMs, " + maxTasks +
+                    " tasks per JVM, idle timeout " + idleTimeout + "s");
+            }
+        }
+        return instance;
+    }
+
+    private static int getIntProperty(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || "".equals(value.trim())) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn(name + " property is not correctly defined, " + defaultValue + " is used instead", e);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Create a pool.
+     *
+     * @param size the maximum number of idle JVMs
+     * @param maxTasks the number of tasks after which a JVM is destroyed
+     * @param idleTimeout the time in millis after which an idle JVM is destroyed
+     */
+    public ForkedJVMPool(int size, int maxTasks, long idleTimeout) {
+        this.size = size;
+        this.maxTasks = maxTasks;
+        this.idleTimeout = idleTimeout;
+        this.evictionTimer = new Timer("Forked JVMs pool eviction", true);
+        long period = Math.max(idleTimeout / 2, 1000);
+        this.evictionTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                evictIdle(System.currentTimeMillis());
+            }
+        }, period, period);
+    }
+
+    /**
+     * Take an idle JVM started with the given fork environment.
+     *
+     * @param key the signature of the fork environment
+     * @return the JVM, null if no idle JVM has this signature
+     */
+    public PooledJVM acquire(String key) {
+        List<PooledJVM> dead = new ArrayList<PooledJVM>();
+        PooledJVM acquired = null;
+        synchronized (idle) {
+            for (Iterator<PooledJVM> it = idle.iterator(); it.hasNext();) {
+                PooledJVM jvm = it.next();
+                if (!jvm.isAlive()) {
+                    it.remove();
+                    dead.add(jvm);
+                } else if (acquired == null && jvm.getKey().equals(key)) {
+                    it.remove();
+                    acquired = jvm;
+                }
+            }
+        }
+        destroy(dead);
+        return acquired;
+    }
+
+    /**
+     * Give back a JVM whose task is terminated. It is kept idle unless it has run the maximum
+     * number of tasks, its process has exited or the pool is full, in which case the least
+     * recently released JVM is destroyed.
+     *
+     * @param jvm the JVM whose task is terminated
+     */
+    public void release(PooledJVM jvm) {
+        jvm.taskTerminated();
+        if (jvm.getTasks() >= maxTasks || !jvm.isAlive()) {
+            jvm.destroy();
+            return;
+        }
+        List<PooledJVM> evicted = new ArrayList<PooledJVM>();
+        synchronized (idle) {
+            idle.addLast(jvm);
+            while (idle.size() > size) {
+                evicted.add(idle.removeFirst());
+            }
+        }
+        destroy(evicted);
+    }
+
+    /**
+     * @return the number of idle JVMs
+     */
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * Destroy the JVMs idle for longer than the idle timeout.
+     *
+     * @param now the current time in millis
+     */
+    public void evictIdle(long now) {
+        List<PooledJVM> evicted = new ArrayList<PooledJVM>();
+        synchronized (idle) {
+            for (Iterator<PooledJVM> it = idle.iterator(); it.hasNext();) {
+                PooledJVM jvm = it.next();
+                if (now - jvm.getIdleSince() >= idleTimeout || !jvm.isAlive()) {
+                    it.remove();
+                    evicted.add(jvm);
+                }
+            }
+        }
+        destroy(evicted);
+    }
+
+    /**
+     * Destroy all idle JVMs and stop the eviction.
+     */
+    public void close() {
+        evictionTimer.cancel();
+        List<PooledJVM> evicted;
+        synchronized (idle) {
+            evicted = new ArrayList<PooledJVM>(idle);
+            idle.clear();
+        }
+        destroy(evicted);
+    }
+
+    private static void destroy(List<PooledJVM> jvms) {
+        for (PooledJVM jvm : jvms) {
+            jvm.destroy();
+        }
+    }
+
+    /**
+     * A forked JVM and the node it has created. Its standard output and error are piped to the
+     * streams of the task it runs, or to the node standard streams while it is idle.
+     */
+    public static class PooledJVM {
+
+        private final String key;
+
+        private final Process process;
+
+        private final File[] tempFiles;
+
+        private final OutputPipe out;
+
+        private final OutputPipe err;
+
+        private Node node;
+
+        private ProcessGroupTracker.TrackedGroup trackedGroup;
+
+        private int tasks;
+
+        private long idleSince;
+
+        /**
+         * Create a pooled JVM and start piping its output to the node standard streams.
+         *
+         * @param key the signature of the fork environment of the JVM
+         * @param process the process of the JVM
+         * @param tempFiles the files used by the JVM, deleted when it is destroyed
+         */
+        public PooledJVM(String key, Process process, File... tempFiles) {
+            this.key = key;
+            this.process = process;
+            this.tempFiles = tempFiles;
+            this.out = new OutputPipe(process.getInputStream(), TaskLauncher.SYSTEM_OUT);
+            this.err = new OutputPipe(process.getErrorStream(), TaskLauncher.SYSTEM_ERR);
+            this.out.start();
+            this.err.start();
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Process getProcess() {
+            return process;
+        }
+
+        public Node getNode() {
+            return node;
+        }
+
+        public void setNode(Node node) {
+            this.node = node;
+        }
+
+        /**
+         * @return the process group of the JVM, null if it is not tracked
+         */
+        public ProcessGroupTracker.TrackedGroup getTrackedGroup() {
+            return trackedGroup;
+        }
+
+        public void setTrackedGroup(ProcessGroupTracker.TrackedGroup trackedGroup) {
+            this.trackedGroup = trackedGroup;
+        }
+
+        /**
+         * @return the number of tasks run by this JVM
+         */
+        public int getTasks() {
+            return tasks;
+        }
+
+        long getIdleSince() {
+            return idleSince;
+        }
+
+        void taskTerminated() {
+            tasks++;
+            idleSince = System.currentTimeMillis();
+            redirectOutput(TaskLauncher.SYSTEM_OUT, TaskLauncher.SYSTEM_ERR);
+        }
+
+        /**
+         * Pipe the output of the JVM to the given streams.
+         *
+         * @param stdout the stream receiving the standard output
+         * @param stderr the stream receiving the standard error
+         */
+        public void redirectOutput(PrintStream stdout, PrintStream stderr) {
+            out.target = stdout;
+            err.target = stderr;
+        }
+
+        /**
+         * Expect the given marker line on both the standard output and error of the JVM.
+         * The marker is written by the JVM at the end of the output of its task, it is not piped.
+         * Must be called before the marker is written.
+         *
+         * @param marker the line marking the end of the output of the task
+         */
+        public void expectOutputEnd(String marker) {
+            out.expectMarker(marker);
+            err.expectMarker(marker);
+        }
+
+        /**
+         * Wait until the expected marker has been read from both the standard output and error
+         * of the JVM, so the output of the terminated task is not sent to the streams of the next one.
+         *
+         * @param timeout the maximum time in millis to wait
+         * @return true if the marker has been read from both streams, false if the timeout is reached
+         */
+        public boolean waitOutputEnd(long timeout) throws InterruptedException {
+            long end = System.currentTimeMillis() + timeout;
+            return out.waitMarker(end) && err.waitMarker(end);
+        }
+
+        public boolean isAlive() {
+            try {
+                process.exitValue();
+                return false;
+            } catch (IllegalThreadStateException e) {
+                return true;
+            }
+        }
+
+        /**
+         * Destroy the process of the JVM and delete its files.
+         */
+        public void destroy() {
+            logger.debug("Destroying forked JVM after " + tasks + " tasks");
+            process.destroy();
+            if (trackedGroup != null) {
+                // processes started by the tasks run by the JVM
+                trackedGroup.kill(null);
+                trackedGroup.stop();
+            }
+            for (File file : tempFiles) {
+                if (file != null) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the lines of a stream of the JVM to the current target stream.
+     */
+    private static class OutputPipe extends Thread {
+
+        private final BufferedReader in;
+
+        private volatile PrintStream target;
+
+        /** Stream receiving the output while the JVM is idle */
+        private final PrintStream idleTarget;
+
+        /** Line marking the end of the output of the current task, null if none is expected */
+        private String marker;
+
+        private boolean markerRead;
+
+        OutputPipe(InputStream in, PrintStream target) {
+            super("Forked JVM output pipe");
+            setDaemon(true);
+            this.in = new BufferedReader(new InputStreamReader(in));
+            this.target = target;
+            this.idleTarget = target;
+        }
+
+        @Override
+        public void run() {
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (!isMarker(line)) {
+                        target.println(line);
+                    }
+                }
+            } catch (IOException e) {
+                //nothing to do, the process is dead
+            }
+        }
+
+        synchronized void expectMarker(String marker) {
+            this.marker = marker;
+            this.markerRead = false;
+        }
+
+        private synchronized boolean isMarker(String line) {
+            if (marker != null && marker.equals(line)) {
+                marker = null;
+                markerRead = true;
+                // the next lines are not written by the terminated task
+                target = idleTarget;
+                notifyAll();
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean waitMarker(long end) throws InterruptedException {
+            long now;
+            while (!markerRead && (now = System.currentTimeMillis()) < end) {
+                wait(end - now);
+            }
+            return markerRead;
+        }
+    }
+
+}
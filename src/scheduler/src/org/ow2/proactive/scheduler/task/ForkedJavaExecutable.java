@@ -48,6 +48,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
+import java.util.UUID;
+import java.util.TreeMap;
 
 import org.apache.log4j.Appender;
 import org.apache.log4j.AppenderSkeleton;
@@ -80,6 +82,7 @@ import org.ow2.proactive.scheduler.task.launcher.JavaTaskLauncher;
 import org.ow2.proactive.scheduler.task.launcher.TaskLauncher;
 import org.ow2.proactive.scheduler.task.launcher.TaskLauncherInitializer;
 import org.ow2.proactive.scheduler.task.launcher.utils.ForkerUtils;
+import org.ow2.proactive.scheduler.util.process.ProcessGroupTracker;
 import org.ow2.proactive.scheduler.util.process.ThreadReader;
 import org.ow2.proactive.scripting.Script;
 import org.ow2.proactive.scripting.ScriptHandler;
@@ -117,6 +120,9 @@ public class ForkedJavaExecutable extends JavaExecutable implements ForkerStarte
     /** Forked execution time out checking interval */
     private static final int TIMEOUT = 1000;
 
+    /** Maximum time to wait for the end of the output of the task of a pooled JVM */
+    private static final long OUTPUT_FLUSH_TIMEOUT = 10000;
+
     /** Java task launcher reference kept to activate logs on it if necessary */
     private JavaTaskLauncher newJavaTaskLauncher;
 
@@ -133,6 +139,22 @@ public class ForkedJavaExecutable extends JavaExecutable implements ForkerStarte
     private Node forkedNode = null;
     private Boolean processStarted = false;
 
+    /** JVM of the node pool running the task, null if the pool is disabled */
+    private transient ForkedJVMPool.PooledJVM pooledJVM;
+    /** True if the JVM has been started for a previous task */
+    private boolean forkedJVMReused = false;
+    /** Time in millis spent starting the JVM or taking it from the pool, -1 if not started */
+    private long forkDuration = -1;
+
+    /** Process group of the JVM, null if the processes are not tracked by group */
+    private transient ProcessGroupTracker.TrackedGroup trackedGroup;
+    /** CPU time in millis used by the process group before the task, for a pooled JVM */
+    private long cpuTimeBeforeTask;
+    /** CPU time in millis used by the processes of the task, -1 if unknown */
+    private long cpuTime = -1;
+    /** Highest resident memory in kilobytes used by the processes of the task, -1 if unknown */
+    private long peakRss = -1;
+
     /** Hibernate default constructor */
     public ForkedJavaExecutable() {
     }
@@ -156,12 +178,54 @@ public class ForkedJavaExecutable extends JavaExecutable implements ForkerStarte
      */
     @Override
     public Serializable execute(TaskResult... results) throws Throwable {
+        // true if the JVM can be given back to the pool once the task is terminated
+        boolean reusable = false;
         try {
-            // building command for executing java and start process
-            OSProcessBuilder ospb = createProcessAndPrepareCommand();
-            process = startProcess(ospb);
-            this.initStreamReaders();
-            waitForRegistration(ospb);
+            OSProcessBuilder ospb = createProcessAndPrepareEnvironment();
+            long forkStart = System.currentTimeMillis();
+            ForkedJVMPool pool = ForkedJVMPool.getInstance();
+            String poolKey = null;
+            if (pool != null) {
+                poolKey = getPoolKey();
+                pooledJVM = pool.acquire(poolKey);
+            }
+            if (pooledJVM != null) {
+                logger.debug("Reusing a forked JVM which has run " + pooledJVM.getTasks() + " tasks");
+                forkedJVMReused = true;
+                process = pooledJVM.getProcess();
+                forkedNode = pooledJVM.getNode();
+                trackedGroup = pooledJVM.getTrackedGroup();
+                pooledJVM.redirectOutput(System.out, System.err);
+            } else {
+                // building command for executing java and start process
+                prepareCommand(ospb);
+                process = startProcess(ospb);
+                ProcessGroupTracker tracker = ProcessGroupTracker.getInstance();
+                if (tracker != null && !isRunAsUser()) {
+                    trackedGroup = tracker.track(process);
+                }
+                if (pool != null) {
+                    pooledJVM = new ForkedJVMPool.PooledJVM(poolKey, process, fpolicy, flog4j, fpaconfig);
+                    pooledJVM.setTrackedGroup(trackedGroup);
+                    pooledJVM.redirectOutput(System.out, System.err);
+                } else {
+                    this.initStreamReaders();
+                }
+                waitForRegistration(ospb);
+                if (pooledJVM != null) {
+                    pooledJVM.setNode(forkedNode);
+                    // temporary files are now deleted with the pooled JVM
+                    fpolicy = null;
+                    flog4j = null;
+                    fpaconfig = null;
+                }
+            }
+            forkDuration = System.currentTimeMillis() - forkStart;
+            if (trackedGroup != null) {
+                // a pooled JVM has already run other tasks
+                cpuTimeBeforeTask = trackedGroup.getCpuTime();
+                trackedGroup.resetPeakRss();
+            }
 
             //create task launcher on new JVM node
             logger.debug("Create remote task launcher");
@@ -203,6 +267,7 @@ public class ForkedJavaExecutable extends JavaExecutable implements ForkerStarte
                 // if killed, the dataspace clean has been performed while calling kill()
                 try {
                     newJavaTaskLauncher.closeNodeConfiguration();
+                    reusable = pooledJVM != null;
                 } catch (Throwable e) {
                     logger.warn("Unable to close dataspaces while terminating forked JVM.", e);
                 }
@@ -213,8 +278,70 @@ public class ForkedJavaExecutable extends JavaExecutable implements ForkerStarte
             }
             return result;
         } finally {
-            clean();
+            clean(reusable && !isKilled());
+        }
+    }
+
+    /**
+     * Return the signature of the fork environment of the task: only the tasks of the same job
+     * having the same signature can share a pooled JVM.
+     *
+     * @return the signature of the fork environment of the task
+     */
+    private String getPoolKey() {
+        StringBuilder key = new StringBuilder();
+        key.append(execInitializer.getJavaTaskLauncherInitializer().getTaskId().getJobId().value());
+        key.append('\n').append(createJavaCommand().get(0));
+        key.append('\n').append(isRunAsUser());
+        ForkEnvironment forkEnvironment = execInitializer.getForkEnvironment();
+        if (forkEnvironment != null) {
+            key.append('\n').append(forkEnvironment.getJVMArguments());
+            key.append('\n').append(forkEnvironment.getAdditionalClasspath());
+            key.append('\n').append(forkEnvironment.getWorkingDir());
+            Map<String, String> fenv = forkEnvironment.getSystemEnvironment();
+            if (fenv != null) {
+                key.append('\n').append(new TreeMap<String, String>(fenv));
+            }
         }
+        return key.toString();
+    }
+
+    /**
+     * Return the time spent starting the JVM of the task or taking it from the pool.
+     *
+     * @return the time in millis, -1 if the JVM has not been started
+     */
+    public long getForkDuration() {
+        return forkDuration;
+    }
+
+    /**
+     * Return true if the task has been run by a pooled JVM started for a previous task.
+     *
+     * @return true if the JVM of the task has been reused
+     */
+    public boolean isForkedJVMReused() {
+        return forkedJVMReused;
+    }
+
+    /**
+     * Return the CPU time used by the JVM and its processes while running the task, known only
+     * when they are tracked by process group.
+     *
+     * @return the CPU time in millis, -1 if unknown
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * Return the highest resident memory used by the JVM and its processes while running the task,
+     * known only when they are tracked by process group.
+     *
+     * @return the resident memory in kilobytes, -1 if unknown
+     */
+    public long getPeakRss() {
+        return peakRss;
     }
 
     /**
@@ -254,16 +381,13 @@ public class ForkedJavaExecutable extends JavaExecutable implements ForkerStarte
      * <li>Create new process builder</li>
      * <li>Update fork env with system env</li>
      * <li>Execute environment script if needed</li>
-     * <li>Create command and add it to process builder</li>
-     * <li>Set working dir</li>
-     * <li>Set system environment</li>
      * <li>And return the created OS process builder</li>
      * </ul>
      *
      * @return the created OS process builder
      * @throws Exception if a problem occurs while creating the process
      */
-    private OSProcessBuilder createProcessAndPrepareCommand() throws Exception {
+    private OSProcessBuilder createProcessAndPrepareEnvironment() throws Exception {
         logger.debug("Preparing new java process");
         //create process builder
         OSProcessBuilder ospb = createProcess();
@@ -271,6 +395,20 @@ public class ForkedJavaExecutable extends JavaExecutable implements ForkerStarte
         createInternalForkEnvironment(ospb);
         //execute environment script
         executeEnvScript(ospb);
+        return ospb;
+    }
+
+    /**
+     * <ul>
+     * <li>Create command and add it to process builder</li>
+     * <li>Set working dir</li>
+     * <li>Set system environment</li>
+     * </ul>
+     *
+     * @param ospb the process builder on which to set the command
+     * @throws Exception if a problem occurs while creating the command
+     */
+    private void prepareCommand(OSProcessBuilder ospb) throws Exception {
         //create command and set it to process builder
         List<String> command = createJavaCommand();
         addJVMArguments(command);
@@ -285,7 +423,6 @@ public class ForkedJavaExecutable extends JavaExecutable implements ForkerStarte
         if (logger.isDebugEnabled()) {
             logger.debug("JVM process and command created with command : " + command);
         }
-        return ospb;
     }
 
     /**
@@ -638,7 +775,13 @@ public class ForkedJavaExecutable extends JavaExecutable implements ForkerStarte
      * @param command the command to be set
      */
     private void setCommand(OSProcessBuilder ospb, List<String> command) {
-        ospb.command(command.toArray(new String[command.size()]));
+        String[] commandArray = command.toArray(new String[command.size()]);
+        //the JVM leads its own process group if it is tracked
+        ProcessGroupTracker tracker = ProcessGroupTracker.getInstance();
+        if (tracker != null && !isRunAsUser()) {
+            commandArray = tracker.wrapCommand(commandArray);
+        }
+        ospb.command(commandArray);
     }
 
     /**
@@ -716,10 +859,23 @@ public class ForkedJavaExecutable extends JavaExecutable implements ForkerStarte
 
     /**
      * Cleaning method kills all nodes on the dedicated JVM, destroys java process, and closes threads responsible for process output
+     * <br>A pooled JVM is given back to the pool instead if it can run other tasks.
+     *
+     * @param reusable true if the JVM can run other tasks
      */
-    private void clean() {
+    private void clean(boolean reusable) {
         try {
             logger.info("Cleaning forked java executable");
+            if (trackedGroup != null) {
+                cpuTime = trackedGroup.getCpuTime() - cpuTimeBeforeTask;
+                peakRss = trackedGroup.getPeakRss();
+            }
+            if (pooledJVM != null) {
+                // the process group is killed with the pooled JVM
+                releasePooledJVM(reusable);
+                process = null;
+                trackedGroup = null;
+            }
             //if tmp file have been set, destroy it.
             if (fpolicy != null) {
                 fpolicy.delete();
@@ -734,12 +890,51 @@ public class ForkedJavaExecutable extends JavaExecutable implements ForkerStarte
                 process.destroy();
                 process = null;
             }
+            if (trackedGroup != null) {
+                if (isKilled()) {
+                    // processes started by the killed task, they are left running when it terminates normally
+                    trackedGroup.kill(null);
+                }
+                trackedGroup.stop();
+                trackedGroup = null;
+            }
             terminateStreamReaders();
         } catch (Exception e) {
             logger.error("", e);
         }
     }
 
+    /**
+     * Give the pooled JVM back to the pool once the task launcher created for the task is terminated,
+     * or destroy it if it cannot run other tasks.
+     *
+     * @param reusable true if the JVM can run other tasks
+     */
+    private void releasePooledJVM(boolean reusable) {
+        ForkedJVMPool.PooledJVM jvm = pooledJVM;
+        pooledJVM = null;
+        if (reusable) {
+            try {
+                // the output of the task must reach its logs before the JVM runs another task
+                String marker = "--- end of the output of task " +
+                    execInitializer.getJavaTaskLauncherInitializer().getTaskId() + " " +
+                    UUID.randomUUID() + " ---";
+                jvm.expectOutputEnd(marker);
+                newJavaTaskLauncher.writeOutputEndMarker(marker);
+                newJavaTaskLauncher.terminate(true);
+                if (jvm.waitOutputEnd(OUTPUT_FLUSH_TIMEOUT)) {
+                    ForkedJVMPool.getInstance().release(jvm);
+                    return;
+                }
+                logger.warn("The end of the output of the task has not been received from the forked JVM" +
+                    " within " + OUTPUT_FLUSH_TIMEOUT + "ms, it is destroyed");
+            } catch (Throwable e) {
+                logger.warn("Unable to give the forked JVM back to the pool, it is destroyed", e);
+            }
+        }
+        jvm.destroy();
+    }
+
     /**
      * Create temp file in java.io.tmpdir if SCRATCHDIR is not set, 
      * otherwise, create temp file in SCRATCHDIR
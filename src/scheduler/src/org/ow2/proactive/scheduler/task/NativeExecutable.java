@@ -64,6 +64,7 @@ import org.ow2.proactive.scheduler.exception.StartProcessException;
 import org.ow2.proactive.scheduler.task.launcher.TaskLauncher.OneShotDecrypter;
 import org.ow2.proactive.scheduler.task.launcher.TaskLauncher.SchedulerVars;
 import org.ow2.proactive.scheduler.task.launcher.utils.ForkerUtils;
+import org.ow2.proactive.scheduler.util.process.ProcessGroupTracker;
 import org.ow2.proactive.scheduler.util.process.ProcessTreeKiller;
 import org.ow2.proactive.scheduler.util.process.ThreadReader;
 import org.ow2.proactive.scripting.GenerationScript;
@@ -105,6 +106,15 @@ public class NativeExecutable extends Executable {
     /** Process that start the native task */
     private transient Process process;
 
+    /** Process group of the native task, null if the processes are not tracked by group */
+    private transient ProcessGroupTracker.TrackedGroup trackedGroup;
+
+    /** CPU time in millis used by the processes of the task, -1 if unknown */
+    private long cpuTime = -1;
+
+    /** Highest resident memory in kilobytes used by the processes of the task, -1 if unknown */
+    private long peakRss = -1;
+
     /** file use to set the working dir of the native command */
     private File wDirFile;
 
@@ -324,6 +334,10 @@ public class NativeExecutable extends Executable {
                 // wait for log flush
                 tsout.join();
                 tserr.join();
+                if (trackedGroup != null) {
+                    cpuTime = trackedGroup.getCpuTime();
+                    peakRss = trackedGroup.getPeakRss();
+                }
 
                 //killTreeProcess(process);
                 return process.exitValue();
@@ -334,6 +348,9 @@ public class NativeExecutable extends Executable {
                 throw new RunningProcessException(e.getMessage(), e);
             }
         } finally {
+            if (trackedGroup != null) {
+                trackedGroup.stop();
+            }
             if (nodesFiles != null) {
                 nodesFiles.delete();
             }
@@ -356,15 +373,16 @@ public class NativeExecutable extends Executable {
         } else {
             ospb = ForkerUtils.getOSProcessBuilderFactory().getBuilder();
         }
-        //add command and directory
-        ospb.command(this.command);
+        //add directory
         ospb.directory(this.wDirFile);
         //manage environment
+        String path = System.getenv("PATH");
         try {
             //the following line can throw NotImplementedException
             Map<String, String> env = ospb.environment();
             //if no exception was raised, add environment with no restriction
             env.putAll(buildEnvironmentVariables(true));
+            path = env.get("PATH");
         } catch (NotImplementedException e) {
             //TODO SCHEDULING-986 : remove catch block when environment can be modified with runAsMe
             //if NotImplementedException was raised, just check for user environment modification
@@ -372,8 +390,21 @@ public class NativeExecutable extends Executable {
             //has not modified it. Throws an exception if modified, just do nothing if not modified.
             buildEnvironmentVariables(false);
         }
+        //add command, the command leads its own process group if it is tracked
+        ProcessGroupTracker tracker = ProcessGroupTracker.getInstance();
+        if (tracker != null && !isRunAsUser()) {
+            //a missing command would not fail to start but make setsid exit with 127
+            ProcessGroupTracker.checkExecutable(this.command[0], this.wDirFile, path);
+            ospb.command(tracker.wrapCommand(this.command));
+        } else {
+            ospb.command(this.command);
+        }
         //and start process
-        return ospb.start();
+        Process started = ospb.start();
+        if (tracker != null && !isRunAsUser()) {
+            trackedGroup = tracker.track(started);
+        }
+        return started;
     }
 
     /**
@@ -395,7 +426,12 @@ public class NativeExecutable extends Executable {
         super.kill();
         if (process != null) {
             try {
-                ProcessTreeKiller.get().kill(process, modelEnvVar);
+                if (trackedGroup != null) {
+                    // the environment is only searched for the processes escaped from the group
+                    trackedGroup.kill(modelEnvVar);
+                } else {
+                    ProcessTreeKiller.get().kill(process, modelEnvVar);
+                }
                 // WARN jlscheef destroy() may be useless but it's not working
                 // yet without it.
                 // processTreeKiller seems not to kill current process...
@@ -407,6 +443,26 @@ public class NativeExecutable extends Executable {
         }
     }
 
+    /**
+     * Return the CPU time used by the processes of the task, known only when they are
+     * tracked by process group.
+     *
+     * @return the CPU time in millis, -1 if unknown
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * Return the highest resident memory used by the processes of the task, known only when they are
+     * tracked by process group.
+     *
+     * @return the resident memory in kilobytes, -1 if unknown
+     */
+    public long getPeakRss() {
+        return peakRss;
+    }
+
     /**
      * Get the command
      *
@@ -120,6 +120,9 @@ public class TaskResultImpl implements TaskResult {
     // @Unloadable // BUG ? DON't WORK WITH UNLOADABLE
     private Map<String, BigString> propagatedProperties;
 
+    /** Metadata about the execution of the task */
+    private Map<String, String> metadata;
+
     public TaskResultImpl(TaskId id, byte[] serializedValue, byte[] serializedException, TaskLogs output,
             Map<String, String> propagatedProperties) {
         this(id, output);
@@ -274,6 +277,25 @@ public class TaskResultImpl implements TaskResult {
         this.propagatedProperties = props;
     }
 
+    /**
+     * Set a metadata about the execution of the task
+     * @param key the name of the metadata
+     * @param value the value of the metadata
+     */
+    public void setMetadata(String key, String value) {
+        if (this.metadata == null) {
+            this.metadata = new HashMap<String, String>();
+        }
+        this.metadata.put(key, value);
+    }
+
+    /**
+     * @param metadata all the metadata about the execution of the task
+     */
+    public void setMetadata(Map<String, String> metadata) {
+        this.metadata = metadata;
+    }
+
     /**
      * @see org.ow2.proactive.scheduler.common.task.TaskResult#hadException()
      */
@@ -586,4 +608,11 @@ public class TaskResultImpl implements TaskResult {
             return convertedProperties;
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Map<String, String> getMetadata() {
+        return this.metadata;
+    }
 }
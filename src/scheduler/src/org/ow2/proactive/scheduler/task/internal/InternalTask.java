@@ -494,10 +494,23 @@ public abstract class InternalTask extends TaskState {
         return true;
     }
 
-    public void setExecutableContainer(ExecutableContainer e) {
+    public synchronized void setExecutableContainer(ExecutableContainer e) {
         this.executableContainer = e;
     }
 
+    /**
+     * Forget the given executable container once it has been sent to the task launcher,
+     * unless another container has been set in the meantime.
+     * The container is loaded again from the database if the task is restarted.
+     *
+     * @param e the executable container to be released.
+     */
+    public synchronized void releaseExecutableContainer(ExecutableContainer e) {
+        if (this.executableContainer == e) {
+            this.executableContainer = null;
+        }
+    }
+
     /**
      * Create the launcher for this taskDescriptor.
      *
@@ -520,7 +533,7 @@ public abstract class InternalTask extends TaskState {
      * 
      * @return the user executable represented by this task descriptor.
      */
-    public ExecutableContainer getExecutableContainer() {
+    public synchronized ExecutableContainer getExecutableContainer() {
         return this.executableContainer;
     }
 
@@ -0,0 +1,421 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.task.launcher;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.objectweb.proactive.extensions.dataspaces.api.DataSpacesFileObject;
+import org.objectweb.proactive.extensions.dataspaces.api.FileContent;
+import org.objectweb.proactive.extensions.dataspaces.api.FileSelector;
+import org.objectweb.proactive.extensions.dataspaces.api.FileType;
+import org.objectweb.proactive.extensions.dataspaces.exceptions.FileSystemException;
+import org.objectweb.proactive.utils.NamedThreadFactory;
+
+
+/**
+ * Copies a set of files between data spaces.
+ * <p>
+ * Files are copied by a bounded pool of threads. The file objects of the data spaces are not
+ * shared between threads: the roots of the spaces are resolved again for each copying thread.
+ * When both the source and the destination
+ * of a file are on the local file system, its content is transferred with NIO channels,
+ * otherwise the copy is done by the data spaces API.
+ * Files copied to the local file system can go through a node side {@link InputFilesCache}.
+ * The number of files and bytes copied and the duration of the transfer are recorded.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class DataSpacesTransfer {
+
+    public static final Logger logger = Logger.getLogger(DataSpacesTransfer.class);
+
+    /** Name of the property giving the number of threads used to copy the files of a task */
+    public static final String TRANSFER_THREADS_PROPERTY = "pas.launcher.dataspaces.transfer.threads";
+
+    /** Default number of threads used to copy the files of a task */
+    public static final int DEFAULT_TRANSFER_THREADS = 4;
+
+    private static final String FILE_SCHEME = "file:";
+
+    private final List<Copy> copies = new ArrayList<Copy>();
+
+    /** Cache of the copied files, null if files are not cached */
+    private final InputFilesCache cache;
+
+    private final AtomicInteger cacheHits = new AtomicInteger();
+
+    private final AtomicInteger cacheMisses = new AtomicInteger();
+
+    private final AtomicInteger files = new AtomicInteger();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private long duration;
+
+    /**
+     * A data space files are copied from or to.
+     */
+    public interface Space {
+
+        /**
+         * Resolves a new file object for the root of this space. It is called by the thread
+         * starting the transfer, once for each thread copying files.
+         *
+         * @return the root of the space.
+         * @throws FileSystemException if the space cannot be resolved.
+         */
+        DataSpacesFileObject resolveRoot() throws FileSystemException;
+
+    }
+
+    /** A file to copy, at the same path in its source and destination spaces */
+    private static final class Copy {
+        private final Space source;
+        private final Space destination;
+        private final String relativePath;
+
+        private Copy(Space source, Space destination, String relativePath) {
+            this.source = source;
+            this.destination = destination;
+            this.relativePath = relativePath;
+        }
+    }
+
+    /** The roots of the spaces used by a thread */
+    private static final class Roots {
+        private final Map<Space, DataSpacesFileObject> roots;
+
+        /** Resolves the roots of the spaces of the given copies */
+        private Roots(List<Copy> copies) throws FileSystemException {
+            roots = new IdentityHashMap<Space, DataSpacesFileObject>();
+            for (Copy copy : copies) {
+                resolve(copy.source);
+                resolve(copy.destination);
+            }
+        }
+
+        private void resolve(Space space) throws FileSystemException {
+            if (!roots.containsKey(space)) {
+                roots.put(space, space.resolveRoot());
+            }
+        }
+
+        private DataSpacesFileObject get(Space space) {
+            return roots.get(space);
+        }
+    }
+
+    /**
+     * Creates a transfer whose files are not cached.
+     */
+    public DataSpacesTransfer() {
+        this(null);
+    }
+
+    /**
+     * Creates a transfer whose files are taken from the given cache when possible.
+     *
+     * @param cache the cache of the files, null to disable caching.
+     */
+    public DataSpacesTransfer(InputFilesCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Adds a file to copy.
+     *
+     * @param source the space the file is copied from.
+     * @param destination the space the file is copied to.
+     * @param relativePath the path of the file in both spaces.
+     */
+    public void add(Space source, Space destination, String relativePath) {
+        copies.add(new Copy(source, destination, relativePath));
+    }
+
+    /**
+     * Copies all the files added since the last transfer. Every copy is attempted even if some of them fail.
+     *
+     * @throws FileSystemException the error of the first failed copy.
+     */
+    public void transfer() throws FileSystemException {
+        long start = System.currentTimeMillis();
+        try {
+            int threads = Math.min(getTransferThreads(), copies.size());
+            if (threads <= 1) {
+                Roots roots = new Roots(copies);
+                FileSystemException toBeThrown = null;
+                for (Copy copy : copies) {
+                    try {
+                        copy(copy, roots);
+                    } catch (FileSystemException fse) {
+                        logger.info("", fse);
+                        if (toBeThrown == null) {
+                            toBeThrown = fse;
+                        }
+                    }
+                }
+                if (toBeThrown != null) {
+                    throw toBeThrown;
+                }
+            } else {
+                transfer(threads);
+            }
+        } finally {
+            copies.clear();
+            duration += System.currentTimeMillis() - start;
+        }
+    }
+
+    private void transfer(int threads) throws FileSystemException {
+        // each thread of the pool takes its own roots the first time it copies a file
+        final Queue<Roots> freeRoots = new ConcurrentLinkedQueue<Roots>();
+        for (int i = 0; i < threads; i++) {
+            freeRoots.add(new Roots(copies));
+        }
+        final ThreadLocal<Roots> threadRoots = new ThreadLocal<Roots>() {
+            @Override
+            protected Roots initialValue() {
+                return freeRoots.poll();
+            }
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new NamedThreadFactory(
+            "Data Transfer Thread"));
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>(copies.size());
+            for (final Copy copy : copies) {
+                futures.add(pool.submit(new Callable<Void>() {
+                    public Void call() throws FileSystemException {
+                        copy(copy, threadRoots.get());
+                        return null;
+                    }
+                }));
+            }
+            FileSystemException toBeThrown = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    logger.info("", e.getCause());
+                    if (toBeThrown == null) {
+                        toBeThrown = (e.getCause() instanceof FileSystemException) ? (FileSystemException) e
+                                .getCause() : new FileSystemException(e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new FileSystemException("Interrupted while copying files", e);
+                }
+            }
+            if (toBeThrown != null) {
+                throw toBeThrown;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void copy(Copy copy, Roots roots) throws FileSystemException {
+        DataSpacesFileObject source = roots.get(copy.source).resolveFile(copy.relativePath);
+        DataSpacesFileObject destination = roots.get(copy.destination).resolveFile(copy.relativePath);
+        File localDestination = toLocalFile(destination);
+        if (cache != null && localDestination != null && source.getType() == FileType.FILE) {
+            FileContent content = source.getContent();
+            // the virtual URI contains the data space application of the job
+            String uri = source.getRealURI() != null ? source.getRealURI() : source.getVirtualURI();
+            String key = InputFilesCache.getKey(uri, content.getSize(), content.getLastModifiedTime());
+            File cached = cache.get(key);
+            if (cached != null) {
+                try {
+                    copyLocal(cached, localDestination);
+                    cacheHits.incrementAndGet();
+                    return;
+                } catch (FileSystemException e) {
+                    // removed from the cache in the meantime
+                    logger.debug("Cannot copy " + copy.relativePath + " from the input files cache", e);
+                }
+            }
+            cacheMisses.incrementAndGet();
+            copyUncached(source, destination, localDestination);
+            cache.put(key, localDestination);
+        } else {
+            copyUncached(source, destination, localDestination);
+        }
+    }
+
+    private void copyUncached(DataSpacesFileObject source, DataSpacesFileObject destination,
+            File localDestination) throws FileSystemException {
+        File localSource = localDestination == null ? null : toLocalFile(source);
+        if (localSource != null && localSource.exists()) {
+            copyLocal(localSource, localDestination);
+        } else {
+            destination.copyFrom(source, FileSelector.SELECT_SELF);
+            if (source.getType() == FileType.FILE) {
+                files.incrementAndGet();
+                bytes.addAndGet(source.getContent().getSize());
+            }
+        }
+    }
+
+    private void copyLocal(File source, File destination) throws FileSystemException {
+        if (source.isDirectory()) {
+            destination.mkdirs();
+            return;
+        }
+        try {
+            long size = copyFile(source, destination);
+            files.incrementAndGet();
+            bytes.addAndGet(size);
+        } catch (IOException e) {
+            throw new FileSystemException("Cannot copy " + source + " to " + destination, e);
+        }
+    }
+
+    /**
+     * Copies a local file with NIO channels, creating the parent directories of the destination.
+     *
+     * @return the number of bytes copied.
+     */
+    static long copyFile(File source, File destination) throws IOException {
+        File parent = destination.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        FileChannel in = new FileInputStream(source).getChannel();
+        try {
+            FileChannel out = new FileOutputStream(destination).getChannel();
+            try {
+                long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    position += in.transferTo(position, size - position, out);
+                }
+                return size;
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return the file behind the given file object if it is on the local file system, null otherwise.
+     */
+    private static File toLocalFile(DataSpacesFileObject file) {
+        String uri = file.getRealURI();
+        if (uri == null || !uri.startsWith(FILE_SCHEME)) {
+            return null;
+        }
+        try {
+            return new File(new URI(uri));
+        } catch (URISyntaxException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static int getTransferThreads() {
+        String threads = System.getProperty(TRANSFER_THREADS_PROPERTY);
+        if (threads == null || "".equals(threads.trim())) {
+            return DEFAULT_TRANSFER_THREADS;
+        }
+        try {
+            return Integer.parseInt(threads.trim());
+        } catch (NumberFormatException e) {
+            logger.warn(TRANSFER_THREADS_PROPERTY + " property is not correctly defined, " +
+                DEFAULT_TRANSFER_THREADS + " threads are used to copy files", e);
+            return DEFAULT_TRANSFER_THREADS;
+        }
+    }
+
+    /**
+     * @return the number of files copied.
+     */
+    public int getFiles() {
+        return files.get();
+    }
+
+    /**
+     * @return the number of bytes copied.
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return the number of files taken from the cache.
+     */
+    public int getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * @return the number of cacheable files not found in the cache.
+     */
+    public int getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    /**
+     * @return the time spent copying the files, in milliseconds.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+}
@@ -102,10 +102,12 @@ public class ForkedJavaTaskLauncher extends JavaTaskLauncher implements ForkerSt
             TaskResult... results) {
         long duration = -1;
         TaskResultImpl taskResult = null;
+        ForkedJavaExecutable forkedExecutable = null;
         try {
 
             // create the executable (will set the context class loader to the taskclassserver)
             currentExecutable = executableContainer.getExecutable();
+            forkedExecutable = (ForkedJavaExecutable) currentExecutable;
 
             //init task
             ForkedJavaExecutableInitializer fjei = (ForkedJavaExecutableInitializer) executableContainer
@@ -156,7 +158,7 @@ public class ForkedJavaTaskLauncher extends JavaTaskLauncher implements ForkerSt
                 duration = System.nanoTime() - duration;
             }
 
-            if (storeLogs) {
+            if (storeLogs || logsSpilled) {
                 // copy only task output, others files are copied by the forked JavaTaskLauncher
                 copyScratchDataToOutput(getTaskOutputSelectors());
             }
@@ -175,6 +177,18 @@ public class ForkedJavaTaskLauncher extends JavaTaskLauncher implements ForkerSt
                     taskResult = new TaskResultImpl(taskId, t, getLogs(), duration / 1000000);
                 }
             }
+            if (forkedExecutable.getForkDuration() >= 0) {
+                taskResult.setMetadata(TaskResult.METADATA_FORK_DURATION, String.valueOf(forkedExecutable
+                        .getForkDuration()));
+                taskResult.setMetadata(TaskResult.METADATA_FORKED_JVM_REUSED, String
+                        .valueOf(forkedExecutable.isForkedJVMReused()));
+            }
+            if (forkedExecutable.getCpuTime() >= 0) {
+                taskResult.setMetadata(TaskResult.METADATA_CPU_TIME, String.valueOf(forkedExecutable
+                        .getCpuTime()));
+                taskResult.setMetadata(TaskResult.METADATA_PEAK_RSS, String.valueOf(forkedExecutable
+                        .getPeakRss()));
+            }
         } catch (Throwable ex) {
             logger.info("", ex);
             if (this.getLogs() == null) {
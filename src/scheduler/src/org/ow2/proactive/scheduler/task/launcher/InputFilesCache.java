@@ -0,0 +1,310 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.task.launcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+
+/**
+ * Node side cache of the files copied from the data spaces to the scratch space of the tasks.
+ * <p>
+ * A cached file is identified by the real URI, the size and the last modification time of
+ * its source, so a modified source is never served from the cache while the same file read by
+ * different jobs is. The cache is bounded in size, the least recently used files are removed first.
+ * <p>
+ * The cache is disabled unless the {@link #CACHE_DIR_PROPERTY} property of the node JVM gives
+ * the directory holding the cached files. Several JVMs can share this directory: each cache keeps
+ * its files in its own subdirectory, locked by a lock file as long as the JVM runs. The
+ * subdirectories whose lock file is not locked anymore are removed when a cache is created.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class InputFilesCache {
+
+    public static final Logger logger = Logger.getLogger(InputFilesCache.class);
+
+    /** Name of the property giving the directory of the cache, the cache is disabled if it is not set */
+    public static final String CACHE_DIR_PROPERTY = "pas.launcher.inputcache.dir";
+
+    /** Name of the property giving the maximum size of the cache in megabytes */
+    public static final String CACHE_MAX_SIZE_PROPERTY = "pas.launcher.inputcache.maxsize";
+
+    /** Default maximum size of the cache in megabytes */
+    public static final long DEFAULT_CACHE_MAX_SIZE = 1024;
+
+    private static InputFilesCache instance;
+
+    private static boolean initialized;
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    /** Subdirectory of this cache */
+    private final File directory;
+
+    /** Lock held on the lock file of the subdirectory, the channel is never closed */
+    private final FileLock lock;
+
+    private final long maxSize;
+
+    /** Sizes of the cached files by name, in access order */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+    private long size;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @return the cache of this node, null if the cache is disabled.
+     */
+    public static synchronized InputFilesCache getInstance() {
+        if (!initialized) {
+            initialized = true;
+            String dir = System.getProperty(CACHE_DIR_PROPERTY);
+            if (dir != null && !"".equals(dir.trim())) {
+                long maxSize = DEFAULT_CACHE_MAX_SIZE;
+                String maxSizeProp = System.getProperty(CACHE_MAX_SIZE_PROPERTY);
+                if (maxSizeProp != null && !"".equals(maxSizeProp.trim())) {
+                    try {
+                        maxSize = Long.parseLong(maxSizeProp.trim());
+                    } catch (NumberFormatException e) {
+                        logger.warn(CACHE_MAX_SIZE_PROPERTY +
+                            " property is not correctly defined, input files cache is bounded to " +
+                            DEFAULT_CACHE_MAX_SIZE + " MB", e);
+                    }
+                }
+                try {
+                    instance = new InputFilesCache(new File(dir.trim()), maxSize * 1024 * 1024);
+                    logger.info("Input files cache enabled in " + instance.directory + ", bounded to " +
+                        maxSize + " MB");
+                } catch (IOException e) {
+                    logger.warn("Input files cache is disabled, cannot use " + dir, e);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a cache in a new subdirectory of the given directory, removing the subdirectories
+     * left by the JVMs which do not run anymore.
+     *
+     * @param parent the directory of the caches.
+     * @param maxSize the maximum size of the cache in bytes.
+     * @throws IOException if the subdirectory of the cache cannot be created.
+     */
+    public InputFilesCache(File parent, long maxSize) throws IOException {
+        this.maxSize = maxSize;
+        parent.mkdirs();
+        removeAbandonedDirectories(parent);
+        File lockFile = File.createTempFile("cache", LOCK_SUFFIX, parent);
+        this.lock = new RandomAccessFile(lockFile, "rw").getChannel().lock();
+        String name = lockFile.getName();
+        this.directory = new File(parent, name.substring(0, name.length() - LOCK_SUFFIX.length()));
+        if (!directory.mkdir()) {
+            throw new IOException("Cannot create the input files cache directory " + directory);
+        }
+    }
+
+    private static void removeAbandonedDirectories(File parent) {
+        File[] files = parent.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File lockFile : files) {
+            String name = lockFile.getName();
+            if (!lockFile.isFile() || !name.endsWith(LOCK_SUFFIX)) {
+                continue;
+            }
+            try {
+                FileChannel channel = new RandomAccessFile(lockFile, "rw").getChannel();
+                try {
+                    FileLock abandoned = channel.tryLock();
+                    if (abandoned == null) {
+                        // locked by another JVM
+                        continue;
+                    }
+                    File dir = new File(parent, name.substring(0, name.length() - LOCK_SUFFIX.length()));
+                    File[] cached = dir.listFiles();
+                    if (cached != null) {
+                        for (File file : cached) {
+                            file.delete();
+                        }
+                    }
+                    dir.delete();
+                    lockFile.delete();
+                    logger.debug("Removed the abandoned input files cache directory " + dir);
+                } catch (OverlappingFileLockException e) {
+                    // locked by this JVM
+                } finally {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                logger.warn("Cannot check the input files cache lock file " + lockFile, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the cached copy of a file.
+     *
+     * @param key the key of the file, see {@link #getKey(String, long, long)}.
+     * @return the cached copy, or null if the file is not cached.
+     */
+    public synchronized File get(String key) {
+        if (entries.get(key) == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new File(directory, key);
+    }
+
+    /**
+     * Adds a copy of the given file to the cache, removing the least recently used files
+     * if needed. Files bigger than the cache are not cached.
+     *
+     * @param key the key of the file, see {@link #getKey(String, long, long)}.
+     * @param file the file to cache.
+     */
+    public void put(String key, File file) {
+        long length = file.length();
+        if (length > maxSize) {
+            return;
+        }
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                return;
+            }
+        }
+        // copied outside of the lock, the copy is only visible once it is complete
+        File tmp = new File(directory, key + ".tmp" + Thread.currentThread().getId());
+        try {
+            DataSpacesTransfer.copyFile(file, tmp);
+        } catch (Exception e) {
+            logger.warn("Cannot add " + file + " to the input files cache", e);
+            tmp.delete();
+            return;
+        }
+        synchronized (this) {
+            if (entries.containsKey(key) || !tmp.renameTo(new File(directory, key))) {
+                tmp.delete();
+                return;
+            }
+            entries.put(key, length);
+            size += length;
+            Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+            while (size > maxSize && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                it.remove();
+                size -= eldest.getValue();
+                new File(directory, eldest.getKey()).delete();
+            }
+        }
+    }
+
+    /**
+     * Computes the key of a file: a file is considered unchanged as long as
+     * its URI, its size and its modification time do not change.
+     *
+     * @param uri the real URI of the file, the virtual URI of a file depends on the job reading it.
+     * @param size the size of the file.
+     * @param lastModified the last modification time of the file.
+     * @return the key of the file, usable as a file name.
+     */
+    public static String getKey(String uri, long size, long lastModified) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest((uri + "|" + size + "|" + lastModified).getBytes("UTF-8"));
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16));
+                key.append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the subdirectory holding the files of this cache.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the number of files found in the cache since the node started.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of files not found in the cache since the node started.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the current size of the cached files in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+}
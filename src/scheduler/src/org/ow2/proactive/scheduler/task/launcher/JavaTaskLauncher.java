@@ -62,6 +62,7 @@ import org.ow2.proactive.scheduler.common.task.executable.JavaExecutable;
 import org.ow2.proactive.scheduler.common.task.flow.FlowAction;
 import org.ow2.proactive.scheduler.task.ExecutableContainer;
 import org.ow2.proactive.scheduler.task.TaskResultImpl;
+import org.ow2.proactive.scheduler.util.classloading.TaskClassLoader;
 
 
 /**
@@ -204,6 +205,13 @@ public class JavaTaskLauncher extends TaskLauncher {
                 }
                 res.setPropagatedProperties(retreivePropagatedProperties());
                 res.setLogs(this.getLogs());
+                this.setTransferMetadata(res);
+                // the context classloader has been set by the executable container
+                ClassLoader ccl = Thread.currentThread().getContextClassLoader();
+                if (ccl instanceof TaskClassLoader) {
+                    res.setMetadata(TaskResult.METADATA_REMOTE_CLASS_FETCHES, String
+                            .valueOf(((TaskClassLoader) ccl).getRemoteFetchCount()));
+                }
             } else {
                 res = null;
             }
@@ -302,4 +310,26 @@ public class JavaTaskLauncher extends TaskLauncher {
 
         return true;
     }
+
+    /**
+     * Write a marker line on the standard output and error of the JVM once the logs of the task are flushed,
+     * so that the forker knows when it has received all the output of the task.
+     * MUST ONLY BE USED BY FORKED EXECUTABLE
+     *
+     * @param marker the line marking the end of the output of the task
+     * @return true once the marker has been written
+     */
+    @ImmediateService
+    public boolean writeOutputEndMarker(String marker) {
+        try {
+            this.finalizeLoggers();
+        } catch (RuntimeException e) {
+            logger.warn("Loggers are not shutdown !", e);
+        }
+        TaskLauncher.SYSTEM_OUT.println(marker);
+        TaskLauncher.SYSTEM_OUT.flush();
+        TaskLauncher.SYSTEM_ERR.println(marker);
+        TaskLauncher.SYSTEM_ERR.flush();
+        return true;
+    }
 }
@@ -221,6 +221,14 @@ public class NativeTaskLauncher extends TaskLauncher {
                 }
                 res.setPropagatedProperties(retreivePropagatedProperties());
                 res.setLogs(this.getLogs());
+                this.setTransferMetadata(res);
+                if (currentExecutable instanceof NativeExecutable) {
+                    NativeExecutable ne = (NativeExecutable) currentExecutable;
+                    if (ne.getCpuTime() >= 0) {
+                        res.setMetadata(TaskResult.METADATA_CPU_TIME, String.valueOf(ne.getCpuTime()));
+                        res.setMetadata(TaskResult.METADATA_PEAK_RSS, String.valueOf(ne.getPeakRss()));
+                    }
+                }
             } else {
                 res = null;
             }
@@ -36,8 +36,11 @@
  */
 package org.ow2.proactive.scheduler.task.launcher;
 
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Writer;
 import java.lang.reflect.Method;
 import java.security.KeyException;
 import java.security.KeyPair;
@@ -54,11 +57,13 @@ import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.log4j.Appender;
 import org.apache.log4j.FileAppender;
 import org.apache.log4j.Logger;
 import org.apache.log4j.MDC;
+import org.apache.log4j.WriterAppender;
 import org.apache.log4j.helpers.LogLog;
 import org.apache.log4j.spi.LoggingEvent;
 import org.objectweb.proactive.ActiveObjectCreationException;
@@ -83,6 +88,7 @@ import org.ow2.proactive.scheduler.common.task.Log4JTaskLogs;
 import org.ow2.proactive.scheduler.common.task.TaskId;
 import org.ow2.proactive.scheduler.common.task.TaskLogs;
 import org.ow2.proactive.scheduler.common.task.TaskResult;
+import org.ow2.proactive.scheduler.common.task.TruncatedLog4JTaskLogs;
 import org.ow2.proactive.scheduler.common.task.dataspaces.FileSelector;
 import org.ow2.proactive.scheduler.common.task.dataspaces.InputSelector;
 import org.ow2.proactive.scheduler.common.task.dataspaces.OutputAccessMode;
@@ -158,6 +164,10 @@ public abstract class TaskLauncher {
     protected String namingServiceUrl = null;
     protected List<InputSelector> inputFiles;
     protected List<OutputSelector> outputFiles;
+    /** Copy of the input files to the scratch space, null if there is none */
+    protected DataSpacesTransfer inputTransfer;
+    /** Copy of the output files from the scratch space, null if there is none */
+    protected DataSpacesTransfer outputTransfer;
 
     // buffered string to store datapspaces error/warn messages
     private StringBuffer dataspacesStatus;
@@ -216,6 +226,8 @@ public abstract class TaskLauncher {
     protected transient AsyncAppenderWithStorage logAppender;
     // if true, store logs in a file in LOCALSPACE
     protected boolean storeLogs;
+    // true if logs exceeded the storage and are written in a compressed file in LOCALSPACE
+    protected volatile boolean logsSpilled;
 
     // not null if an executable is currently executed
     protected Executable currentExecutable;
@@ -397,8 +409,7 @@ public abstract class TaskLauncher {
      * @throws IOException if the file cannot be created.
      */
     private void initLocalLogsFile() throws IOException {
-        DataSpacesFileObject outlog = SCRATCH.resolveFile(TaskLauncher.LOG_FILE_PREFIX + "-" +
-            this.taskId.getJobId() + "-" + this.taskId.getReadableName() + ".log");
+        DataSpacesFileObject outlog = SCRATCH.resolveFile(getLocalLogsFileName());
         outlog.createFile();
         // fileAppender constructor needs a path and not a URI.
         FileAppender fap = new FileAppender(Log4JTaskLogs.getTaskLogLayout(), outlog.getRealURI().substring(
@@ -406,6 +417,44 @@ public abstract class TaskLauncher {
         this.logAppender.addAppender(fap);
     }
 
+    /**
+     * Write the logs in a compressed file in $LOCALSPACE when they exceed the log storage,
+     * so that the complete logs are copied to the output space while only their tail is kept in memory.
+     */
+    private void initLogsSpill() {
+        final DataSpacesFileObject scratch = SCRATCH;
+        this.logAppender.setOverflowAppenderProvider(new AppenderProvider() {
+            public Appender getAppender() throws LogForwardingException {
+                try {
+                    DataSpacesFileObject outlog = scratch.resolveFile(getSpilledLogsFileName());
+                    outlog.createFile();
+                    // the file is written directly, it needs a path and not a URI.
+                    Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(outlog
+                            .getRealURI().substring("file://".length()))));
+                    logsSpilled = true;
+                    return new WriterAppender(Log4JTaskLogs.getTaskLogLayout(), writer);
+                } catch (IOException e) {
+                    throw new LogForwardingException("Cannot create the logs file for task " + taskId, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Return the name of the logs file written in $LOCALSPACE if logs are stored.
+     */
+    private String getLocalLogsFileName() {
+        return TaskLauncher.LOG_FILE_PREFIX + "-" + this.taskId.getJobId() + "-" +
+            this.taskId.getReadableName() + ".log";
+    }
+
+    /**
+     * Return the name of the compressed logs file written in $LOCALSPACE if logs exceed the storage.
+     */
+    private String getSpilledLogsFileName() {
+        return getLocalLogsFileName() + ".gz";
+    }
+
     /**
      * Set scheduler related variables for the current task. 
      */
@@ -586,7 +635,21 @@ public abstract class TaskLauncher {
     @ImmediateService
     public TaskLogs getLogs() {
         this.flushStreams();
-        TaskLogs logs = new Log4JTaskLogs(this.logAppender.getStorage(), this.taskId.getJobId().value());
+        TaskLogs logs;
+        long nbDroppedEvents = this.logAppender.getNbDroppedEvents();
+        if (nbDroppedEvents == 0) {
+            logs = new Log4JTaskLogs(this.logAppender.getStorage(), this.taskId.getJobId().value());
+        } else {
+            // only the tail of the logs is sent, the complete logs are in the output space if stored
+            String logsFile = null;
+            if (this.storeLogs) {
+                logsFile = getLocalLogsFileName();
+            } else if (this.logsSpilled) {
+                logsFile = getSpilledLogsFileName();
+            }
+            logs = new TruncatedLog4JTaskLogs(this.logAppender.getStorage(), this.taskId.getJobId().value(),
+                logsFile, nbDroppedEvents);
+        }
         return logs;
     }
 
@@ -800,6 +863,8 @@ public abstract class TaskLauncher {
                 if (this.storeLogs) {
                     logger.info("logfile is enabled for task " + taskId);
                     initLocalLogsFile();
+                } else {
+                    initLogsSpill();
                 }
 
             } catch (Throwable t) {
@@ -936,37 +1001,23 @@ public abstract class TaskLauncher {
             String globuri = (GLOBAL == null) ? "" : GLOBAL.getVirtualURI();
             String inuri = (INPUT == null) ? "" : INPUT.getVirtualURI();
 
+            inputTransfer = new DataSpacesTransfer(InputFilesCache.getInstance());
+            // a file found in several spaces is copied from the first one: INPUT, OUTPUT then GLOBAL
             Set<String> relPathes = new HashSet<String>();
+            addInputFiles(inResults, inuri, TransferSpace.INPUT, relPathes);
+            addInputFiles(outResults, outuri, TransferSpace.OUTPUT, relPathes);
+            addInputFiles(globResults, globuri, TransferSpace.GLOBAL, relPathes);
+            inputTransfer.transfer();
+        }
+    }
 
-            ArrayList<DataSpacesFileObject> results = new ArrayList<DataSpacesFileObject>();
-            results.addAll(inResults);
-            results.addAll(outResults);
-            results.addAll(globResults);
-
-            for (DataSpacesFileObject dsfo : results) {
-                try {
-                    String relativePath;
-                    if (inResults.contains(dsfo)) {
-                        relativePath = dsfo.getVirtualURI().replaceFirst(inuri + "/?", "");
-                    } else if (outResults.contains(dsfo)) {
-                        relativePath = dsfo.getVirtualURI().replaceFirst(outuri + "/?", "");
-                    } else { // if (globResults.contains(dsfo)) {
-                        relativePath = dsfo.getVirtualURI().replaceFirst(globuri + "/?", "");
-                    }
-                    logger.debug("* " + relativePath);
-                    if (!relPathes.contains(relativePath)) {
-                        logger.info("------------ resolving " + relativePath);
-                        SCRATCH.resolveFile(relativePath).copyFrom(dsfo,
-                                org.objectweb.proactive.extensions.dataspaces.api.FileSelector.SELECT_SELF);
-                    }
-                    relPathes.add(relativePath);
-                } catch (FileSystemException fse) {
-                    logger.info("", fse);
-                    toBeThrown = fse;
-                }
-            }
-            if (toBeThrown != null) {
-                throw toBeThrown;
+    private void addInputFiles(List<DataSpacesFileObject> files, String spaceUri, TransferSpace space,
+            Set<String> relPathes) {
+        for (DataSpacesFileObject dsfo : files) {
+            String relativePath = dsfo.getVirtualURI().replaceFirst(spaceUri + "/?", "");
+            logger.debug("* " + relativePath);
+            if (relPathes.add(relativePath)) {
+                inputTransfer.add(space, TransferSpace.SCRATCH, relativePath);
             }
         }
     }
@@ -1002,6 +1053,9 @@ public abstract class TaskLauncher {
                 ArrayList<DataSpacesFileObject> results = new ArrayList<DataSpacesFileObject>();
                 FileSystemException toBeThrown = null;
 
+                if (outputTransfer == null) {
+                    outputTransfer = new DataSpacesTransfer();
+                }
                 for (OutputSelector os : outputFiles) {
                     //fill fast file selector
                     FastFileSelector fast = new FastFileSelector();
@@ -1012,7 +1066,7 @@ public abstract class TaskLauncher {
                         case TransferToOutputSpace:
                             try {
                                 int s = results.size();
-                                handleOutput(OUTPUT, fast, results);
+                                handleOutput(TransferSpace.OUTPUT, fast, results);
                                 if (results.size() == s) {
                                     this.logDataspacesStatus(
                                             "No file is transferred to outputspace for selector " + os,
@@ -1031,7 +1085,7 @@ public abstract class TaskLauncher {
                         case TransferToGlobalSpace:
                             try {
                                 int s = results.size();
-                                handleOutput(GLOBAL, fast, results);
+                                handleOutput(TransferSpace.GLOBAL, fast, results);
                                 if (results.size() == s) {
                                     this.logDataspacesStatus(
                                             "No file is transferred to globalspace for selector " + os,
@@ -1053,6 +1107,16 @@ public abstract class TaskLauncher {
                     results.clear();
                 }
 
+                try {
+                    outputTransfer.transfer();
+                } catch (FileSystemException fse) {
+                    logger.warn("", fse);
+                    toBeThrown = fse;
+                    this.logDataspacesStatus("Error while transferring output files",
+                            DataspacesStatusLevel.ERROR);
+                    this.logDataspacesStatus(Formatter.stackTraceToString(fse), DataspacesStatusLevel.ERROR);
+                }
+
                 if (toBeThrown != null) {
                     throw toBeThrown;
                 }
@@ -1076,7 +1140,7 @@ public abstract class TaskLauncher {
         }
 
         if (isDataspaceAware()) {
-            if (this.storeLogs) {
+            if (this.storeLogs || this.logsSpilled) {
                 if (this.outputFiles == null) {
                     this.outputFiles = new ArrayList<OutputSelector>();
                 }
@@ -1094,7 +1158,7 @@ public abstract class TaskLauncher {
         return result;
     }
 
-    private void handleOutput(DataSpacesFileObject out, FastFileSelector fast,
+    private void handleOutput(TransferSpace out, FastFileSelector fast,
             ArrayList<DataSpacesFileObject> results) throws FileSystemException {
         FastSelector.findFiles(SCRATCH, fast, true, results);
         if (!logger.isDebugEnabled()) {
@@ -1106,16 +1170,37 @@ public abstract class TaskLauncher {
         }
         String buri = SCRATCH.getVirtualURI();
         for (DataSpacesFileObject dsfo : results) {
-            try {
-                String relativePath = dsfo.getVirtualURI().replaceFirst(buri + "/?", "");
-                logger.debug("* " + relativePath);
-                out.resolveFile(relativePath).copyFrom(dsfo,
-                        org.objectweb.proactive.extensions.dataspaces.api.FileSelector.SELECT_SELF);
-            } catch (FileSystemException fse) {
-                logger.warn("", fse);
-                throw fse;
+            String relativePath = dsfo.getVirtualURI().replaceFirst(buri + "/?", "");
+            logger.debug("* " + relativePath);
+            outputTransfer.add(TransferSpace.SCRATCH, out, relativePath);
+        }
+    }
+
+    /**
+     * Adds the number of files and bytes copied from and to the data spaces and the time spent
+     * copying them to the metadata of the given result.
+     *
+     * @param result the result of the task.
+     */
+    protected void setTransferMetadata(TaskResultImpl result) {
+        if (inputTransfer != null) {
+            result.setMetadata(TaskResult.METADATA_INPUT_FILES, String.valueOf(inputTransfer.getFiles()));
+            result.setMetadata(TaskResult.METADATA_INPUT_BYTES, String.valueOf(inputTransfer.getBytes()));
+            result.setMetadata(TaskResult.METADATA_INPUT_DURATION, String.valueOf(inputTransfer
+                    .getDuration()));
+            if (InputFilesCache.getInstance() != null) {
+                result.setMetadata(TaskResult.METADATA_INPUT_CACHE_HITS, String.valueOf(inputTransfer
+                        .getCacheHits()));
+                result.setMetadata(TaskResult.METADATA_INPUT_CACHE_MISSES, String.valueOf(inputTransfer
+                        .getCacheMisses()));
             }
         }
+        if (outputTransfer != null) {
+            result.setMetadata(TaskResult.METADATA_OUTPUT_FILES, String.valueOf(outputTransfer.getFiles()));
+            result.setMetadata(TaskResult.METADATA_OUTPUT_BYTES, String.valueOf(outputTransfer.getBytes()));
+            result.setMetadata(TaskResult.METADATA_OUTPUT_DURATION, String.valueOf(outputTransfer
+                    .getDuration()));
+        }
     }
 
     private boolean isDataspaceAware() {
@@ -1296,6 +1381,33 @@ public abstract class TaskLauncher {
         ERROR, WARNING, INFO;
     }
 
+    /**
+     * The data spaces of the task, copied from or to by a {@link DataSpacesTransfer}.
+     * Their roots are resolved again for each thread copying files.
+     */
+    protected enum TransferSpace implements DataSpacesTransfer.Space {
+        SCRATCH, INPUT, OUTPUT, GLOBAL;
+
+        public DataSpacesFileObject resolveRoot() throws FileSystemException {
+            try {
+                switch (this) {
+                    case SCRATCH:
+                        return PADataSpaces.resolveScratchForAO();
+                    case INPUT:
+                        return PADataSpaces.resolveDefaultInput();
+                    case OUTPUT:
+                        return PADataSpaces.resolveDefaultOutput();
+                    default:
+                        return PADataSpaces.resolveOutput(SchedulerConstants.GLOBALSPACE_NAME);
+                }
+            } catch (FileSystemException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new FileSystemException(e);
+            }
+        }
+    }
+
     /**
      * Display the content of the dataspaces status buffer on stderr if non empty.
      */
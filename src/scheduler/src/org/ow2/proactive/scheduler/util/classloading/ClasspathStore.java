@@ -0,0 +1,467 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.util.classloading;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.apache.log4j.Logger;
+import org.ow2.proactive.scheduler.common.util.JarUtils;
+import org.ow2.proactive.scheduler.core.properties.PASchedulerProperties;
+
+
+/**
+ * Content addressed store of the job classpathes served by the task class servers.
+ * <p>
+ * A classpath is stored once for all the jobs submitted with the same content, and is identified
+ * by the CRC of this content (the one kept in the job environment and in the database).
+ * Stored classpathes are reference counted by the task class servers using them, their files are
+ * created by the first activation and deleted by the last desactivation.
+ * Class definitions read from the stored classpathes are kept in a LRU cache shared by all
+ * the task class servers, bounded by the total size of the cached definitions
+ * (see pa.scheduler.classserver.cachesize property).
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+class ClasspathStore {
+
+    private static final Logger logger = Logger.getLogger(ClasspathStore.class);
+
+    /** Size in bytes of the class definitions cached if not specified */
+    private static final int DEFAULT_CACHE_SIZE = 50 * 1024 * 1024;
+
+    private static ClasspathStore instance;
+
+    // directory containing the stored classpathes
+    private final String directory;
+
+    // stored classpathes indexed by CRC
+    private final Map<Long, StoredClasspath> classpathes;
+
+    // class definitions indexed by CRC and class name, in access order
+    private final LinkedHashMap<String, byte[]> classes;
+
+    // maximum and current size in bytes of the cached class definitions
+    private final long maxCacheSize;
+    private long cacheSize;
+
+    /**
+     * Return the store shared by all the task class servers of this runtime.
+     *
+     * @return the store shared by all the task class servers of this runtime.
+     */
+    static synchronized ClasspathStore getInstance() {
+        if (instance == null) {
+            // temp directory for unjaring classpath : if not defined, java.io.tmpdir is used.
+            String tmpDir = PASchedulerProperties.SCHEDULER_CLASSSERVER_TMPDIR.getValueAsString();
+            if (tmpDir == null) {
+                tmpDir = System.getProperty("java.io.tmpdir");
+            }
+            long cacheSize = 0;
+            if (PASchedulerProperties.SCHEDULER_CLASSSERVER_USECACHE.getValueAsBoolean()) {
+                cacheSize = DEFAULT_CACHE_SIZE;
+                if (PASchedulerProperties.SCHEDULER_CLASSSERVER_CACHESIZE.isSet()) {
+                    cacheSize = PASchedulerProperties.SCHEDULER_CLASSSERVER_CACHESIZE.getValueAsInt();
+                }
+            }
+            instance = new ClasspathStore(tmpDir, cacheSize);
+        }
+        return instance;
+    }
+
+    /**
+     * Create a new store.
+     *
+     * @param directory the directory in which the classpathes are stored
+     * @param maxCacheSize the maximum size in bytes of the class definitions kept in memory
+     */
+    ClasspathStore(String directory, long maxCacheSize) {
+        this.directory = directory.endsWith(File.separator) ? directory : directory + File.separator;
+        this.classpathes = new HashMap<Long, StoredClasspath>();
+        this.classes = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    /**
+     * Get a reference on an already stored classpath.
+     *
+     * @param crc the CRC of the classpath content
+     * @return the stored classpath, or null if no classpath with this CRC is stored.
+     */
+    synchronized StoredClasspath acquire(long crc) {
+        StoredClasspath classpath = classpathes.get(crc);
+        if (classpath != null) {
+            classpath.references++;
+            logger.debug("Classpath " + crc + " is now used by " + classpath.references +
+                " task class servers");
+        }
+        return classpath;
+    }
+
+    /**
+     * Get a reference on a classpath, storing its content if it is not stored yet.
+     *
+     * @param crc the CRC of the classpath content
+     * @param content the content of the classpath as a jar file
+     * @param deflateJar true if the jar file contains jar files and must be unjarred, false otherwise
+     * @return the stored classpath
+     * @throws IOException if the classpath files cannot be created
+     */
+    synchronized StoredClasspath acquire(long crc, byte[] content, boolean deflateJar) throws IOException {
+        StoredClasspath classpath = acquire(crc);
+        if (classpath != null) {
+            return classpath;
+        }
+
+        File jarFile = new File(directory + "classpath_" + crc + ".jar");
+        File dirClasspath = new File(directory + "classpath_" + crc);
+        // files left by a previous run cannot be trusted
+        jarFile.delete();
+        TaskClassUtils.deleteDirectory(dirClasspath);
+
+        logger.debug("Creating classpath files for content " + crc);
+        FileOutputStream fos = new FileOutputStream(jarFile);
+        try {
+            fos.write(content);
+            fos.flush();
+        } finally {
+            fos.close();
+        }
+        JarFile jar = new JarFile(jarFile);
+        if (deflateJar) {
+            try {
+                dirClasspath.mkdir();
+                JarUtils.unjar(jar, dirClasspath);
+            } finally {
+                jar.close();
+            }
+            jar = null;
+        }
+
+        classpath = new StoredClasspath(crc, jarFile, deflateJar ? dirClasspath : null, jar);
+        classpath.references = 1;
+        classpathes.put(crc, classpath);
+        return classpath;
+    }
+
+    /**
+     * Release a reference on a stored classpath. The classpath files and its cached class
+     * definitions are removed when it is no more referenced.
+     *
+     * @param classpath the stored classpath
+     */
+    synchronized void release(StoredClasspath classpath) {
+        if (--classpath.references > 0) {
+            logger.debug("Classpath " + classpath.crc + " is still used by " + classpath.references +
+                " task class servers");
+            return;
+        }
+        logger.debug("Deleting classpath files for content " + classpath.crc);
+        classpathes.remove(classpath.crc);
+        String prefix = classpath.crc + ":";
+        for (Iterator<Map.Entry<String, byte[]>> it = classes.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, byte[]> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                cacheSize -= entry.getValue().length;
+                it.remove();
+            }
+        }
+        classpath.delete();
+    }
+
+    /**
+     * Return the byte[] representation of the classfile for the class classname.
+     *
+     * @param classpath the stored classpath to look into
+     * @param classname the name of the looked up class
+     * @return the byte[] representation of the classfile, or null if the class is not in the classpath.
+     * @throws IOException if the classpath files cannot be read
+     */
+    byte[] getClassBytes(StoredClasspath classpath, String classname) throws IOException {
+        String key = classpath.crc + ":" + classname;
+        synchronized (this) {
+            byte[] cb = classes.get(key);
+            if (cb != null) {
+                return cb;
+            }
+        }
+        logger.debug("Class " + classname + " is not available in class cache");
+        byte[] cb = classpath.lookup(classname);
+        if (cb != null) {
+            cache(classpath, key, cb);
+        }
+        return cb;
+    }
+
+    /**
+     * Cache a class definition, evicting the least recently used ones to stay under
+     * the maximum cache size. Nothing is cached for a classpath released in the meantime.
+     */
+    private synchronized void cache(StoredClasspath classpath, String key, byte[] cb) {
+        if (cb.length > maxCacheSize || classpathes.get(classpath.crc) != classpath) {
+            return;
+        }
+        byte[] previous = classes.put(key, cb);
+        cacheSize += cb.length - (previous == null ? 0 : previous.length);
+        Iterator<byte[]> eldest = classes.values().iterator();
+        while (cacheSize > maxCacheSize) {
+            cacheSize -= eldest.next().length;
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Return the byte[] representation of the classfile for the class classname, together with
+     * the other classes of the same package, until the given size is reached.
+     *
+     * @param classpath the stored classpath to look into
+     * @param classname the name of the looked up class
+     * @param maxSize the maximum number of bytes of the prefetched classes
+     * @return the classfiles indexed by class name, empty if the class is not in the classpath.
+     * @throws IOException if the classpath files cannot be read
+     */
+    HashMap<String, byte[]> getClassBundle(StoredClasspath classpath, String classname, int maxSize)
+            throws IOException {
+        HashMap<String, byte[]> bundle = new HashMap<String, byte[]>();
+        byte[] cb = getClassBytes(classpath, classname);
+        if (cb == null) {
+            return bundle;
+        }
+        bundle.put(classname, cb);
+        int size = cb.length;
+        for (String sibling : classpath.getPackageClasses(classname)) {
+            if (size >= maxSize) {
+                break;
+            }
+            if (!bundle.containsKey(sibling)) {
+                byte[] scb = getClassBytes(classpath, sibling);
+                if (scb != null) {
+                    bundle.put(sibling, scb);
+                    size += scb.length;
+                }
+            }
+        }
+        return bundle;
+    }
+
+    /**
+     * Return the number of stored classpathes.
+     *
+     * @return the number of stored classpathes.
+     */
+    synchronized int size() {
+        return classpathes.size();
+    }
+
+    /**
+     * Return the size in bytes of the cached class definitions.
+     *
+     * @return the size in bytes of the cached class definitions.
+     */
+    synchronized long getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * A classpath stored once, whatever the number of task class servers using it.
+     * Its jar files are opened once and kept open until the classpath is deleted.
+     * Its files are only read and deleted holding its lock, so that a look up cannot
+     * read a classpath being deleted.
+     */
+    static class StoredClasspath {
+
+        private final long crc;
+
+        private final File jarFile;
+
+        // unjarred classpath, null if the jar file is used directly
+        private final File dirClasspath;
+
+        // opened jar file, null if the classpath is unjarred
+        private final JarFile jar;
+
+        // jar files contained in the unjarred classpath
+        private final Map<File, JarFile> nestedJars;
+
+        // names of the classes of each package, indexed on first request
+        private Map<String, List<String>> packageClasses;
+
+        // number of task class servers using this classpath
+        private int references;
+
+        // true once the classpath files are deleted
+        private boolean deleted;
+
+        StoredClasspath(long crc, File jarFile, File dirClasspath, JarFile jar) {
+            this.crc = crc;
+            this.jarFile = jarFile;
+            this.dirClasspath = dirClasspath;
+            this.jar = jar;
+            this.nestedJars = new HashMap<File, JarFile>();
+        }
+
+        /**
+         * Return the root classpath (directory *or* jar file)
+         *
+         * @return the root classpath (directory *or* jar file)
+         */
+        File getClasspath() {
+            return dirClasspath != null ? dirClasspath : jarFile;
+        }
+
+        long getCrc() {
+            return crc;
+        }
+
+        private synchronized byte[] lookup(String classname) throws IOException {
+            checkNotDeleted();
+            if (jar != null) {
+                return TaskClassUtils.lookIntoJarFile(classname, jar);
+            }
+            return TaskClassUtils.lookIntoDirectory(classname, dirClasspath, nestedJars);
+        }
+
+        private void checkNotDeleted() throws IOException {
+            if (deleted) {
+                throw new IOException("Classpath files for content " + crc + " have been deleted");
+            }
+        }
+
+        /**
+         * Return the names of the classes in the same package as classname. All the classes
+         * of the classpath are indexed by package on the first call.
+         */
+        private synchronized List<String> getPackageClasses(String classname) throws IOException {
+            checkNotDeleted();
+            if (packageClasses == null) {
+                packageClasses = new HashMap<String, List<String>>();
+                if (jar != null) {
+                    indexClasses(jar);
+                } else {
+                    indexClasses(dirClasspath, "");
+                }
+            }
+            int lastDot = classname.lastIndexOf('.');
+            List<String> classes = packageClasses.get(lastDot < 0 ? "" : classname.substring(0, lastDot));
+            return classes == null ? Collections.<String> emptyList() : classes;
+        }
+
+        private void indexClasses(File directory, String path) throws IOException {
+            File[] files = directory.listFiles();
+            if (files == null) {
+                return;
+            }
+            for (File file : files) {
+                String name = file.getName();
+                if (file.isDirectory()) {
+                    indexClasses(file, path + name + "/");
+                } else if (name.endsWith(".jar")) {
+                    JarFile nested = nestedJars.get(file);
+                    if (nested == null) {
+                        nested = new JarFile(file);
+                        nestedJars.put(file, nested);
+                    }
+                    indexClasses(nested);
+                } else if (name.endsWith(".class")) {
+                    // as for look ups, the root of the classes in a directory is unknown: the class
+                    // belongs to all the packages its path ends with.
+                    // classes of the default package are only prefetched from jar files
+                    String simpleName = name.substring(0, name.length() - ".class".length());
+                    for (String packagePath = path; packagePath.length() > 0; packagePath = packagePath
+                            .substring(packagePath.indexOf('/') + 1)) {
+                        String packageName = packagePath.substring(0, packagePath.length() - 1).replace('/',
+                                '.');
+                        addClass(packageName, packageName + "." + simpleName);
+                    }
+                }
+            }
+        }
+
+        private void indexClasses(JarFile jar) {
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.endsWith(".class")) {
+                    int lastSlash = name.lastIndexOf('/');
+                    addClass(lastSlash < 0 ? "" : name.substring(0, lastSlash).replace('/', '.'), name
+                            .substring(0, name.length() - ".class".length()).replace('/', '.'));
+                }
+            }
+        }
+
+        private void addClass(String packageName, String classname) {
+            List<String> classes = packageClasses.get(packageName);
+            if (classes == null) {
+                classes = new ArrayList<String>();
+                packageClasses.put(packageName, classes);
+            }
+            classes.add(classname);
+        }
+
+        private synchronized void delete() {
+            deleted = true;
+            try {
+                if (jar != null) {
+                    jar.close();
+                }
+                for (JarFile nested : nestedJars.values()) {
+                    nested.close();
+                }
+                nestedJars.clear();
+            } catch (IOException e) {
+                logger.warn("Cannot close classpath files for content " + crc, e);
+            }
+            jarFile.delete();
+            if (dirClasspath != null) {
+                TaskClassUtils.deleteDirectory(dirClasspath);
+            }
+        }
+    }
+
+}
@@ -38,6 +38,10 @@ package org.ow2.proactive.scheduler.util.classloading;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 
@@ -46,6 +50,8 @@ import org.apache.log4j.Logger;
  * This classLoader is used on nodes provided by the resource manager to instantiate
  * the executable. If a class is not found locally, then this class is asked to the
  * taskClassCerver associated to this TaskClassLoader.
+ * The first class asked for a package comes with the other classes of this package, which
+ * are kept until they are defined to avoid one remote call per class.
  *
  * @see TaskClassServer 
  * @author The ProActive team 
@@ -64,6 +70,12 @@ public class TaskClassLoader extends ClassLoader {
     @Deprecated
     public final static String OLD_EXT_CLASSPATH_PROPERTY = "pa.scheduler.extraclasspath.dir";
     public final static String EXT_CLASSPATH_PROPERTY = "pas.launcher.extraclasspath.directory";
+    /** Classes received from the classserver and not defined yet */
+    private Map<String, byte[]> prefetchedClasses = new HashMap<String, byte[]>();
+    /** Packages already received from the classserver */
+    private Set<String> prefetchedPackages = new HashSet<String>();
+    /** Number of calls to the classserver */
+    private int remoteFetches;
 
     /**
      * Create a new classloader.
@@ -140,8 +152,7 @@ public class TaskClassLoader extends ClassLoader {
                 }
                 // if class has not been found locally, tries remote TaskClassServer...
                 if (remoteServer != null) {
-                    logger.debug("Ask for class " + className + " to the remote TaskClassServer");
-                    byte[] classBytes = this.remoteServer.getClassBytes(className);
+                    byte[] classBytes = this.getRemoteClassBytes(className);
                     if (classBytes == null || classBytes.length == 0) {
                         logger.debug("Did not find " + className);
                         throw new ClassNotFoundException(className);
@@ -159,4 +170,62 @@ public class TaskClassLoader extends ClassLoader {
         }
     }
 
+    /**
+     * Return the classfile of className from the prefetched classes, or ask it to the remote
+     * classserver together with the other classes of its package.
+     * The remote calls are made without holding the lock on the prefetched classes, so that
+     * other threads can get their classes meanwhile.
+     */
+    private byte[] getRemoteClassBytes(String className) throws ClassNotFoundException {
+        int lastDot = className.lastIndexOf('.');
+        String packageName = lastDot < 0 ? "" : className.substring(0, lastDot);
+        boolean fetchPackage;
+        synchronized (this.prefetchedClasses) {
+            byte[] classBytes = this.prefetchedClasses.remove(className);
+            if (classBytes != null) {
+                logger.debug("Found class " + className + " in prefetched classes");
+                return classBytes;
+            }
+            this.remoteFetches++;
+            fetchPackage = this.prefetchedPackages.add(packageName);
+        }
+
+        if (!fetchPackage) {
+            // the package has already been asked, do not send it again
+            logger.debug("Ask for class " + className + " to the remote TaskClassServer");
+            return this.remoteServer.getClassBytes(className);
+        }
+        logger.debug("Ask for class " + className + " and its package to the remote TaskClassServer");
+        Map<String, byte[]> bundle;
+        try {
+            bundle = this.remoteServer.getClassBundle(className);
+        } catch (ClassNotFoundException e) {
+            synchronized (this.prefetchedClasses) {
+                this.prefetchedPackages.remove(packageName);
+            }
+            throw e;
+        }
+        byte[] classBytes = bundle.remove(className);
+        synchronized (this.prefetchedClasses) {
+            for (Map.Entry<String, byte[]> prefetched : bundle.entrySet()) {
+                // classes asked by other threads during the call may already be defined
+                if (this.findLoadedClass(prefetched.getKey()) == null) {
+                    this.prefetchedClasses.put(prefetched.getKey(), prefetched.getValue());
+                }
+            }
+        }
+        return classBytes;
+    }
+
+    /**
+     * Return the number of calls made to the remote classserver by this classloader.
+     *
+     * @return the number of calls made to the remote classserver by this classloader.
+     */
+    public int getRemoteFetchCount() {
+        synchronized (this.prefetchedClasses) {
+            return this.remoteFetches;
+        }
+    }
+
 }
@@ -36,26 +36,21 @@
  */
 package org.ow2.proactive.scheduler.util.classloading;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Hashtable;
-import java.util.jar.JarFile;
+import java.util.HashMap;
 import java.util.zip.CRC32;
 
 import org.apache.log4j.Logger;
 import org.ow2.proactive.scheduler.common.job.JobId;
-import org.ow2.proactive.scheduler.common.util.JarUtils;
-import org.ow2.proactive.scheduler.core.properties.PASchedulerProperties;
+import org.ow2.proactive.scheduler.util.classloading.ClasspathStore.StoredClasspath;
 
 
 /**
- * This class defines a classserver based on ProActive remote objects. It creates classpath files in
- * the scheduler temporary directory (see pa.scheduler.classserver.tmpdir property), and serves classes
- * contained in these files.
+ * This class defines a classserver based on ProActive remote objects. It serves classes contained
+ * in a job classpath. Classpathes are stored in the scheduler temporary directory
+ * (see pa.scheduler.classserver.tmpdir property) once for all the jobs sharing the same classpath
+ * content, and the class definitions they contain are cached for all the class servers
+ * (see pa.scheduler.classserver.usecache and pa.scheduler.classserver.cachesize properties).
  * @author The ProActive team 
  * @since ProActive Scheduling 0.9
  */
@@ -63,23 +58,11 @@ public class TaskClassServer {
 
     public static final Logger logger = Logger.getLogger(TaskClassServer.class);
 
-    // temp directory for unjaring classpath : if not defined, java.io.tmpdir is used.
-    private static final String tmpTmpJarFilesDir = PASchedulerProperties.SCHEDULER_CLASSSERVER_TMPDIR
-            .getValueAsString();
-    private static final String tmpJarFilesDir = tmpTmpJarFilesDir != null ? tmpTmpJarFilesDir +
-        (tmpTmpJarFilesDir.endsWith(File.separator) ? "" : File.separator) : System
-            .getProperty("java.io.tmpdir") +
-        File.separator;
+    // maximum size of the classes sent together in a class bundle
+    private static final int MAX_BUNDLE_SIZE = 1024 * 1024;
 
-    // indicate if cache should be used
-    private static final boolean useCache = PASchedulerProperties.SCHEDULER_CLASSSERVER_USECACHE
-            .getValueAsBoolean();
-
-    // cache for byte[] classes
-    private Hashtable<String, byte[]> cachedClasses;
-
-    // root classpath (directory *or* jar file)
-    private File classpath;
+    // classpath served by this class server, null if not activated
+    private StoredClasspath classpath;
 
     // jobid of the served job
     private JobId servedJobId;
@@ -97,118 +80,64 @@ public class TaskClassServer {
      */
     public TaskClassServer(JobId jid) {
         this.servedJobId = jid;
-        this.cachedClasses = useCache ? new Hashtable<String, byte[]>() : null;
     }
 
     /**
-     * Activate this TaskClassServer. The activation creates all needed files (jar file, classes directory and crc file)
-     * in the defined temporary directory (see pa.scheduler.classserver.tmpdir property).
+     * Activate this TaskClassServer on a classpath already stored for another job.
+     * @param crc the CRC of the classpath content
+     * @return true if the classpath was stored and this class server is activated, false otherwise.
+     */
+    public boolean activate(long crc) {
+        this.classpath = ClasspathStore.getInstance().acquire(crc);
+        if (this.classpath == null) {
+            return false;
+        }
+        logger.info("Activated TaskClassServer for shared classpath " +
+            this.classpath.getClasspath().getAbsolutePath() + " for job " + this.servedJobId);
+        return true;
+    }
+
+    /**
+     * Activate this TaskClassServer. The activation creates all needed files (jar file and classes directory)
+     * in the defined temporary directory (see pa.scheduler.classserver.tmpdir property), unless they already
+     * exist for another job with the same classpath content.
+     * @param crc the CRC of the classpath content
      * @param userClasspathJarFile the content of the classpath
      * @param deflateJar true if the classpath contains jar file, false otherwise
      * @throws IOException if the files cannot be created
      */
-    public void activate(byte[] userClasspathJarFile, boolean deflateJar) throws IOException {
-        // check if the classpath exists already in the deflated classpathes
-        // for now, only in case of recovery
-        // TODO cdelbe : look for cp only with crc to avoid mutliple tcs for the same classpath
-
-        // open files 
-        File jarFile = new File(this.getPathToJarFile());
-        File dirClasspath = new File(this.getPathToClassDir());
-        File crcFile = new File(this.getPathToCrcFile());
-
-        boolean classpathAlreadyExists = jarFile.exists() || (deflateJar && dirClasspath.exists());
-        boolean reuseExistingFiles = false;
-
-        // check if an already classpath can be reused
-        if (classpathAlreadyExists) {
-            try {
-                // the classpath for this job has already been deflated
-                reuseExistingFiles = true;
-                // check crc ...
-                if (crcFile.exists()) {
-                    logger.debug("Classpath files for job " + servedJobId +
-                        " already exists... Checking files");
-                    BufferedReader crcReader = new BufferedReader(new FileReader(crcFile));
-                    String read = crcReader.readLine();
-                    CRC32 actualCrc = new CRC32();
-                    actualCrc.update(userClasspathJarFile);
-                    if (Long.parseLong(read) != actualCrc.getValue()) {
-                        // the classpath cannot be reused
-                        reuseExistingFiles = false;
-                    }
-                } else {
-                    // no crc : cancel
-                    reuseExistingFiles = false;
-                }
-                // check deflated cp if any
-                if (deflateJar && !dirClasspath.exists()) {
-                    reuseExistingFiles = false;
-                }
-            } catch (Exception e) {
-                logger.warn("", e);
-                // if any exception occurs, cancel 
-                reuseExistingFiles = false;
-            }
-        }
-
-        // delete old classpath if it cannot be reused
-        if (classpathAlreadyExists && !reuseExistingFiles) {
-            logger.debug("Deleting classpath files for job " + servedJobId);
-            // delete classpath files
-            jarFile.delete();
-            TaskClassUtils.deleteDirectory(dirClasspath);
-            crcFile.delete();
-        }
-
-        // if no files can be reused, create new ones.
-        if (!reuseExistingFiles) {
-            logger.debug("Creating classpath files for job " + servedJobId);
-            // create jar file
-            FileOutputStream fos = new FileOutputStream(jarFile);
-            fos.write(userClasspathJarFile);
-            fos.flush();
-            fos.close();
-
-            //create tmp directory for delfating classpath
-            if (deflateJar) {
-                dirClasspath.mkdir();
-                JarUtils.unjar(new JarFile(jarFile), dirClasspath);
-            }
-
-            // create crc file
-            FileWriter fosCrc = new FileWriter(crcFile);
-            CRC32 crc = new CRC32();
-            crc.update(userClasspathJarFile);
-            fosCrc.write("" + crc.getValue());
-            fosCrc.flush();
-            fosCrc.close();
-        }
-
-        // set the actual classpath
-        this.classpath = deflateJar ? dirClasspath : jarFile;
+    public void activate(long crc, byte[] userClasspathJarFile, boolean deflateJar) throws IOException {
+        this.classpath = ClasspathStore.getInstance().acquire(crc, userClasspathJarFile, deflateJar);
         logger.info("Activated TaskClassServer for " + (deflateJar ? "deflated" : "") + " classpath " +
-            this.classpath.getAbsolutePath() + " for job " + this.servedJobId);
+            this.classpath.getClasspath().getAbsolutePath() + " for job " + this.servedJobId);
     }
 
     /**
-     * Desactivate this TaskClassServer. The classpath files are deleted, and the
-     * classfiles cache is cleared.
+     * Activate this TaskClassServer. The activation creates all needed files (jar file and classes directory)
+     * in the defined temporary directory (see pa.scheduler.classserver.tmpdir property), unless they already
+     * exist for another job with the same classpath content.
+     * @param userClasspathJarFile the content of the classpath
+     * @param deflateJar true if the classpath contains jar file, false otherwise
+     * @throws IOException if the files cannot be created
+     */
+    public void activate(byte[] userClasspathJarFile, boolean deflateJar) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(userClasspathJarFile);
+        this.activate(crc.getValue(), userClasspathJarFile, deflateJar);
+    }
+
+    /**
+     * Desactivate this TaskClassServer. The classpath files and the cached classfiles are
+     * deleted if no other job uses the same classpath.
      */
     public void desactivate() {
-        logger.info("Desactivated TaskClassServer for classpath " + this.classpath.getAbsolutePath() +
-            " for job " + this.servedJobId);
-        // delete classpath files
-        File jarFile = new File(this.getPathToJarFile());
-        File deflatedJarFile = new File(this.getPathToClassDir());
-        File crcFile = new File(this.getPathToCrcFile());
-        jarFile.delete();
-        TaskClassUtils.deleteDirectory(deflatedJarFile);
-        crcFile.delete();
-        // delete cache
-        if (this.cachedClasses != null) {
-            this.cachedClasses.clear();
+        if (this.classpath == null) {
+            return;
         }
+        logger.info("Desactivated TaskClassServer for classpath " +
+            this.classpath.getClasspath().getAbsolutePath() + " for job " + this.servedJobId);
+        ClasspathStore.getInstance().release(this.classpath);
+        this.classpath = null;
     }
 
     /**
@@ -219,50 +148,50 @@ public class TaskClassServer {
      */
     public byte[] getClassBytes(String classname) throws ClassNotFoundException {
         logger.debug("Looking for class " + classname);
-        byte[] cb = useCache ? this.cachedClasses.get(classname) : null;
-        if (cb == null) {
-            logger.debug("Class " + classname + " is not available in class cache");
-            try {
-                cb = this.classpath.isFile() ? TaskClassUtils.lookIntoJarFile(classname, new JarFile(
-                    classpath)) : TaskClassUtils.lookIntoDirectory(classname, classpath);
-                if (useCache) {
-                    logger.debug("Class " + classname + " is added in class cache");
-                    this.cachedClasses.put(classname, cb);
-                }
-            } catch (IOException e) {
-                logger.error("", e);
-                throw new ClassNotFoundException("Class " + classname + " has not been found in " +
-                    classpath.getAbsolutePath() + ". Caused by " + e);
-            }
+        StoredClasspath cp = this.classpath;
+        if (cp == null) {
+            throw new ClassNotFoundException("Class " + classname +
+                " has not been found : TaskClassServer for job " + servedJobId + " is not activated");
+        }
+        byte[] cb;
+        try {
+            cb = ClasspathStore.getInstance().getClassBytes(cp, classname);
+        } catch (IOException e) {
+            logger.error("", e);
+            throw new ClassNotFoundException("Class " + classname + " has not been found in " +
+                cp.getClasspath().getAbsolutePath() + ". Caused by " + e);
         }
         // TODO cdelbe : return null or throw an exception. Should return null only...
         logger.debug("Class " + classname + " has " + (cb == null ? "not" : "") + " been found in " +
-            classpath.getAbsolutePath());
+            cp.getClasspath().getAbsolutePath());
         return cb;
     }
 
     /**
-     * Return the path to the associated jar file
-     * @return the path to the associated jar file
-     */
-    private String getPathToJarFile() {
-        return tmpJarFilesDir + servedJobId.toString() + ".jar";
-    }
-
-    /**
-     * Return the path to the associated crc file
-     * @return the path to the associated crc file
-     */
-    private String getPathToCrcFile() {
-        return tmpJarFilesDir + servedJobId.toString() + ".crc";
-    }
-
-    /**
-     * Return the path to the associated classfiles directory
-     * @return the path to the associated classfiles directory
+     * Return the byte[] representation of the classfile for the class classname, together with
+     * the classfiles of the other classes of its package, so that a task class loader can get
+     * them in a single call.
+     * @param classname the name of the looked up class
+     * @return the classfiles indexed by class name, empty if the class classname cannot be found.
+     * @throws ClassNotFoundException if the classpath cannot be read
      */
-    private String getPathToClassDir() {
-        return tmpJarFilesDir + servedJobId.toString();
+    public HashMap<String, byte[]> getClassBundle(String classname) throws ClassNotFoundException {
+        logger.debug("Looking for class bundle of " + classname);
+        StoredClasspath cp = this.classpath;
+        if (cp == null) {
+            throw new ClassNotFoundException("Class " + classname +
+                " has not been found : TaskClassServer for job " + servedJobId + " is not activated");
+        }
+        try {
+            HashMap<String, byte[]> bundle = ClasspathStore.getInstance().getClassBundle(cp, classname,
+                    MAX_BUNDLE_SIZE);
+            logger.debug("Class bundle of " + classname + " contains " + bundle.size() + " classes");
+            return bundle;
+        } catch (IOException e) {
+            logger.error("", e);
+            throw new ClassNotFoundException("Class " + classname + " has not been found in " +
+                cp.getClasspath().getAbsolutePath() + ". Caused by " + e);
+        }
     }
 
 }
@@ -40,6 +40,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
@@ -59,17 +60,39 @@ public class TaskClassUtils {
     * @throws IOException if the jar file cannot be read.
     */
     public static byte[] lookIntoDirectory(String classname, File directory) throws IOException {
+        return lookIntoDirectory(classname, directory, null);
+    }
+
+    /**
+    * Look for a classfile into a directory, reusing the jar files already opened
+    * in previous look ups.
+    * @param classname the looked up class.
+    * @param directory the directory to look into.
+    * @param openedJars the jar files already opened, indexed by file. Jar files opened during this
+    *        look up are added. Can be null if jar files should not be kept opened.
+    * @return the byte[] representation of the class if found, null otherwise.
+    * @throws IOException if the jar file cannot be read.
+    */
+    public static byte[] lookIntoDirectory(String classname, File directory, Map<File, JarFile> openedJars)
+            throws IOException {
         String pathToClass = convertNameToPath(classname, true);
         if (directory.exists() && directory.isDirectory()) {
             File[] files = directory.listFiles();
             for (int i = 0; i < files.length; i++) {
                 if (files[i].isDirectory()) {
-                    byte[] resInDir = lookIntoDirectory(classname, files[i]);
+                    byte[] resInDir = lookIntoDirectory(classname, files[i], openedJars);
                     if (resInDir != null) {
                         return resInDir;
                     }
                 } else if (isJarFile(files[i])) {
-                    byte[] resInJar = lookIntoJarFile(classname, new JarFile(files[i]));
+                    JarFile jar = openedJars != null ? openedJars.get(files[i]) : null;
+                    if (jar == null) {
+                        jar = new JarFile(files[i]);
+                        if (openedJars != null) {
+                            openedJars.put(files[i], jar);
+                        }
+                    }
+                    byte[] resInJar = lookIntoJarFile(classname, jar);
                     if (resInJar != null) {
                         return resInJar;
                     }
@@ -151,6 +151,10 @@ function stats(){
 	s_.showRuntimeData_();
 }
 
+function schedprofile(){
+	s_.showSchedulingProfile_();
+}
+
 function myaccount(){
 	s_.showMyAccount_();
 }
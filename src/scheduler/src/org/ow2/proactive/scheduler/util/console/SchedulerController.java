@@ -474,6 +474,12 @@ public class SchedulerController {
         opt.setArgs(0);
         actionGroup.addOption(opt);
 
+        opt = new Option("sp", "schedprofile", false, control +
+            "Display the time spent in each phase of the scheduling loop");
+        opt.setRequired(false);
+        opt.setArgs(0);
+        actionGroup.addOption(opt);
+
         opt = new Option("ma", "myaccount", false, control + "Display current user account information");
         opt.setRequired(false);
         opt.setArgs(0);
@@ -656,6 +662,8 @@ public class SchedulerController {
             model.schedulerState_();
         } else if (cmd.hasOption("stats")) {
             model.showRuntimeData_();
+        } else if (cmd.hasOption("sp")) {
+            model.showSchedulingProfile_();
         } else if (cmd.hasOption("ma")) {
             model.showMyAccount_();
         } else if (cmd.hasOption("ua")) {
@@ -182,6 +182,8 @@ public class SchedulerModel extends ConsoleModel {
         commands.add(new Command("listjobs()", "Display the list of jobs managed by the scheduler"));
         commands.add(new Command("logs(jobId,[taskName])", "Get server logs of given job or task"));
         commands.add(new Command("stats()", "Display some statistics about the Scheduler"));
+        commands.add(new Command("schedprofile()",
+            "Display the time spent in each phase of the scheduling loop"));
         commands.add(new Command("myaccount()", "Display current user account information"));
         commands.add(new Command("account(username)", "Display account information by username"));
         commands
@@ -760,6 +762,15 @@ public class SchedulerModel extends ConsoleModel {
         }
     }
 
+    public void showSchedulingProfile_() {
+        try {
+            print((String) jmxInfoViewer.invoke("ProActiveScheduler:name=RuntimeData",
+                    "dumpSchedulingProfile", new Object[0]));
+        } catch (Exception e) {
+            handleExceptionDisplay("Error while retrieving JMX informations", e);
+        }
+    }
+
     public void showMyAccount_() {
         try {
             printMap(jmxInfoViewer.getMappedInfo("ProActiveScheduler:name=MyAccount"));
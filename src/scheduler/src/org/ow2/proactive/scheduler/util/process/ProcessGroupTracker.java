@@ -0,0 +1,657 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package org.ow2.proactive.scheduler.util.process;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.apache.log4j.Logger;
+import org.ow2.proactive.utils.FileToBytesConverter;
+
+
+/**
+ * Tracks the processes started by the tasks through their process group.
+ * <p>
+ * A tracked command is started through <tt>setsid</tt>: the started process leads a new session
+ * and process group that its descendants inherit unless they explicitly leave it. The processes
+ * of a task are then killed with a single signal sent to the group, and the environment of the
+ * processes only has to be read for the processes that may have escaped from the group, i.e.
+ * the ones started after the task in another group, instead of every process of the node.
+ * <p>
+ * The CPU time and the resident memory of the processes of each tracked group are sampled
+ * from <tt>/proc</tt> by a single thread for the whole node.
+ * <p>
+ * The tracking is only available on Linux and is disabled unless the {@link #TRACKING_PROPERTY}
+ * property of the node JVM is true.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class ProcessGroupTracker {
+
+    public static final Logger logger = Logger.getLogger(ProcessGroupTracker.class);
+
+    /** Name of the property enabling the tracking of the task processes by process group */
+    public static final String TRACKING_PROPERTY = "pas.launcher.processgroup.tracking";
+
+    /** Name of the property giving the time in millis between two samples of the tracked processes */
+    public static final String SAMPLING_PERIOD_PROPERTY = "pas.launcher.processgroup.sampling.period";
+
+    /** Default time in millis between two samples of the tracked processes */
+    public static final long DEFAULT_SAMPLING_PERIOD = 1000;
+
+    /** Maximum time in millis to wait for a started process to lead its own process group */
+    private static final long GROUP_LEADER_TIMEOUT = 2000;
+
+    /** Time in millis between two checks of the process group of a started process */
+    private static final long GROUP_LEADER_POLL_PERIOD = 5;
+
+    /** Clock ticks per second of the times given by /proc (USER_HZ) */
+    private static final long CLOCK_TICKS = 100;
+
+    private static final String[] SETSID_PATHS = { "/usr/bin/setsid", "/bin/setsid" };
+
+    private static final File PROC = new File("/proc");
+
+    private static ProcessGroupTracker instance;
+
+    private static boolean initialized;
+
+    private final String setsid;
+
+    /** Tracked groups by process group id */
+    private final Map<Integer, TrackedGroup> groups = new HashMap<Integer, TrackedGroup>();
+
+    private final Timer samplingTimer;
+
+    /**
+     * @return the tracker of this node, null if the tracking is disabled or not available.
+     */
+    public static synchronized ProcessGroupTracker getInstance() {
+        if (!initialized) {
+            initialized = true;
+            if (Boolean.parseBoolean(System.getProperty(TRACKING_PROPERTY))) {
+                String setsid = null;
+                for (String path : SETSID_PATHS) {
+                    if (new File(path).isFile()) {
+                        setsid = path;
+                        break;
+                    }
+                }
+                if (!"Linux".equals(System.getProperty("os.name")) || setsid == null ||
+                    !new File(PROC, "self/stat").isFile()) {
+                    logger.warn("Tracking of the task processes by process group is not available " +
+                        "on this system, processes are found by their environment");
+                } else {
+                    long period = DEFAULT_SAMPLING_PERIOD;
+                    String periodProp = System.getProperty(SAMPLING_PERIOD_PROPERTY);
+                    if (periodProp != null && !"".equals(periodProp.trim())) {
+                        try {
+                            period = Long.parseLong(periodProp.trim());
+                        } catch (NumberFormatException e) {
+                            logger.warn(SAMPLING_PERIOD_PROPERTY + " property is not correctly defined, " +
+                                DEFAULT_SAMPLING_PERIOD + " is used instead", e);
+                        }
+                    }
+                    instance = new ProcessGroupTracker(setsid, period);
+                    logger.info("Task processes tracked by process group, sampled every " + period + "ms");
+                }
+            }
+        }
+        return instance;
+    }
+
+    private ProcessGroupTracker(String setsid, long samplingPeriod) {
+        this.setsid = setsid;
+        this.samplingTimer = new Timer("Process groups sampling", true);
+        this.samplingTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                sample();
+            }
+        }, samplingPeriod, samplingPeriod);
+    }
+
+    /**
+     * Return the given command prefixed so that it is started in a new process group.
+     *
+     * @param command the command to start
+     * @return the command starting the given one in a new process group
+     */
+    public String[] wrapCommand(String[] command) {
+        String[] wrapped = new String[command.length + 1];
+        wrapped[0] = setsid;
+        System.arraycopy(command, 0, wrapped, 1, command.length);
+        return wrapped;
+    }
+
+    /**
+     * Check that the program of a command can be executed, looking for it as setsid does.
+     * A wrapped command whose program cannot be executed is started anyway, setsid then exits
+     * with 126 or 127, so the program has to be checked before starting the command.
+     *
+     * @param program the program of the command
+     * @param directory the working directory of the command, null for the current directory
+     * @param path the PATH environment variable of the command, null if it is not set
+     * @throws IOException if the program cannot be found or is not executable
+     */
+    public static void checkExecutable(String program, File directory, String path) throws IOException {
+        File found = null;
+        if (program.indexOf('/') >= 0) {
+            found = new File(program);
+            if (!found.isAbsolute() && directory != null) {
+                found = new File(directory, program);
+            }
+            if (!found.isFile()) {
+                found = null;
+            }
+        } else {
+            // default search path of execvp
+            String searchPath = path == null ? ":/bin:/usr/bin" : path;
+            for (String dir : searchPath.split(":", -1)) {
+                File file;
+                if (dir.length() == 0) {
+                    // empty entries stand for the working directory
+                    file = directory == null ? new File(program) : new File(directory, program);
+                } else {
+                    file = new File(dir, program);
+                }
+                if (file.isFile()) {
+                    found = file;
+                    if (file.canExecute()) {
+                        return;
+                    }
+                }
+            }
+        }
+        if (found == null) {
+            throw new IOException("Cannot run program \"" + program + "\": No such file or directory");
+        }
+        if (!found.canExecute()) {
+            throw new IOException("Cannot run program \"" + program + "\": Permission denied");
+        }
+    }
+
+    /**
+     * Start tracking the process group of a process started with a wrapped command.
+     * The process only leads its own process group once setsid has run, this method waits for it
+     * up to {@link #GROUP_LEADER_TIMEOUT} milliseconds.
+     *
+     * @param process the started process
+     * @return the tracked group, null if the process does not lead its own process group
+     */
+    public TrackedGroup track(Process process) {
+        int pid = getPid(process);
+        ProcStat stat = pid > 1 ? waitGroupLeader(pid) : null;
+        if (stat == null || stat.pgrp != pid) {
+            logger.warn("Process " + pid + " does not lead its own process group, it is not tracked " +
+                "and its processes are found by their environment");
+            return null;
+        }
+        TrackedGroup group = new TrackedGroup(this, pid, stat.startTime);
+        synchronized (groups) {
+            groups.put(pid, group);
+        }
+        return group;
+    }
+
+    private void untrack(TrackedGroup group) {
+        synchronized (groups) {
+            groups.remove(group.pgid);
+        }
+    }
+
+    /**
+     * Read the state of the processes of the tracked groups.
+     */
+    private void sample() {
+        Map<Integer, TrackedGroup> tracked;
+        synchronized (groups) {
+            if (groups.isEmpty()) {
+                return;
+            }
+            tracked = new HashMap<Integer, TrackedGroup>(groups);
+        }
+        Map<Integer, List<ProcStat>> members = new HashMap<Integer, List<ProcStat>>();
+        for (ProcStat stat : readAll()) {
+            if (tracked.containsKey(stat.pgrp)) {
+                List<ProcStat> groupMembers = members.get(stat.pgrp);
+                if (groupMembers == null) {
+                    groupMembers = new ArrayList<ProcStat>();
+                    members.put(stat.pgrp, groupMembers);
+                }
+                groupMembers.add(stat);
+            }
+        }
+        for (TrackedGroup group : tracked.values()) {
+            List<ProcStat> groupMembers = members.get(group.pgid);
+            if (groupMembers == null) {
+                groupMembers = new ArrayList<ProcStat>(0);
+            }
+            group.update(groupMembers);
+        }
+    }
+
+    /**
+     * @return the state of all the processes of the system
+     */
+    private static List<ProcStat> readAll() {
+        List<ProcStat> stats = new ArrayList<ProcStat>();
+        String[] names = PROC.list();
+        if (names == null) {
+            return stats;
+        }
+        for (String name : names) {
+            int pid;
+            try {
+                pid = Integer.parseInt(name);
+            } catch (NumberFormatException e) {
+                // other entries
+                continue;
+            }
+            ProcStat stat = ProcStat.read(pid);
+            if (stat != null) {
+                stats.add(stat);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Read the state of a started process until it leads its own process group, it has exited
+     * or the timeout is reached.
+     *
+     * @param pid the pid of the process
+     * @return the last state of the process, null if it has exited
+     */
+    private static ProcStat waitGroupLeader(int pid) {
+        long end = System.currentTimeMillis() + GROUP_LEADER_TIMEOUT;
+        ProcStat stat = ProcStat.read(pid);
+        while (stat != null && stat.pgrp != pid && System.currentTimeMillis() < end) {
+            try {
+                Thread.sleep(GROUP_LEADER_POLL_PERIOD);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            stat = ProcStat.read(pid);
+        }
+        return stat;
+    }
+
+    private static int getPid(Process process) {
+        try {
+            // Process.pid() is only available since Java 9, where the pid field is not accessible anymore
+            Method pidMethod = Process.class.getMethod("pid");
+            return ((Number) pidMethod.invoke(process)).intValue();
+        } catch (NoSuchMethodException e) {
+            // older JVM, read the field of the implementation
+        } catch (Exception e) {
+            logger.debug("Unable to get the pid of " + process, e);
+            return -1;
+        }
+        try {
+            Field pidField = process.getClass().getDeclaredField("pid");
+            pidField.setAccessible(true);
+            return pidField.getInt(process);
+        } catch (Exception e) {
+            logger.debug("Unable to get the pid of " + process, e);
+            return -1;
+        }
+    }
+
+    /**
+     * Send the KILL signal to the given targets.
+     *
+     * @param targets the pids of the processes, or the process group ids preceded by '-'
+     */
+    private static void sendKill(List<String> targets) {
+        List<String> command = new ArrayList<String>(targets.size() + 3);
+        command.add("kill");
+        command.add("-KILL");
+        command.add("--");
+        command.addAll(targets);
+        try {
+            Process kill = new ProcessBuilder(command).redirectErrorStream(true).start();
+            kill.getOutputStream().close();
+            // some processes may already be dead, the errors are only logged
+            BufferedReader output = new BufferedReader(new InputStreamReader(kill.getInputStream()));
+            try {
+                String line;
+                while ((line = output.readLine()) != null) {
+                    logger.debug(line);
+                }
+            } finally {
+                output.close();
+            }
+            kill.waitFor();
+        } catch (Exception e) {
+            logger.warn("Unable to kill " + targets, e);
+        }
+    }
+
+    /**
+     * The processes of a task, identified by their process group.
+     */
+    public static class TrackedGroup {
+
+        private final ProcessGroupTracker tracker;
+
+        private final int pgid;
+
+        /** Start time of the group leader, in clock ticks after boot */
+        private final long startTime;
+
+        /** CPU times in clock ticks of the living processes of the group, by pid */
+        private final Map<Integer, Member> members = new HashMap<Integer, Member>();
+
+        /** CPU time in clock ticks of the terminated processes not counted by their parent */
+        private long terminatedCpu;
+
+        /** Highest resident memory in kilobytes of the whole group */
+        private long peakRss;
+
+        TrackedGroup(ProcessGroupTracker tracker, int pgid, long startTime) {
+            this.tracker = tracker;
+            this.pgid = pgid;
+            this.startTime = startTime;
+        }
+
+        /**
+         * @return the process group id
+         */
+        public int getProcessGroup() {
+            return pgid;
+        }
+
+        synchronized void update(List<ProcStat> stats) {
+            Set<Integer> alive = new HashSet<Integer>();
+            long rss = 0;
+            for (ProcStat stat : stats) {
+                alive.add(stat.pid);
+                Member member = members.get(stat.pid);
+                if (member == null) {
+                    member = new Member();
+                    members.put(stat.pid, member);
+                }
+                // a process includes the CPU time of the children it has waited for
+                member.cpu = Math.max(member.cpu, stat.cpuTime + stat.childrenCpuTime);
+                member.ppid = stat.ppid;
+                rss += readRss(stat.pid);
+            }
+            for (Iterator<Map.Entry<Integer, Member>> it = members.entrySet().iterator(); it.hasNext();) {
+                Map.Entry<Integer, Member> entry = it.next();
+                if (!alive.contains(entry.getKey())) {
+                    // a process whose parent is still alive has been waited for by its parent
+                    if (!alive.contains(entry.getValue().ppid)) {
+                        terminatedCpu += entry.getValue().cpu;
+                    }
+                    it.remove();
+                }
+            }
+            peakRss = Math.max(peakRss, rss);
+        }
+
+        /**
+         * Return the CPU time used by the processes of the group, as known by the last sample.
+         *
+         * @return the CPU time in millis
+         */
+        public synchronized long getCpuTime() {
+            long cpu = terminatedCpu;
+            for (Member member : members.values()) {
+                cpu += member.cpu;
+            }
+            return cpu * 1000 / CLOCK_TICKS;
+        }
+
+        /**
+         * Return the highest resident memory used by the processes of the group since
+         * the group is tracked or since the last reset.
+         *
+         * @return the resident memory in kilobytes
+         */
+        public synchronized long getPeakRss() {
+            return peakRss;
+        }
+
+        /**
+         * Reset the highest resident memory used by the group.
+         */
+        public synchronized void resetPeakRss() {
+            peakRss = 0;
+        }
+
+        /**
+         * Kill the processes of the group, then the processes started after the group leader in
+         * another group and whose environment contains the given variables.
+         *
+         * @param modelEnvVars the environment variables characterizing the processes escaped from
+         *          the group, null if escaped processes are not searched
+         */
+        public void kill(Map<String, String> modelEnvVars) {
+            if (pgid <= 1) {
+                // never signal every process of the system
+                return;
+            }
+            List<String> targets = new ArrayList<String>();
+            targets.add("-" + pgid);
+            if (modelEnvVars != null && !modelEnvVars.isEmpty()) {
+                for (ProcStat stat : readAll()) {
+                    if (stat.pgrp != pgid && stat.startTime >= startTime && stat.pid > 1 &&
+                        hasEnvVars(stat.pid, modelEnvVars)) {
+                        logger.debug("Process " + stat.pid + " escaped from process group " + pgid);
+                        targets.add(String.valueOf(stat.pid));
+                    }
+                }
+            }
+            sendKill(targets);
+        }
+
+        /**
+         * Stop tracking the group.
+         */
+        public void stop() {
+            tracker.untrack(this);
+        }
+    }
+
+    private static class Member {
+        long cpu;
+        int ppid;
+    }
+
+    /**
+     * The fields of <tt>/proc/[pid]/stat</tt> used to track the processes.
+     */
+    public static class ProcStat {
+        private int pid;
+        private int ppid;
+        private int pgrp;
+        private long cpuTime;
+        private long childrenCpuTime;
+        private long startTime;
+
+        /**
+         * @return the state of the given process, null if it does not exist anymore
+         */
+        static ProcStat read(int pid) {
+            String line;
+            try {
+                BufferedReader reader = new BufferedReader(new FileReader(new File(PROC, pid + "/stat")));
+                try {
+                    line = reader.readLine();
+                } finally {
+                    reader.close();
+                }
+            } catch (IOException e) {
+                // the process has terminated
+                return null;
+            }
+            return parse(pid, line);
+        }
+
+        /**
+         * Parse the content of <tt>/proc/[pid]/stat</tt>.
+         *
+         * @param pid the process id
+         * @param line the content of the stat file of the process
+         * @return the state of the process, null if the content cannot be parsed
+         */
+        public static ProcStat parse(int pid, String line) {
+            // the command name is between parentheses and may contain spaces or parentheses
+            int commandEnd = line == null ? -1 : line.lastIndexOf(')');
+            if (commandEnd < 0 || commandEnd + 2 > line.length()) {
+                return null;
+            }
+            String[] fields = line.substring(commandEnd + 2).split(" ");
+            if (fields.length < 20) {
+                return null;
+            }
+            try {
+                ProcStat stat = new ProcStat();
+                stat.pid = pid;
+                stat.ppid = Integer.parseInt(fields[1]);
+                stat.pgrp = Integer.parseInt(fields[2]);
+                stat.cpuTime = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+                stat.childrenCpuTime = Long.parseLong(fields[13]) + Long.parseLong(fields[14]);
+                stat.startTime = Long.parseLong(fields[19]);
+                return stat;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        public int getPid() {
+            return pid;
+        }
+
+        public int getParentPid() {
+            return ppid;
+        }
+
+        public int getProcessGroup() {
+            return pgrp;
+        }
+
+        /**
+         * @return the user and system time of the process in clock ticks
+         */
+        public long getCpuTime() {
+            return cpuTime;
+        }
+
+        /**
+         * @return the user and system time of the waited children of the process in clock ticks
+         */
+        public long getChildrenCpuTime() {
+            return childrenCpuTime;
+        }
+
+        /**
+         * @return the start time of the process in clock ticks after boot
+         */
+        public long getStartTime() {
+            return startTime;
+        }
+    }
+
+    /**
+     * @return the resident memory of the given process in kilobytes, 0 if unknown
+     */
+    private static long readRss(int pid) {
+        try {
+            BufferedReader reader = new BufferedReader(new FileReader(new File(PROC, pid + "/status")));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("VmRSS:")) {
+                        String value = line.substring("VmRSS:".length()).trim();
+                        int unit = value.indexOf(' ');
+                        return Long.parseLong(unit < 0 ? value : value.substring(0, unit));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (Exception e) {
+            // the process has terminated
+        }
+        return 0;
+    }
+
+    /**
+     * @return true if the environment of the given process contains all the given variables
+     */
+    private static boolean hasEnvVars(int pid, Map<String, String> modelEnvVars) {
+        Set<String> environment = new HashSet<String>();
+        try {
+            byte[] environ = FileToBytesConverter.convertFileToByteArray(new File(PROC, pid + "/environ"));
+            int pos = 0;
+            for (int i = 0; i < environ.length; i++) {
+                if (environ[i] == 0) {
+                    environment.add(new String(environ, pos, i - pos));
+                    pos = i + 1;
+                }
+            }
+        } catch (Exception e) {
+            // terminated process or permission denied
+            return false;
+        }
+        for (Map.Entry<String, String> variable : modelEnvVars.entrySet()) {
+            if (!environment.contains(variable.getKey() + "=" + variable.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
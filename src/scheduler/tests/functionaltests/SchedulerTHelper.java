@@ -895,6 +895,22 @@ public class SchedulerTHelper {
         return getMonitorsHandler().waitForEventJob(SchedulerEvent.JOB_PENDING_TO_FINISHED, id, timeout);
     }
 
+    /**
+     * Wait for an event regarding a job: paused, resumed, priority changed...
+     * If corresponding event has been already thrown by scheduler, returns immediately
+     * with JobInfo object associated to event, otherwise wait for event reception.
+     *
+     * @param event awaited event.
+     * @param id  job identifier, for which event is waited for.
+     * @param timeout  max waiting time in milliseconds.
+     * @return JobInfo event's associated object.
+     * @throws ProActiveTimeoutException if timeout is reached.
+     */
+    public static JobInfo waitForEventJob(SchedulerEvent event, JobId id, long timeout)
+            throws ProActiveTimeoutException {
+        return getMonitorsHandler().waitForEventJob(event, id, timeout);
+    }
+
     /**
      * Wait for a job removed from Scheduler's database.
      * If corresponding event has been already thrown by scheduler, returns immediately
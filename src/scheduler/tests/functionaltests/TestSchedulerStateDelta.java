@@ -0,0 +1,122 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s): ActiveEon Team - http://www.activeeon.com
+ *
+ * ################################################################
+ * $$ACTIVEEON_CONTRIBUTOR$$
+ */
+package functionaltests;
+
+import java.io.File;
+import java.net.URL;
+
+import org.junit.Assert;
+import org.ow2.proactive.scheduler.common.Scheduler;
+import org.ow2.proactive.scheduler.common.SchedulerStateDelta;
+import org.ow2.proactive.scheduler.common.SchedulerStatePage;
+import org.ow2.proactive.scheduler.common.job.JobFilter;
+import org.ow2.proactive.scheduler.common.job.JobId;
+import org.ow2.proactive.scheduler.common.job.JobState;
+import org.ow2.proactive.scheduler.common.job.JobStatus;
+
+
+/**
+ * Checking that the paginated state and the state deltas report
+ * submitted, finished and removed jobs.
+ *
+ */
+public class TestSchedulerStateDelta extends SchedulerConsecutive {
+
+    private static URL simpleJob = TestSchedulerStateDelta.class
+            .getResource("/functionaltests/descriptors/Job_simple.xml");
+
+    private final static int EVENT_TIMEOUT = 5000;
+
+    /**
+     * Tests start here.
+     *
+     * @throws Throwable any exception that can be thrown during the test.
+     */
+    @org.junit.Test
+    public void run() throws Throwable {
+        Scheduler scheduler = SchedulerTHelper.getSchedulerInterface();
+
+        SchedulerStatePage page = scheduler.getJobs(null, 0, Integer.MAX_VALUE);
+        int jobsNumber = page.getTotalJobs();
+        long revision = page.getRevision();
+
+        JobId id = SchedulerTHelper.submitJob(new File(simpleJob.toURI()).getAbsolutePath(),
+                ExecutionMode.normal);
+        SchedulerTHelper.log("Job submitted, id " + id.toString());
+        SchedulerTHelper.waitForEventJobFinished(id);
+
+        // the finished job is in the delta and in the finished jobs page
+        SchedulerStateDelta delta = scheduler.getStateDelta(revision, false);
+        Assert.assertTrue(delta.isComplete());
+        Assert.assertTrue(delta.getRevision() > revision);
+        Assert.assertEquals(1, delta.getUpdatedJobs().size());
+        Assert.assertEquals(id, delta.getUpdatedJobs().get(0).getId());
+        Assert.assertEquals(JobStatus.FINISHED, delta.getUpdatedJobs().get(0).getStatus());
+        Assert.assertTrue(delta.getRemovedJobs().isEmpty());
+
+        JobFilter filter = new JobFilter();
+        filter.setStatuses(JobStatus.FINISHED);
+        filter.setOwner(delta.getUpdatedJobs().get(0).getOwner());
+        page = scheduler.getJobs(filter, 0, Integer.MAX_VALUE);
+        boolean found = false;
+        for (JobState js : page.getJobs()) {
+            found |= js.getId().equals(id);
+        }
+        Assert.assertTrue(found);
+        Assert.assertEquals(jobsNumber + 1, scheduler.getJobs(null, 0, 0).getTotalJobs());
+
+        filter.setStatuses(JobStatus.PENDING);
+        for (JobState js : scheduler.getJobs(filter, 0, Integer.MAX_VALUE).getJobs()) {
+            Assert.assertFalse(js.getId().equals(id));
+        }
+
+        // nothing changed since the last delta
+        revision = delta.getRevision();
+        delta = scheduler.getStateDelta(revision, false);
+        Assert.assertTrue(delta.getUpdatedJobs().isEmpty());
+        Assert.assertTrue(delta.getRemovedJobs().isEmpty());
+
+        // the removed job is reported once
+        SchedulerTHelper.removeJob(id);
+        SchedulerTHelper.waitForEventJobRemoved(id, EVENT_TIMEOUT);
+        delta = scheduler.getStateDelta(revision, false);
+        Assert.assertTrue(delta.getUpdatedJobs().isEmpty());
+        Assert.assertEquals(1, delta.getRemovedJobs().size());
+        Assert.assertEquals(id, delta.getRemovedJobs().get(0));
+        Assert.assertEquals(jobsNumber, scheduler.getJobs(null, 0, 0).getTotalJobs());
+    }
+}
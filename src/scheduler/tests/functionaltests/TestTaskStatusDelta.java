@@ -0,0 +1,167 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s): ActiveEon Team - http://www.activeeon.com
+ *
+ * ################################################################
+ * $$ACTIVEEON_CONTRIBUTOR$$
+ */
+package functionaltests;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.ow2.proactive.scheduler.common.Scheduler;
+import org.ow2.proactive.scheduler.common.SchedulerEvent;
+import org.ow2.proactive.scheduler.common.job.JobId;
+import org.ow2.proactive.scheduler.common.job.JobInfo;
+import org.ow2.proactive.scheduler.common.job.JobState;
+import org.ow2.proactive.scheduler.common.job.TaskFlowJob;
+import org.ow2.proactive.scheduler.common.task.JavaTask;
+import org.ow2.proactive.scheduler.common.task.TaskId;
+import org.ow2.proactive.scheduler.common.task.TaskState;
+import org.ow2.proactive.scheduler.common.task.TaskStatus;
+import org.ow2.proactive.scheduler.examples.WaitAndPrint;
+import org.ow2.proactive.scheduler.job.JobInfoImpl;
+import org.ow2.proactive.scripting.SelectionScript;
+
+
+/**
+ * Checking that the task status deltas carried by the job events only
+ * report the modified tasks, and that a client state updated with these
+ * deltas stays equal to the state of the scheduler.
+ *
+ * - pausing a job only reports its pending tasks
+ * - resuming a job only reports its paused tasks
+ * - killing a job reports its aborted tasks
+ *
+ */
+public class TestTaskStatusDelta extends SchedulerConsecutive {
+
+    private final static int EVENT_TIMEOUT = 30000;
+
+    private TaskFlowJob createJob() throws Exception {
+        TaskFlowJob job = new TaskFlowJob();
+        job.setName(this.getClass().getSimpleName());
+
+        JavaTask running = new JavaTask();
+        running.setName("running");
+        running.setExecutableClassName(WaitAndPrint.class.getName());
+        running.addArgument("sleepTime", "60");
+        running.addArgument("number", "1");
+        job.addTask(running);
+
+        // no node is ever selected, these tasks stay pending
+        for (int i = 1; i <= 2; i++) {
+            JavaTask pending = new JavaTask();
+            pending.setName("pending" + i);
+            pending.setExecutableClassName(WaitAndPrint.class.getName());
+            pending.addArgument("sleepTime", "1");
+            pending.addArgument("number", "1");
+            pending.addSelectionScript(new SelectionScript("selected = false;", "javascript", true));
+            job.addTask(pending);
+        }
+        return job;
+    }
+
+    /**
+     * Tests start here.
+     *
+     * @throws Throwable any exception that can be thrown during the test.
+     */
+    @org.junit.Test
+    public void run() throws Throwable {
+        Scheduler scheduler = SchedulerTHelper.getSchedulerInterface();
+
+        JobId id = SchedulerTHelper.submitJob(createJob());
+        SchedulerTHelper.log("Job submitted, id " + id.toString());
+        JobState client = SchedulerTHelper.waitForEventJobSubmitted(id);
+        client.update(SchedulerTHelper.waitForEventTaskRunning(id, "running"));
+
+        // only the pending tasks are paused, the running task is not in the delta
+        scheduler.pauseJob(id);
+        JobInfo info = SchedulerTHelper.waitForEventJob(SchedulerEvent.JOB_PAUSED, id, EVENT_TIMEOUT);
+        Map<TaskId, TaskStatus> modified = ((JobInfoImpl) info).getTaskStatusModify();
+        Assert.assertEquals(2, modified.size());
+        for (Map.Entry<TaskId, TaskStatus> entry : modified.entrySet()) {
+            Assert.assertTrue(entry.getKey().getReadableName().startsWith("pending"));
+            Assert.assertEquals(TaskStatus.PAUSED, entry.getValue());
+        }
+        client.update(info);
+        checkTasksStatus(client, scheduler.getJobState(id));
+        Assert.assertEquals(TaskStatus.RUNNING, getTask(client, "running").getStatus());
+
+        // only the paused tasks are resumed
+        scheduler.resumeJob(id);
+        info = SchedulerTHelper.waitForEventJob(SchedulerEvent.JOB_RESUMED, id, EVENT_TIMEOUT);
+        modified = ((JobInfoImpl) info).getTaskStatusModify();
+        Assert.assertEquals(2, modified.size());
+        for (Map.Entry<TaskId, TaskStatus> entry : modified.entrySet()) {
+            Assert.assertTrue(entry.getKey().getReadableName().startsWith("pending"));
+            Assert.assertEquals(TaskStatus.PENDING, entry.getValue());
+        }
+        client.update(info);
+        checkTasksStatus(client, scheduler.getJobState(id));
+
+        // the killed job reports the tasks it has ended
+        scheduler.killJob(id);
+        info = SchedulerTHelper.waitForEventJobFinished(id, EVENT_TIMEOUT);
+        client.update(info);
+        JobState server = scheduler.getJobState(id);
+        checkTasksStatus(client, server);
+        for (TaskState task : server.getTasks()) {
+            Assert.assertFalse(task.getName(), task.getStatus() == TaskStatus.RUNNING);
+            Assert.assertFalse(task.getName(), task.getStatus() == TaskStatus.PENDING);
+        }
+
+        SchedulerTHelper.removeJob(id);
+        SchedulerTHelper.waitForEventJobRemoved(id, EVENT_TIMEOUT);
+    }
+
+    private void checkTasksStatus(JobState client, JobState server) {
+        Assert.assertEquals(server.getTasks().size(), client.getTasks().size());
+        for (TaskState task : server.getTasks()) {
+            TaskState clientTask = client.getHMTasks().get(task.getId());
+            Assert.assertNotNull(task.getName(), clientTask);
+            Assert.assertEquals(task.getName(), task.getStatus(), clientTask.getStatus());
+        }
+    }
+
+    private TaskState getTask(JobState job, String name) {
+        for (TaskState task : job.getTasks()) {
+            if (task.getName().equals(name)) {
+                return task;
+            }
+        }
+        throw new IllegalArgumentException("No task " + name);
+    }
+
+}
@@ -14,7 +14,9 @@ import org.junit.runners.Suite.SuiteClasses;
         TestLoadSchedulerClientState.class, TestMultipleTasks.class, TestNativeTaskData.class,
         TestReadSchedulerAccount.class, TestSchedulerTasksStateRecover.class, TestJobOperations.class,
         TestTaskAttributes.class, TestTaskIdGeneration.class, TestTaskResultData.class,
-        TestTaskRuntimeData.class, TestRestoreWorkflowJobs.class, TestRestoreWorkflowJobs2.class })
+        TestTaskRuntimeData.class, TestRestoreWorkflowJobs.class, TestRestoreWorkflowJobs2.class,
+        TestSchedulerDBJournal.class, TestLoadExecutableContainers.class,
+        TestTaskResultStore.class, TestTaskDeltaPersistence.class })
 public class AllSchedulerDbTests {
 
 }
@@ -0,0 +1,62 @@
+package functionaltests.schedulerdb;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.proactive.scheduler.common.job.TaskFlowJob;
+import org.ow2.proactive.scheduler.common.task.ForkEnvironment;
+import org.ow2.proactive.scheduler.common.task.JavaTask;
+import org.ow2.proactive.scheduler.common.task.NativeTask;
+import org.ow2.proactive.scheduler.common.task.TaskId;
+import org.ow2.proactive.scheduler.job.InternalJob;
+import org.ow2.proactive.scheduler.task.ExecutableContainer;
+import org.ow2.proactive.scheduler.task.ForkedJavaExecutableContainer;
+import org.ow2.proactive.scheduler.task.JavaExecutableContainer;
+import org.ow2.proactive.scheduler.task.NativeExecutableContainer;
+import org.ow2.proactive.scheduler.task.internal.InternalTask;
+
+
+public class TestLoadExecutableContainers extends BaseSchedulerDBTest {
+
+    @Test
+    public void test() throws Exception {
+        TaskFlowJob jobDef = new TaskFlowJob();
+        // more tasks than the size of a batch
+        for (int i = 0; i < 150; i++) {
+            JavaTask javaTask = createDefaultTask("java-" + i);
+            javaTask.addArgument("arg", "java-" + i);
+            jobDef.addTask(javaTask);
+        }
+        JavaTask forkedTask = createDefaultTask("forked");
+        forkedTask.setForkEnvironment(new ForkEnvironment());
+        jobDef.addTask(forkedTask);
+        NativeTask nativeTask = new NativeTask();
+        nativeTask.setName("native");
+        nativeTask.setCommandLine("command");
+        jobDef.addTask(nativeTask);
+
+        InternalJob job = defaultSubmitJob(jobDef);
+
+        Map<TaskId, ExecutableContainer> containers = dbManager.loadExecutableContainers(job
+                .getITasks());
+        Assert.assertEquals(job.getITasks().size(), containers.size());
+        for (InternalTask task : job.getITasks()) {
+            ExecutableContainer container = containers.get(task.getId());
+            if (task.getName().equals("forked")) {
+                Assert.assertTrue(container instanceof ForkedJavaExecutableContainer);
+            } else if (task.getName().equals("native")) {
+                Assert.assertArrayEquals(new String[] { "command" }, ((NativeExecutableContainer) container)
+                        .getCommand());
+            } else {
+                Assert.assertFalse(container instanceof ForkedJavaExecutableContainer);
+                Map<String, Serializable> args = ((JavaExecutableContainer) container)
+                        .createExecutableInitializer().getArguments(
+                                Thread.currentThread().getContextClassLoader());
+                Assert.assertEquals(task.getName(), args.get("arg"));
+            }
+        }
+    }
+
+}
@@ -1,5 +1,10 @@
 package functionaltests.schedulerdb;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
 import junit.framework.Assert;
 
 import org.junit.Test;
@@ -61,6 +66,63 @@ public class TestReadSchedulerAccount extends BaseSchedulerDBTest {
         checkAccount(invalidUser);
         checkAccount(user1);
         checkAccount(user2);
+
+        // accounts computed from the jobs history are the same
+        dbManager.rebuildAccounts();
+
+        checkAccount(invalidUser);
+        checkAccount(user1);
+        checkAccount(user2);
+    }
+
+    @Test
+    public void testConcurrentFirstAccountWrites() throws Exception {
+        final int JOBS = 8;
+        AccountData user = new AccountData(TEST_USER_NAME1);
+        final List<InternalJob> jobs = new ArrayList<InternalJob>(JOBS);
+        for (int i = 0; i < JOBS; i++) {
+            TaskFlowJob jobDef = new TaskFlowJob();
+            jobDef.addTask(createDefaultTask("task1"));
+            InternalJob job = defaultSubmitJobAndLoadInternal(true, jobDef, user.userName);
+            job.start();
+            startTask(job, job.getTask("task1"));
+            dbManager.jobTaskStarted(job, job.getTask("task1"), true);
+            jobs.add(job);
+        }
+
+        // the account of the user does not exist yet, all the writers try to create it
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Long> durations = Collections.synchronizedList(new ArrayList<Long>());
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<Thread>(JOBS);
+        for (final InternalJob job : jobs) {
+            Thread thread = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        durations.add(finishTask(job, "task1"));
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(60000);
+        }
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+
+        for (int i = 0; i < JOBS; i++) {
+            InternalJob job = jobs.get(i);
+            user.taskTime += durations.get(i);
+            user.taskCount++;
+            user.jobCount++;
+            user.jobTime += job.getFinishedTime() - job.getStartTime();
+        }
+        checkAccount(user);
     }
 
     private void singleJobScenario(AccountData accountData) throws Exception {
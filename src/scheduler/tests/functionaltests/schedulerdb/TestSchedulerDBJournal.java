@@ -0,0 +1,244 @@
+package functionaltests.schedulerdb;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import junit.framework.Assert;
+
+import org.hibernate.cfg.Configuration;
+import org.junit.Test;
+import org.ow2.proactive.db.DatabaseManagerException;
+import org.ow2.proactive.scheduler.common.job.JobStatus;
+import org.ow2.proactive.scheduler.common.job.TaskFlowJob;
+import org.ow2.proactive.scheduler.common.task.JavaTask;
+import org.ow2.proactive.scheduler.common.task.TaskStatus;
+import org.ow2.proactive.scheduler.core.db.SchedulerDBManager;
+import org.ow2.proactive.scheduler.core.db.SchedulerStateRecoverHelper;
+import org.ow2.proactive.scheduler.core.properties.PASchedulerProperties;
+import org.ow2.proactive.scheduler.job.InternalJob;
+import org.ow2.proactive.scheduler.task.TaskResultImpl;
+import org.ow2.proactive.scheduler.task.internal.InternalTask;
+
+
+public class TestSchedulerDBJournal extends BaseSchedulerDBTest {
+
+    @Test
+    public void testStateWrittenBeforeRecover() throws Throwable {
+        File journalDir = File.createTempFile("scheduler_journal", "");
+        journalDir.delete();
+        // long period: the entries are only written when the state is read
+        dbManager.enableJournal(journalDir, 60000, 1000, true);
+
+        TaskFlowJob jobDef = new TaskFlowJob();
+        JavaTask taskDef1 = createDefaultTask("task1");
+        JavaTask taskDef2 = createDefaultTask("task2");
+        taskDef2.addDependence(taskDef1);
+        jobDef.addTask(taskDef1);
+        jobDef.addTask(taskDef2);
+
+        InternalJob job = defaultSubmitJobAndLoadInternal(true, jobDef);
+        InternalTask task1 = job.getTask("task1");
+
+        job.start();
+        startTask(job, task1);
+        dbManager.jobTaskStarted(job, task1, true);
+
+        TaskResultImpl result = new TaskResultImpl(null, new TestResult(1, "res1"), null, 1000);
+        job.terminateTask(false, task1.getId(), null, null, result);
+        dbManager.updateAfterTaskFinished(job, task1, result);
+
+        Assert.assertEquals(2, dbManager.getJournalPendingEntriesCount());
+
+        SchedulerStateRecoverHelper stateRecoverHelper = new SchedulerStateRecoverHelper(dbManager);
+        JobStateMatcher expectedJob = job(job.getId(), JobStatus.STALLED).withFinished(
+                task("task1", TaskStatus.FINISHED).checkFinished()).withPending(
+                task("task2", TaskStatus.PENDING), true).withEligible("task2");
+        checkRecoveredState(stateRecoverHelper.recover(), state().withRunning(expectedJob));
+
+        Assert.assertEquals(0, dbManager.getJournalPendingEntriesCount());
+        Assert.assertEquals("res1", ((TestResult) dbManager.loadLastTaskResult(task1.getId()).value())
+                .getB());
+
+        dbManager.close();
+        Assert.assertEquals(0, journalDir.list().length);
+        dbManager = null;
+    }
+
+    @Test
+    public void testSegmentsReplayedAfterCrash() throws Throwable {
+        replayAfterCrash("");
+    }
+
+    @Test
+    public void testParkedSegmentsReplayed() throws Throwable {
+        // segments set aside by previous versions
+        replayAfterCrash(".failed");
+    }
+
+    private void replayAfterCrash(String segmentSuffix) throws Throwable {
+        File crashedJournalDir = createJournalDir();
+        File journalDir = createJournalDir();
+
+        // the run which crashes: its entries never reach the database of the test
+        SchedulerDBManager crashedDbManager = createOtherDBManager();
+        crashedDbManager.enableJournal(crashedJournalDir, 60000, 1000, true);
+        InternalJob crashedJob = submitTwoTasksJob(crashedDbManager);
+        InternalTask task1 = crashedJob.getTask("task1");
+        crashedJob.start();
+        startTask(crashedJob, task1);
+        crashedDbManager.jobTaskStarted(crashedJob, task1, true);
+        TaskResultImpl result = new TaskResultImpl(null, new TestResult(1, "res1"), null, 1000);
+        crashedJob.terminateTask(false, task1.getId(), null, null, result);
+        crashedDbManager.updateAfterTaskFinished(crashedJob, task1, result);
+        Assert.assertEquals(2, crashedDbManager.getJournalPendingEntriesCount());
+
+        // the segments as they are on disk when the scheduler crashes, before any flush
+        File[] segments = crashedJournalDir.listFiles();
+        Assert.assertEquals(1, segments.length);
+        copyFile(segments[0], new File(journalDir, segments[0].getName() + segmentSuffix));
+        crashedDbManager.close();
+
+        InternalJob job = submitTwoTasksJob(dbManager);
+        Assert.assertEquals(crashedJob.getId(), job.getId());
+        Assert.assertEquals(TaskStatus.SUBMITTED, findTask(loadInternalJob(true, job.getId()), "task1")
+                .getStatus());
+
+        // restart: the segments are written before the state is recovered
+        dbManager.enableJournal(journalDir, 60000, 1000, false);
+        SchedulerStateRecoverHelper stateRecoverHelper = new SchedulerStateRecoverHelper(dbManager);
+        JobStateMatcher expectedJob = job(job.getId(), JobStatus.STALLED).withFinished(
+                task("task1", TaskStatus.FINISHED).checkFinished()).withPending(
+                task("task2", TaskStatus.PENDING), true).withEligible("task2");
+        checkRecoveredState(stateRecoverHelper.recover(), state().withRunning(expectedJob));
+        Assert.assertEquals("res1", ((TestResult) dbManager.loadLastTaskResult(job.getTask("task1").getId())
+                .value()).getB());
+
+        dbManager.close();
+        Assert.assertEquals(0, journalDir.list().length);
+        dbManager = null;
+    }
+
+    @Test
+    public void testFailingGroupRetried() throws Throwable {
+        File journalDir = createJournalDir();
+        // short write timeout and retry delay, at most 2 entries not written
+        dbManager.enableJournal(journalDir, 60000, 1000, 2000, 200, 2, false);
+
+        // the job only exists in another database: its entries cannot be written in this one yet
+        SchedulerDBManager otherDbManager = createOtherDBManager();
+        InternalJob job;
+        try {
+            job = submitTwoTasksJob(otherDbManager);
+        } finally {
+            otherDbManager.close();
+        }
+        InternalTask task1 = job.getTask("task1");
+        InternalTask task2 = job.getTask("task2");
+        job.start();
+        startTask(job, task1);
+        TaskResultImpl result = new TaskResultImpl(null, new TestResult(1, "res1"), null, 1000);
+        job.terminateTask(false, task1.getId(), null, null, result);
+        dbManager.updateAfterTaskFinished(job, task1, result);
+
+        long start = System.currentTimeMillis();
+        try {
+            dbManager.loadJobs(true, job.getId());
+            Assert.fail("Waiting for a group which cannot be written should fail");
+        } catch (DatabaseManagerException e) {
+            // expected
+        }
+        Assert.assertTrue(System.currentTimeMillis() - start < 30000);
+        Assert.assertEquals(1, dbManager.getJournalPendingEntriesCount());
+
+        // backpressure: appending blocks then fails once the maximum of pending entries is reached
+        startTask(job, task2);
+        dbManager.jobTaskStarted(job, task2, false);
+        Assert.assertEquals(2, dbManager.getJournalPendingEntriesCount());
+        try {
+            dbManager.jobTaskStarted(job, task2, false);
+            Assert.fail("Appending beyond the maximum of pending entries should fail");
+        } catch (DatabaseManagerException e) {
+            // expected
+        }
+        Assert.assertEquals(2, dbManager.getJournalPendingEntriesCount());
+
+        // the segments are kept, nothing is set aside
+        String[] files = journalDir.list();
+        Assert.assertTrue(files.length > 0);
+        for (String file : files) {
+            Assert.assertFalse(file, file.endsWith(".failed"));
+        }
+
+        // the database accepts the entries once the job exists: the group is written by a retry
+        TaskFlowJob jobDef = new TaskFlowJob();
+        JavaTask taskDef1 = createDefaultTask("task1");
+        JavaTask taskDef2 = createDefaultTask("task2");
+        taskDef2.addDependence(taskDef1);
+        jobDef.addTask(taskDef1);
+        jobDef.addTask(taskDef2);
+        Assert.assertEquals(job.getId(), defaultSubmitJob(jobDef).getId());
+
+        Assert.assertEquals("res1", ((TestResult) dbManager.loadLastTaskResult(task1.getId()).value())
+                .getB());
+        Assert.assertEquals(0, dbManager.getJournalPendingEntriesCount());
+        InternalJob loadedJob = loadInternalJob(true, job.getId());
+        Assert.assertEquals(TaskStatus.FINISHED, findTask(loadedJob, "task1").getStatus());
+        Assert.assertEquals(TaskStatus.RUNNING, findTask(loadedJob, "task2").getStatus());
+    }
+
+    private InternalJob submitTwoTasksJob(SchedulerDBManager targetDbManager) throws Exception {
+        TaskFlowJob jobDef = new TaskFlowJob();
+        JavaTask taskDef1 = createDefaultTask("task1");
+        JavaTask taskDef2 = createDefaultTask("task2");
+        taskDef2.addDependence(taskDef1);
+        jobDef.addTask(taskDef1);
+        jobDef.addTask(taskDef2);
+        SchedulerDBManager testDbManager = dbManager;
+        dbManager = targetDbManager;
+        try {
+            return defaultSubmitJobAndLoadInternal(true, jobDef);
+        } finally {
+            dbManager = testDbManager;
+        }
+    }
+
+    /**
+     * @return a manager of another database, dropped when created
+     */
+    private static SchedulerDBManager createOtherDBManager() {
+        Configuration config = new Configuration().configure(new File(PASchedulerProperties
+                .getAbsolutePath("src/scheduler/tests/functionaltests/config/hibernate.cfg.xml")));
+        config.setProperty("hibernate.connection.url", "jdbc:derby:TEST_SCHEDULER_DB_JOURNAL;create=true");
+        return new SchedulerDBManager(config, true);
+    }
+
+    private static File createJournalDir() throws IOException {
+        File journalDir = File.createTempFile("scheduler_journal", "");
+        journalDir.delete();
+        journalDir.mkdirs();
+        return journalDir;
+    }
+
+    private static void copyFile(File from, File to) throws IOException {
+        InputStream in = new FileInputStream(from);
+        try {
+            OutputStream out = new FileOutputStream(to);
+            try {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+}
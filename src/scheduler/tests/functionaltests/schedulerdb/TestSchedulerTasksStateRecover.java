@@ -1,15 +1,20 @@
 package functionaltests.schedulerdb;
 
+import java.util.List;
+
 import junit.framework.Assert;
 
 import org.junit.Test;
+import org.ow2.proactive.scheduler.common.job.JobState;
 import org.ow2.proactive.scheduler.common.job.JobStatus;
 import org.ow2.proactive.scheduler.common.job.TaskFlowJob;
 import org.ow2.proactive.scheduler.common.task.JavaTask;
+import org.ow2.proactive.scheduler.common.task.TaskId;
 import org.ow2.proactive.scheduler.common.task.TaskStatus;
 import org.ow2.proactive.scheduler.core.db.SchedulerStateRecoverHelper;
 import org.ow2.proactive.scheduler.descriptor.EligibleTaskDescriptor;
 import org.ow2.proactive.scheduler.job.InternalJob;
+import org.ow2.proactive.scheduler.job.JobIdImpl;
 import org.ow2.proactive.scheduler.task.ExecutableContainer;
 import org.ow2.proactive.scheduler.task.internal.InternalTask;
 
@@ -56,6 +61,60 @@ public class TestSchedulerTasksStateRecover extends BaseSchedulerDBTest {
         Assert.assertNotNull(container);
     }
 
+    @Test
+    public void testRecoverFinishedJobsSummaries() throws Exception {
+        TaskFlowJob jobDef = new TaskFlowJob();
+        jobDef.addTask(createDefaultTask("task1"));
+        jobDef.addTask(createDefaultTask("task2"));
+        InternalJob job = defaultSubmitJobAndLoadInternal(true, jobDef);
+
+        job.terminate();
+        dbManager.updateAfterTaskFinished(job, null, null);
+
+        SchedulerStateRecoverHelper recoverHelper = new SchedulerStateRecoverHelper(dbManager);
+        SchedulerStateRecoverHelper.RecoveredSchedulerState state = recoverHelper.recover(false);
+
+        Assert.assertEquals(1, state.getFinishedJobs().size());
+        InternalJob summary = state.getFinishedJobs().get(0);
+        Assert.assertEquals(job.getId(), summary.getId());
+        Assert.assertEquals(JobStatus.FINISHED, summary.getStatus());
+        Assert.assertEquals(2, summary.getTotalNumberOfTasks());
+        Assert.assertEquals(0, summary.getTasks().size());
+
+        JobState summaryState = state.getSchedulerState().getFinishedJobs().get(0);
+        Assert.assertEquals(0, summaryState.getTasks().size());
+
+        // full state is still available on demand
+        InternalJob loaded = dbManager.loadJobs(false, job.getId()).get(0);
+        Assert.assertEquals(2, loaded.getTasks().size());
+    }
+
+    @Test
+    public void testLoadTasksIdsOfSummary() throws Exception {
+        TaskFlowJob jobDef = new TaskFlowJob();
+        jobDef.addTask(createDefaultTask("task1"));
+        jobDef.addTask(createDefaultTask("task2"));
+        InternalJob job = defaultSubmitJobAndLoadInternal(true, jobDef);
+
+        job.terminate();
+        dbManager.updateAfterTaskFinished(job, null, null);
+
+        SchedulerStateRecoverHelper recoverHelper = new SchedulerStateRecoverHelper(dbManager);
+        InternalJob summary = recoverHelper.recover(false).getFinishedJobs().get(0);
+        Assert.assertTrue(summary.getHMTasks().isEmpty());
+
+        // ids of the tasks are needed to remove their logs and to check their names
+        List<TaskId> ids = dbManager.loadTasksIds(summary.getId());
+        Assert.assertEquals(2, ids.size());
+        Assert.assertTrue(ids.contains(job.getTask("task1").getId()));
+        Assert.assertTrue(ids.contains(job.getTask("task2").getId()));
+        for (TaskId id : ids) {
+            Assert.assertEquals(job.getTask(id.getReadableName()).getId(), id);
+        }
+
+        Assert.assertTrue(dbManager.loadTasksIds(new JobIdImpl(Long.MAX_VALUE, "unknown")).isEmpty());
+    }
+
     @Test
     public void testRecover() throws Exception {
         SchedulerStateRecoverHelper recoverHelper = new SchedulerStateRecoverHelper(dbManager);
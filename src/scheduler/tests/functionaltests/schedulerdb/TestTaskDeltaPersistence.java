@@ -0,0 +1,92 @@
+package functionaltests.schedulerdb;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.ow2.proactive.scheduler.common.job.TaskFlowJob;
+import org.ow2.proactive.scheduler.common.task.TaskState;
+import org.ow2.proactive.scheduler.common.task.TaskStatus;
+import org.ow2.proactive.scheduler.job.InternalJob;
+import org.ow2.proactive.scheduler.task.TaskResultImpl;
+import org.ow2.proactive.scheduler.task.internal.InternalTask;
+
+
+public class TestTaskDeltaPersistence extends BaseSchedulerDBTest {
+
+    @Test
+    public void testOnlyModifiedTasksWritten() throws Exception {
+        InternalJob job = submitAndStartAllTasks(5);
+        InternalTask finished = job.getTask("task0");
+        InternalTask notModified = job.getTask("task1");
+
+        // state changed in memory without going through the job: not marked as modified
+        notModified.setStatus(TaskStatus.FAULTY);
+
+        long transactions = dbManager.getTransactionsCount();
+        finishTask(job, finished);
+        Assert.assertEquals(transactions + 1, dbManager.getTransactionsCount());
+
+        InternalJob loaded = loadInternalJob(true, job.getId());
+        for (TaskState task : loaded.getTasks()) {
+            if (task.getName().equals("task0")) {
+                Assert.assertEquals(TaskStatus.FINISHED, task.getStatus());
+                Assert.assertTrue(task.getFinishedTime() > 0);
+            } else {
+                Assert.assertEquals("Status of " + task.getName(), TaskStatus.RUNNING, task.getStatus());
+                Assert.assertEquals(-1L, task.getFinishedTime());
+            }
+        }
+        Assert.assertTrue(job.getDirtyTasks().isEmpty());
+    }
+
+    @Test
+    public void testStatementsCountDoesNotDependOnTasksNumber() throws Exception {
+        InternalJob smallJob = submitAndStartAllTasks(2);
+        finishTask(smallJob, smallJob.getTask("task0"));
+        int smallJobStatements = dbManager.getLastTransactionStatementsCount();
+        Assert.assertTrue(smallJobStatements > 0);
+
+        InternalJob bigJob = submitAndStartAllTasks(60);
+        finishTask(bigJob, bigJob.getTask("task0"));
+        Assert.assertEquals(smallJobStatements, dbManager.getLastTransactionStatementsCount());
+        Assert.assertTrue(dbManager.getMaxTransactionStatementsCount() >= smallJobStatements);
+        Assert.assertTrue(dbManager.getMeanTransactionStatementsCount() > 0);
+    }
+
+    @Test
+    public void testAllModifiedTasksWritten() throws Exception {
+        InternalJob job = submitAndStartAllTasks(3);
+        InternalTask restarted = job.getTask("task1");
+
+        // the restart is only written with the next completion
+        job.reStartTask(restarted);
+        finishTask(job, job.getTask("task0"));
+
+        InternalJob loaded = loadInternalJob(true, job.getId());
+        Assert.assertEquals(TaskStatus.FINISHED, findTask(loaded, "task0").getStatus());
+        Assert.assertEquals(TaskStatus.PENDING, findTask(loaded, "task1").getStatus());
+        Assert.assertEquals(TaskStatus.RUNNING, findTask(loaded, "task2").getStatus());
+    }
+
+    private InternalJob submitAndStartAllTasks(int tasksNumber) throws Exception {
+        TaskFlowJob jobDef = new TaskFlowJob();
+        for (int i = 0; i < tasksNumber; i++) {
+            jobDef.addTask(createDefaultTask("task" + i));
+        }
+        InternalJob job = defaultSubmitJobAndLoadInternal(true, jobDef);
+        job.start();
+        for (int i = 0; i < tasksNumber; i++) {
+            InternalTask task = job.getTask("task" + i);
+            startTask(job, task);
+            dbManager.jobTaskStarted(job, task, i == 0);
+        }
+        return job;
+    }
+
+    private void finishTask(InternalJob job, InternalTask task) {
+        TaskResultImpl result = new TaskResultImpl(null, new TestResult(1, "res"), null, 1000);
+        job.terminateTask(false, task.getId(), null, null, result);
+        dbManager.updateAfterTaskFinished(job, task, result);
+    }
+
+}
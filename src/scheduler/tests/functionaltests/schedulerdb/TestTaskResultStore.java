@@ -0,0 +1,340 @@
+package functionaltests.schedulerdb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ow2.proactive.scheduler.common.SchedulerConstants;
+import org.ow2.proactive.scheduler.common.task.Log4JTaskLogs;
+import org.ow2.proactive.scheduler.common.task.TaskResult;
+import org.ow2.proactive.scheduler.core.db.FileSystemTaskResultStore;
+import org.ow2.proactive.scheduler.core.db.TaskResultStore;
+import org.ow2.proactive.scheduler.job.InternalJob;
+import org.ow2.proactive.scheduler.task.TaskResultImpl;
+import org.ow2.proactive.scheduler.task.internal.InternalTask;
+
+
+public class TestTaskResultStore extends BaseSchedulerDBTest {
+
+    private static final int THRESHOLD = 1024;
+
+    private File storeDir;
+
+    private CountingStore store;
+
+    @Before
+    public void initStore() throws Exception {
+        storeDir = File.createTempFile("scheduler_results", "");
+        storeDir.delete();
+        store = new CountingStore(new FileSystemTaskResultStore(storeDir));
+        dbManager.setResultStore(store, THRESHOLD);
+    }
+
+    @Test
+    public void testLargeValue() throws Exception {
+        InternalJob job = saveSingleTask(createDefaultTask("task"));
+        InternalTask task = (InternalTask) job.getTasks().get(0);
+
+        String value = createString(100000, 'v');
+        TaskResultImpl result = new TaskResultImpl(null, value, null, 0);
+        dbManager.updateAfterTaskFinished(job, task, result);
+        Assert.assertEquals(1, countStoredFiles(storeDir));
+
+        TaskResult restoredResult = dbManager.loadLastTaskResult(task.getId());
+        Assert.assertEquals(value, restoredResult.value());
+        restoredResult = dbManager.loadTaskResult(job.getId(), "task", 0);
+        Assert.assertEquals(value, restoredResult.value());
+
+        // read the serialized value by parts
+        ByteArrayOutputStream serializedValue = new ByteArrayOutputStream();
+        byte[] part;
+        do {
+            part = dbManager.readTaskResultValue(job.getId(), "task", serializedValue.size(), 4096);
+            serializedValue.write(part);
+        } while (part.length == 4096);
+        Assert.assertArrayEquals(result.getSerializedValue(), serializedValue.toByteArray());
+        part = dbManager.readTaskResultValue(job.getId(), "task", serializedValue.size(), 10);
+        Assert.assertEquals(0, part.length);
+    }
+
+    @Test
+    public void testSmallValue() throws Exception {
+        InternalJob job = saveSingleTask(createDefaultTask("task"));
+        InternalTask task = (InternalTask) job.getTasks().get(0);
+
+        Assert.assertNull(dbManager.readTaskResultValue(job.getId(), "task", 0, 10));
+
+        TaskResultImpl result = new TaskResultImpl(null, "small", null, 0);
+        dbManager.updateAfterTaskFinished(job, task, result);
+        Assert.assertEquals(0, countStoredFiles(storeDir));
+        Assert.assertEquals("small", dbManager.loadLastTaskResult(task.getId()).value());
+
+        byte[] serializedValue = result.getSerializedValue();
+        byte[] part = dbManager.readTaskResultValue(job.getId(), "task", 1, serializedValue.length);
+        Assert.assertEquals(serializedValue.length - 1, part.length);
+        Assert.assertEquals(serializedValue[1], part[0]);
+    }
+
+    @Test
+    public void testLargeExceptionAndLogs() throws Exception {
+        InternalJob job = saveSingleTask(createDefaultTask("task"));
+        InternalTask task = (InternalTask) job.getTasks().get(0);
+
+        LinkedList<LoggingEvent> events = new LinkedList<LoggingEvent>();
+        for (int i = 0; i < 1000; i++) {
+            events.add(new LoggingEvent("", Logger.getLogger(TestTaskResultStore.class), Level.INFO, "info" +
+                i, null));
+        }
+        String message = createString(10000, 'e');
+        TaskResultImpl result = new TaskResultImpl(null, new TestException(message, "data"),
+            new Log4JTaskLogs(events, "0"), 0);
+        dbManager.updateAfterTaskFinished(job, task, result);
+        Assert.assertEquals(2, countStoredFiles(storeDir));
+
+        TaskResult restoredResult = dbManager.loadLastTaskResult(task.getId());
+        Assert.assertEquals(message, restoredResult.getException().getMessage());
+        String logs = restoredResult.getOutput().getStdoutLogs(false);
+        Assert.assertTrue(logs.contains("info0"));
+        Assert.assertTrue(logs.contains("info999"));
+    }
+
+    @Test
+    public void testRemoveJob() throws Exception {
+        String value1 = createString(10000, '1');
+        String value2 = createString(10000, '2');
+
+        InternalJob job1 = saveSingleTask(createDefaultTask("task"));
+        dbManager.updateAfterTaskFinished(job1, job1.getTask("task"), new TaskResultImpl(null, value1, null,
+            0));
+        InternalJob job2 = saveSingleTask(createDefaultTask("task"));
+        dbManager.updateAfterTaskFinished(job2, job2.getTask("task"), new TaskResultImpl(null, value2, null,
+            0));
+        // same value as job2: stored once
+        InternalJob job3 = saveSingleTask(createDefaultTask("task"));
+        dbManager.updateAfterTaskFinished(job3, job3.getTask("task"), new TaskResultImpl(null, value2, null,
+            0));
+        Assert.assertEquals(2, countStoredFiles(storeDir));
+
+        dbManager.removeJob(job1.getId(), 0, true);
+        Assert.assertEquals(1, countStoredFiles(storeDir));
+
+        // value still referenced by job3
+        dbManager.removeJob(job2.getId(), 0, true);
+        Assert.assertEquals(1, countStoredFiles(storeDir));
+        Assert.assertEquals(value2, dbManager.loadTaskResult(job3.getId(), "task", 0).value());
+    }
+
+    @Test
+    public void testPartLengthBounded() throws Exception {
+        InternalJob job = saveSingleTask(createDefaultTask("task"));
+        String value = createString(SchedulerConstants.TASK_RESULT_VALUE_PART_MAX_LENGTH + 1000, 'v');
+        TaskResultImpl result = new TaskResultImpl(null, value, null, 0);
+        dbManager.updateAfterTaskFinished(job, job.getTask("task"), result);
+        int size = result.getSerializedValue().length;
+
+        // the part is bounded by the maximum length, then by the end of the value
+        byte[] part = dbManager.readTaskResultValue(job.getId(), "task", 0, Integer.MAX_VALUE);
+        Assert.assertEquals(SchedulerConstants.TASK_RESULT_VALUE_PART_MAX_LENGTH, part.length);
+        part = dbManager.readTaskResultValue(job.getId(), "task", part.length, Integer.MAX_VALUE);
+        Assert.assertEquals(size - SchedulerConstants.TASK_RESULT_VALUE_PART_MAX_LENGTH, part.length);
+        part = dbManager.readTaskResultValue(job.getId(), "task", size - 10, Integer.MAX_VALUE);
+        Assert.assertEquals(10, part.length);
+        Assert.assertEquals(result.getSerializedValue()[size - 1], part[9]);
+        part = dbManager.readTaskResultValue(job.getId(), "task", size + 10, Integer.MAX_VALUE);
+        Assert.assertEquals(0, part.length);
+        Assert.assertEquals(0, store.getOpenStreamsCount());
+
+        // same bounds for a value kept in the database
+        InternalJob smallJob = saveSingleTask(createDefaultTask("task"));
+        result = new TaskResultImpl(null, "small", null, 0);
+        dbManager.updateAfterTaskFinished(smallJob, smallJob.getTask("task"), result);
+        part = dbManager.readTaskResultValue(smallJob.getId(), "task", 0, Integer.MAX_VALUE);
+        Assert.assertEquals(result.getSerializedValue().length, part.length);
+    }
+
+    @Test
+    public void testSequentialReadersKeepTheirStream() throws Exception {
+        InternalJob job = saveSingleTask(createDefaultTask("task"));
+        TaskResultImpl result = new TaskResultImpl(null, createString(100000, 'v'), null, 0);
+        dbManager.updateAfterTaskFinished(job, job.getTask("task"), result);
+
+        // two readers of the same value, interleaved: each one continues its own stream
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        byte[] firstPart;
+        byte[] secondPart;
+        do {
+            firstPart = dbManager.readTaskResultValue(job.getId(), "task", first.size(), 4096);
+            first.write(firstPart);
+            secondPart = dbManager.readTaskResultValue(job.getId(), "task", second.size(), 1000);
+            second.write(secondPart);
+        } while (firstPart.length == 4096);
+        do {
+            secondPart = dbManager.readTaskResultValue(job.getId(), "task", second.size(), 1000);
+            second.write(secondPart);
+        } while (secondPart.length == 1000);
+
+        Assert.assertArrayEquals(result.getSerializedValue(), first.toByteArray());
+        Assert.assertArrayEquals(result.getSerializedValue(), second.toByteArray());
+        Assert.assertEquals(2, store.getOpenedStreamsCount());
+        // streams are closed at the end of the value
+        Assert.assertEquals(0, store.getOpenStreamsCount());
+    }
+
+    @Test
+    public void testOpenStreamsBounded() throws Exception {
+        InternalJob job = saveSingleTask(createDefaultTask("task"));
+        TaskResultImpl result = new TaskResultImpl(null, createString(100000, 'v'), null, 0);
+        dbManager.updateAfterTaskFinished(job, job.getTask("task"), result);
+
+        int readers = 20;
+        for (int i = 0; i < readers; i++) {
+            dbManager.readTaskResultValue(job.getId(), "task", i, 100);
+        }
+        Assert.assertEquals(readers, store.getOpenedStreamsCount());
+        Assert.assertTrue(store.getOpenStreamsCount() < readers);
+
+        // the least recently read stream has been closed, not the last one
+        dbManager.readTaskResultValue(job.getId(), "task", readers - 1 + 100, 100);
+        Assert.assertEquals(readers, store.getOpenedStreamsCount());
+        dbManager.readTaskResultValue(job.getId(), "task", 100, 100);
+        Assert.assertEquals(readers + 1, store.getOpenedStreamsCount());
+
+        dbManager.close();
+        Assert.assertEquals(0, store.getOpenStreamsCount());
+    }
+
+    @Test
+    public void testRemoveWhileStoringAgain() throws Exception {
+        final String value = createString(10000, 'v');
+
+        // the content is stored again for a task while the only job referencing it is removed
+        for (int i = 0; i < 10; i++) {
+            final InternalJob removedJob = saveSingleTask(createDefaultTask("task"));
+            dbManager.updateAfterTaskFinished(removedJob, removedJob.getTask("task"), new TaskResultImpl(null,
+                value, null, 0));
+            final InternalJob job = saveSingleTask(createDefaultTask("task"));
+
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+            Thread remove = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        dbManager.removeJob(removedJob.getId(), 0, true);
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+                }
+            };
+            Thread save = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        dbManager.updateAfterTaskFinished(job, job.getTask("task"), new TaskResultImpl(null,
+                            value, null, 0));
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+                }
+            };
+            remove.start();
+            save.start();
+            start.countDown();
+            remove.join(60000);
+            save.join(60000);
+            Assert.assertTrue(errors.toString(), errors.isEmpty());
+
+            Assert.assertEquals(1, countStoredFiles(storeDir));
+            Assert.assertEquals(value, dbManager.loadTaskResult(job.getId(), "task", 0).value());
+
+            // no more references
+            dbManager.removeJob(job.getId(), 0, true);
+            Assert.assertEquals(0, countStoredFiles(storeDir));
+        }
+    }
+
+    private static String createString(int length, char c) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    private static int countStoredFiles(File dir) {
+        int count = 0;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                count += file.isDirectory() ? countStoredFiles(file) : 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the streams opened on the contents of a store and the ones not closed yet.
+     */
+    private static class CountingStore implements TaskResultStore {
+
+        private final TaskResultStore store;
+
+        private final Set<InputStream> openStreams = Collections.synchronizedSet(new HashSet<InputStream>());
+
+        private int openedStreamsCount;
+
+        CountingStore(TaskResultStore store) {
+            this.store = store;
+        }
+
+        public String store(byte[] content) throws IOException {
+            return store.store(content);
+        }
+
+        public synchronized InputStream open(String key) throws IOException {
+            openedStreamsCount++;
+            InputStream stream = new FilterInputStream(store.open(key)) {
+                @Override
+                public void close() throws IOException {
+                    openStreams.remove(this);
+                    super.close();
+                }
+            };
+            openStreams.add(stream);
+            return stream;
+        }
+
+        public long size(String key) throws IOException {
+            return store.size(key);
+        }
+
+        public void remove(String key) throws IOException {
+            store.remove(key);
+        }
+
+        synchronized int getOpenedStreamsCount() {
+            return openedStreamsCount;
+        }
+
+        int getOpenStreamsCount() {
+            return openStreams.size();
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unitTests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.proactive.scheduler.common.util.logforwarder.AppenderProvider;
+import org.ow2.proactive.scheduler.common.util.logforwarder.LogForwardingException;
+import org.ow2.proactive.scheduler.common.util.logforwarder.appenders.AsyncAppenderWithStorage;
+
+
+/**
+ * Test the storage of the AsyncAppenderWithStorage.
+ * The storage keeps the last events up to its size, the overflow appender
+ * receives every event once the storage is full.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestAsyncAppenderWithStorage {
+
+    private static final Logger logger = Logger.getLogger(TestAsyncAppenderWithStorage.class);
+
+    @Test
+    public void testStorage() throws Throwable {
+        AsyncAppenderWithStorage appender = new AsyncAppenderWithStorage(50);
+        for (int i = 0; i < 30; i++) {
+            appender.doAppend(event(i));
+        }
+        assertMessages(appender.getStorage(), 0, 30);
+        Assert.assertEquals(0, appender.getNbDroppedEvents());
+
+        for (int i = 30; i < 120; i++) {
+            appender.doAppend(event(i));
+        }
+        assertMessages(appender.getStorage(), 70, 120);
+        Assert.assertEquals(70, appender.getNbDroppedEvents());
+
+        ListAppender replayed = new ListAppender();
+        appender.appendStoredEvents(replayed);
+        assertMessages(replayed.events, 70, 120);
+        appender.close();
+    }
+
+    @Test
+    public void testOverflowAppender() throws Throwable {
+        AsyncAppenderWithStorage appender = new AsyncAppenderWithStorage(10);
+        final ListAppender overflow = new ListAppender();
+        appender.setOverflowAppenderProvider(new AppenderProvider() {
+            public Appender getAppender() throws LogForwardingException {
+                return overflow;
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            appender.doAppend(event(i));
+        }
+        Assert.assertTrue(overflow.events.isEmpty());
+
+        for (int i = 10; i < 25; i++) {
+            appender.doAppend(event(i));
+        }
+        assertMessages(overflow.events, 0, 25);
+        assertMessages(appender.getStorage(), 15, 25);
+
+        appender.close();
+        Assert.assertTrue(overflow.isClosed);
+    }
+
+    private static LoggingEvent event(int i) {
+        return new LoggingEvent(TestAsyncAppenderWithStorage.class.getName(), logger, Level.INFO, "" + i,
+            null);
+    }
+
+    private static void assertMessages(List<LoggingEvent> events, int from, int to) {
+        Assert.assertEquals(to - from, events.size());
+        for (int i = from; i < to; i++) {
+            Assert.assertEquals("" + i, events.get(i - from).getMessage());
+        }
+    }
+
+    private static class ListAppender extends AppenderSkeleton {
+
+        private final List<LoggingEvent> events = new ArrayList<LoggingEvent>();
+        private boolean isClosed;
+
+        @Override
+        protected void append(LoggingEvent event) {
+            events.add(event);
+        }
+
+        public void close() {
+            isClosed = true;
+        }
+
+        public boolean requiresLayout() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unitTests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.ow2.proactive.scheduler.core.properties.PASchedulerProperties;
+import org.ow2.proactive.scheduler.util.classloading.TaskClassServer;
+import org.ow2.proactive.scheduler.util.classloading.TaskClassUtils;
+
+
+/**
+ * Test the sharing of the classpathes between task class servers, the eviction
+ * of the cached class definitions and the content of the class bundles.
+ * Cached classes are detected by deleting their class files: a cached class is still
+ * served, an evicted one is not found anymore.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestClasspathStore {
+
+    private static final int CLASS_SIZE = 1000;
+
+    private static File directory;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        directory = File.createTempFile("classpathstore", "");
+        directory.delete();
+        directory.mkdir();
+        PASchedulerProperties.SCHEDULER_CLASSSERVER_TMPDIR.updateProperty(directory.getAbsolutePath());
+        PASchedulerProperties.SCHEDULER_CLASSSERVER_USECACHE.updateProperty("true");
+        // room for two classes only
+        PASchedulerProperties.SCHEDULER_CLASSSERVER_CACHESIZE.updateProperty("" + (CLASS_SIZE * 5 / 2));
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        TaskClassUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testSharedClasspath() throws Exception {
+        byte[] content = createClasspath("shared", "A", "B");
+        long crc = crc(content);
+
+        TaskClassServer server1 = new TaskClassServer();
+        Assert.assertFalse(server1.activate(crc));
+        server1.activate(content, false);
+        TaskClassServer server2 = new TaskClassServer();
+        Assert.assertTrue(server2.activate(crc));
+        Assert.assertFalse(new TaskClassServer().activate(crc(createClasspath("other", "A"))));
+
+        Assert.assertTrue(Arrays.equals(server1.getClassBytes("shared.A"), server2.getClassBytes("shared.A")));
+        Assert.assertNull(server2.getClassBytes("shared.C"));
+        Assert.assertEquals(2, server1.getClassBundle("shared.B").size());
+
+        // the classpath is kept until its last class server is desactivated
+        server1.desactivate();
+        Assert.assertNotNull(server2.getClassBytes("shared.B"));
+        server2.desactivate();
+        Assert.assertFalse(new File(directory, "classpath_" + crc + ".jar").exists());
+        TaskClassServer server3 = new TaskClassServer();
+        Assert.assertFalse(server3.activate(crc));
+        try {
+            server2.getClassBytes("shared.A");
+            Assert.fail("A desactivated class server served a class");
+        } catch (ClassNotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        byte[] content = createClasspath("evicted", "A", "B", "C");
+        TaskClassServer server = new TaskClassServer();
+        server.activate(content, true);
+        try {
+            File classes = new File(new File(directory, "classpath_" + crc(content)), "evicted");
+
+            Assert.assertNotNull(server.getClassBytes("evicted.A"));
+            Assert.assertTrue(new File(classes, "A.class").delete());
+            Assert.assertNotNull("Class not cached", server.getClassBytes("evicted.A"));
+
+            // the least recently used class is evicted when the size limit is reached
+            Assert.assertNotNull(server.getClassBytes("evicted.B"));
+            Assert.assertNotNull(server.getClassBytes("evicted.C"));
+            Assert.assertNull("Class not evicted", server.getClassBytes("evicted.A"));
+            Assert.assertTrue(new File(classes, "B.class").delete());
+            Assert.assertTrue(new File(classes, "C.class").delete());
+            Assert.assertNotNull(server.getClassBytes("evicted.B"));
+            Assert.assertNotNull(server.getClassBytes("evicted.C"));
+        } finally {
+            server.desactivate();
+        }
+    }
+
+    @Test
+    public void testClassLargerThanCache() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JarOutputStream jar = new JarOutputStream(bytes);
+        jar.putNextEntry(new JarEntry("large/A.class"));
+        jar.write(new byte[CLASS_SIZE * 3]);
+        jar.close();
+        byte[] content = bytes.toByteArray();
+
+        TaskClassServer server = new TaskClassServer();
+        server.activate(content, true);
+        try {
+            Assert.assertEquals(CLASS_SIZE * 3, server.getClassBytes("large.A").length);
+            Assert.assertTrue(new File(directory, "classpath_" + crc(content) + "/large/A.class").delete());
+            Assert.assertNull(server.getClassBytes("large.A"));
+        } finally {
+            server.desactivate();
+        }
+    }
+
+    @Test
+    public void testPackageBundle() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JarOutputStream jar = new JarOutputStream(bytes);
+        addEntry(jar, "bundled/A.class", new byte[CLASS_SIZE]);
+        addEntry(jar, "bundled/sub/B.class", new byte[CLASS_SIZE]);
+        addEntry(jar, "classes/bundled/C.class", new byte[CLASS_SIZE]);
+        addEntry(jar, "Default.class", new byte[CLASS_SIZE]);
+        addEntry(jar, "lib/nested.jar", createClasspath("bundled", "D"));
+        jar.close();
+        byte[] content = bytes.toByteArray();
+
+        // classes in directories belong to the packages their path ends with
+        TaskClassServer server = new TaskClassServer();
+        server.activate(content, true);
+        try {
+            Set<String> bundle = server.getClassBundle("bundled.A").keySet();
+            Assert.assertEquals(new HashSet<String>(Arrays.asList("bundled.A", "bundled.C", "bundled.D")),
+                    bundle);
+            Assert.assertEquals(Collections.singleton("bundled.sub.B"), server.getClassBundle(
+                    "bundled.sub.B").keySet());
+            Assert.assertEquals(Collections.singleton("Default"), server.getClassBundle("Default").keySet());
+            Assert.assertTrue(server.getClassBundle("bundled.E").isEmpty());
+        } finally {
+            server.desactivate();
+        }
+
+        // classes in a jar file belong to their entry package
+        server = new TaskClassServer();
+        server.activate(content, false);
+        try {
+            Assert.assertEquals(Collections.singleton("bundled.A"), server.getClassBundle("bundled.A")
+                    .keySet());
+            Assert.assertEquals(Collections.singleton("Default"), server.getClassBundle("Default").keySet());
+        } finally {
+            server.desactivate();
+        }
+    }
+
+    /**
+     * Create a jar file containing fake class files of the given package.
+     */
+    private static byte[] createClasspath(String packageName, String... classNames) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JarOutputStream jar = new JarOutputStream(bytes);
+        for (String className : classNames) {
+            byte[] definition = new byte[CLASS_SIZE];
+            Arrays.fill(definition, (byte) className.charAt(0));
+            addEntry(jar, packageName + "/" + className + ".class", definition);
+        }
+        jar.close();
+        return bytes.toByteArray();
+    }
+
+    private static void addEntry(JarOutputStream jar, String name, byte[] content) throws Exception {
+        jar.putNextEntry(new JarEntry(name));
+        jar.write(content);
+        jar.closeEntry();
+    }
+
+    private static long crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+}
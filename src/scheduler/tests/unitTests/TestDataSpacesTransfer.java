@@ -0,0 +1,325 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unitTests;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Scanner;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.proactive.extensions.dataspaces.api.DataSpacesFileObject;
+import org.objectweb.proactive.extensions.dataspaces.api.FileContent;
+import org.objectweb.proactive.extensions.dataspaces.api.FileType;
+import org.objectweb.proactive.extensions.dataspaces.exceptions.FileSystemException;
+import org.ow2.proactive.scheduler.task.launcher.DataSpacesTransfer;
+import org.ow2.proactive.scheduler.task.launcher.InputFilesCache;
+
+
+/**
+ * Test that the threads of a DataSpacesTransfer do not share the file objects of the data spaces
+ * and that the input files cache is shared by the jobs.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestDataSpacesTransfer {
+
+    private static final int FILES = 20;
+
+    private File sourceDir;
+
+    private File destinationDir;
+
+    @Before
+    public void createDirectories() throws Exception {
+        sourceDir = createTempDir("source");
+        destinationDir = createTempDir("destination");
+        for (int i = 0; i < FILES; i++) {
+            write(new File(sourceDir, "dir" + (i % 3) + File.separator + "file" + i), "content" + i);
+        }
+    }
+
+    @After
+    public void deleteDirectories() {
+        System.clearProperty(DataSpacesTransfer.TRANSFER_THREADS_PROPERTY);
+        delete(sourceDir);
+        delete(destinationDir);
+    }
+
+    @Test
+    public void testEachThreadHasItsRoots() throws Exception {
+        System.setProperty(DataSpacesTransfer.TRANSFER_THREADS_PROPERTY, "4");
+        TestSpace source = new TestSpace(sourceDir);
+        TestSpace destination = new TestSpace(destinationDir);
+
+        DataSpacesTransfer transfer = new DataSpacesTransfer();
+        for (int i = 0; i < FILES; i++) {
+            transfer.add(source, destination, "dir" + (i % 3) + "/file" + i);
+        }
+        transfer.transfer();
+
+        checkCopied();
+        Assert.assertEquals(FILES, transfer.getFiles());
+        // roots are resolved by the thread starting the transfer, once for each copying thread
+        Assert.assertEquals(4, source.resolvers.size());
+        Assert.assertEquals(Collections.singleton(Thread.currentThread()), new HashSet<Thread>(
+            source.resolvers));
+        Assert.assertEquals(4, destination.resolvers.size());
+        checkNotShared(source);
+        checkNotShared(destination);
+    }
+
+    @Test
+    public void testSingleThread() throws Exception {
+        System.setProperty(DataSpacesTransfer.TRANSFER_THREADS_PROPERTY, "1");
+        TestSpace source = new TestSpace(sourceDir);
+        TestSpace destination = new TestSpace(destinationDir);
+
+        DataSpacesTransfer transfer = new DataSpacesTransfer();
+        for (int i = 0; i < FILES; i++) {
+            transfer.add(source, destination, "dir" + (i % 3) + "/file" + i);
+        }
+        transfer.transfer();
+
+        checkCopied();
+        Assert.assertEquals(1, source.resolvers.size());
+        Assert.assertEquals(1, destination.resolvers.size());
+        Assert.assertEquals(Collections.singleton(Thread.currentThread()), source.users.get(0));
+    }
+
+    @Test
+    public void testUnresolvedSpace() throws Exception {
+        System.setProperty(DataSpacesTransfer.TRANSFER_THREADS_PROPERTY, "4");
+        TestSpace destination = new TestSpace(destinationDir);
+        DataSpacesTransfer.Space unavailable = new DataSpacesTransfer.Space() {
+            public DataSpacesFileObject resolveRoot() throws FileSystemException {
+                throw new FileSystemException("unavailable");
+            }
+        };
+
+        DataSpacesTransfer transfer = new DataSpacesTransfer();
+        for (int i = 0; i < FILES; i++) {
+            transfer.add(unavailable, destination, "dir" + (i % 3) + "/file" + i);
+        }
+        try {
+            transfer.transfer();
+            Assert.fail("Files of a space which cannot be resolved are copied");
+        } catch (FileSystemException e) {
+            Assert.assertEquals(0, transfer.getFiles());
+        }
+    }
+
+    @Test
+    public void testCacheSharedByJobs() throws Exception {
+        System.setProperty(DataSpacesTransfer.TRANSFER_THREADS_PROPERTY, "4");
+        File cacheDir = createTempDir("cache");
+        try {
+            InputFilesCache cache = new InputFilesCache(cacheDir, 1024 * 1024);
+
+            // the same input space seen by two jobs, the virtual URIs contain the job application id
+            DataSpacesTransfer transfer = new DataSpacesTransfer(cache);
+            addFiles(transfer, new TestSpace(sourceDir, "vfs:///1001/input/default"), new TestSpace(
+                destinationDir));
+            transfer.transfer();
+            Assert.assertEquals(0, transfer.getCacheHits());
+            Assert.assertEquals(FILES, transfer.getCacheMisses());
+
+            delete(destinationDir);
+            transfer = new DataSpacesTransfer(cache);
+            addFiles(transfer, new TestSpace(sourceDir, "vfs:///1002/input/default"), new TestSpace(
+                destinationDir));
+            transfer.transfer();
+            checkCopied();
+            Assert.assertEquals(FILES, transfer.getCacheHits());
+            Assert.assertEquals(0, transfer.getCacheMisses());
+
+            // a modified file is copied again
+            write(new File(sourceDir, "dir0" + File.separator + "file0"), "modified content");
+            delete(destinationDir);
+            transfer = new DataSpacesTransfer(cache);
+            addFiles(transfer, new TestSpace(sourceDir, "vfs:///1003/input/default"), new TestSpace(
+                destinationDir));
+            transfer.transfer();
+            Assert.assertEquals(FILES - 1, transfer.getCacheHits());
+            Assert.assertEquals(1, transfer.getCacheMisses());
+        } finally {
+            delete(cacheDir);
+        }
+    }
+
+    private static void addFiles(DataSpacesTransfer transfer, TestSpace source, TestSpace destination) {
+        for (int i = 0; i < FILES; i++) {
+            transfer.add(source, destination, "dir" + (i % 3) + "/file" + i);
+        }
+    }
+
+    private void checkCopied() throws IOException {
+        for (int i = 0; i < FILES; i++) {
+            File copy = new File(destinationDir, "dir" + (i % 3) + File.separator + "file" + i);
+            Assert.assertTrue(copy + " not copied", copy.isFile());
+            Scanner scanner = new Scanner(copy);
+            try {
+                Assert.assertEquals("content" + i, scanner.nextLine());
+            } finally {
+                scanner.close();
+            }
+        }
+    }
+
+    private static void checkNotShared(TestSpace space) {
+        for (Set<Thread> users : space.users) {
+            Assert.assertTrue("Root used by " + users, users.size() <= 1);
+        }
+    }
+
+    /**
+     * A space on the local file system, recording the threads resolving its roots
+     * and the threads using the files of each root.
+     */
+    private static final class TestSpace implements DataSpacesTransfer.Space {
+
+        private final File dir;
+
+        private final String virtualURI;
+
+        private final List<Thread> resolvers = Collections.synchronizedList(new ArrayList<Thread>());
+
+        private final List<Set<Thread>> users = Collections.synchronizedList(new ArrayList<Set<Thread>>());
+
+        private TestSpace(File dir) {
+            this(dir, dir.toURI().toString());
+        }
+
+        private TestSpace(File dir, String virtualURI) {
+            this.dir = dir;
+            this.virtualURI = virtualURI;
+        }
+
+        public DataSpacesFileObject resolveRoot() {
+            resolvers.add(Thread.currentThread());
+            Set<Thread> rootUsers = Collections.synchronizedSet(new HashSet<Thread>());
+            users.add(rootUsers);
+            return fileObject(dir, virtualURI, rootUsers);
+        }
+    }
+
+    private static DataSpacesFileObject fileObject(final File file, final String virtualURI,
+            final Set<Thread> users) {
+        return (DataSpacesFileObject) Proxy.newProxyInstance(DataSpacesFileObject.class.getClassLoader(),
+                new Class<?>[] { DataSpacesFileObject.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String methodName = method.getName();
+                        if (methodName.equals("toString")) {
+                            return file.toString();
+                        } else if (methodName.equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        } else if (methodName.equals("equals")) {
+                            return proxy == args[0];
+                        }
+                        users.add(Thread.currentThread());
+                        if (methodName.equals("resolveFile")) {
+                            String path = (String) args[0];
+                            return fileObject(new File(file, path), virtualURI + "/" + path, users);
+                        } else if (methodName.equals("getRealURI")) {
+                            return file.toURI().toString();
+                        } else if (methodName.equals("getVirtualURI")) {
+                            return virtualURI;
+                        } else if (methodName.equals("getType")) {
+                            return file.isDirectory() ? FileType.FOLDER : FileType.FILE;
+                        } else if (methodName.equals("getContent")) {
+                            return content(file);
+                        }
+                        throw new UnsupportedOperationException(methodName);
+                    }
+                });
+    }
+
+    private static FileContent content(final File file) {
+        return (FileContent) Proxy.newProxyInstance(FileContent.class.getClassLoader(),
+                new Class<?>[] { FileContent.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String methodName = method.getName();
+                        if (methodName.equals("getSize")) {
+                            return file.length();
+                        } else if (methodName.equals("getLastModifiedTime")) {
+                            return file.lastModified();
+                        }
+                        throw new UnsupportedOperationException(methodName);
+                    }
+                });
+    }
+
+    private static File createTempDir(String prefix) throws IOException {
+        File dir = File.createTempFile(prefix, "");
+        dir.delete();
+        dir.mkdirs();
+        return dir;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+}
@@ -0,0 +1,188 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unitTests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Vector;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ow2.proactive.scheduler.common.job.JobPriority;
+import org.ow2.proactive.scheduler.common.job.TaskFlowJob;
+import org.ow2.proactive.scheduler.common.task.JavaTask;
+import org.ow2.proactive.scheduler.common.task.TaskId;
+import org.ow2.proactive.scheduler.descriptor.EligibleTaskDescriptor;
+import org.ow2.proactive.scheduler.descriptor.EligibleTaskIndex;
+import org.ow2.proactive.scheduler.descriptor.JobDescriptor;
+import org.ow2.proactive.scheduler.job.InternalJob;
+import org.ow2.proactive.scheduler.job.InternalJobFactory;
+import org.ow2.proactive.scheduler.job.JobIdImpl;
+import org.ow2.proactive.scheduler.policy.DefaultPolicy;
+
+
+/**
+ * Test the order of the eligible tasks given by the EligibleTaskIndex and its incremental updates.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestEligibleTaskIndex {
+
+    private EligibleTaskIndex index;
+
+    private InternalJob normalPending;
+
+    private InternalJob highPending;
+
+    private InternalJob normalRunning;
+
+    @Before
+    public void createJobs() throws Exception {
+        index = new EligibleTaskIndex();
+        normalPending = createJob(1, JobPriority.NORMAL, 2);
+        highPending = createJob(2, JobPriority.HIGH, 1);
+        normalRunning = createJob(3, JobPriority.NORMAL, 2);
+        normalRunning.start();
+        index.add(normalPending.getJobDescriptor(), false);
+        index.add(highPending.getJobDescriptor(), false);
+        index.add(normalRunning.getJobDescriptor(), true);
+    }
+
+    @Test
+    public void testOrder() throws Exception {
+        Assert.assertEquals(3, index.size());
+        assertJobs(index.iterator(), highPending, normalRunning, normalRunning, normalPending, normalPending);
+        Assert.assertEquals(highPending.getId(), index.getJobDescriptors().get(0).getJobId());
+        Assert.assertEquals(normalRunning.getId(), index.getJobDescriptors().get(1).getJobId());
+        Assert.assertEquals(normalPending.getId(), index.getJobDescriptors().get(2).getJobId());
+    }
+
+    @Test
+    public void testPendingJobsHidden() throws Exception {
+        index.setPendingJobsIncluded(false);
+        assertJobs(index.iterator(), normalRunning, normalRunning);
+        Assert.assertEquals(1, index.getJobDescriptors().size());
+        Assert.assertEquals(3, index.size());
+
+        index.setPendingJobsIncluded(true);
+        assertJobs(index.iterator(), highPending, normalRunning, normalRunning, normalPending, normalPending);
+    }
+
+    @Test
+    public void testUpdates() throws Exception {
+        normalPending.setPriority(JobPriority.HIGHEST);
+        index.priorityChanged(normalPending.getId());
+        assertJobs(index.iterator(), normalPending, normalPending, highPending, normalRunning, normalRunning);
+
+        index.jobStarted(highPending.getId());
+        normalPending.setPriority(JobPriority.HIGH);
+        index.priorityChanged(normalPending.getId());
+        // running jobs come first among the jobs of the same priority
+        assertJobs(index.iterator(), highPending, normalPending, normalPending, normalRunning, normalRunning);
+
+        Assert.assertTrue(index.remove(highPending.getId()));
+        Assert.assertFalse(index.remove(highPending.getId()));
+        assertJobs(index.iterator(), normalPending, normalPending, normalRunning, normalRunning);
+
+        index.clear();
+        Assert.assertEquals(0, index.size());
+        Assert.assertFalse(index.iterator().hasNext());
+    }
+
+    @Test
+    public void testEligibleTasksLiveView() throws Exception {
+        TaskId started = normalRunning.getJobDescriptor().getEligibleTasksView().iterator().next()
+                .getTaskId();
+        normalRunning.getJobDescriptor().start(started);
+        // no index update is needed when a task starts
+        List<TaskId> ids = new ArrayList<TaskId>();
+        for (EligibleTaskDescriptor task : index) {
+            ids.add(task.getTaskId());
+        }
+        Assert.assertEquals(4, ids.size());
+        Assert.assertFalse(ids.contains(started));
+    }
+
+    @Test
+    public void testDefaultPolicy() throws Exception {
+        assertJobs(new DefaultPolicy().getOrderedTasksIterator(index), highPending, normalRunning,
+                normalRunning, normalPending, normalPending);
+
+        // a subclass overriding getOrderedTasks is still called
+        DefaultPolicy reversed = new DefaultPolicy() {
+            @Override
+            public Vector<EligibleTaskDescriptor> getOrderedTasks(List<JobDescriptor> jobs) {
+                Vector<EligibleTaskDescriptor> tasks = super.getOrderedTasks(jobs);
+                Collections.reverse(tasks);
+                return tasks;
+            }
+        };
+        assertJobs(reversed.getOrderedTasksIterator(index), normalPending, normalPending, normalRunning,
+                normalRunning, highPending);
+    }
+
+    private static void assertJobs(Iterator<EligibleTaskDescriptor> tasks, InternalJob... expected) {
+        for (InternalJob job : expected) {
+            Assert.assertTrue(tasks.hasNext());
+            Assert.assertEquals(job.getId(), tasks.next().getTaskId().getJobId());
+        }
+        Assert.assertFalse(tasks.hasNext());
+    }
+
+    private static InternalJob createJob(long id, JobPriority priority, int tasksNumber) throws Exception {
+        TaskFlowJob jobDef = new TaskFlowJob();
+        jobDef.setName("TestEligibleTaskIndex" + id);
+        jobDef.setPriority(priority);
+        for (int i = 0; i < tasksNumber; i++) {
+            JavaTask task = new JavaTask();
+            task.setName("task" + i);
+            task.setExecutableClassName("MyExecutable");
+            jobDef.addTask(task);
+        }
+        InternalJob job = InternalJobFactory.createJob(jobDef, null);
+        job.setId(new JobIdImpl(id, jobDef.getName()));
+        job.setOwner("TestEligibleTaskIndex");
+        job.submitAction();
+        job.prepareTasks();
+        return job;
+    }
+
+}
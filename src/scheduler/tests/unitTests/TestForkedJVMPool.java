@@ -0,0 +1,234 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unitTests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.proactive.scheduler.task.ForkedJVMPool;
+import org.ow2.proactive.scheduler.task.ForkedJVMPool.PooledJVM;
+
+
+/**
+ * Test the reuse, the recycling and the output of the JVMs of the ForkedJVMPool.
+ * Processes are fake processes, no JVM is started.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestForkedJVMPool {
+
+    @Test
+    public void testReuseSameKey() throws Throwable {
+        ForkedJVMPool pool = new ForkedJVMPool(2, 10, 60000);
+        try {
+            Assert.assertNull(pool.acquire("job1"));
+
+            FakeProcess process = new FakeProcess();
+            pool.release(new PooledJVM("job1", process));
+            Assert.assertEquals(1, pool.getIdleCount());
+
+            Assert.assertNull(pool.acquire("job2"));
+            PooledJVM jvm = pool.acquire("job1");
+            Assert.assertNotNull(jvm);
+            Assert.assertSame(process, jvm.getProcess());
+            Assert.assertEquals(1, jvm.getTasks());
+            Assert.assertEquals(0, pool.getIdleCount());
+            Assert.assertNull(pool.acquire("job1"));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testMaxTasks() throws Throwable {
+        ForkedJVMPool pool = new ForkedJVMPool(2, 3, 60000);
+        try {
+            FakeProcess process = new FakeProcess();
+            PooledJVM jvm = new PooledJVM("job1", process);
+            for (int i = 0; i < 2; i++) {
+                pool.release(jvm);
+                Assert.assertSame(jvm, pool.acquire("job1"));
+            }
+            // third task: the JVM is recycled
+            pool.release(jvm);
+            Assert.assertTrue(process.destroyed);
+            Assert.assertNull(pool.acquire("job1"));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testPoolSize() throws Throwable {
+        ForkedJVMPool pool = new ForkedJVMPool(2, 10, 60000);
+        try {
+            FakeProcess process1 = new FakeProcess();
+            FakeProcess process2 = new FakeProcess();
+            FakeProcess process3 = new FakeProcess();
+            pool.release(new PooledJVM("job1", process1));
+            pool.release(new PooledJVM("job2", process2));
+            pool.release(new PooledJVM("job3", process3));
+
+            // the least recently released JVM is destroyed
+            Assert.assertEquals(2, pool.getIdleCount());
+            Assert.assertTrue(process1.destroyed);
+            Assert.assertFalse(process2.destroyed);
+            Assert.assertFalse(process3.destroyed);
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testDeadAndIdleJVMs() throws Throwable {
+        ForkedJVMPool pool = new ForkedJVMPool(2, 10, 60000);
+        try {
+            FakeProcess process1 = new FakeProcess();
+            FakeProcess process2 = new FakeProcess();
+            pool.release(new PooledJVM("job1", process1));
+            pool.release(new PooledJVM("job2", process2));
+
+            // an exited process is never reused
+            process1.exitValue = 1;
+            Assert.assertNull(pool.acquire("job1"));
+            Assert.assertEquals(1, pool.getIdleCount());
+
+            pool.evictIdle(System.currentTimeMillis() + 30000);
+            Assert.assertEquals(1, pool.getIdleCount());
+            pool.evictIdle(System.currentTimeMillis() + 60000);
+            Assert.assertEquals(0, pool.getIdleCount());
+            Assert.assertTrue(process2.destroyed);
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testClose() throws Throwable {
+        ForkedJVMPool pool = new ForkedJVMPool(2, 10, 60000);
+        FakeProcess process = new FakeProcess();
+        pool.release(new PooledJVM("job1", process));
+        pool.close();
+        Assert.assertTrue(process.destroyed);
+        Assert.assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    public void testOutputEnd() throws Throwable {
+        FakeProcess process = new FakeProcess();
+        PipedOutputStream stdout = new PipedOutputStream();
+        PipedOutputStream stderr = new PipedOutputStream();
+        process.stdout = new PipedInputStream(stdout);
+        process.stderr = new PipedInputStream(stderr);
+        PooledJVM jvm = new PooledJVM("job1", process);
+        ByteArrayOutputStream taskOut = new ByteArrayOutputStream();
+        ByteArrayOutputStream taskErr = new ByteArrayOutputStream();
+        jvm.redirectOutput(new PrintStream(taskOut, true), new PrintStream(taskErr, true));
+
+        jvm.expectOutputEnd("end1");
+        stdout.write("out\nend1\nafter\n".getBytes());
+        stdout.flush();
+        // the marker has not been read from the standard error yet
+        Assert.assertFalse(jvm.waitOutputEnd(200));
+        stderr.write("err\nend1\n".getBytes());
+        stderr.flush();
+        Assert.assertTrue(jvm.waitOutputEnd(5000));
+
+        // the output of the task is piped until the marker, which is not piped itself
+        Assert.assertEquals("out" + System.getProperty("line.separator"), taskOut.toString());
+        Assert.assertEquals("err" + System.getProperty("line.separator"), taskErr.toString());
+        process.destroy();
+        stdout.close();
+        stderr.close();
+    }
+
+    static class FakeProcess extends Process {
+
+        volatile boolean destroyed;
+
+        volatile Integer exitValue;
+
+        InputStream stdout = new ByteArrayInputStream(new byte[0]);
+
+        InputStream stderr = new ByteArrayInputStream(new byte[0]);
+
+        @Override
+        public OutputStream getOutputStream() {
+            return new ByteArrayOutputStream();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return stdout;
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return stderr;
+        }
+
+        @Override
+        public int waitFor() {
+            return exitValue();
+        }
+
+        @Override
+        public int exitValue() {
+            if (exitValue == null) {
+                throw new IllegalThreadStateException();
+            }
+            return exitValue;
+        }
+
+        @Override
+        public void destroy() {
+            destroyed = true;
+            if (exitValue == null) {
+                exitValue = 143;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unitTests;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ow2.proactive.scheduler.task.launcher.InputFilesCache;
+
+
+/**
+ * Test that the input files caches of several JVMs sharing a directory only remove their own files.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestInputFilesCache {
+
+    private File dir;
+
+    @Before
+    public void createDirectory() throws Exception {
+        dir = File.createTempFile("cache", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @After
+    public void deleteDirectory() {
+        delete(dir);
+    }
+
+    @Test
+    public void testCachesSharingDirectory() throws Exception {
+        File other = new File(dir, "other");
+        write(other, "not a cached file");
+
+        InputFilesCache first = new InputFilesCache(dir, 1024 * 1024);
+        String key = InputFilesCache.getKey("file:/input/file", 4, 0);
+        first.put(key, write(File.createTempFile("input", "", dir), "data"));
+        Assert.assertNotNull(first.get(key));
+
+        // a second cache, as created by another node JVM, does not remove the files of the first one
+        InputFilesCache second = new InputFilesCache(dir, 1024 * 1024);
+        Assert.assertFalse(first.getDirectory().equals(second.getDirectory()));
+        Assert.assertTrue(first.get(key).isFile());
+        Assert.assertNull(second.get(key));
+        Assert.assertTrue(other.isFile());
+    }
+
+    @Test
+    public void testAbandonedDirectoryRemoved() throws Exception {
+        // left by a JVM which does not run anymore: its lock file is not locked
+        File abandoned = new File(dir, "cache1234");
+        write(new File(abandoned, "0123456789abcdef"), "data");
+        File lockFile = write(new File(dir, "cache1234.lock"), "");
+        File other = write(new File(dir, "other"), "not a cached file");
+
+        InputFilesCache cache = new InputFilesCache(dir, 1024 * 1024);
+        Assert.assertFalse(abandoned.exists());
+        Assert.assertFalse(lockFile.exists());
+        Assert.assertTrue(other.isFile());
+        Assert.assertTrue(cache.getDirectory().isDirectory());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        InputFilesCache cache = new InputFilesCache(dir, 10);
+        String first = InputFilesCache.getKey("file:/input/first", 6, 0);
+        String second = InputFilesCache.getKey("file:/input/second", 6, 0);
+        cache.put(first, write(new File(dir, "first"), "123456"));
+        cache.put(second, write(new File(dir, "second"), "123456"));
+
+        Assert.assertNull(cache.get(first));
+        Assert.assertNotNull(cache.get(second));
+        Assert.assertEquals(6, cache.getSize());
+        Assert.assertEquals(1, cache.getDirectory().list().length);
+    }
+
+    private static File write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unitTests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.proactive.jmx.LogHistogram;
+
+
+/**
+ * Test the buckets, the percentiles and the aggregation of the LogHistogram.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestLogHistogram {
+
+    @Test
+    public void testEmpty() {
+        LogHistogram histogram = new LogHistogram();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMean());
+        Assert.assertEquals(0, histogram.getMax());
+        Assert.assertEquals(0, histogram.getPercentile(50));
+        Assert.assertEquals(0, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testZeroAndNegative() {
+        LogHistogram histogram = new LogHistogram();
+        histogram.record(0);
+        histogram.record(-5);
+        Assert.assertEquals(2, histogram.getCount());
+        Assert.assertEquals(0, histogram.getMean());
+        Assert.assertEquals(0, histogram.getMax());
+        Assert.assertEquals(0, histogram.getPercentile(0));
+        Assert.assertEquals(0, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        for (long value = 0; value < 2 * LogHistogram.SUB_BUCKETS; value++) {
+            Assert.assertEquals(value, single(value).getPercentile(100));
+        }
+    }
+
+    @Test
+    public void testBucketBoundaries() {
+        // 16 and 17 share a bucket, its upper bound is 17
+        LogHistogram histogram = new LogHistogram();
+        histogram.record(16);
+        histogram.record(100);
+        Assert.assertEquals(17, histogram.getPercentile(50));
+
+        // 15 is the last value of its bucket, 16 the first value of the next one
+        histogram = new LogHistogram();
+        histogram.record(15);
+        histogram.record(16);
+        histogram.record(100);
+        Assert.assertEquals(15, histogram.getPercentile(33));
+        Assert.assertEquals(17, histogram.getPercentile(66));
+
+        // the upper bound of a bucket is never bigger than the highest value
+        Assert.assertEquals(16, single(16).getPercentile(100));
+    }
+
+    @Test
+    public void testRelativeError() {
+        for (int exponent = 3; exponent <= LogHistogram.MAX_EXPONENT; exponent++) {
+            long[] values = { 1L << exponent, (1L << exponent) + 1, (1L << (exponent + 1)) - 1 };
+            for (long value : values) {
+                LogHistogram histogram = new LogHistogram();
+                histogram.record(value);
+                histogram.record(Long.MAX_VALUE);
+                long percentile = histogram.getPercentile(50);
+                Assert.assertTrue(value + " -> " + percentile, percentile >= value);
+                Assert.assertTrue(value + " -> " + percentile, percentile - value <= value /
+                    LogHistogram.SUB_BUCKETS);
+            }
+        }
+    }
+
+    @Test
+    public void testHugeValues() {
+        long highest = 1L << LogHistogram.MAX_EXPONENT;
+        LogHistogram histogram = new LogHistogram();
+        histogram.record(highest);
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(highest + (highest / LogHistogram.SUB_BUCKETS) - 1, histogram
+                .getPercentile(50));
+        // values beyond the highest power of 2 share an unbounded bucket
+        Assert.assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+        Assert.assertEquals(Long.MAX_VALUE, histogram.getMax());
+
+        histogram = new LogHistogram();
+        histogram.record(highest * 2);
+        histogram.record(highest * 4);
+        Assert.assertEquals(highest * 4, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LogHistogram histogram = new LogHistogram();
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(50, histogram.getMean());
+        Assert.assertEquals(100, histogram.getMax());
+        Assert.assertEquals(1, histogram.getPercentile(0));
+        Assert.assertEquals(1, histogram.getPercentile(1));
+        // 50 is in the bucket [48, 51]
+        Assert.assertEquals(51, histogram.getPercentile(50));
+        // 90 is in the bucket [88, 95]
+        Assert.assertEquals(95, histogram.getPercentile(90));
+        Assert.assertEquals(100, histogram.getPercentile(100));
+        // out of range percentiles are clamped
+        Assert.assertEquals(1, histogram.getPercentile(-10));
+        Assert.assertEquals(100, histogram.getPercentile(150));
+    }
+
+    @Test
+    public void testAdd() {
+        LogHistogram first = new LogHistogram();
+        LogHistogram second = new LogHistogram();
+        for (long value = 1; value <= 50; value++) {
+            first.record(value);
+            second.record(value + 50);
+        }
+        first.add(second);
+        Assert.assertEquals(100, first.getCount());
+        Assert.assertEquals(50, first.getMean());
+        Assert.assertEquals(100, first.getMax());
+        Assert.assertEquals(51, first.getPercentile(50));
+        Assert.assertEquals(50, second.getCount());
+        Assert.assertEquals(75, second.getMean());
+    }
+
+    private static LogHistogram single(long value) {
+        LogHistogram histogram = new LogHistogram();
+        histogram.record(value);
+        return histogram;
+    }
+}
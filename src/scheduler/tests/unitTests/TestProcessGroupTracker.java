@@ -0,0 +1,118 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unitTests;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.ow2.proactive.scheduler.util.process.ProcessGroupTracker;
+import org.ow2.proactive.scheduler.util.process.ProcessGroupTracker.TrackedGroup;
+
+
+/**
+ * Test the tracking of a process started through setsid by the ProcessGroupTracker,
+ * and the check of the programs of the wrapped commands. Only run on Linux.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestProcessGroupTracker {
+
+    @Test
+    public void testSetsidProcessTracked() throws Exception {
+        Assume.assumeTrue("Linux".equals(System.getProperty("os.name")));
+        System.setProperty(ProcessGroupTracker.TRACKING_PROPERTY, "true");
+        ProcessGroupTracker tracker = ProcessGroupTracker.getInstance();
+        Assume.assumeNotNull(tracker);
+
+        Process process = Runtime.getRuntime().exec(tracker.wrapCommand(new String[] { "sleep", "60" }));
+        try {
+            // tracked as soon as started, setsid may not have run yet
+            TrackedGroup group = tracker.track(process);
+            Assert.assertNotNull(group);
+            int pgid = group.getProcessGroup();
+            Assert.assertTrue(pgid > 1);
+
+            // the whole group is killed
+            group.kill(null);
+            group.stop();
+            process.waitFor();
+            Assert.assertFalse(new File("/proc/" + pgid + "/stat").isFile());
+        } finally {
+            process.destroy();
+        }
+    }
+
+    @Test
+    public void testCheckExecutable() throws Exception {
+        Assume.assumeTrue("Linux".equals(System.getProperty("os.name")));
+        File dir = File.createTempFile("checkExecutable", "");
+        dir.delete();
+        dir.mkdir();
+        File script = new File(dir, "script");
+        try {
+            ProcessGroupTracker.checkExecutable("sh", null, "/nonexistent:/bin:/usr/bin");
+            ProcessGroupTracker.checkExecutable("sh", null, null);
+            assertNotExecutable("no-such-program", null, "/bin:/usr/bin");
+
+            script.createNewFile();
+            assertNotExecutable("./script", dir, null);
+            assertNotExecutable("script", null, dir.getAbsolutePath());
+            script.setExecutable(true);
+            ProcessGroupTracker.checkExecutable("./script", dir, null);
+            ProcessGroupTracker.checkExecutable(script.getAbsolutePath(), null, null);
+            ProcessGroupTracker.checkExecutable("script", dir, "/nonexistent:");
+            assertNotExecutable("./script", null, null);
+        } finally {
+            script.delete();
+            dir.delete();
+        }
+    }
+
+    private static void assertNotExecutable(String program, File directory, String path) {
+        try {
+            ProcessGroupTracker.checkExecutable(program, directory, path);
+            Assert.fail(program + " should not be executable");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+}
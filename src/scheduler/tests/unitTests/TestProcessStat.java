@@ -0,0 +1,85 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unitTests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.proactive.scheduler.util.process.ProcessGroupTracker.ProcStat;
+
+
+/**
+ * Test the parsing of the /proc stat files used to track the task processes by process group.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestProcessStat {
+
+    private static final String STAT_FIELDS = "S 4242 4321 4321 0 -1 4202496 1529 6541 0 0 "
+        + "150 25 300 42 20 0 1 0 987654 12345678 321 18446744073709551615 1 1 0 0 0 0 0 0 0 0 0 0 "
+        + "17 2 0 0 0 0 0";
+
+    @Test
+    public void testParse() {
+        ProcStat stat = ProcStat.parse(4321, "4321 (sleep) " + STAT_FIELDS);
+        Assert.assertNotNull(stat);
+        Assert.assertEquals(4321, stat.getPid());
+        Assert.assertEquals(4242, stat.getParentPid());
+        Assert.assertEquals(4321, stat.getProcessGroup());
+        Assert.assertEquals(175, stat.getCpuTime());
+        Assert.assertEquals(342, stat.getChildrenCpuTime());
+        Assert.assertEquals(987654, stat.getStartTime());
+    }
+
+    @Test
+    public void testParseCommandWithSpacesAndParentheses() {
+        ProcStat stat = ProcStat.parse(4321, "4321 (my (task) 1) " + STAT_FIELDS);
+        Assert.assertNotNull(stat);
+        Assert.assertEquals(4242, stat.getParentPid());
+        Assert.assertEquals(4321, stat.getProcessGroup());
+        Assert.assertEquals(987654, stat.getStartTime());
+    }
+
+    @Test
+    public void testParseInvalid() {
+        Assert.assertNull(ProcStat.parse(1, null));
+        Assert.assertNull(ProcStat.parse(1, "1 (init)"));
+        Assert.assertNull(ProcStat.parse(1, "1 (init) S 0 1 1"));
+        Assert.assertNull(ProcStat.parse(1, "1 (init) " + STAT_FIELDS.replace("4242", "ppid")));
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unitTests;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.proactive.jmx.LogHistogram;
+import org.ow2.proactive.scheduler.core.SchedulingLoopProfiler;
+import org.ow2.proactive.scheduler.core.SchedulingLoopProfiler.Phase;
+
+
+/**
+ * Test the cycles, the phases and the rolling windows of the SchedulingLoopProfiler.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestSchedulingLoopProfiler {
+
+    private static final long MILLI = 1000000;
+
+    @Test
+    public void testInactiveCycleNotRecorded() {
+        SchedulingLoopProfiler profiler = new SchedulingLoopProfiler(60000);
+        profiler.cycleStarted();
+        profiler.phaseEnded(Phase.SERVE_REQUESTS, System.nanoTime() - 5 * MILLI);
+        profiler.cycleEnded();
+
+        Assert.assertEquals(0, profiler.getCyclesCount());
+        for (Phase phase : Phase.values()) {
+            Assert.assertEquals(0, profiler.getHistogram(phase).getCount());
+            Assert.assertEquals(0, profiler.getTotalTime(phase));
+        }
+    }
+
+    @Test
+    public void testPhasesSummedPerCycle() {
+        SchedulingLoopProfiler profiler = new SchedulingLoopProfiler(60000);
+        profiler.cycleStarted();
+        profiler.phaseEnded(Phase.GET_NODES, System.nanoTime() - 5 * MILLI);
+        profiler.phaseEnded(Phase.GET_NODES, System.nanoTime() - 5 * MILLI);
+        profiler.cycleActive(3);
+        profiler.cycleActive(2);
+        profiler.cycleEnded();
+
+        Assert.assertEquals(1, profiler.getCyclesCount());
+        Assert.assertEquals(5, profiler.getStartedTasksCount());
+
+        // both measures of the phase are summed in a single value
+        LogHistogram histogram = profiler.getHistogram(Phase.GET_NODES);
+        Assert.assertEquals(1, histogram.getCount());
+        Assert.assertTrue(histogram.getMax() >= 10000);
+        Assert.assertTrue(profiler.getTotalTime(Phase.GET_NODES) >= 10000);
+
+        // the whole cycle is always recorded, phases which were not measured are not
+        Assert.assertEquals(1, profiler.getHistogram(Phase.CYCLE).getCount());
+        Assert.assertEquals(0, profiler.getHistogram(Phase.POLICY).getCount());
+        Assert.assertEquals(0, profiler.getTotalTime(Phase.POLICY));
+    }
+
+    @Test
+    public void testCycleTimesReset() {
+        SchedulingLoopProfiler profiler = new SchedulingLoopProfiler(60000);
+        profiler.cycleStarted();
+        profiler.phaseEnded(Phase.POLICY, System.nanoTime() - 50 * MILLI);
+        profiler.cycleActive(1);
+        profiler.cycleEnded();
+
+        // the time of the previous cycle is not carried over
+        profiler.cycleStarted();
+        profiler.phaseEnded(Phase.POLICY, System.nanoTime());
+        profiler.cycleActive(0);
+        profiler.cycleEnded();
+
+        LogHistogram histogram = profiler.getHistogram(Phase.POLICY);
+        Assert.assertEquals(2, histogram.getCount());
+        Assert.assertTrue(histogram.getPercentile(50) < 50000);
+        Assert.assertTrue(histogram.getPercentile(100) >= 50000);
+        Assert.assertEquals(1, profiler.getStartedTasksCount());
+    }
+
+    @Test
+    public void testRollingWindows() throws Exception {
+        long window = 200;
+        SchedulingLoopProfiler profiler = new SchedulingLoopProfiler(window);
+        activeCycle(profiler);
+        Assert.assertEquals(1, profiler.getHistogram(Phase.CYCLE).getCount());
+
+        // the previous window is still reported
+        Thread.sleep(window + window / 2);
+        activeCycle(profiler);
+        Assert.assertEquals(2, profiler.getHistogram(Phase.CYCLE).getCount());
+
+        // both windows are discarded once a whole window went by without cycles
+        Thread.sleep(2 * window + window / 2);
+        activeCycle(profiler);
+        Assert.assertEquals(1, profiler.getHistogram(Phase.CYCLE).getCount());
+
+        // the statistics since the creation of the profiler are kept
+        Assert.assertEquals(3, profiler.getCyclesCount());
+        Assert.assertEquals(3, profiler.getStartedTasksCount());
+    }
+
+    @Test
+    public void testDump() {
+        SchedulingLoopProfiler profiler = new SchedulingLoopProfiler(60000);
+        Assert.assertTrue(profiler.dump().contains("0 cycles"));
+
+        activeCycle(profiler);
+        String dump = profiler.dump();
+        Assert.assertTrue(dump, dump.contains("1 cycles, 1 started tasks"));
+        for (Phase phase : Phase.values()) {
+            Assert.assertTrue(dump, dump.contains(phase.toString()));
+        }
+        Assert.assertTrue(dump, dump.contains("100%"));
+    }
+
+    private static void activeCycle(SchedulingLoopProfiler profiler) {
+        profiler.cycleStarted();
+        profiler.phaseEnded(Phase.CREATE_EXECUTION, System.nanoTime() - MILLI);
+        profiler.cycleActive(1);
+        profiler.cycleEnded();
+    }
+
+}
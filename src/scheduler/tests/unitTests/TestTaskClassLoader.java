@@ -0,0 +1,164 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unitTests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.proactive.scheduler.util.classloading.TaskClassLoader;
+import org.ow2.proactive.scheduler.util.classloading.TaskClassServer;
+
+
+/**
+ * Test the prefetching of the classes of a package by the TaskClassLoader.
+ * The loaded classes are classes of this test, served by a local class server
+ * to a class loader which cannot find them locally.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestTaskClassLoader {
+
+    @Test
+    public void testPackagePrefetched() throws Exception {
+        TaskClassServer server = new TaskClassServer();
+        server.activate(createClasspath(), false);
+        try {
+            TaskClassLoader loader = new TaskClassLoader(new URLClassLoader(new URL[0], null), server);
+            Class<?> first = loader.loadClass(First.class.getName());
+            Assert.assertSame(loader, first.getClassLoader());
+            Assert.assertNotSame(First.class, first);
+            Assert.assertEquals(1, loader.getRemoteFetchCount());
+
+            Class<?> second = loader.loadClass(Second.class.getName());
+            Assert.assertSame(loader, second.getClassLoader());
+            Assert.assertEquals("Class of a prefetched package asked again", 1, loader.getRemoteFetchCount());
+            Assert.assertSame(first, loader.loadClass(First.class.getName()));
+        } finally {
+            server.desactivate();
+        }
+    }
+
+    @Test
+    public void testClassesLoadedDuringPrefetch() throws Exception {
+        final CountDownLatch bundleAsked = new CountDownLatch(1);
+        final CountDownLatch bundleSent = new CountDownLatch(1);
+        TaskClassServer server = new TaskClassServer() {
+            @Override
+            public HashMap<String, byte[]> getClassBundle(String classname) throws ClassNotFoundException {
+                bundleAsked.countDown();
+                try {
+                    bundleSent.await();
+                } catch (InterruptedException e) {
+                    throw new ClassNotFoundException(classname, e);
+                }
+                return super.getClassBundle(classname);
+            }
+        };
+        server.activate(createClasspath(), false);
+        try {
+            final TaskClassLoader loader = new TaskClassLoader(new URLClassLoader(new URL[0], null), server);
+            final Class<?>[] first = new Class<?>[1];
+            Thread prefetching = new Thread() {
+                public void run() {
+                    try {
+                        first[0] = loader.loadClass(First.class.getName());
+                    } catch (ClassNotFoundException e) {
+                        e.printStackTrace();
+                    }
+                }
+            };
+            prefetching.start();
+            Assert.assertTrue(bundleAsked.await(10, TimeUnit.SECONDS));
+
+            // another thread gets its class while the package is being received
+            Class<?> second = loader.loadClass(Second.class.getName());
+            Assert.assertSame(loader, second.getClassLoader());
+            Assert.assertEquals(2, loader.getRemoteFetchCount());
+
+            bundleSent.countDown();
+            prefetching.join(10000);
+            Assert.assertNotNull(first[0]);
+            Assert.assertSame(loader, first[0].getClassLoader());
+            Assert.assertEquals(2, loader.getRemoteFetchCount());
+        } finally {
+            bundleSent.countDown();
+            server.desactivate();
+        }
+    }
+
+    /**
+     * Create a jar file containing the class files of the classes loaded by the tests.
+     */
+    private static byte[] createClasspath() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JarOutputStream jar = new JarOutputStream(bytes);
+        for (Class<?> clazz : new Class<?>[] { First.class, Second.class }) {
+            String name = clazz.getName().replace('.', '/') + ".class";
+            jar.putNextEntry(new JarEntry(name));
+            InputStream in = TestTaskClassLoader.class.getClassLoader().getResourceAsStream(name);
+            try {
+                byte[] buffer = new byte[1024];
+                int count;
+                while ((count = in.read(buffer)) > 0) {
+                    jar.write(buffer, 0, count);
+                }
+            } finally {
+                in.close();
+            }
+            jar.closeEntry();
+        }
+        jar.close();
+        return bytes.toByteArray();
+    }
+
+    public static class First {
+    }
+
+    public static class Second {
+    }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * ################################################################
+ *
+ * ProActive Parallel Suite(TM): The Java(TM) library for
+ *    Parallel, Distributed, Multi-Core Computing for
+ *    Enterprise Grids & Clouds
+ *
+ * Copyright (C) 1997-2011 INRIA/University of
+ *                 Nice-Sophia Antipolis/ActiveEon
+ * Contact: proactive@ow2.org or contact@activeeon.com
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Affero General Public License
+ * as published by the Free Software Foundation; version 3 of
+ * the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ *
+ * If needed, contact us to obtain a release under GPL Version 2 or 3
+ * or a different license than the AGPL.
+ *
+ *  Initial developer(s):               The ProActive Team
+ *                        http://proactive.inria.fr/team_members.htm
+ *  Contributor(s):
+ *
+ * ################################################################
+ * $$PROACTIVE_INITIAL_DEV$$
+ */
+package unitTests;
+
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ow2.proactive.scheduler.common.job.JobId;
+import org.ow2.proactive.scheduler.common.task.TaskId;
+import org.ow2.proactive.scheduler.core.TaskPingTracker;
+import org.ow2.proactive.scheduler.job.JobIdImpl;
+import org.ow2.proactive.scheduler.task.TaskIdImpl;
+
+
+/**
+ * Test the ping intervals, the timed out pings and the latency statistics of the TaskPingTracker.
+ *
+ * @author The ProActive Team
+ * @since ProActive Scheduling 3.2
+ */
+public class TestTaskPingTracker {
+
+    private static final long BASE_INTERVAL = 100000;
+
+    private static final int MAX_TIMEOUTS = 3;
+
+    private static final JobId JOB_ID = new JobIdImpl(1, "job");
+
+    @Test
+    public void testAdaptiveInterval() {
+        TaskPingTracker tracker = new TaskPingTracker(BASE_INTERVAL, BASE_INTERVAL * 4, MAX_TIMEOUTS);
+        TaskId taskId = TaskIdImpl.createTaskId(JOB_ID, "task", 1, false);
+
+        Assert.assertTrue(tracker.startPing(taskId, System.currentTimeMillis()));
+        // never pinged twice at the same time
+        Assert.assertFalse(tracker.startPing(taskId, System.currentTimeMillis() + BASE_INTERVAL * 10));
+
+        // the progress changed, next ping at the next round
+        tracker.endPing(taskId, 5, true);
+        Assert.assertTrue(tracker.startPing(taskId, System.currentTimeMillis()));
+
+        // the progress did not change, the interval is doubled up to the maximum interval
+        tracker.endPing(taskId, 5, false);
+        Assert.assertFalse(tracker.startPing(taskId, System.currentTimeMillis()));
+        Assert.assertTrue(tracker.startPing(taskId, System.currentTimeMillis() + BASE_INTERVAL));
+        tracker.endPing(taskId, 5, false);
+        Assert.assertFalse(tracker.startPing(taskId, System.currentTimeMillis() + BASE_INTERVAL * 2));
+        Assert.assertTrue(tracker.startPing(taskId, System.currentTimeMillis() + BASE_INTERVAL * 3));
+        tracker.endPing(taskId, 5, false);
+        Assert.assertTrue(tracker.startPing(taskId, System.currentTimeMillis() + BASE_INTERVAL * 3));
+        tracker.endPing(taskId, 5, true);
+        Assert.assertTrue(tracker.startPing(taskId, System.currentTimeMillis()));
+    }
+
+    @Test
+    public void testCancelledPings() {
+        TaskPingTracker tracker = new TaskPingTracker(BASE_INTERVAL, BASE_INTERVAL, MAX_TIMEOUTS);
+        TaskId started = TaskIdImpl.createTaskId(JOB_ID, "started", 1, false);
+        TaskId notStarted = TaskIdImpl.createTaskId(JOB_ID, "notStarted", 2, false);
+        long now = System.currentTimeMillis();
+
+        Assert.assertTrue(tracker.startPing(started, now));
+        Assert.assertTrue(tracker.startPing(notStarted, now));
+        tracker.pingTimedOut(started, true);
+        tracker.pingTimedOut(notStarted, false);
+        Assert.assertEquals(2, tracker.getTimeoutsCount());
+
+        // a started ping blocks the next ones until it returns
+        Assert.assertFalse(tracker.startPing(started, now));
+        tracker.endPing(started, 50000, false);
+        Assert.assertTrue(tracker.startPing(started, System.currentTimeMillis()));
+
+        // a ping cancelled before being started does not block the next ones
+        Assert.assertTrue(tracker.startPing(notStarted, now));
+        Assert.assertEquals(1, tracker.getPingsCount());
+    }
+
+    @Test
+    public void testUnresponsiveTask() {
+        TaskPingTracker tracker = new TaskPingTracker(BASE_INTERVAL, BASE_INTERVAL * 4, MAX_TIMEOUTS);
+        TaskId taskId = TaskIdImpl.createTaskId(JOB_ID, "task", 1, false);
+        long now = System.currentTimeMillis();
+
+        // a hung ping counts as a timeout at each next round until it returns
+        Assert.assertTrue(tracker.startPing(taskId, now));
+        tracker.pingTimedOut(taskId, true);
+        Assert.assertFalse(tracker.isUnresponsive(taskId));
+        Assert.assertFalse(tracker.startPing(taskId, now + BASE_INTERVAL));
+        Assert.assertFalse(tracker.isUnresponsive(taskId));
+        // not counted twice in the same round
+        Assert.assertFalse(tracker.startPing(taskId, now + BASE_INTERVAL + 1));
+        Assert.assertFalse(tracker.isUnresponsive(taskId));
+        Assert.assertFalse(tracker.startPing(taskId, now + BASE_INTERVAL * 2));
+        Assert.assertTrue(tracker.isUnresponsive(taskId));
+        Assert.assertEquals(MAX_TIMEOUTS, tracker.getTimeoutsCount());
+
+        // a ping which returns resets the count
+        tracker.endPing(taskId, BASE_INTERVAL * 2, false);
+        Assert.assertFalse(tracker.isUnresponsive(taskId));
+
+        // pings which could not be started say nothing about the node
+        for (int i = 0; i < MAX_TIMEOUTS; i++) {
+            Assert.assertTrue(tracker.startPing(taskId, now + BASE_INTERVAL * 10));
+            tracker.pingTimedOut(taskId, false);
+        }
+        Assert.assertFalse(tracker.isUnresponsive(taskId));
+
+        // a restarted task is pinged as a new one
+        Assert.assertTrue(tracker.startPing(taskId, now + BASE_INTERVAL * 10));
+        tracker.pingTimedOut(taskId, true);
+        tracker.forget(taskId);
+        Assert.assertTrue(tracker.startPing(taskId, System.currentTimeMillis()));
+    }
+
+    @Test
+    public void testLatencyStatistics() {
+        TaskPingTracker tracker = new TaskPingTracker(BASE_INTERVAL, BASE_INTERVAL, MAX_TIMEOUTS);
+        TaskId taskId = TaskIdImpl.createTaskId(JOB_ID, "task", 1, false);
+        long[] latencies = { 0, 9, 10, 99, 100, 5000, 10000, 20000 };
+        for (long latency : latencies) {
+            Assert.assertTrue(tracker.startPing(taskId, System.currentTimeMillis()));
+            tracker.endPing(taskId, latency, true);
+        }
+        Assert.assertEquals(latencies.length, tracker.getPingsCount());
+        Assert.assertEquals(20000, tracker.getMaxLatency());
+        Assert.assertEquals(35218 / latencies.length, tracker.getMeanLatency());
+        Assert.assertArrayEquals(new long[] { 2, 2, 1, 1, 2 }, tracker.getLatencyDistribution());
+
+        // the tasks which are not running anymore are forgotten
+        tracker.startPing(taskId, System.currentTimeMillis());
+        tracker.retainAll(Collections.<TaskId> emptySet());
+        Assert.assertTrue(tracker.startPing(taskId, System.currentTimeMillis()));
+    }
+
+}